@@ -0,0 +1,62 @@
+/******************************************************************************************************************
+* File:ECSLocal.java
+* Course: 17655
+* Project: Assignment A2
+* Copyright: Copyright (c) 2009 Carnegie Mellon University
+* Versions:
+*	1.0 October 2026 - Initial version.
+*
+* Description: This class runs the environmental control system in a single JVM: an embedded message manager, one
+*			   temperature and one humidity sensor, one temperature and one humidity controller, and the console. All
+*			   of them use the local transport (see MessagePackage/LocalBroker.java), so messages are handed between
+*			   them directly instead of through RMI.
+*
+*			   The sensors and controllers keep their state in static fields, so only one of each can run in a JVM;
+*			   the redundant ones started by ECStart.sh are left out.
+*
+* Parameters: None
+*
+* Internal Methods:
+*	static void Start(String name, Runnable r)
+*
+******************************************************************************************************************/
+import MessagePackage.*;
+
+public class ECSLocal
+{
+	public static void main(String args[]) throws Exception
+	{
+		System.setProperty( "messagemanager.transport", "local" );
+
+		// The monitor only needs the latest reading of each sensor
+
+		if ( System.getProperty( "messagemanager.conflate.ids" ) == null )
+			System.setProperty( "messagemanager.conflate.ids", "1,11,2,22" );
+
+		// Start the message manager first so every component finds it
+
+		LocalBroker.Get();
+
+		Start( "TemperatureController", new Runnable() { public void run() { TemperatureController.main( new String[] { "0" } ); } } );
+		Start( "HumidityController", new Runnable() { public void run() { HumidityController.main( new String[] { "0" } ); } } );
+		Start( "TemperatureSensor", new Runnable() { public void run() { TemperatureSensor.main( new String[] { "0" } ); } } );
+		Start( "HumiditySensor", new Runnable() { public void run() { HumiditySensor.main( new String[] { "0" } ); } } );
+
+		ECSConsole.main( new String[0] );
+
+		// The embedded message manager is exported over RMI, which would keep
+		// the JVM running after the console stops.
+
+		System.exit( 0 );
+
+	} // main
+
+	static void Start( String name, Runnable r )
+	{
+		Thread t = new Thread( r, name );
+		t.setDaemon( true );
+		t.start();
+
+	} // Start
+
+} // ECSLocal
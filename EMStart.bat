@@ -1,3 +1,3 @@
 %ECHO OFF
 START "EVENT MANAGER REGISTRY" /MIN /NORMAL rmiregistry
-START "EVENT MANAGER" /MIN /NORMAL java MessageManager
+START "EVENT MANAGER" /MIN /NORMAL java -Dmessagemanager.snapshot.dir=mmsnapshot -Dmessagemanager.conflate.ids=1,11,2,22 MessageManager
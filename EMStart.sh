@@ -7,4 +7,4 @@ echo "Starting RMI Registry and the Message Manager"
 rmiregistry &
 sleep 3
 echo ""
-java MessageManager &
+java -Dmessagemanager.snapshot.dir=mmsnapshot -Dmessagemanager.conflate.ids=1,11,2,22 MessageManager &
@@ -1,345 +1,439 @@
-/******************************************************************************************************************
-* File:HumidityController.java
-* Course: 17655
-* Project: Assignment A2
-* Copyright: Copyright (c) 2009 Carnegie Mellon University
-* Versions:
-*	1.0 March 2009 - Initial rewrite of original assignment 2 (ajl).
-*
-* Description:
-*
-* This class simulates a device that controls a humidifier and dehumidifier. It polls the message manager for message
-* ids = 4 and reacts to them by turning on or off the humidifier/dehumidifier. The following command are valid
-* strings for controlling the humidifier and dehumidifier:
-*
-*	H1 = humidifier on
-*	H0 = humidifier off
-*	D1 = dehumidifier on
-*	D0 = dehumidifier off
-*
-* The state (on/off) is graphically displayed on the terminal in the indicator. Command messages are displayed in
-* the message window. Once a valid command is recieved a confirmation message is sent with the id of -5 and the command in
-* the command string.
-*
-* Parameters: IP address of the message manager (on command line). If blank, it is assumed that the message manager is
-* on the local machine.
-*
-* Internal Methods:
-*	static private void ConfirmMessage(MessageManagerInterface ei, String m )
-*
-******************************************************************************************************************/
-import InstrumentationPackage.*;
-import MessagePackage.*;
-import java.util.*;
-
-class HumidityController
-{
-	// sensor ID number
-	public static int humiditySensorID = 0;
-	public static void main(String args[])
-	{
-		String MsgMgrIP = null;				// Message Manager IP address
-		Message Msg = null;					// Message object
-		MessageQueue eq = null;				// Message Queue
-		int MsgId = 0;						// User specified message ID
-		MessageManagerInterface em = null;	// Interface object to the message manager
-		boolean HumidifierState = false;	// Heater state: false == off, true == on
-		boolean DehumidifierState = false;	// Dehumidifier state: false == off, true == on
-		int	Delay = 2500;					// The loop delay (2.5 seconds)
-		boolean Done = false;				// Loop termination flag
-		int ReconnectToMMDelay = 3000;		// The reconnection to the message manager delay (10 seconds)
-
-		/////////////////////////////////////////////////////////////////////////////////
-		// Get the IP address of the message manager
-		/////////////////////////////////////////////////////////////////////////////////
-
- 		if ( args.length == 1 )
- 		{
-			 // set the humidity ID
-			 humiditySensorID = Integer.parseInt(args[0]);
-			 // message manager is on the local system
-			 em = newEM(MsgMgrIP);
-		} else {
-			// set the humidity ID
-			humiditySensorID = Integer.parseInt(args[0]);
-
-			// message manager is not on the local system
-			MsgMgrIP = args[1];
-
-			em = newEM(MsgMgrIP);
-		} // if
-
-		// Here we check to see if registration worked. If em is null then the
-		// message manager interface was not properly created.
-
-		if (em != null)
-		{
-			System.out.println("Registered with the message manager." );
-
-			/* Now we create the humidity control status and message panel
-			** We put this panel about 2/3s the way down the terminal, aligned to the left
-			** of the terminal. The status indicators are placed directly under this panel
-			*/
-
-			float WinPosX = 0.0f; 	//This is the X position of the message window in terms
-									//of a percentage of the screen height
-			float WinPosY = 0.60f;	//This is the Y position of the message window in terms
-								 	//of a percentage of the screen height
-
-			MessageWindow mw = new MessageWindow("Humidity Controller Status Console", WinPosX, WinPosY);
-
-			// Now we put the indicators directly under the humitity status and control panel
-
-			Indicator hi = new Indicator ("Humid OFF", mw.GetX(), mw.GetY()+mw.Height());
-			Indicator di = new Indicator ("DeHumid OFF", mw.GetX()+(hi.Width()*2), mw.GetY()+mw.Height());
-
-			mw.WriteMessage("Registered with the message manager." );
-
-	    	try
-	    	{
-				mw.WriteMessage("   Participant id: " + em.GetMyId() );
-				mw.WriteMessage("   Registration Time: " + em.GetRegistrationTime() );
-
-			} // try
-
-	    	catch (Exception e)
-			{
-				System.out.println("Error:: " + e);
-
-			} // catch
-
-			/********************************************************************
-			** Here we start the main simulation loop
-			*********************************************************************/
-
-			while ( !Done )
-			{
-				try
-				{
-					eq = em.GetMessageQueue();
-				} // try
-				catch( Exception e )
-				{
-					mw.WriteMessage("Error getting message queue::" + e );
-					try
-					{
-						Thread.sleep(ReconnectToMMDelay);
-					} catch (Exception sleepException) {
-						System.out.println( "Sleep error:: " + sleepException );
-					}
-					em = newEM(MsgMgrIP);
-				} // catch
-
-				// If there are messages in the queue, we read through them.
-				// We are looking for MessageIDs = 4, this is a request to turn the
-				// humidifier or dehumidifier on/off. Note that we get all the messages
-				// at once... there is a 2.5 second delay between samples,.. so
-				// the assumption is that there should only be a message at most.
-				// If there are more, it is the last message that will effect the
-				// output of the humidity as it would in reality.
-
-				int qlen = eq.GetSize();
-
-				for ( int i = 0; i < qlen; i++ )
-				{
-					Msg = eq.GetMessage();
-
-					if ( Msg.GetMessageId() == 4 || Msg.GetMessageId() == 44 )
-					{
-						if (Msg.GetMessage().equalsIgnoreCase("H1")) // humidifier on
-						{
-							HumidifierState = true;
-							mw.WriteMessage("Received humidifier on message" );
-
-							// Confirm that the message was recieved and acted on
-
-							ConfirmMessage( em, "H1" );
-
-						} // if
-
-						if (Msg.GetMessage().equalsIgnoreCase("H0")) // humidifier off
-						{
-							HumidifierState = false;
-							mw.WriteMessage("Received humidifier off message" );
-
-							// Confirm that the message was recieved and acted on
-
-							ConfirmMessage( em, "H0" );
-
-						} // if
-
-						if (Msg.GetMessage().equalsIgnoreCase("D1")) // dehumidifier on
-						{
-							DehumidifierState = true;
-							mw.WriteMessage("Received dehumidifier on message" );
-
-							// Confirm that the message was recieved and acted on
-
-							ConfirmMessage( em, "D1" );
-
-						} // if
-
-						if (Msg.GetMessage().equalsIgnoreCase("D0")) // dehumidifier off
-						{
-							DehumidifierState = false;
-							mw.WriteMessage("Received dehumidifier off message" );
-
-							// Confirm that the message was recieved and acted on
-
-							ConfirmMessage( em, "D0" );
-
-						} // if
-
-					} // if
-
-					// If the message ID == 99 then this is a signal that the simulation
-					// is to end. At this point, the loop termination flag is set to
-					// true and this process unregisters from the message manager.
-
-					if ( Msg.GetMessageId() == 99 )
-					{
-						Done = true;
-
-						try
-						{
-							em.UnRegister();
-
-				    	} // try
-
-				    	catch (Exception e)
-				    	{
-							mw.WriteMessage("Error unregistering: " + e);
-
-				    	} // catch
-
-				    	mw.WriteMessage( "\n\nSimulation Stopped. \n");
-
-						// Get rid of the indicators. The message panel is left for the
-						// user to exit so they can see the last message posted.
-
-						hi.dispose();
-						di.dispose();
-
-					} // if
-
-				} // for
-
-				// Update the lamp status
-
-				if (HumidifierState)
-				{
-					// Set to green, humidifier is on
-
-					hi.SetLampColorAndMessage("HUMID ON", 1);
-
-				} else {
-
-					// Set to black, humidifier is off
-					hi.SetLampColorAndMessage("HUMID OFF", 0);
-
-				} // if
-
-				if (DehumidifierState)
-				{
-					// Set to green, dehumidifier is on
-
-					di.SetLampColorAndMessage("DEHUMID ON", 1);
-
-				} else {
-
-					// Set to black, dehumidifier is off
-
-					di.SetLampColorAndMessage("DEHUMID OFF", 0);
-
-				} // if
-
-				try
-				{
-					Thread.sleep( Delay );
-
-				} // try
-
-				catch( Exception e )
-				{
-					System.out.println( "Sleep error:: " + e );
-
-				} // catch
-
-			} // while
-
-		} else {
-
-			System.out.println("Unable to register with the message manager.\n\n" );
-
-		} // if
-
-	} // main
-
-
-	//////////////////// REMARK: new message manager interface when needed
-	public static MessageManagerInterface newEM(String ip) {
-		System.out.println("\n\nAttempting to register on the local machine..." );
-		MessageManagerInterface em = null;
-		try
-		{
-			// Here we create an message manager interface object. This assumes
-			// that the message manager is on the local machine
-			if (ip == null) {
-				em = new MessageManagerInterface();
-			} else {
-				em = new MessageManagerInterface(ip);
-			}
-		}
-
-		catch (Exception e)
-		{
-			System.out.println("Error instantiating message manager interface: " + e);
-
-		} // catch
-		return em;
-	}
-	//////////////////// END OF REMARK
-
-	/***************************************************************************
-	* CONCRETE METHOD:: ConfirmMessage
-	* Purpose: This method posts the specified message to the specified message
-	* manager. This method assumes an message ID of -4 which indicates a confirma-
-	* tion of a command.
-	*
-	* Arguments: MessageManagerInterface ei - this is the messagemanger interface
-	*			 where the message will be posted.
-	*
-	*			 string m - this is the received command.
-	*
-	* Returns: none
-	*
-	* Exceptions: None
-	*
-	***************************************************************************/
-
-	static private void ConfirmMessage(MessageManagerInterface ei, String m )
-	{
-		// Here we create the message.
-
-		Message msg = new Message( (int) -4, m );
-		if(humiditySensorID == 1){
-			msg = new Message( (int) -44, m);
-		}
-
-		// Here we send the message to the message manager.
-
-		try
-		{
-			ei.SendMessage( msg );
-
-		} // try
-
-		catch (Exception e)
-		{
-			System.out.println("Error Confirming Message:: " + e);
-
-		} // catch
-
-	} // PostMessage
-
+/******************************************************************************************************************
+* File:HumidityController.java
+* Course: 17655
+* Project: Assignment A2
+* Copyright: Copyright (c) 2009 Carnegie Mellon University
+* Versions:
+*	1.0 March 2009 - Initial rewrite of original assignment 2 (ajl).
+*
+* Description:
+*
+* This class simulates a device that controls a humidifier and dehumidifier. The message manager pushes messages with
+* ids = 4 to it and it reacts to them by turning on or off the humidifier/dehumidifier. The following command are valid
+* strings for controlling the humidifier and dehumidifier:
+*
+*	H1 = humidifier on
+*	H0 = humidifier off
+*	D1 = dehumidifier on
+*	D0 = dehumidifier off
+*
+* The state (on/off) is graphically displayed on the terminal in the indicator. Command messages are displayed in
+* the message window. Once a valid command is recieved a confirmation message is sent with the id of -5 and the command in
+* the command string.
+*
+* Parameters: IP address of the message manager (on command line). If blank, it is assumed that the message manager is
+* on the local machine.
+*
+* Internal Methods:
+*	static private void ConfirmMessage(MessageManagerInterface ei, int m )
+*	static private boolean Listen(MessageManagerInterface em, CommandHandler handler, MessageWindow mw )
+*
+******************************************************************************************************************/
+import InstrumentationPackage.*;
+import MessagePackage.*;
+import java.util.*;
+
+class HumidityController
+{
+	// sensor ID number
+	public static int humiditySensorID = 0;
+
+	static final int HUMIDIFIER_ON = Message.Code( "H1" );		// Commands, as sent by the ECS monitor
+	static final int HUMIDIFIER_OFF = Message.Code( "H0" );
+	static final int DEHUMIDIFIER_ON = Message.Code( "D1" );
+	static final int DEHUMIDIFIER_OFF = Message.Code( "D0" );
+	public static void main(String args[])
+	{
+		String MsgMgrIP = null;				// Message Manager IP address
+		MessageQueue eq = null;				// Message Queue
+		int MsgId = 0;						// User specified message ID
+		MessageManagerInterface em = null;	// Interface object to the message manager
+		int	Delay = 2500;					// The interval between connection checks (2.5 seconds)
+		int ReconnectToMMDelay = 3000;		// The reconnection to the message manager delay (10 seconds)
+
+		/////////////////////////////////////////////////////////////////////////////////
+		// Get the IP address of the message manager
+		/////////////////////////////////////////////////////////////////////////////////
+
+ 		if ( args.length == 1 )
+ 		{
+			 // set the humidity ID
+			 humiditySensorID = Integer.parseInt(args[0]);
+			 // message manager is on the local system
+			 em = newEM(MsgMgrIP);
+		} else {
+			// set the humidity ID
+			humiditySensorID = Integer.parseInt(args[0]);
+
+			// message manager is not on the local system
+			MsgMgrIP = args[1];
+
+			em = newEM(MsgMgrIP);
+		} // if
+
+		// Here we check to see if registration worked. If em is null then the
+		// message manager interface was not properly created.
+
+		if (em != null)
+		{
+			System.out.println("Registered with the message manager." );
+
+			/* Now we create the humidity control status and message panel
+			** We put this panel about 2/3s the way down the terminal, aligned to the left
+			** of the terminal. The status indicators are placed directly under this panel
+			*/
+
+			float WinPosX = 0.0f; 	//This is the X position of the message window in terms
+									//of a percentage of the screen height
+			float WinPosY = 0.60f;	//This is the Y position of the message window in terms
+								 	//of a percentage of the screen height
+
+			MessageWindow mw = new MessageWindow("Humidity Controller Status Console", WinPosX, WinPosY);
+
+			// Now we put the indicators directly under the humitity status and control panel
+
+			Indicator hi = new Indicator ("Humid OFF", mw.GetX(), mw.GetY()+mw.Height());
+			Indicator di = new Indicator ("DeHumid OFF", mw.GetX()+(hi.Width()*2), mw.GetY()+mw.Height());
+
+			mw.WriteMessage("Registered with the message manager." );
+
+	    	try
+	    	{
+				mw.WriteMessage("   Participant id: " + em.GetMyId() );
+				mw.WriteMessage("   Registration Time: " + em.GetRegistrationTime() );
+
+			} // try
+
+	    	catch (Exception e)
+			{
+				System.out.println("Error:: " + e);
+
+			} // catch
+
+			CommandHandler handler = new CommandHandler( em, mw, hi, di );
+			boolean Pushed = Listen( em, handler, mw );
+
+			/********************************************************************
+			** Here we start the main simulation loop. Commands are handled by the
+			** CommandHandler as the message manager pushes them, so this loop only
+			** watches the connection to the message manager and reconnects if it
+			** is lost. If push delivery could not be set up, or the message manager
+			** stops pushing because the listener could not be reached, the loop
+			** long polls for commands and hands them to the same handler.
+			*********************************************************************/
+
+			while ( !handler.Done )
+			{
+				try
+				{
+					if ( Pushed )
+					{
+						if ( !handler.AwaitDone( Delay ) && !em.IsAlive() )
+						{
+							throw new Exception( "Message manager not responding" );
+
+						} // if
+
+						if ( !handler.Done && !em.IsListening() )
+						{
+							mw.WriteMessage("Push delivery stopped, polling for commands." );
+							Pushed = false;
+
+						} // if
+
+					} else {
+
+						eq = em.GetMessageQueue( Delay );
+
+						int qlen = eq.GetSize();
+
+						for ( int i = 0; i < qlen; i++ )
+						{
+							handler.MessageReceived( eq.GetMessage() );
+
+						} // for
+
+					} // if
+
+				} // try
+
+				catch( Exception e )
+				{
+					mw.WriteMessage("Error getting message queue::" + e );
+					try
+					{
+					    Thread.sleep(ReconnectToMMDelay);
+					} catch (Exception sleepException) {
+					    System.out.println( "Sleep error:: " + sleepException );
+					}
+					em = newEM(MsgMgrIP);
+
+					if (em != null)
+					{
+						handler.em = em;
+						Pushed = Listen( em, handler, mw );
+
+					} // if
+
+				} // catch
+
+			} // while
+
+		} else {
+
+			System.out.println("Unable to register with the message manager.\n\n" );
+
+		} // if
+
+	} // main
+
+
+	/***************************************************************************
+	* INNER CLASS:: CommandHandler
+	* Purpose: This class is the controller's event handler. The message manager
+	* pushes each command to MessageReceived, which switches the humidifier and dehumidifier,
+	* confirms the command and updates the lamps.
+	*
+	***************************************************************************/
+
+	static class CommandHandler implements MessageListener
+	{
+		MessageManagerInterface em;			// Interface object to the message manager
+		MessageWindow mw;					// The status console
+		Indicator hi;						// Humidifier indicator
+		Indicator di;						// Dehumidifier indicator
+		boolean HumidifierState = false;	// Humidifier state: false == off, true == on
+		boolean DehumidifierState = false;	// Dehumidifier state: false == off, true == on
+		volatile boolean Done = false;		// Set once the halt message has been handled
+
+		CommandHandler( MessageManagerInterface em, MessageWindow mw, Indicator hi, Indicator di )
+		{
+			this.em = em;
+			this.mw = mw;
+			this.hi = hi;
+			this.di = di;
+
+		} // constructor
+
+		public synchronized void MessageReceived( Message Msg )
+		{
+			if ( Msg.GetMessageId() == 4 || Msg.GetMessageId() == 44 )
+			{
+				if (Msg.GetCommand() == HUMIDIFIER_ON) // humidifier on
+				{
+					HumidifierState = true;
+					mw.WriteMessage("Received humidifier on message" );
+
+					// Confirm that the message was recieved and acted on
+
+					ConfirmMessage( em, HUMIDIFIER_ON );
+
+				} // if
+
+				if (Msg.GetCommand() == HUMIDIFIER_OFF) // humidifier off
+				{
+					HumidifierState = false;
+					mw.WriteMessage("Received humidifier off message" );
+
+					// Confirm that the message was recieved and acted on
+
+					ConfirmMessage( em, HUMIDIFIER_OFF );
+
+				} // if
+
+				if (Msg.GetCommand() == DEHUMIDIFIER_ON) // dehumidifier on
+				{
+					DehumidifierState = true;
+					mw.WriteMessage("Received dehumidifier on message" );
+
+					// Confirm that the message was recieved and acted on
+
+					ConfirmMessage( em, DEHUMIDIFIER_ON );
+
+				} // if
+
+				if (Msg.GetCommand() == DEHUMIDIFIER_OFF) // dehumidifier off
+				{
+					DehumidifierState = false;
+					mw.WriteMessage("Received dehumidifier off message" );
+
+					// Confirm that the message was recieved and acted on
+
+					ConfirmMessage( em, DEHUMIDIFIER_OFF );
+
+				} // if
+
+			} // if
+
+			// If the message ID == 99 then this is a signal that the simulation
+			// is to end. At this point, the loop termination flag is set to
+			// true and this process unregisters from the message manager.
+
+			if ( Msg.GetMessageId() == 99 )
+			{
+				Done = true;
+				notifyAll();
+
+				try
+				{
+					em.UnRegister();
+
+		    	} // try
+
+		    	catch (Exception e)
+		    	{
+					mw.WriteMessage("Error unregistering: " + e);
+
+		    	} // catch
+
+		    	mw.WriteMessage( "\n\nSimulation Stopped. \n");
+
+				// Get rid of the indicators. The message panel is left for the
+				// user to exit so they can see the last message posted.
+
+				hi.dispose();
+				di.dispose();
+
+			} // if
+
+			// Update the lamp status
+
+			if (HumidifierState)
+			{
+				// Set to green, humidifier is on
+
+				hi.SetLampColorAndMessage("HUMID ON", 1);
+
+			} else {
+
+				// Set to black, humidifier is off
+				hi.SetLampColorAndMessage("HUMID OFF", 0);
+
+			} // if
+
+			if (DehumidifierState)
+			{
+				// Set to green, dehumidifier is on
+
+				di.SetLampColorAndMessage("DEHUMID ON", 1);
+
+			} else {
+
+				// Set to black, dehumidifier is off
+
+				di.SetLampColorAndMessage("DEHUMID OFF", 0);
+
+			} // if
+
+		} // MessageReceived
+
+		synchronized boolean AwaitDone( long timeout ) throws InterruptedException
+		{
+			if ( !Done )
+				wait( timeout );
+
+			return Done;
+
+		} // AwaitDone
+
+	} // CommandHandler
+
+	/***************************************************************************
+	* CONCRETE METHOD:: Listen
+	* Purpose: This method asks the message manager to push commands to the
+	* handler.
+	*
+	* Returns: boolean true if commands will be pushed, false if the caller
+	* must poll for them
+	*
+	***************************************************************************/
+
+	static private boolean Listen( MessageManagerInterface em, CommandHandler handler, MessageWindow mw )
+	{
+		try
+		{
+			em.SetMessageListener( handler );
+			mw.WriteMessage("Commands are pushed by the message manager." );
+			return true;
+
+		} // try
+
+		catch (Exception e)
+		{
+			mw.WriteMessage("Push delivery unavailable, polling for commands:: " + e );
+			return false;
+
+		} // catch
+
+	} // Listen
+
+	//////////////////// REMARK: new message manager interface when needed
+	public static MessageManagerInterface newEM(String ip) {
+		System.out.println("\n\nAttempting to register on the local machine..." );
+		MessageManagerInterface em = null;
+		try
+		{
+			// Here we create an message manager interface object. This assumes
+			// that the message manager is on the local machine
+			if (ip == null) {
+				em = new MessageManagerInterface();
+			} else {
+				em = new MessageManagerInterface(ip);
+			}
+
+			// Only the humidifier/dehumidifier commands and the halt message are of interest here
+			em.Subscribe( 4, 44, 99 );
+		}
+
+		catch (Exception e)
+		{
+			System.out.println("Error instantiating message manager interface: " + e);
+
+		} // catch
+		return em;
+	}
+	//////////////////// END OF REMARK
+
+	/***************************************************************************
+	* CONCRETE METHOD:: ConfirmMessage
+	* Purpose: This method posts the specified message to the specified message
+	* manager. This method assumes an message ID of -4 which indicates a confirma-
+	* tion of a command.
+	*
+	* Arguments: MessageManagerInterface ei - this is the messagemanger interface
+	*			 where the message will be posted.
+	*
+	*			 int m - this is the received command code.
+	*
+	* Returns: none
+	*
+	* Exceptions: None
+	*
+	***************************************************************************/
+
+	static private void ConfirmMessage(MessageManagerInterface ei, int m )
+	{
+		// Here we create the message.
+
+		Message msg = Message.Command( (int) -4, m );
+		if(humiditySensorID == 1){
+			msg = Message.Command( (int) -44, m);
+		}
+
+		// Here we send the message to the message manager.
+
+		try
+		{
+			ei.SendMessage( msg );
+
+		} // try
+
+		catch (Exception e)
+		{
+			System.out.println("Error Confirming Message:: " + e);
+
+		} // catch
+
+	} // PostMessage
+
 } // HumidityControllers
\ No newline at end of file
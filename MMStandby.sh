@@ -0,0 +1,8 @@
+#!/bin/bash
+# Standby message manager start-up script. The message manager it copies must have been started with
+# -Dmessagemanager.replication=true; participants fail over to the standby if they set messagemanager.failover.millis
+
+echo -n -e "\033]0;STANDBY MESSAGE MANAGER\007"
+
+echo "Starting the standby Message Manager"
+java -Dmessagemanager.standby.primary=MessageManager -Dmessagemanager.replication=true -Dmessagemanager.conflate.ids=1,11,2,22 MessageManager &
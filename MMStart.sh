@@ -1,2 +1,2 @@
 echo "Restarting Message Manager"
-java MessageManager &
+java -Dmessagemanager.snapshot.dir=mmsnapshot -Dmessagemanager.conflate.ids=1,11,2,22 MessageManager &
@@ -0,0 +1,931 @@
+/******************************************************************************************************************
+* File:MessageBenchmark.java
+* Course: 17655
+* Project: Assignment A2
+* Copyright: Copyright (c) 2009 Carnegie Mellon University
+* Versions:
+*	1.0 October 2026 - Initial version.
+*
+* Description: This class runs micro benchmarks against the message manager in a single JVM. The message manager is
+* called directly (not through RMI) so that only the broker itself is measured. Request logging is sent to a null
+* stream while a benchmark runs.
+*
+* Parameters: benchmark name followed by benchmark specific arguments:
+*
+*	queue [participants] [senders] [messages per sender]
+*		Throughput of concurrent sends and polls, compared against the original single lock broker with Vector
+*		queues (LegacyBroker below).
+*
+*	journal [participants] [messages] [batch size]
+*		Durable mode: send rate with group commit, then the time to restart from a journal holding every message
+*		(the broker is abandoned without a checkpoint, as in a crash), then the restart time after a checkpoint.
+*
+*	transport [messages] [participants]
+*		Round trip latency and one way throughput between two MessageManagerInterface participants, then the
+*		call rate of many participants sending and polling at once, over RMI (through a registry in this JVM), the
+*		TCP transport, the shared memory transport (rings in a temporary directory) and the local transport.
+*
+*	fanout [participants] [messages]
+*		Send rate and heap held while every participant receives every message and nobody polls, then the time
+*		to poll every participant once, with per participant queues (queue mode) and with the shared log (log
+*		mode, see MessageLog).
+*
+*	drain [queue length] [rounds]
+*		Time to take a backlog out of a participant's queue and read it message by message, as a poll does:
+*		MessageQueue.Drain followed by GetMessage, against the original Vector clone, clear and removeElementAt(0)
+*		(LegacyQueue below).
+*
+*	priority [backlog] [rounds]
+*		Time until a halt message is read from a queue already holding a backlog of readings, sent as CONTROL
+*		(its own lane, read first) and as TELEMETRY (behind the backlog, as every message was before priority
+*		lanes).
+*
+*	codec [iterations] [queue length]
+*		Serialized size and encode/decode time of a single message and of a message queue, in the compact
+*		encoding (MessageCodec) with text and with float payloads, and in default serialization of the original
+*		Message and MessageQueue classes (LegacyMessage and LegacyMessageQueue below).
+*
+* Internal Methods:
+*	static void QueueBenchmark(String args[])
+*	static void JournalBenchmark(String args[])
+*	static void TransportBenchmark(String args[])
+*	static void FanoutBenchmark(String args[])
+*	static void DrainBenchmark(String args[])
+*	static void PriorityBenchmark(String args[])
+*	static void CodecBenchmark(String args[])
+*
+******************************************************************************************************************/
+import MessagePackage.*;
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+public class MessageBenchmark
+{
+	static PrintStream Console = System.out;	// The real console, restored for printing results
+
+	public static void main(String args[]) throws Exception
+	{
+		String name = (args.length > 0) ? args[0] : "queue";
+		String rest[] = (args.length > 0) ? Arrays.copyOfRange(args, 1, args.length) : new String[0];
+
+		System.setOut( new PrintStream( new OutputStream() { public void write(int b) {} } ) );
+
+		try
+		{
+			if ( name.equals("queue") )
+			{
+				QueueBenchmark( rest );
+
+			} else if ( name.equals("journal") ) {
+
+				JournalBenchmark( rest );
+
+			} else if ( name.equals("transport") ) {
+
+				TransportBenchmark( rest );
+
+			} else if ( name.equals("fanout") ) {
+
+				FanoutBenchmark( rest );
+
+			} else if ( name.equals("drain") ) {
+
+				DrainBenchmark( rest );
+
+			} else if ( name.equals("priority") ) {
+
+				PriorityBenchmark( rest );
+
+			} else if ( name.equals("codec") ) {
+
+				CodecBenchmark( rest );
+
+			} else {
+
+				Console.println( "Unknown benchmark: " + name );
+
+			} // if
+
+		} finally {
+
+			System.setOut( Console );
+
+		} // try
+
+		// The message manager is exported by its constructor, so the RMI runtime
+		// keeps the JVM alive unless we exit explicitly.
+
+		System.exit(0);
+
+	} // main
+
+	static int IntArg( String args[], int i, int def )
+	{
+		return (args.length > i) ? Integer.parseInt(args[i]) : def;
+
+	} // IntArg
+
+	/***************************************************************************
+	* INTERFACE:: Broker
+	* Purpose: The subset of broker operations exercised by the queue benchmark,
+	*		   so the current and legacy brokers can be driven by the same code.
+	*
+	****************************************************************************/
+
+	interface Broker
+	{
+		long Register() throws Exception;
+		void SendMessage( Message m ) throws Exception;
+		int Poll( long id ) throws Exception;
+
+	} // Broker
+
+	/***************************************************************************
+	* CONCRETE METHOD:: QueueBenchmark
+	* Purpose: Registers a number of participants, then runs sender threads that
+	*		   post messages while one poller thread per participant drains its
+	*		   queue. Reports delivered messages per second.
+	*
+	****************************************************************************/
+
+	static void QueueBenchmark( String args[] ) throws Exception
+	{
+		int participants = IntArg( args, 0, 64 );
+		int senders = IntArg( args, 1, 4 );
+		int messages = IntArg( args, 2, 20000 );
+
+		// The legacy broker has unbounded queues; match it so no message is
+		// dropped and the pollers can count every delivery.
+
+		System.setProperty( "messagemanager.queue.capacity", "0" );
+
+		final MessageManager mm = new MessageManager();
+
+		Broker current = new Broker()
+		{
+			public long Register() throws Exception { return mm.Register(); }
+			public void SendMessage( Message m ) throws Exception { mm.SendMessage( m ); }
+			public int Poll( long id ) throws Exception { return mm.GetMessageQueue( id ).GetSize(); }
+		};
+
+		Console.println( "queue: " + participants + " participants, " + senders + " senders, " + messages + " messages per sender" );
+
+		for ( int round = 0; round < 3; round++ )
+		{
+			double legacy = RunQueueRound( new LegacyBroker(), participants, senders, messages );
+			mm.MessageQueueList = new ParticipantTable<MessageQueue>();
+			mm.Subscriptions = new SubscriptionIndex();
+			double now = RunQueueRound( current, participants, senders, messages );
+
+			Console.printf( "  round %d: legacy %,.0f msg/s   current %,.0f msg/s   (x%.1f)%n", round, legacy, now, now / legacy );
+
+		} // for
+
+	} // QueueBenchmark
+
+	/***************************************************************************
+	* CONCRETE METHOD:: JournalBenchmark
+	* Purpose: Sends messages in durable mode with nobody polling, abandons the
+	*		   broker, and times how long a new broker takes to replay the
+	*		   journal and restore every queued message.
+	*
+	****************************************************************************/
+
+	static void JournalBenchmark( String args[] ) throws Exception
+	{
+		int participants = IntArg( args, 0, 4 );
+		int messages = IntArg( args, 1, 1000000 );
+		int batch = IntArg( args, 2, 1000 );
+
+		File dir = new File( System.getProperty( "java.io.tmpdir" ), "journal-benchmark-" + System.nanoTime() );
+
+		System.setProperty( "messagemanager.journal.dir", dir.getPath() );
+		System.setProperty( "messagemanager.journal.checkpoint", "0" );
+		System.setProperty( "messagemanager.queue.capacity", "0" );
+		System.setProperty( "messagemanager.lease.millis", "0" );
+
+		try
+		{
+			Console.println( "journal: " + participants + " participants, " + messages + " messages, batches of " + batch );
+
+			MessageManager mm = new MessageManager();
+
+			for ( int i = 0; i < participants; i++ )
+				mm.Register();
+
+			long t0 = System.nanoTime();
+
+			for ( int sent = 0; sent < messages; sent += batch )
+			{
+				ArrayList<Message> ms = new ArrayList<Message>( batch );
+
+				for ( int i = 0; i < batch && sent + i < messages; i++ )
+					ms.add( new Message( 1, "72.5" ) );
+
+				mm.SendMessages( ms );
+
+			} // for
+
+			double rate = messages * 1e9 / (System.nanoTime() - t0);
+
+			Console.printf( "  send: %,.0f msg/s, journal %,d MB%n", rate, mm.Log.GetPosition() >> 20 );
+
+			// Abandon the broker without a checkpoint
+
+			mm.Log.Close();
+			mm = Restart( "journal" );
+
+			mm.TakeCheckpoint();
+			mm.Log.Close();
+			mm = Restart( "checkpoint" );
+
+			mm.Log.Close();
+
+		} finally {
+
+			File files[] = dir.listFiles();
+
+			if ( files != null )
+			{
+				for ( File f : files )
+					f.delete();
+
+			} // if
+
+			dir.delete();
+
+		} // try
+
+	} // JournalBenchmark
+
+	/***************************************************************************
+	* CONCRETE METHOD:: TransportBenchmark
+	* Purpose: Runs the same two participant exchange over each transport:
+	*		   single messages sent and polled back one at a time (latency),
+	*		   then a stream of single sends drained by polling (throughput).
+	*		   Then many participants, each on its own thread, alternate sends
+	*		   and polls.
+	*
+	****************************************************************************/
+
+	static void TransportBenchmark( String args[] ) throws Exception
+	{
+		int messages = IntArg( args, 0, 20000 );
+		int participants = IntArg( args, 1, 200 );
+
+		System.setProperty( "messagemanager.queue.capacity", "0" );
+		System.setProperty( "messagemanager.tcp.port", "0" );
+
+		File shm = java.nio.file.Files.createTempDirectory( "mmshm" ).toFile();
+		shm.deleteOnExit();
+		System.setProperty( "messagemanager.shm.dir", shm.getPath() );
+
+		MessageManager mm = new MessageManager();
+
+		System.setProperty( "messagemanager.tcp.port", String.valueOf( mm.TcpServer.GetPort() ) );
+
+		try
+		{
+			java.rmi.registry.LocateRegistry.createRegistry( 1099 );
+
+		} catch (java.rmi.RemoteException e) {
+
+			// A registry is already running on this machine; use it
+
+		} // try
+
+		java.rmi.Naming.rebind( "MessageManager", mm );
+
+		Console.println( "transport: " + messages + " messages, " + participants + " participants" );
+
+		for ( int round = 0; round < 3; round++ )
+		{
+			for ( String transport : new String[] { "rmi", "tcp", "shm", "local" } )
+			{
+				System.setProperty( "messagemanager.transport", transport );
+
+				MessageManagerInterface sender = new MessageManagerInterface();
+				MessageManagerInterface receiver = new MessageManagerInterface();
+
+				sender.Subscribe( 2 );
+				receiver.Subscribe( 1 );
+
+				long t0 = System.nanoTime();
+
+				for ( int i = 0; i < messages / 10; i++ )
+				{
+					sender.SendMessage( new Message( 1, "72.5" ) );
+
+					while ( receiver.GetMessageQueue().GetSize() == 0 )
+						;
+
+				} // for
+
+				double latency = (System.nanoTime() - t0) / 1000.0 / (messages / 10);
+
+				t0 = System.nanoTime();
+
+				int received = 0;
+
+				for ( int i = 0; i < messages; i++ )
+				{
+					sender.SendMessage( new Message( 1, "72.5" ) );
+
+					if ( i % 100 == 99 )
+						received += receiver.GetMessageQueue().GetSize();
+
+				} // for
+
+				while ( received < messages )
+					received += receiver.GetMessageQueue().GetSize();
+
+				double rate = messages * 1e9 / (System.nanoTime() - t0);
+
+				sender.UnRegister();
+				receiver.UnRegister();
+
+				double calls = RunParticipants( participants, messages );
+
+				Console.printf( "  round %d %-5s: round trip %,8.1f us   throughput %,10.0f msg/s   %d participants %,10.0f calls/s%n",
+					round, transport, latency, rate, participants, calls );
+
+			} // for
+
+		} // for
+
+	} // TransportBenchmark
+
+	/***************************************************************************
+	* CONCRETE METHOD:: FanoutBenchmark
+	* Purpose: Registers participants that all receive every message, sends
+	*		   messages from one thread without polling, then polls each
+	*		   participant once, first in queue mode and then in log mode.
+	*		   Reports the send rate, the heap still in use after the sends and
+	*		   the time taken by the polls.
+	*
+	****************************************************************************/
+
+	static void FanoutBenchmark( String args[] ) throws Exception
+	{
+		int participants = IntArg( args, 0, 200 );
+		int messages = IntArg( args, 1, 20000 );
+
+		System.setProperty( "messagemanager.queue.capacity", "0" );
+		System.setProperty( "messagemanager.lease.millis", "0" );
+
+		Console.println( "fanout: " + participants + " participants, " + messages + " messages" );
+
+		for ( int round = 0; round < 3; round++ )
+		{
+			for ( String mode : new String[] { "queue", "log" } )
+			{
+				System.setProperty( "messagemanager.mode", mode );
+
+				MessageManager mm = new MessageManager();
+				long ids[] = new long[participants];
+
+				for ( int i = 0; i < participants; i++ )
+					ids[i] = mm.Register();
+
+				long before = UsedHeap();
+				long t0 = System.nanoTime();
+
+				for ( int i = 0; i < messages; i++ )
+					mm.SendMessage( new Message( 1, 72.5f ) );
+
+				double rate = messages * 1e9 / (System.nanoTime() - t0);
+				long held = UsedHeap() - before;
+
+				t0 = System.nanoTime();
+
+				long received = 0;
+
+				for ( long id : ids )
+					received += mm.GetMessageQueue( id ).GetSize();
+
+				double poll = (System.nanoTime() - t0) / 1e6;
+
+				Console.printf( "  round %d %-5s: send %,10.0f msg/s   heap %,7d KB   poll all %,7.1f ms   %,d delivered%n",
+					round, mode, rate, held >> 10, poll, received );
+
+			} // for
+
+		} // for
+
+	} // FanoutBenchmark
+
+	static long UsedHeap()
+	{
+		Runtime r = Runtime.getRuntime();
+
+		for ( int i = 0; i < 3; i++ )
+			System.gc();
+
+		return r.totalMemory() - r.freeMemory();
+
+	} // UsedHeap
+
+	/***************************************************************************
+	* CONCRETE METHOD:: DrainBenchmark
+	* Purpose: Fills a queue with a backlog, takes it out as GetMessageQueue
+	*		   does and reads every message from the result, for the current
+	*		   and the original queue. Reports nanoseconds per message.
+	*
+	****************************************************************************/
+
+	@SuppressWarnings("unchecked")
+
+	static void DrainBenchmark( String args[] ) throws Exception
+	{
+		int length = IntArg( args, 0, 100000 );
+		int rounds = IntArg( args, 1, 20 );
+
+		Message m = new Message( 1, 72.5f );
+
+		Console.println( "drain: queues of " + length + " messages, " + rounds + " rounds" );
+
+		for ( int round = 0; round < 3; round++ )
+		{
+			long legacy = 0;
+			long current = 0;
+			long read = 0;
+
+			for ( int r = 0; r < rounds; r++ )
+			{
+				LegacyQueue lq = new LegacyQueue();
+
+				for ( int i = 0; i < length; i++ )
+					lq.Messages.add( m );
+
+				long t0 = System.nanoTime();
+
+				Vector<Message> copy = (Vector<Message>) lq.Messages.clone();
+				lq.Messages.removeAllElements();
+
+				while ( copy.size() > 0 )
+				{
+					copy.get(0);
+					copy.removeElementAt(0);
+					read++;
+
+				} // while
+
+				legacy += System.nanoTime() - t0;
+
+				MessageQueue mq = new MessageQueue();
+
+				for ( int i = 0; i < length; i++ )
+					mq.AddMessage( m );
+
+				t0 = System.nanoTime();
+
+				MessageQueue batch = mq.Drain();
+				int n = batch.GetSize();
+
+				for ( int i = 0; i < n; i++ )
+				{
+					batch.GetMessage();
+					read++;
+
+				} // for
+
+				current += System.nanoTime() - t0;
+
+			} // for
+
+			double messages = (double) length * rounds;
+
+			Console.printf( "  round %d: legacy %,10.1f ns/msg   current %,6.1f ns/msg   (x%.0f)   %,d read%n",
+				round, legacy / messages, current / messages, (double) legacy / current, read );
+
+		} // for
+
+	} // DrainBenchmark
+
+	/***************************************************************************
+	* CONCRETE METHOD:: PriorityBenchmark
+	* Purpose: Fills a queue with readings, adds a halt message and reads the
+	*		   queue as a poll does until the halt message comes out. Reports
+	*		   the messages read before it and the time from adding it to
+	*		   reading it, for a CONTROL and a TELEMETRY halt message.
+	*
+	****************************************************************************/
+
+	static void PriorityBenchmark( String args[] ) throws Exception
+	{
+		int backlog = IntArg( args, 0, 100000 );
+		int rounds = IntArg( args, 1, 20 );
+
+		Message reading = new Message( 1, 72.5f ).SetPriority( Message.TELEMETRY );
+
+		Console.println( "priority: backlog of " + backlog + " readings, " + rounds + " rounds" );
+
+		for ( int round = 0; round < 3; round++ )
+		{
+			for ( int priority : new int[] { Message.CONTROL, Message.TELEMETRY } )
+			{
+				long elapsed = 0;
+				long before = 0;
+
+				for ( int r = 0; r < rounds; r++ )
+				{
+					MessageQueue mq = new MessageQueue();
+
+					for ( int i = 0; i < backlog; i++ )
+						mq.AddMessage( reading );
+
+					Message halt = new Message( 99, "XXX" ).SetPriority( priority );
+
+					long t0 = System.nanoTime();
+
+					mq.AddMessage( halt );
+
+					MessageQueue batch = mq.Drain();
+					Message m;
+
+					while ( (m = batch.GetMessage()) != halt )
+						before++;
+
+					elapsed += System.nanoTime() - t0;
+
+				} // for
+
+				Console.printf( "  round %d: %-9s halt read after %,8d messages in %,12.1f us%n",
+					round, (priority == Message.CONTROL) ? "CONTROL" : "TELEMETRY", before / rounds, elapsed / 1000.0 / rounds );
+
+			} // for
+
+		} // for
+
+	} // PriorityBenchmark
+
+	/***************************************************************************
+	* CONCRETE METHOD:: CodecBenchmark
+	* Purpose: Serializes a temperature reading as one RMI call argument would
+	*		   be (a fresh stream each time, so class descriptors are included)
+	*		   and a queue of readings as GetMessageQueue returns it, in both
+	*		   formats, and reads them back. Reports bytes per message and
+	*		   nanoseconds per message for each direction.
+	*
+	****************************************************************************/
+
+	static void CodecBenchmark( String args[] ) throws Exception
+	{
+		int iterations = IntArg( args, 0, 200000 );
+		int length = IntArg( args, 1, 100 );
+
+		Message m = new Message( 1, "72.5" );
+		m.SetSenderId( 1835283384983580L );
+
+		LegacyMessage lm = new LegacyMessage( 1, "72.5", 1835283384983580L );
+
+		Message fm = new Message( 1, 72.5f );
+		fm.SetSenderId( 1835283384983580L );
+
+		MessageQueue mq = new MessageQueue();
+		MessageQueue fq = new MessageQueue();
+		LegacyMessageQueue lq = new LegacyMessageQueue( mq.GetId() );
+
+		for ( int i = 0; i < length; i++ )
+		{
+			Message r = new Message( (i % 2 == 0) ? 1 : 2, String.valueOf( 70 + i % 10 + 0.5 ) );
+			r.SetSenderId( 1835283384983580L + i % 4 );
+			mq.AddMessage( r );
+			lq.MessageList.add( new LegacyMessage( r.GetMessageId(), r.GetMessage(), r.GetSenderId() ) );
+
+			Message f = new Message( r.GetMessageId(), 70 + i % 10 + 0.5f );
+			f.SetSenderId( r.GetSenderId() );
+			fq.AddMessage( f );
+
+		} // for
+
+		Console.println( "codec: " + iterations + " iterations, queues of " + length + " messages" );
+
+		for ( int round = 0; round < 3; round++ )
+		{
+			RunCodec( round, "message", "compact", m, 1, iterations );
+			RunCodec( round, "message", "float", fm, 1, iterations );
+			RunCodec( round, "message", "default", lm, 1, iterations );
+			RunCodec( round, "queue", "compact", mq, length, iterations / length );
+			RunCodec( round, "queue", "float", fq, length, iterations / length );
+			RunCodec( round, "queue", "default", lq, length, iterations / length );
+
+		} // for
+
+	} // CodecBenchmark
+
+	static void RunCodec( int round, String what, String format, Object o, int messages, int iterations ) throws Exception
+	{
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream( 4096 );
+		byte encoded[] = null;
+
+		long t0 = System.nanoTime();
+
+		for ( int i = 0; i < iterations; i++ )
+		{
+			bytes.reset();
+
+			ObjectOutputStream out = new ObjectOutputStream( bytes );
+			out.writeObject( o );
+			out.close();
+
+		} // for
+
+		double encode = (System.nanoTime() - t0) / (double) iterations / messages;
+
+		encoded = bytes.toByteArray();
+
+		t0 = System.nanoTime();
+
+		for ( int i = 0; i < iterations; i++ )
+		{
+			ObjectInputStream in = new ObjectInputStream( new ByteArrayInputStream( encoded ) );
+			in.readObject();
+
+		} // for
+
+		double decode = (System.nanoTime() - t0) / (double) iterations / messages;
+
+		Console.printf( "  round %d %-7s %-7s: %7.1f bytes/msg   encode %,8.1f ns/msg   decode %,8.1f ns/msg%n",
+			round, what, format, encoded.length / (double) messages, encode, decode );
+
+	} // RunCodec
+
+	static double RunParticipants( int participants, int calls ) throws Exception
+	{
+		final MessageManagerInterface ems[] = new MessageManagerInterface[participants];
+		final int each = Math.max( 2, calls / participants );
+		final CountDownLatch start = new CountDownLatch(1);
+		ArrayList<Thread> threads = new ArrayList<Thread>();
+
+		for ( int p = 0; p < participants; p++ )
+		{
+			final MessageManagerInterface em = ems[p] = new MessageManagerInterface();
+
+			// Each participant only hears from itself
+
+			em.Subscribe( 1000 + p );
+
+			final int id = 1000 + p;
+
+			threads.add( new Thread()
+			{
+				public void run()
+				{
+					try
+					{
+						start.await();
+
+						for ( int i = 0; i < each / 2; i++ )
+						{
+							em.SendMessage( new Message( id, "72.5" ) );
+							em.GetMessageQueue();
+
+						} // for
+
+					} catch (Exception e) {
+
+						throw new RuntimeException( e );
+
+					} // try
+				}
+			});
+
+		} // for
+
+		for ( Thread t : threads )
+			t.start();
+
+		long t0 = System.nanoTime();
+		start.countDown();
+
+		for ( Thread t : threads )
+			t.join();
+
+		double rate = (double) participants * (each / 2) * 2 * 1e9 / (System.nanoTime() - t0);
+
+		for ( MessageManagerInterface em : ems )
+			em.UnRegister();
+
+		return rate;
+
+	} // RunParticipants
+
+	static MessageManager Restart( String From ) throws Exception
+	{
+		long t0 = System.nanoTime();
+		MessageManager mm = new MessageManager();
+		long took = (System.nanoTime() - t0) / 1000000L;
+		long n = 0;
+
+		for ( MessageQueue mq : mm.MessageQueueList.Values() )
+			n += mq.GetSize();
+
+		Console.printf( "  restart from %s: %d ms, %,d messages queued%n", From, took, n );
+
+		return mm;
+
+	} // Restart
+
+	static double RunQueueRound( final Broker b, int participants, int senders, final int messages ) throws Exception
+	{
+		final long ids[] = new long[participants];
+
+		for ( int i = 0; i < participants; i++ )
+		{
+			ids[i] = b.Register();
+
+			// Ids are time stamps in the legacy broker, so wait for the clock to
+			// move on to keep them distinct.
+
+			Thread.sleep(1);
+
+		} // for
+
+		final long expected = (long) participants * senders * messages;
+		final AtomicLong delivered = new AtomicLong();
+		final CountDownLatch start = new CountDownLatch(1);
+		ArrayList<Thread> threads = new ArrayList<Thread>();
+
+		for ( int s = 0; s < senders; s++ )
+		{
+			threads.add( new Thread()
+			{
+				public void run()
+				{
+					try
+					{
+						start.await();
+
+						for ( int i = 0; i < messages; i++ )
+							b.SendMessage( new Message( 1, "72.5" ) );
+
+					} catch (Exception e) {
+
+						throw new RuntimeException( e );
+
+					} // try
+				}
+			});
+
+		} // for
+
+		for ( int p = 0; p < participants; p++ )
+		{
+			final long id = ids[p];
+
+			threads.add( new Thread()
+			{
+				public void run()
+				{
+					try
+					{
+						start.await();
+
+						while ( delivered.get() < expected )
+						{
+							int n = b.Poll( id );
+
+							if ( n == 0 )
+								Thread.yield();
+							else
+								delivered.addAndGet( n );
+
+						} // while
+
+					} catch (Exception e) {
+
+						throw new RuntimeException( e );
+
+					} // try
+				}
+			});
+
+		} // for
+
+		for ( Thread t : threads )
+			t.start();
+
+		long t0 = System.nanoTime();
+		start.countDown();
+
+		for ( Thread t : threads )
+			t.join();
+
+		long elapsed = System.nanoTime() - t0;
+
+		return expected * 1e9 / elapsed;
+
+	} // RunQueueRound
+
+	/***************************************************************************
+	* INNER CLASS:: LegacyBroker
+	* Purpose: A copy of the original message manager data path: one monitor
+	*		   guards every operation, participants are found by scanning a
+	*		   Vector, GetMessageQueue clones and clears a Vector queue, and
+	*		   every request prints its statistics block.
+	*
+	****************************************************************************/
+
+	static class LegacyBroker implements Broker
+	{
+		Vector<LegacyQueue> List = new Vector<LegacyQueue>(15, 1);
+		int RequestsServiced = 0;
+
+		void DisplayStatistics( String message )
+		{
+			RequestsServiced++;
+			System.out.println( "-------------------------------------------------------------------------------");
+			System.out.println( "Message:: " + message );
+			System.out.println( "Number of requests: " + RequestsServiced );
+			System.out.println( "Number of registered participants: " + List.size() );
+			System.out.println( "-------------------------------------------------------------------------------");
+		}
+
+		synchronized public long Register()
+		{
+			LegacyQueue q = new LegacyQueue();
+			List.add( q );
+			return q.Id;
+		}
+
+		synchronized public void SendMessage( Message m )
+		{
+			for ( int i = 0; i < List.size(); i++ )
+			{
+				LegacyQueue q = List.get(i);
+				q.Messages.add( m );
+				List.set( i, q );
+			}
+
+			DisplayStatistics( "Incoming message posted from ID: " + m.GetSenderId() );
+		}
+
+		@SuppressWarnings("unchecked")
+
+		synchronized public int Poll( long id )
+		{
+			for ( int i = 0; i < List.size(); i++ )
+			{
+				LegacyQueue q = List.get(i);
+
+				if ( q.Id == id )
+				{
+					Vector<Message> copy = (Vector<Message>) q.Messages.clone();
+					q.Messages.removeAllElements();
+					DisplayStatistics( "Get message queue request from ID: " + id + ". Message queue returned.");
+					return copy.size();
+				}
+			}
+
+			DisplayStatistics( "Get message queue request from ID: " + id + ". ID not found.");
+			return 0;
+		}
+
+	} // LegacyBroker
+
+	static class LegacyQueue
+	{
+		Vector<Message> Messages = new Vector<Message>(15, 1);
+		long Id = Calendar.getInstance().getTimeInMillis();
+
+	} // LegacyQueue
+
+	/***************************************************************************
+	* INNER CLASS:: LegacyMessage, LegacyMessageQueue
+	* Purpose: The fields of the original Message and MessageQueue classes,
+	*		   which used default serialization.
+	*
+	****************************************************************************/
+
+	static class LegacyMessage implements Serializable
+	{
+		private String MessageText;
+		private int MessageId;
+		private long SenderId;
+
+		LegacyMessage( int id, String text, long sender )
+		{
+			MessageId = id;
+			MessageText = text;
+			SenderId = sender;
+		}
+
+	} // LegacyMessage
+
+	static class LegacyMessageQueue implements Serializable
+	{
+		private Vector<LegacyMessage> MessageList = new Vector<LegacyMessage>(15, 1);
+		private long QueueId;
+		private int ListSize;
+
+		LegacyMessageQueue( long id )
+		{
+			QueueId = id;
+		}
+
+	} // LegacyMessageQueue
+
+} // MessageBenchmark
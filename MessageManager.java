@@ -10,30 +10,588 @@
 *			   and all associated house keeping chores. Communication with participants is via RMI. There are
 *			   a number of RMI methods that allow participants to register, post messages, get messages,
 *
+*			   Every queue is bounded so that a participant that dies without unregistering cannot grow its queue
+*			   without limit. The default limit is read from system properties when the message manager starts:
+*
+*				messagemanager.queue.capacity - messages per queue, 0 for no limit (default 10000)
+*				messagemanager.queue.policy - DROP_OLDEST, DROP_NEWEST, BLOCK or CONFLATE (default DROP_OLDEST)
+*				messagemanager.queue.blockmillis - longest a BLOCK sender waits for room (default 100)
+*
+*			   Participants can change the limit for their own queue with SetQueueLimit.
+*
+*			   Telemetry ids can be conflated: a new message with one of these ids replaces the undelivered message
+*			   with the same id from the same sender in each queue, so a slow consumer only ever has the latest
+*			   reading of each sensor waiting (see MessageQueue.SetConflated).
+*
+*				messagemanager.conflate.ids - comma separated message ids to conflate (default none)
+*
+*			   The latest message posted with each message id is retained, whether or not any participant received
+*			   it. A participant that has just started (or restarted) calls GetLastValue or GetRetained to learn the
+*			   current state at once instead of acting on defaults until the next message arrives. Retained messages
+*			   are kept in snapshots and journal checkpoints, so they survive a restart of the message manager.
+*			   Only the ids listed in messagemanager.retain.ids are retained; if it is not set, messages of any id
+*			   are retained until messagemanager.retain.max ids are held, and further ids are not retained.
+*
+*				messagemanager.retain.ids - comma separated message ids to retain (default any id)
+*				messagemanager.retain.max - most ids retained when retain.ids is not set (default 1024)
+*
+*			   Registrations are leases. A participant that neither polls nor calls RenewLease within the lease
+*			   duration is presumed dead, and a reaper thread removes its queue, subscriptions and listener. The
+*			   reaper removes expired participants in batches; sends never wait for it because routing reads
+*			   immutable subscriber lists.
+*
+*				messagemanager.lease.millis - lease duration, 0 for registrations that never expire (default 30000)
+*
+*			   Requests are logged asynchronously with a periodic summary; see RequestLogger for its properties.
+*
+*			   Metrics (per participant queue counters and send and drain latency histograms) are always recorded.
+*			   They are returned by GetStats and published over JMX as "MessageManager:type=Broker".
+*
+*			   In durable mode every registration, subscription change, queue limit change and message is written
+*			   to a memory mapped journal (see Journal.java) before it takes effect, and SendMessage returns once its
+*			   message is on disk. Routing and journaling a message happen under one lock so that queues hold
+*			   messages in journal order. A checkpoint of participants, their queue limits and how far each has
+*			   acknowledged its queue is written periodically, and segments older than the oldest queued message are
+*			   deleted. A batch returned to a poll is only acknowledged when the participant polls again, so a reply
+*			   lost in a crash is delivered again. On start up the checkpoint is loaded and the journal replayed from
+*			   it, so participants keep their ids, queue limits and undelivered messages. Messages delivered after
+*			   the last checkpoint may be delivered again.
+*
+*				messagemanager.journal.dir - journal directory; durable mode is off unless this is set
+*				messagemanager.journal.segment - segment size in bytes (default 67108864)
+*				messagemanager.journal.checkpoint - checkpoint interval in milliseconds, 0 for none (default 1000)
+*
+*			   Without a journal, the message manager can instead write periodic snapshots of its participants,
+*			   their subscriptions and their queued messages (see Snapshot.java), plus a last one when it shuts
+*			   down. A restarted message manager loads the latest snapshot before it is bound in the registry, so
+*			   existing participant ids stay valid; the interface reconnects to the new instance by itself.
+*			   Messages sent after the last snapshot are lost. A participant that registered after it calls Reattach
+*			   to register again under its old id.
+*
+*				messagemanager.snapshot.dir - snapshot directory; snapshots are off unless this is set
+*				messagemanager.snapshot.interval - snapshot interval in milliseconds (default 1000)
+*
+*			   In log mode, each message is appended once to a shared in-memory log (see MessageLog.java) instead of
+*			   being added to every interested queue, and each participant's queue only keeps its place in the log
+*			   and reads what it subscribed to from there when it polls. Sending then costs the same however many
+*			   participants there are, and waiting messages take no memory per participant. The log keeps at most
+*			   messagemanager.log.retain entries, which bounds how far a participant can fall behind; queue limits
+*			   and conflation only apply to messages put back in a queue. Log mode is not available in durable
+*			   mode, where the journal decides what each participant receives.
+*
+*				messagemanager.mode - queue or log (default queue)
+*				messagemanager.log.segment - entries per log segment, a power of two (default 4096)
+*				messagemanager.log.retain - most entries the log keeps (default 1048576)
+*
+*			   Participants in the same JVM can call the message manager directly, without RMI, by selecting the
+*			   local transport (see LocalBroker.java). ECSLocal runs the whole system that way.
+*
+*			   The message manager can also be served over TCP with binary frames (see FrameServer.java), which
+*			   scales to more participants than RMI. It is served alongside RMI when a port is set:
+*
+*				messagemanager.tcp.port - TCP port; the TCP transport is off unless this is set
+*				messagemanager.tcp.workers - requests run on this many worker threads instead of the selector
+*											 thread (default 0, or 4 in durable mode, where sends wait for disk)
+*
+*			   Participants on the same host can use shared memory rings instead (see RingServer.java):
+*
+*				messagemanager.shm.dir - shared directory; the shared memory transport is off unless this is set
+*
+*			   A second message manager can run as a hot standby. It copies the primary's registrations, subscriptions,
+*			   queue limits, queued messages and retained messages as they change (see Replicator.java) and takes the
+*			   primary's place in the registry if the primary stops answering, so participants reattach to it under
+*			   their old ids and find their undelivered messages there (see MessageManagerInterface.java). While a
+*			   standby is attached, SendMessage and the calls that register or subscribe return once the standby has
+*			   the change. A batch a participant polled just before the primary failed may be delivered again. A
+*			   standby keeps no journal or snapshots of its own, and replication is not available in log mode.
+*
+*				messagemanager.replication - true to let a standby copy this message manager (default false)
+*				messagemanager.replication.sync - false to return without waiting for the standby (default true)
+*				messagemanager.replication.timeout - longest wait for the standby in milliseconds before it is
+*													 dropped (default 1000)
+*				messagemanager.replication.buffer - most bytes kept for a standby that falls behind (default 67108864)
+*				messagemanager.standby.primary - registry name of the primary, for example //host:1099/MessageManager;
+*												 the message manager runs as its standby when this is set
+*				messagemanager.standby.timeout - how long the primary may be silent, in milliseconds, before the
+*												 standby takes over (default 1000)
+*
+*			   The message ids can be split between several message managers (shards) so that sends and polls are
+*			   spread over more locks, cores and processes (see ShardedBroker.java). A message id belongs to shard
+*			   id mod N. Shard 0 is bound in the registry as "MessageManager" and shard i as "MessageManager-i"; shard
+*			   i adds i to the TCP port and keeps its journal, snapshots and shared memory rings in a "shard-i"
+*			   subdirectory. Participants register with shard 0 and every shard knows them under the same id.
+*			   Messages with the same id keep their order; messages with ids in different shards may be received in
+*			   a different order than they were sent. Started without messagemanager.shard, the message manager
+*			   runs every shard in one JVM; a standby for shard i copies the primary's shard i.
+*
+*				messagemanager.shards - number of shards (default 1); participants must use the same number
+*				messagemanager.shard - run only this shard, for one process per shard
+*
 * Parameters: None
 *
-* Internal Methods: None
+* Internal Methods:
+*			   StartReaper - Schedules ReapExpiredLeases.
+*			   Serve - Starts the TCP, shared memory and local transports.
+*			   Retire - Stops the threads and transports of a message manager replaced by a new one.
+*			   Retain - Keeps a message as the latest one with its id, if that id is retained.
+*			   AwaitReplicated - Waits until the standby has every change made so far.
+*			   ReportDetach - Logs that the standby was detached, outside the locks it happened under.
+*			   RemoveParticipants - Removes participants' queues, subscriptions, listeners and leases.
+*			   ReapExpiredLeases - Removes participants whose leases have expired.
+*			   Recover - Rebuilds participants and queues from the journal.
+*			   TakeCheckpoint - Writes a journal checkpoint and deletes segments it makes unnecessary.
+*			   LoadSnapshot - Restores participants and queues from the latest snapshot.
+*			   TakeSnapshot - Writes a snapshot.
 *
 ******************************************************************************************************************/
 import MessagePackage.*;
+import java.io.*;
+import java.lang.management.*;
+import java.nio.ByteBuffer;
 import java.net.*;
 import java.rmi.*;
 import java.rmi.server.*;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import javax.management.*;
 
-public class MessageManager extends UnicastRemoteObject implements RMIMessageManagerInterface
+public class MessageManager extends UnicastRemoteObject implements RMIMessageManagerInterface, RMIReplicaInterface
 {
-	static Vector<MessageQueue> MessageQueueList;	// This is the list of message queues.
-	static RequestLogger l;  					// This is a request logger - Logger is a private inner class
+	static final long MAX_POLL_WAIT = 30000;	// Longest time a long poll may park, in milliseconds
+
+	final int Shard;							// Which part of the message ids this message manager serves
+	final String Name;							// Registry name (see ShardedBroker.Name)
+	static final HashMap<Integer, MessageManager> Running = new HashMap<Integer, MessageManager>();	// The message manager serving each shard in this JVM
+
+	int QueueCapacity;							// Default capacity of new queues, 0 for no limit
+	OverflowPolicy QueuePolicy;					// Default overflow policy of new queues
+	long QueueBlockMillis;						// Default wait for room under the BLOCK policy
+	int ConflatedIds[];							// Message ids conflated in every queue
+
+	static final int REAP_BATCH = 256;			// Most participants removed by one reaper pass
+	static final long REAPED = Long.MIN_VALUE;	// Lease expiry marking a participant the reaper has taken
+	long LeaseMillis;							// Lease duration, 0 for no expiry
+	ParticipantTable<AtomicLong> Leases;		// Lease expiry (System.nanoTime) keyed by participant id
+	ScheduledExecutorService Reaper;			// Runs ReapExpiredLeases
+
+	LatencyHistogram SendLatency;				// Time to route each posted message
+	LatencyHistogram DrainLatency;				// Time to drain a queue for a poll
+
+	Journal Log;								// The journal in durable mode, otherwise null
+	Object JournalLock;							// Orders journal records with the changes they describe
+	ScheduledExecutorService Checkpointer;	// Runs TakeCheckpoint
+	File SnapshotDir;							// Where snapshots are written, null if they are off
+	ScheduledExecutorService Snapshotter;	// Runs TakeSnapshot
+	Thread SnapshotHook;						// Writes a last snapshot when the JVM exits
+	FrameServer TcpServer;						// Serves the TCP transport, null if it is off
+	RingServer ShmServer;						// Serves the shared memory transport, null if it is off
+	volatile Replicator Replicas;				// Feeds the standby, null if replication is off
+	boolean ReplicaSync;						// Changes wait until the standby has them
+	Standby Follower;							// Copies the primary while this is its standby, otherwise null
+
+	ParticipantTable<MessageQueue> MessageQueueList;	// This is the table of message queues keyed by participant id.
+	SubscriptionIndex Subscriptions;			// This routes message ids to the queues that subscribed to them
+	ConcurrentHashMap<Integer, Message> Retained;	// The latest message posted with each message id
+	int RetainedIds[];							// Sorted message ids retained, null for any id
+	int RetainedMax;							// Most ids retained when RetainedIds is null
+	ParticipantTable<ListenerDispatcher> Listeners;	// Push delivery for participants that exported a listener
+	MessageLog Shared;							// The shared log in log mode, otherwise null
+	RequestLogger l;							// This is a request logger - Logger is a private inner class
 
 	public MessageManager() throws RemoteException
+	{
+		this( Integer.getInteger( "messagemanager.shard", 0 ) );
+
+	} // Constructor
+
+	public MessageManager( int Shard ) throws RemoteException
 	{
 		super();										// Required by RMI
+		this.Shard = Shard;
+		Name = ShardedBroker.Name( Shard );
+
+		// A new message manager for a shard replaces the one already serving
+		// it in this JVM, which would otherwise keep its port and threads
+
+		synchronized (Running)
+		{
+			MessageManager old = Running.put( Shard, this );
+
+			if ( old != null )
+				old.Retire();
+
+		} // synchronized
+
 		l = new RequestLogger();						// Screen logging object
-		MessageQueueList = new Vector<MessageQueue>(15, 1);	// Queue for storing messages
+		MessageQueueList = new ParticipantTable<MessageQueue>();	// Queues for storing messages
+		Subscriptions = new SubscriptionIndex();		// Message id routing
+		Retained = new ConcurrentHashMap<Integer, Message>();	// Last values
+		Listeners = new ParticipantTable<ListenerDispatcher>();	// Remote listeners
+		SendLatency = new LatencyHistogram();			// Metrics
+		DrainLatency = new LatencyHistogram();
+
+		try
+		{
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			ObjectName name = new ObjectName( "MessageManager:type=Broker" + ((Shard > 0) ? ",shard=" + Shard : "") );
+
+			if ( server.isRegistered( name ) )
+				server.unregisterMBean( name );
+
+			server.registerMBean( new StandardMBean( new BrokerStatsView( this ), BrokerStatsMBean.class ), name );
+
+		} catch (Exception e) {
+
+			l.DisplayStatistics( "JMX registration error: " + e );
+
+		} // try
+
+		QueueCapacity = Integer.getInteger( "messagemanager.queue.capacity", 10000 );
+		QueuePolicy = OverflowPolicy.valueOf( System.getProperty( "messagemanager.queue.policy", "DROP_OLDEST" ).toUpperCase() );
+		QueueBlockMillis = Long.getLong( "messagemanager.queue.blockmillis", 100 );
+		ConflatedIds = ParseIds( System.getProperty( "messagemanager.conflate.ids", "" ) );
+
+		String retain = System.getProperty( "messagemanager.retain.ids" );
+
+		RetainedIds = (retain == null) ? null : ParseIds( retain );
+		RetainedMax = Integer.getInteger( "messagemanager.retain.max", 1024 );
+
+		if (RetainedIds != null)
+			Arrays.sort( RetainedIds );
+
+		LeaseMillis = Math.max( 0, Long.getLong( "messagemanager.lease.millis", 30000 ) );
+		Leases = new ParticipantTable<AtomicLong>();
+
+		String primary = System.getProperty( "messagemanager.standby.primary" );
+		Follower = null;
+
+		// The standby of a shard copies the same shard of the primary
+
+		if ( primary != null && Shard > 0 )
+			primary = primary + "-" + Shard;
+
+		// A standby only starts reaping once it takes over: until then the
+		// participants renew their leases with the primary.
+
+		if ( primary == null )
+			StartReaper();
+
+		String dir = ShardedBroker.Directory( System.getProperty( "messagemanager.journal.dir" ), Shard );
+
+		if ( primary != null && dir != null )
+		{
+			l.DisplayStatistics( "A standby keeps no journal. Ignoring " + dir + "." );
+			dir = null;
+
+		} // if
+
+		Log = null;
+		JournalLock = new Object();
+
+		if ( dir != null )
+		{
+			try
+			{
+				Log = new Journal( new File( dir ), Integer.getInteger( "messagemanager.journal.segment", 64 << 20 ) );
+				JournalLock = Log;
+				Recover();
+
+			} catch (IOException e) {
+
+				throw new RemoteException( "Error opening journal in " + dir, e );
+
+			} // try
+
+			long period = Math.max( 0, Long.getLong( "messagemanager.journal.checkpoint", 1000 ) );
+
+			if ( period > 0 && Checkpointer == null )
+			{
+
+				Checkpointer = Executors.newSingleThreadScheduledExecutor( new ThreadFactory()
+				{
+					public Thread newThread( Runnable r )
+					{
+						Thread t = new Thread( r, "journal-checkpoint" );
+						t.setDaemon( true );
+						return t;
+					}
+				});
+
+				Checkpointer.scheduleWithFixedDelay( new Runnable()
+				{
+					public void run()
+					{
+						try
+						{
+							TakeCheckpoint();
+
+						} catch (Exception e) {
+
+							l.DisplayStatistics( "Journal checkpoint error: " + e );
+
+						} // try
+					}
+
+				}, period, period, TimeUnit.MILLISECONDS );
+
+			} // if
+
+		} // if
+
+		Replicas = null;
+		ReplicaSync = Boolean.parseBoolean( System.getProperty( "messagemanager.replication.sync", "true" ) );
+		boolean replicate = Boolean.getBoolean( "messagemanager.replication" );
+
+		if ( replicate && primary == null )
+			Replicas = NewReplicator( Log == null, 0 );
+
+		Shared = null;
+
+		if ( System.getProperty( "messagemanager.mode", "queue" ).equalsIgnoreCase( "log" ) )
+		{
+			if ( Log != null )
+			{
+				l.DisplayStatistics( "Log mode is not available in durable mode. Using queues." );
+
+			} else if ( replicate || primary != null ) {
+
+				l.DisplayStatistics( "Log mode is not available with replication. Using queues." );
+
+			} else {
+
+				Shared = new MessageLog( Integer.getInteger( "messagemanager.log.segment", 4096 ),
+					Long.getLong( "messagemanager.log.retain", 1 << 20 ) );
+
+			} // if
+
+		} // if
+
+		dir = ShardedBroker.Directory( System.getProperty( "messagemanager.snapshot.dir" ), Shard );
+		SnapshotDir = null;
+
+		if ( dir != null && Log == null && primary == null )
+		{
+			SnapshotDir = new File( dir );
+			SnapshotDir.mkdirs();
+
+			try
+			{
+				LoadSnapshot();
+
+			} catch (IOException e) {
+
+				// Start empty rather than not at all; participants will reattach
+
+				l.DisplayStatistics( "Error loading snapshot from " + dir + ": " + e );
+
+			} // try
+
+			if ( Snapshotter == null )
+			{
+				long period = Math.max( 10, Long.getLong( "messagemanager.snapshot.interval", 1000 ) );
+
+				Snapshotter = Executors.newSingleThreadScheduledExecutor( new ThreadFactory()
+				{
+					public Thread newThread( Runnable r )
+					{
+						Thread t = new Thread( r, "snapshot-writer" );
+						t.setDaemon( true );
+						return t;
+					}
+				});
+
+				Snapshotter.scheduleWithFixedDelay( new Runnable()
+				{
+					public void run()
+					{
+						try
+						{
+							TakeSnapshot();
+
+						} catch (Exception e) {
+
+							l.DisplayStatistics( "Snapshot error: " + e );
+
+						} // try
+					}
+
+				}, period, period, TimeUnit.MILLISECONDS );
+
+				SnapshotHook = new Thread( "snapshot-on-exit" )
+				{
+					public void run()
+					{
+						try
+						{
+							TakeSnapshot();
+
+						} catch (Exception e) {
+
+							System.out.println( "Snapshot error: " + e );
+
+						} // try
+					}
+				};
+
+				Runtime.getRuntime().addShutdownHook( SnapshotHook );
+
+			} // if
+
+		} // if
+
+		if ( primary == null )
+		{
+			Serve();
+
+		} else {
+
+			Follower = new Standby( primary );
+			Follower.Start();
+
+		} // if
 
 	} // Constructor
 
+	void StartReaper()
+	{
+		if ( LeaseMillis > 0 && Reaper == null )
+		{
+			long period = Math.max( 50, LeaseMillis / 4 );
+
+			Reaper = Executors.newSingleThreadScheduledExecutor( new ThreadFactory()
+			{
+				public Thread newThread( Runnable r )
+				{
+					Thread t = new Thread( r, "lease-reaper" );
+					t.setDaemon( true );
+					return t;
+				}
+			});
+
+			Reaper.scheduleWithFixedDelay( new Runnable()
+			{
+				public void run()
+				{
+					try
+					{
+						ReapExpiredLeases();
+
+					} catch (RuntimeException e) {
+
+						// Keep the reaper scheduled; the next pass will retry
+
+						l.DisplayStatistics( "Lease reaper error: " + e );
+
+					} // try
+				}
+
+			}, period, period, TimeUnit.MILLISECONDS );
+
+		} // if
+
+	} // StartReaper
+
+	void Serve() throws RemoteException
+	{
+		Integer port = Integer.getInteger( "messagemanager.tcp.port" );
+
+		if ( port != null && TcpServer == null )
+		{
+			try
+			{
+				TcpServer = new FrameServer( this, ShardedBroker.Port( port, Shard ), Integer.getInteger( "messagemanager.tcp.workers", (Log == null) ? 0 : 4 ) );
+				TcpServer.Start();
+
+			} catch (IOException e) {
+
+				throw new RemoteException( "Error starting TCP transport on port " + ShardedBroker.Port( port, Shard ), e );
+
+			} // try
+
+			l.DisplayStatistics( "TCP transport listening on port " + TcpServer.GetPort() );
+
+		} // if
+
+		String shm = ShardedBroker.Directory( System.getProperty( "messagemanager.shm.dir" ), Shard );
+
+		if ( shm != null && ShmServer == null )
+		{
+			try
+			{
+				ShmServer = new RingServer( this, new File( shm ) );
+				ShmServer.Start();
+
+			} catch (IOException e) {
+
+				throw new RemoteException( "Error starting shared memory transport in " + shm, e );
+
+			} // try
+
+			Runtime.getRuntime().addShutdownHook( new Thread( "ring-server-exit" )
+			{
+				public void run()
+				{
+					ShmServer.Close();
+				}
+			});
+
+			l.DisplayStatistics( "Shared memory transport serving " + shm );
+
+		} // if
+
+		LocalBroker.Bind( Shard, this );
+
+	} // Serve
+
+	void Retire()
+	{
+		for ( ScheduledExecutorService e : new ScheduledExecutorService[] { Reaper, Checkpointer, Snapshotter } )
+		{
+			if ( e != null )
+				e.shutdownNow();
+
+		} // for
+
+		if ( SnapshotHook != null )
+			Runtime.getRuntime().removeShutdownHook( SnapshotHook );
+
+		// A retired standby must not take over later; marking it promoted
+		// stops its thread and its watchdog
+
+		Standby f = Follower;
+
+		if ( f != null )
+		{
+			synchronized (JournalLock)
+			{
+				f.Promoted = true;
+
+			} // synchronized
+
+			if ( f.Watchdog != null )
+				f.Watchdog.shutdownNow();
+
+		} // if
+
+		if ( TcpServer != null )
+			TcpServer.Close();
+
+		if ( ShmServer != null )
+			ShmServer.Close();
+
+		l.Stop();
+
+	} // Retire
+
+	static Replicator NewReplicator( boolean OwnPositions, long Sequence )
+	{
+		return new Replicator( OwnPositions, Sequence,
+			Math.max( 1, Long.getLong( "messagemanager.replication.timeout", 1000 ) ),
+			Math.max( 1 << 16, Integer.getInteger( "messagemanager.replication.buffer", 64 << 20 ) ) );
+
+	} // NewReplicator
+
 	/***************************************************************************
 	* Main
 	****************************************************************************/
@@ -47,14 +605,38 @@ public class MessageManager extends UnicastRemoteObject implements RMIMessageMan
 			InetAddress LocalHostAddress = InetAddress.getLocalHost();
 			String MessageManagerIpAddress = LocalHostAddress.getHostAddress();
 
-			MessageManager em = new MessageManager();
-			//////////////////// REMARK: rebind message manager
-			Naming.rebind("MessageManager", em);
-			//////////////////// END OF REMARK
+			// Every shard runs in this JVM unless messagemanager.shard picks one,
+			// so that the shards can also be run as separate processes.
+
+			int shards = Math.max( 1, Integer.getInteger( "messagemanager.shards", 1 ) );
+			Integer only = Integer.getInteger( "messagemanager.shard" );
+
+			for ( int i = 0; i < shards; i++ )
+			{
+				if ( only != null && only != i )
+					continue;
+
+				MessageManager em = new MessageManager( i );
+
+				// A standby is bound in the registry only when it takes over
+
+				if ( em.Follower != null )
+				{
+					em.l.DisplayStatistics( "Server IP address::" + MessageManagerIpAddress + ". Standby for " + em.Follower.Primary + "." );
+					continue;
 
-	     	// Finally we notify the user that the server is ready.
+				} // if
 
-			l.DisplayStatistics( "Server IP address::" + MessageManagerIpAddress + ". Message manager ready." );
+				//////////////////// REMARK: rebind message manager
+				Naming.rebind(em.Name, em);
+				//////////////////// END OF REMARK
+
+		     	// Finally we notify the user that the server is ready.
+
+				em.l.DisplayStatistics( "Server IP address::" + MessageManagerIpAddress + ". Message manager ready"
+					+ ((shards > 1) ? " as shard " + i + " of " + shards + " (" + em.Name + ")." : ".") );
+
+			} // for
 
 		} // try
 
@@ -62,7 +644,7 @@ public class MessageManager extends UnicastRemoteObject implements RMIMessageMan
 
 		catch (Exception e)
 		{
-			l.DisplayStatistics( "Message manager startup error: " + e );
+			System.out.println( "Message manager startup error: " + e );
 
 		} // catch
 
@@ -81,16 +663,40 @@ public class MessageManager extends UnicastRemoteObject implements RMIMessageMan
 	****************************************************************************/
 
 	public boolean isAlive() throws RemoteException {
-		System.out.println("Message manager is alive!");
+		if ( l.Request() )
+			l.Log( "Message manager is alive!" );
 		return true;
 	}
 
-	synchronized public long Register() throws RemoteException
+	public long Register() throws RemoteException
 	{
 		// Create a new queue and add it to the list of message queues.
 
 		MessageQueue mq = new MessageQueue();
-		MessageQueueList.add( mq );
+		long end = 0;
+
+		try
+		{
+			synchronized (JournalLock)
+			{
+				if (Log != null)
+					end = Log.AppendRegister( mq.GetId(), mq.GetRegistrationTime() );
+
+				if (Replicas != null)
+					Replicas.AppendRegister( mq.GetId(), mq.GetRegistrationTime() );
+
+				AddParticipant( mq );
+
+			} // synchronized
+
+		} catch (IOException e) {
+
+			throw new RemoteException( "Journal error", e );
+
+		} // try
+
+		AwaitDurable( end );
+		AwaitReplicated();
 
 		l.DisplayStatistics( "Register message. Issued ID = " + mq.GetId() );
 
@@ -99,51 +705,102 @@ public class MessageManager extends UnicastRemoteObject implements RMIMessageMan
 	} // Register
 
 	/***************************************************************************
-	* Remote METHOD:: UnRegister
-	* Purpose: This method unregisters participants with the message manager.
+	* Remote METHOD:: Reattach
+	* Purpose: This method is called by a participant after the message manager
+	*		   has restarted. If the participant's registration was restored the
+	*		   lease is renewed; otherwise the participant is registered again
+	*		   under the same id (with no subscriptions and an empty queue).
 	*
-	* Arguments: long integer - the participants id
+	* Arguments: long id - participants id
 	*
-	* Returns: None
+	* Returns: boolean - true if the registration was restored, false if it was
+	*		   registered again
 	*
 	* Exceptions: None
 	*
 	****************************************************************************/
 
-	synchronized public void UnRegister(long id) throws RemoteException
+	public boolean Reattach( long id ) throws RemoteException
 	{
-		MessageQueue mq;
-		boolean found = false;
-
-		// Find the queue for id.
+		long end = 0;
+		boolean restored;
 
-		for ( int i = 0; i < MessageQueueList.size(); i++ )
+		try
 		{
-			//Get the queue for id and remove it from the list.
+			synchronized (JournalLock)
+			{
+				restored = ( MessageQueueList.Get( id ) != null );
 
-			mq =  MessageQueueList.get(i);
+				if ( !restored )
+				{
+					MessageQueue mq = MessageQueue.Restore( id, IdAllocator.GetTime( id ) );
 
-			if (mq.GetId() == id)
-			{
-				mq = MessageQueueList.remove(i);
-				found = true;
+					if (Log != null)
+						end = Log.AppendRegister( mq.GetId(), mq.GetRegistrationTime() );
 
-			} // if
+					if (Replicas != null)
+						Replicas.AppendRegister( mq.GetId(), mq.GetRegistrationTime() );
+
+					AddParticipant( mq );
+
+				} // if
+
+			} // synchronized
+
+		} catch (IOException e) {
+
+			throw new RemoteException( "Journal error", e );
+
+		} // try
+
+		AwaitDurable( end );
+		AwaitReplicated();
+		Renew( id );
+
+		l.DisplayStatistics( "Reattach request from ID: " + id + (restored ? ". Registration restored." : ". Registered again.") );
+
+		return restored;
+
+	} // Reattach
+
+	void AddParticipant( MessageQueue mq )
+	{
+		mq.SetLimit( QueueCapacity, QueuePolicy, QueueBlockMillis );
+		mq.SetConflated( ConflatedIds );
+		Leases.Put( mq.GetId(), new AtomicLong( System.nanoTime() + LeaseMillis * 1000000L ) );
+		MessageQueueList.Put( mq.GetId(), mq );
+		Subscriptions.Add( mq );
+
+		if ( Shared != null )
+			mq.Follow( Shared, Subscriptions.GetFilter( mq.GetId() ) );
+
+	} // AddParticipant
+
+	static int[] ParseIds( String ids )
+	{
+		ArrayList<Integer> list = new ArrayList<Integer>();
+
+		for ( String id : ids.split( "," ) )
+		{
+			if ( id.trim().length() > 0 )
+				list.add( Integer.valueOf( id.trim() ) );
 
 		} // for
 
-		if (found)
-			l.DisplayStatistics( "Unregistered ID::" + id );
-		else
-			l.DisplayStatistics( "Unregister error. ID:"+ id + " not found.");
-	} // Register
+		int a[] = new int[list.size()];
+
+		for ( int i = 0; i < a.length; i++ )
+			a[i] = list.get(i);
+
+		return a;
+
+	} // ParseIds
 
 	/***************************************************************************
-	* Remote METHOD:: SendMessage
-	* Purpose: This method allows participants to send messages to the message
-	*		   manager.
+	* Remote METHOD:: UnRegister
+	* Purpose: This method unregisters participants with the message manager.
 	*
-	* Arguments: Message
+	* Arguments: long integer - the participants id
 	*
 	* Returns: None
 	*
@@ -151,24 +808,242 @@ public class MessageManager extends UnicastRemoteObject implements RMIMessageMan
 	*
 	****************************************************************************/
 
-	synchronized public void SendMessage(Message m ) throws RemoteException
+	public void UnRegister(long id) throws RemoteException
 	{
-		MessageQueue mq;
+		// Find the queue for id and remove it from the table.
 
-		// For every queue on the list, add the message.
+		MessageQueue mq = MessageQueueList.Get( id );
+		RemoveParticipants( id );
 
-		for ( int i = 0; i < MessageQueueList.size(); i++ )
-		{
-			mq = MessageQueueList.get(i);
-			mq.AddMessage(m);
-			MessageQueueList.set(i, mq);
+		if (mq != null)
+			l.DisplayStatistics( "Unregistered ID::" + id + ". Messages dropped: " + mq.GetDroppedCount() );
+		else
+			l.DisplayStatistics( "Unregister error. ID:"+ id + " not found.");
+	} // Register
 
-		} // for
+	/***************************************************************************
+	* Remote METHOD:: SendMessage
+	* Purpose: This method allows participants to send messages to the message
+	*		   manager.
+	*
+	* Arguments: Message
+	*
+	* Returns: None
+	*
+	* Exceptions: None
+	*
+	****************************************************************************/
 
-		l.DisplayStatistics( "Incoming message posted from ID: " + m.GetSenderId() );
+	public void SendMessage(Message m ) throws RemoteException
+	{
+		long start = System.nanoTime();
+		long end = Post( m );
+
+		SendLatency.Record( System.nanoTime() - start );
+		AwaitDurable( end );
+		AwaitReplicated();
+
+		if ( l.Request() )
+			l.Log( "Incoming message posted from ID: " + m.GetSenderId() );
 
 	} // SendMessage
 
+	/***************************************************************************
+	* Remote METHOD:: SendMessages
+	* Purpose: This method allows participants to send several messages to the
+	*		   message manager in one call. The messages are posted in list
+	*		   order.
+	*
+	* Arguments: List of Message
+	*
+	* Returns: None
+	*
+	* Exceptions: None
+	*
+	****************************************************************************/
+
+	public void SendMessages( List<Message> ms ) throws RemoteException
+	{
+		long end = 0;
+
+		for ( Message m : ms )
+		{
+			long start = System.nanoTime();
+
+			end = Math.max( end, Post( m ) );
+			SendLatency.Record( System.nanoTime() - start );
+
+		} // for
+
+		// One wait covers the whole batch
+
+		AwaitDurable( end );
+		AwaitReplicated();
+
+		if ( l.Request() && ms.size() > 0 )
+			l.Log( "Incoming batch of " + ms.size() + " messages posted from ID: " + ms.get(0).GetSenderId() );
+
+	} // SendMessages
+
+	long Post( final Message m ) throws RemoteException
+	{
+		// Add the message to every queue that subscribed to its id (and to
+		// every queue that has not subscribed to anything).
+
+		if (Shared != null)
+		{
+			// Append once; the queues read it from the log. Only consumers that
+			// are parked or pushed to need to hear about it.
+
+			Retain( m );
+			Shared.Append( m );
+
+			if ( Shared.GetWaiting() > 0 || Listeners.Size() > 0 )
+			{
+				Subscriptions.Route( m.GetMessageId(), new SubscriptionIndex.Router()
+				{
+					public void Deliver( MessageQueue mq )
+					{
+						mq.Signal();
+						SignalListener( mq );
+					}
+				});
+
+			} // if
+
+			return 0;
+
+		} // if
+
+		if (Log == null && Replicas == null)
+		{
+			Retain( m );
+
+			Subscriptions.Route( m.GetMessageId(), new SubscriptionIndex.Router()
+			{
+				public void Deliver( MessageQueue mq )
+				{
+					mq.AddMessage( m );
+					SignalListener( mq );
+				}
+			});
+
+			return 0;
+
+		} // if
+
+		// In durable mode the recipients are journaled with the message, so
+		// replay does not depend on the subscriptions at the time. They are
+		// replicated with it for the same reason.
+
+		final ArrayList<MessageQueue> to = new ArrayList<MessageQueue>();
+
+		try
+		{
+			synchronized (JournalLock)
+			{
+				Subscriptions.Route( m.GetMessageId(), new SubscriptionIndex.Router()
+				{
+					public void Deliver( MessageQueue mq )
+					{
+						to.add( mq );
+					}
+				});
+
+				long ids[] = new long[to.size()];
+
+				for ( int i = 0; i < ids.length; i++ )
+					ids[i] = to.get(i).GetId();
+
+				long end = (Log != null) ? Log.AppendMessage( m, ids ) : 0;
+
+				if (Replicas != null)
+					Replicas.AppendMessage( m, ids );
+
+				Retain( m );
+
+				for ( MessageQueue mq : to )
+				{
+					mq.AddMessage( m );
+					SignalListener( mq );
+
+				} // for
+
+				return end;
+
+			} // synchronized
+
+		} catch (IOException e) {
+
+			throw new RemoteException( "Journal error", e );
+
+		} // try
+
+	} // Post
+
+	void Retain( Message m )
+	{
+		int id = m.GetMessageId();
+
+		// The size is checked without a lock, so senders racing with new ids
+		// can take the map a few entries past the limit.
+
+		if ( RetainedIds != null )
+		{
+			if ( Arrays.binarySearch( RetainedIds, id ) < 0 )
+				return;
+
+		} else if ( Retained.size() >= RetainedMax && !Retained.containsKey( id ) ) {
+
+			return;
+
+		} // if
+
+		Retained.put( id, m );
+
+	} // Retain
+
+	void AwaitDurable( long end ) throws RemoteException
+	{
+		if (end > 0)
+		{
+			try
+			{
+				Log.AwaitDurable( end );
+
+			} catch (IOException e) {
+
+				throw new RemoteException( "Journal error", e );
+
+			} // try
+
+		} // if
+
+	} // AwaitDurable
+
+	void AwaitReplicated()
+	{
+		Replicator r = Replicas;
+
+		if (r == null)
+			return;
+
+		if (ReplicaSync)
+			r.Await();
+
+		ReportDetach( r );
+
+	} // AwaitReplicated
+
+	void ReportDetach( Replicator r )
+	{
+		String reason = r.TakeDetachReason();
+
+		if (reason != null)
+			l.DisplayStatistics( "Replication: standby detached because " + reason );
+
+	} // ReportDetach
+
 	/***************************************************************************
 	* Remote METHOD:: GetMessage
 	* Purpose: Get the message queue for a participant (id).
@@ -181,50 +1056,89 @@ public class MessageManager extends UnicastRemoteObject implements RMIMessageMan
 	*
 	****************************************************************************/
 
-	synchronized public MessageQueue GetMessageQueue( long id ) throws RemoteException
+	public MessageQueue GetMessageQueue( long id ) throws RemoteException
 	{
 		MessageQueue mq, temp =  null;
 		boolean found = false;
 
-		// Find the queue for id.
+		// Look up id's queue. Once the queue is found, drain its messages into
+		// a new queue and return that queue back to the participant. Draining
+		// only takes the queue's own consumer lock, so senders are not blocked.
+
+		mq = MessageQueueList.Get( id );
 
-		for ( int i = 0; i < MessageQueueList.size(); i++ )
+		if (mq != null)
 		{
-			mq =  MessageQueueList.get(i);
+			Renew( id );
 
-			// Get each queue off of the list and see if it is id's queue
-			// Once the queue is found, then get a copy of the queue, clear the
-			// queue, and return the queue back to the participant
+			// Polling again shows the participant has the last batch, so it is
+			// acknowledged now and the standby can drop it. A batch whose reply
+			// is lost is delivered again after a restart or by the standby.
 
-			if (mq.GetId() == id)
-			{
-				mq = MessageQueueList.get(i);
-				temp = mq.GetCopy();
-				mq.ClearMessageQueue();
-				found = true;
+			mq.AcknowledgeHeld();
 
-			} // if
+			if (Replicas != null && mq.GetAcknowledged() > 0)
+				Replicas.AppendAcknowledge( id, mq.GetAcknowledged() );
 
-		} // for
+			long start = System.nanoTime();
+
+			temp = mq.Drain();
+			mq.Hold( temp );
+			DrainLatency.Record( System.nanoTime() - start );
+			found = true;
+
+		} // if
+
+		// Polls are only traced when sampled, but a poll for an unknown id is
+		// always worth reporting.
 
 		if (found)
-				l.DisplayStatistics( "Get message queue request from ID: " + id + ". Message queue returned.");
-		else
-				l.DisplayStatistics( "Get message queue request from ID: " + id + ". ID not found.");
+		{
+			if ( l.Request() )
+				l.Log( "Get message queue request from ID: " + id + ". Message queue returned.");
+
+		} else {
+
+			l.DisplayStatistics( "Get message queue request from ID: " + id + ". ID not found.");
+
+		} // if
 
 		return temp;
 
 	} // GetMessageList
 
 	/***************************************************************************
-	* INNER CLASS:: Logger
-	* Purpose: This class longs requests by displaying them on the server with
-	* 		   general statics after each remote call for services. This method
-	*		   increments the number of service request from participants,
-	*		   counts the number of active queues (registered participants), and
-	*		   displays this information on the terminal.
+	* Remote METHOD:: GetMessageQueue
+	* Purpose: Get the message queue for a participant (id), waiting up to a
+	*		   timeout for a message to arrive if the queue is empty. The wait
+	*		   is capped at MAX_POLL_WAIT so that a call cannot tie up an RMI
+	*		   connection indefinitely.
 	*
-	* Arguments: None.
+	* Arguments: long id - participants id, long - timeout in milliseconds
+	*
+	* Returns: MessageQueue
+	*
+	* Exceptions: None
+	*
+	****************************************************************************/
+
+	public MessageQueue GetMessageQueue( long id, long TimeoutMillis ) throws RemoteException
+	{
+		MessageQueue mq = MessageQueueList.Get( id );
+
+		if (mq != null && TimeoutMillis > 0)
+			mq.AwaitMessages( Math.min( TimeoutMillis, MAX_POLL_WAIT ) );
+
+		return GetMessageQueue( id );
+
+	} // GetMessageQueue
+
+	/***************************************************************************
+	* Remote METHOD:: Subscribe
+	* Purpose: This method limits the messages a participant receives to the
+	*		   given message ids (in addition to any earlier subscriptions).
+	*
+	* Arguments: long id - participants id, int[] - message ids
 	*
 	* Returns: None
 	*
@@ -232,33 +1146,1361 @@ public class MessageManager extends UnicastRemoteObject implements RMIMessageMan
 	*
 	****************************************************************************/
 
-	private class RequestLogger
+	public void Subscribe( long id, int MsgIds[] ) throws RemoteException
 	{
-		int RequestsServiced = 0;	// This is the number of requests seviced
+		boolean found;
+		long end = 0;
 
-		void DisplayStatistics( String message )
+		try
 		{
-			RequestsServiced++;
+			synchronized (JournalLock)
+			{
+				found = Subscriptions.Subscribe( id, MsgIds );
+
+				if ( found && Log != null )
+					end = Log.AppendSubscribe( id, MsgIds );
+
+				if ( found && Replicas != null )
+					Replicas.AppendSubscribe( id, MsgIds );
+
+			} // synchronized
+
+		} catch (IOException e) {
+
+			throw new RemoteException( "Journal error", e );
+
+		} // try
+
+		AwaitDurable( end );
+		AwaitReplicated();
+
+		if ( found )
+			l.DisplayStatistics( "Subscribe request from ID: " + id + ". Message ids: " + Arrays.toString(MsgIds) );
+		else
+			l.DisplayStatistics( "Subscribe request from ID: " + id + ". ID not found." );
+
+	} // Subscribe
+
+	/***************************************************************************
+	* Remote METHOD:: SubscribeRange
+	* Purpose: This method limits the messages a participant receives to the
+	*		   given inclusive range of message ids (in addition to any earlier
+	*		   subscriptions).
+	*
+	* Arguments: long id - participants id, int - low message id, int - high
+	*			 message id
+	*
+	* Returns: None
+	*
+	* Exceptions: None
+	*
+	****************************************************************************/
 
-			if ( message.length() == 0 )
+	public void SubscribeRange( long id, int LowMsgId, int HighMsgId ) throws RemoteException
+	{
+		boolean found;
+		long end = 0;
+
+		try
+		{
+			synchronized (JournalLock)
 			{
-				System.out.println( "-------------------------------------------------------------------------------");
-				System.out.println( "Number of requests: " + RequestsServiced );
-				System.out.println( "Number of registered participants: " + MessageQueueList.size() );
-				System.out.println( "-------------------------------------------------------------------------------");
+				found = Subscriptions.SubscribeRange( id, LowMsgId, HighMsgId );
 
-			} else {
+				if ( found && Log != null )
+					end = Log.AppendSubscribeRange( id, LowMsgId, HighMsgId );
 
-				System.out.println( "-------------------------------------------------------------------------------");
-				System.out.println( "Message:: " + message );
-				System.out.println( "Number of requests: " + RequestsServiced );
-				System.out.println( "Number of registered participants: " + MessageQueueList.size() );
-				System.out.println( "-------------------------------------------------------------------------------");
+				if ( found && Replicas != null )
+					Replicas.AppendSubscribeRange( id, LowMsgId, HighMsgId );
 
-			} // if
+			} // synchronized
+
+		} catch (IOException e) {
+
+			throw new RemoteException( "Journal error", e );
+
+		} // try
+
+		AwaitDurable( end );
+		AwaitReplicated();
+
+		if ( found )
+			l.DisplayStatistics( "Subscribe request from ID: " + id + ". Message ids: " + LowMsgId + ".." + HighMsgId );
+		else
+			l.DisplayStatistics( "Subscribe request from ID: " + id + ". ID not found." );
+
+	} // SubscribeRange
+
+	/***************************************************************************
+	* Remote METHOD:: UnSubscribe
+	* Purpose: This method clears a participant's subscriptions so that it
+	*		   receives every message again.
+	*
+	* Arguments: long id - participants id
+	*
+	* Returns: None
+	*
+	* Exceptions: None
+	*
+	****************************************************************************/
+
+	public void UnSubscribe( long id ) throws RemoteException
+	{
+		boolean found;
+		long end = 0;
+
+		try
+		{
+			synchronized (JournalLock)
+			{
+				found = Subscriptions.UnSubscribe( id );
+
+				if ( found && Log != null )
+					end = Log.AppendUnSubscribe( id );
+
+				if ( found && Replicas != null )
+					Replicas.AppendUnSubscribe( id );
+
+			} // synchronized
+
+		} catch (IOException e) {
+
+			throw new RemoteException( "Journal error", e );
+
+		} // try
+
+		AwaitDurable( end );
+		AwaitReplicated();
+
+		if ( found )
+			l.DisplayStatistics( "Unsubscribe request from ID: " + id + "." );
+		else
+			l.DisplayStatistics( "Unsubscribe request from ID: " + id + ". ID not found." );
+
+	} // UnSubscribe
+
+	/***************************************************************************
+	* Remote METHOD:: AddListener
+	* Purpose: This method registers a participant's remote listener. From then
+	*		   on, messages routed to the participant are pushed to the listener
+	*		   as they arrive. Messages already queued are pushed right away.
+	*
+	* Arguments: long id - participants id, RMIMessageListenerInterface
+	*
+	* Returns: None
+	*
+	* Exceptions: None
+	*
+	****************************************************************************/
+
+	public void AddListener( long id, RMIMessageListenerInterface listener ) throws RemoteException
+	{
+		MessageQueue mq = MessageQueueList.Get( id );
+
+		if (mq != null)
+		{
+			ListenerDispatcher d = new ListenerDispatcher( mq, listener, Replicas );
+			ListenerDispatcher old = Listeners.Put( id, d );
+
+			if (old != null)
+				old.Close();
+
+			d.Signal();
+
+			l.DisplayStatistics( "Add listener request from ID: " + id + ". Listener added." );
+
+		} else {
+
+			l.DisplayStatistics( "Add listener request from ID: " + id + ". ID not found." );
+
+		} // if
+
+	} // AddListener
+
+	/***************************************************************************
+	* Remote METHOD:: RemoveListener
+	* Purpose: This method removes a participant's remote listener. Messages are
+	*		   left in the participant's queue for it to poll.
+	*
+	* Arguments: long id - participants id
+	*
+	* Returns: None
+	*
+	* Exceptions: None
+	*
+	****************************************************************************/
+
+	public void RemoveListener( long id ) throws RemoteException
+	{
+		CloseListener( id );
+		l.DisplayStatistics( "Remove listener request from ID: " + id + "." );
+
+	} // RemoveListener
+
+	/***************************************************************************
+	* Remote METHOD:: HasListener
+	* Purpose: This method tells a participant whether its messages are still
+	*		   pushed to its listener. A listener that has failed
+	*		   ListenerDispatcher.MAX_FAILURES deliveries in a row counts as
+	*		   dropped even before SignalListener removes it.
+	*
+	* Arguments: long id - participants id
+	*
+	* Returns: boolean - true if the participant has a working listener
+	*
+	* Exceptions: None
+	*
+	****************************************************************************/
+
+	public boolean HasListener( long id ) throws RemoteException
+	{
+		ListenerDispatcher d = Listeners.Get( id );
+
+		return d != null && !d.IsDead();
+
+	} // HasListener
+
+	/***************************************************************************
+	* Remote METHOD:: SetQueueLimit
+	* Purpose: This method sets the capacity and overflow policy of a
+	*		   participant's queue.
+	*
+	* Arguments: long id - participants id, int - capacity (0 for no limit),
+	*			 OverflowPolicy, long - BLOCK wait in milliseconds
+	*
+	* Returns: None
+	*
+	* Exceptions: None
+	*
+	****************************************************************************/
+
+	public void SetQueueLimit( long id, int Capacity, OverflowPolicy Policy, long BlockMillis ) throws RemoteException
+	{
+		MessageQueue mq = MessageQueueList.Get( id );
+
+		if (mq != null)
+		{
+			// A blocked send ties up the sender's RMI call, so cap the wait
+
+			long end = 0;
+
+			try
+			{
+				synchronized (JournalLock)
+				{
+					mq.SetLimit( Capacity, Policy, Math.min( BlockMillis, MAX_POLL_WAIT ) );
+
+					if ( Log != null )
+						end = Log.AppendQueueLimit( id, mq.GetCapacity(), mq.GetPolicy(), mq.GetBlockMillis() );
+
+					if ( Replicas != null )
+						Replicas.AppendQueueLimit( id, mq.GetCapacity(), mq.GetPolicy(), mq.GetBlockMillis() );
+
+				} // synchronized
+
+			} catch (IOException e) {
+
+				throw new RemoteException( "Journal error", e );
+
+			} // try
+
+			AwaitDurable( end );
+			AwaitReplicated();
+			l.DisplayStatistics( "Queue limit request from ID: " + id + ". Capacity: " + mq.GetCapacity() + " Policy: " + mq.GetPolicy() );
+
+		} else {
+
+			l.DisplayStatistics( "Queue limit request from ID: " + id + ". ID not found." );
+
+		} // if
+
+	} // SetQueueLimit
+
+	/***************************************************************************
+	* Remote METHOD:: GetDroppedCount
+	* Purpose: This method returns how many messages a participant's queue has
+	*		   discarded or conflated because it was full.
+	*
+	* Arguments: long id - participants id
+	*
+	* Returns: long - the count, or -1 if id is not registered
+	*
+	* Exceptions: None
+	*
+	****************************************************************************/
+
+	public long GetDroppedCount( long id ) throws RemoteException
+	{
+		MessageQueue mq = MessageQueueList.Get( id );
+
+		return (mq != null) ? mq.GetDroppedCount() : -1;
+
+	} // GetDroppedCount
+
+	/***************************************************************************
+	* Remote METHOD:: GetLastValue
+	* Purpose: This method returns the latest message posted with a message id.
+	*
+	* Arguments: int MsgId - message id
+	*
+	* Returns: Message, or null if none has been posted
+	*
+	* Exceptions: None
+	*
+	****************************************************************************/
+
+	public Message GetLastValue( int MsgId ) throws RemoteException
+	{
+		l.Request();
+
+		return Retained.get( MsgId );
+
+	} // GetLastValue
+
+	/***************************************************************************
+	* Remote METHOD:: GetRetained
+	* Purpose: This method returns the latest message posted with each of
+	*		   several message ids.
+	*
+	* Arguments: int MsgIds[] - message ids
+	*
+	* Returns: List of Message in the order of the ids, leaving out ids with no
+	*		   message
+	*
+	* Exceptions: None
+	*
+	****************************************************************************/
+
+	public List<Message> GetRetained( int MsgIds[] ) throws RemoteException
+	{
+		l.Request();
+
+		ArrayList<Message> ms = new ArrayList<Message>( MsgIds.length );
+
+		for ( int id : MsgIds )
+		{
+			Message m = Retained.get( id );
+
+			if ( m != null )
+				ms.add( m );
+
+		} // for
+
+		return ms;
+
+	} // GetRetained
+
+	/***************************************************************************
+	* Remote METHOD:: RenewLease
+	* Purpose: This method extends a participant's lease by the lease duration.
+	*		   Renewals are frequent and routine, so they are not logged.
+	*
+	* Arguments: long id - participants id
+	*
+	* Returns: boolean - false if id is not registered (or has been reaped)
+	*
+	* Exceptions: None
+	*
+	****************************************************************************/
+
+	public boolean RenewLease( long id ) throws RemoteException
+	{
+		l.Request();
+
+		return Renew( id );
+
+	} // RenewLease
+
+	/***************************************************************************
+	* Remote METHOD:: GetLeaseDuration
+	* Purpose: This method returns the lease duration.
+	*
+	* Arguments: None
+	*
+	* Returns: long - milliseconds, 0 if registrations never expire
+	*
+	* Exceptions: None
+	*
+	****************************************************************************/
+
+	public long GetLeaseDuration() throws RemoteException
+	{
+		return LeaseMillis;
+
+	} // GetLeaseDuration
+
+	/***************************************************************************
+	* Remote METHOD:: GetStats
+	* Purpose: This method returns a snapshot of the message manager's metrics.
+	*
+	* Arguments: None
+	*
+	* Returns: BrokerStats
+	*
+	* Exceptions: None
+	*
+	****************************************************************************/
+
+	public BrokerStats GetStats() throws RemoteException
+	{
+		return Stats();
+
+	} // GetStats
+
+	BrokerStats Stats()
+	{
+		ArrayList<ParticipantStats> ps = new ArrayList<ParticipantStats>();
+
+		for ( MessageQueue mq : MessageQueueList.Values() )
+			ps.add( mq.GetStats() );
+
+		return new BrokerStats( l.RequestsServiced.sum(), ps.toArray( new ParticipantStats[0] ),
+			SendLatency.GetCopy(), DrainLatency.GetCopy() );
+
+	} // Stats
+
+	/***************************************************************************
+	* Remote METHOD:: Sync
+	* Purpose: This method attaches a standby and returns this message
+	*		   manager's whole state for it (see RMIReplicaInterface).
+	*
+	* Arguments: None
+	*
+	* Returns: byte[] - the stream position, then the state as records
+	*
+	* Exceptions: RemoteException if replication is off
+	*
+	****************************************************************************/
+
+	public byte[] Sync() throws RemoteException
+	{
+		Replicator r = Replicas;
+
+		if (r == null)
+			throw new RemoteException( "Replication is off. Start the message manager with -Dmessagemanager.replication=true" );
+
+		Replicator.Batch b = new Replicator.Batch();
+		long position;
+		int participants = 0;
+
+		// Nothing is registered, subscribed or posted while the state is read,
+		// so the standby's first pull takes up exactly where the state ends.
+		// Acknowledgements are not held up; any that come in meanwhile are
+		// pulled after the state and only drop messages already delivered.
+
+		synchronized (JournalLock)
+		{
+			position = r.Attach();
+
+			for ( MessageQueue mq : MessageQueueList.Values() )
+			{
+				long id = mq.GetId();
+				int sub[][] = Subscriptions.GetSubscription( id );
+
+				if ( sub == null )
+					continue;
+
+				b.AppendRegister( id, mq.GetRegistrationTime() );
+				b.AppendQueueLimit( id, mq.GetCapacity(), mq.GetPolicy(), mq.GetBlockMillis() );
+				b.AppendAcknowledge( id, mq.GetAcknowledged() );
+
+				if ( sub[0].length > 0 )
+					b.AppendSubscribe( id, sub[0] );
+
+				for ( int i = 0; i < sub[1].length; i++ )
+					b.AppendSubscribeRange( id, sub[1][i], sub[2][i] );
+
+				MessageQueue copy = mq.GetCopy();
+				long to[] = { id };
+				Message m;
+
+				while ( (m = copy.GetMessage()) != null )
+					b.AppendMessage( m, to );
+
+				participants++;
+
+			} // for
+
+			// The retained messages go last so that they replace the ones the
+			// queued messages left behind on the standby
+
+			for ( Message m : Retained.values() )
+				b.AppendRetain( m );
+
+		} // synchronized
+
+		byte state[] = b.ToArray( position );
+
+		l.DisplayStatistics( "Standby attached. Sent " + participants + " participants in " + state.length + " bytes." );
+
+		return state;
+
+	} // Sync
+
+	/***************************************************************************
+	* Remote METHOD:: Pull
+	* Purpose: This method returns the standby the replication records after a
+	*		   stream position (see RMIReplicaInterface). The wait is capped at
+	*		   MAX_POLL_WAIT.
+	*
+	* Arguments: long - stream position, long - timeout in milliseconds
+	*
+	* Returns: byte[] - the records, or null if the standby must sync again
+	*
+	* Exceptions: RemoteException if replication is off
+	*
+	****************************************************************************/
+
+	public byte[] Pull( long From, long TimeoutMillis ) throws RemoteException
+	{
+		Replicator r = Replicas;
+
+		if (r == null)
+			throw new RemoteException( "Replication is off" );
+
+		byte b[] = r.Pull( From, Math.min( TimeoutMillis, MAX_POLL_WAIT ) );
+
+		ReportDetach( r );
+
+		return b;
+
+	} // Pull
+
+	boolean Renew( long id )
+	{
+		AtomicLong lease = Leases.Get( id );
+
+		if (lease == null)
+			return false;
+
+		// Compare and set so that a renewal cannot revive a participant the
+		// reaper has already claimed.
+
+		long expires = lease.get();
+
+		while ( expires != REAPED )
+		{
+			if ( lease.compareAndSet( expires, System.nanoTime() + LeaseMillis * 1000000L ) )
+				return true;
+
+			expires = lease.get();
+
+		} // while
+
+		return false;
+
+	} // Renew
+
+	void ReapExpiredLeases()
+	{
+		long ids[];
+
+		do
+		{
+			final long now = System.nanoTime();
+			final long batch[] = new long[REAP_BATCH];
+			final int count[] = { 0 };
+
+			Leases.ForEach( new ParticipantTable.Visitor<AtomicLong>()
+			{
+				public void Visit( long id, AtomicLong lease )
+				{
+					long expires = lease.get();
+
+					if ( count[0] < REAP_BATCH && expires != REAPED && expires - now < 0
+						&& lease.compareAndSet( expires, REAPED ) )
+						batch[count[0]++] = id;
+				}
+			});
+
+			ids = Arrays.copyOf( batch, count[0] );
+
+			if ( ids.length > 0 )
+			{
+				RemoveParticipants( ids );
+				l.DisplayStatistics( "Lease expired. Removed " + ids.length + " participants: " + Arrays.toString(ids) );
+
+			} // if
+
+		} while ( ids.length == REAP_BATCH );
+
+	} // ReapExpiredLeases
+
+	void RemoveParticipants( long... ids )
+	{
+		synchronized (JournalLock)
+		{
+			// Removal is not waited for: if the record is lost in a crash the
+			// participant comes back and is reaped again.
+
+			if (Log != null)
+			{
+				try
+				{
+					for ( long id : ids )
+						Log.AppendUnregister( id );
+
+				} catch (IOException e) {
+
+					l.DisplayStatistics( "Journal error: " + e );
+
+				} // try
+
+			} // if
+
+			if (Replicas != null)
+			{
+				for ( long id : ids )
+					Replicas.AppendUnregister( id );
+
+			} // if
+
+			// Stop routing to the participants first, then drop their state
+
+			Subscriptions.Remove( ids );
+
+			for ( long id : ids )
+			{
+				CloseListener( id );
+				MessageQueue mq = MessageQueueList.Remove( id );
+				Leases.Remove( id );
+
+				if ( mq != null )
+					mq.Unfollow();
+
+			} // for
+
+		} // synchronized
+
+	} // RemoveParticipants
+
+	void Recover() throws IOException
+	{
+		long start = System.nanoTime();
+		Checkpoint c = Checkpoint.Read( Log.GetDirectory() );
+		long from = Log.GetStart();
+		final long checkpointed = (c == null) ? -1 : c.Position;
+
+		if (c != null)
+		{
+			from = Math.max( from, c.Start );
+
+			for ( Checkpoint.Entry e : c.Participants )
+			{
+				MessageQueue mq = MessageQueue.Restore( e.Id, e.RegistrationTime );
+				mq.SetAcknowledged( e.Acknowledged );
+				AddParticipant( mq );
+
+				if ( e.Policy != null )
+					mq.SetLimit( e.Capacity, e.Policy, e.BlockMillis );
+
+				if ( e.MsgIds.length > 0 )
+					Subscriptions.Subscribe( e.Id, e.MsgIds );
+
+				for ( int i = 0; i < e.Low.length; i++ )
+					Subscriptions.SubscribeRange( e.Id, e.Low[i], e.High[i] );
+
+			} // for
+
+			for ( Message m : c.Retained )
+				Retain( m );
+
+		} // if
+
+		// Records before the checkpoint only matter for the messages they carry;
+		// the checkpoint already reflects the registrations and subscriptions.
+
+		Log.Replay( from, new Journal.Reader()
+		{
+			public void Registered( long Position, long id, long time )
+			{
+				if ( Position >= checkpointed && MessageQueueList.Get( id ) == null )
+					AddParticipant( MessageQueue.Restore( id, time ) );
+			}
+
+			public void Unregistered( long Position, long id )
+			{
+				if ( Position >= checkpointed )
+				{
+					Subscriptions.Remove( id );
+					MessageQueueList.Remove( id );
+					Leases.Remove( id );
+
+				} // if
+			}
+
+			public void Subscribed( long Position, long id, int MsgIds[] )
+			{
+				if ( Position >= checkpointed )
+					Subscriptions.Subscribe( id, MsgIds );
+			}
+
+			public void SubscribedRange( long Position, long id, int LowMsgId, int HighMsgId )
+			{
+				if ( Position >= checkpointed )
+					Subscriptions.SubscribeRange( id, LowMsgId, HighMsgId );
+			}
+
+			public void UnSubscribed( long Position, long id )
+			{
+				if ( Position >= checkpointed )
+					Subscriptions.UnSubscribe( id );
+			}
+
+			public void LimitSet( long Position, long id, int Capacity, OverflowPolicy Policy, long BlockMillis )
+			{
+				MessageQueue mq = MessageQueueList.Get( id );
+
+				if ( Position >= checkpointed && mq != null )
+					mq.SetLimit( Capacity, Policy, BlockMillis );
+			}
+
+			public void Posted( long Position, Message m, long Recipients[] )
+			{
+				if ( Position >= checkpointed )
+					Retain( m );
+
+				for ( long id : Recipients )
+				{
+					MessageQueue mq = MessageQueueList.Get( id );
+
+					if ( mq != null && Position > mq.GetAcknowledged() )
+						mq.Requeue( m );
+
+				} // for
+			}
+		});
+
+		long queued = 0;
+
+		for ( MessageQueue mq : MessageQueueList.Values() )
+			queued += mq.GetSize();
+
+		l.DisplayStatistics( "Journal recovered. " + MessageQueueList.Size() + " participants, " + queued
+			+ " queued messages in " + (System.nanoTime() - start) / 1000000L + " ms." );
+
+	} // Recover
+
+	void LoadSnapshot() throws IOException
+	{
+		long start = System.nanoTime();
+		Snapshot s = Snapshot.Read( SnapshotDir );
+
+		if (s == null)
+			return;
+
+		long queued = 0;
+
+		for ( Snapshot.Entry e : s.Participants )
+		{
+			MessageQueue mq = MessageQueue.Restore( e.Id, e.RegistrationTime );
+			AddParticipant( mq );
+			mq.SetLimit( e.Capacity, e.Policy, e.BlockMillis );
+
+			if ( e.MsgIds.length > 0 )
+				Subscriptions.Subscribe( e.Id, e.MsgIds );
+
+			for ( int i = 0; i < e.Low.length; i++ )
+				Subscriptions.SubscribeRange( e.Id, e.Low[i], e.High[i] );
+
+			for ( Message m : e.Messages )
+				mq.Requeue( m );
+
+			queued += mq.GetSize();
+
+		} // for
+
+		for ( Message m : s.Retained )
+			Retain( m );
+
+		l.DisplayStatistics( "Snapshot loaded. " + s.Participants.size() + " participants, " + queued
+			+ " queued messages in " + (System.nanoTime() - start) / 1000000L + " ms." );
+
+	} // LoadSnapshot
+
+	synchronized void TakeSnapshot() throws IOException
+	{
+		File dir = SnapshotDir;
+
+		if (dir == null)
+			return;
+
+		Snapshot s = new Snapshot();
+
+		for ( MessageQueue mq : MessageQueueList.Values() )
+		{
+			int sub[][] = Subscriptions.GetSubscription( mq.GetId() );
+
+			if ( sub == null )
+				continue;
+
+			Snapshot.Entry e = new Snapshot.Entry();
+			e.Id = mq.GetId();
+			e.RegistrationTime = mq.GetRegistrationTime();
+			e.MsgIds = sub[0];
+			e.Low = sub[1];
+			e.High = sub[2];
+			e.Capacity = mq.GetCapacity();
+			e.Policy = mq.GetPolicy();
+			e.BlockMillis = mq.GetBlockMillis();
+
+			MessageQueue copy = mq.GetCopy();
+			Message m;
+
+			while ( (m = copy.GetMessage()) != null )
+				e.Messages.add( m );
+
+			s.Participants.add( e );
+
+		} // for
+
+		s.Retained.addAll( Retained.values() );
+		s.Write( dir );
+
+	} // TakeSnapshot
+
+	void TakeCheckpoint() throws IOException
+	{
+		Journal log = Log;
+
+		if (log == null)
+			return;
+
+		Checkpoint c = new Checkpoint();
+
+		// Every message before this position has been routed, because routing
+		// and journaling happen under the same lock. Changes made while the
+		// queues are read below are after it and are replayed on top.
+
+		synchronized (JournalLock)
+		{
+			c.Position = log.GetPosition();
+
+		} // synchronized
+
+		c.Start = c.Position;
+		c.Retained.addAll( Retained.values() );
+
+		for ( MessageQueue mq : MessageQueueList.Values() )
+		{
+			int sub[][] = Subscriptions.GetSubscription( mq.GetId() );
+
+			if ( sub == null )
+				continue;
+
+			Checkpoint.Entry e = new Checkpoint.Entry();
+			e.Id = mq.GetId();
+			e.RegistrationTime = mq.GetRegistrationTime();
+			e.Acknowledged = mq.GetAcknowledged();
+			e.Capacity = mq.GetCapacity();
+			e.Policy = mq.GetPolicy();
+			e.BlockMillis = mq.GetBlockMillis();
+			e.MsgIds = sub[0];
+			e.Low = sub[1];
+			e.High = sub[2];
+			c.Participants.add( e );
+
+			long head = mq.GetHeadPosition();
+
+			if ( head >= 0 && head < c.Start )
+				c.Start = head;
+
+		} // for
+
+		c.Write( log.GetDirectory() );
+		log.Truncate( c.Start );
+
+	} // TakeCheckpoint
+
+	void SignalListener( MessageQueue mq )
+	{
+		ListenerDispatcher d = Listeners.Get( mq.GetId() );
+
+		if (d != null)
+		{
+			if (d.IsDead())
+			{
+				CloseListener( mq.GetId() );
+				l.DisplayStatistics( "Listener for ID: " + mq.GetId() + " is not responding. Listener removed." );
+
+			} else {
+
+				d.Signal();
+
+			} // if
+
+		} // if
+
+	} // SignalListener
+
+	void CloseListener( long id )
+	{
+		ListenerDispatcher d = Listeners.Remove( id );
+
+		if (d != null)
+			d.Close();
+
+	} // CloseListener
+
+	/***************************************************************************
+	* INNER CLASS:: Standby
+	* Purpose: This class keeps a standby message manager in step with its
+	*		   primary and makes it take over when the primary stops answering.
+	*		   One thread syncs with the primary and then pulls and applies its
+	*		   replication records in a loop (see Replicator.java); if the
+	*		   primary drops it, it syncs again from scratch. A watchdog
+	*		   promotes this message manager once nothing has been heard from
+	*		   the primary for messagemanager.standby.timeout milliseconds. A
+	*		   standby that has never synced does not take over, so one started
+	*		   without a primary does not serve an empty message manager.
+	*
+	*		   Taking over renews every lease (participants could not renew them
+	*		   here), starts the reaper and the transports, starts replicating if
+	*		   messagemanager.replication is set so that the old primary can come
+	*		   back as the new standby, and binds this message manager in the
+	*		   registry under its name (see ShardedBroker.Name), in place of the
+	*		   primary.
+	*
+	*		   A primary that is only slow, not gone, is replaced just the same,
+	*		   and goes on serving the participants still connected to it.
+	*
+	* Arguments: String - registry name of the primary
+	*
+	* Returns: None
+	*
+	* Exceptions: None
+	*
+	****************************************************************************/
+
+	private class Standby implements Runnable, Replicator.Reader
+	{
+		static final long RETRY_MILLIS = 100;			// Wait before trying the primary again
+
+		final String Primary;							// Registry name of the primary
+		final long Timeout;								// Silence in milliseconds before taking over
+		volatile long LastContact = 0;					// When the primary last answered (System.nanoTime), 0 before the first sync
+		boolean Promoted = false;						// Guarded by JournalLock
+		long Highest = 0;								// Highest message position applied, guarded by JournalLock
+		ScheduledExecutorService Watchdog;
+
+		Standby( String Primary )
+		{
+			this.Primary = Primary;
+			Timeout = Math.max( 100, Long.getLong( "messagemanager.standby.timeout", 1000 ) );
+
+		} // constructor
+
+		void Start()
+		{
+			Thread t = new Thread( this, "standby" );
+			t.setDaemon( true );
+			t.start();
+
+			Watchdog = Executors.newSingleThreadScheduledExecutor( new ThreadFactory()
+			{
+				public Thread newThread( Runnable r )
+				{
+					Thread t = new Thread( r, "standby-watchdog" );
+					t.setDaemon( true );
+					return t;
+				}
+			});
+
+			long period = Math.max( 10, Timeout / 4 );
+
+			Watchdog.scheduleWithFixedDelay( new Runnable()
+			{
+				public void run()
+				{
+					long last = LastContact;
+
+					if ( last != 0 && System.nanoTime() - last > Timeout * 1000000L )
+						Promote();
+				}
+
+			}, period, period, TimeUnit.MILLISECONDS );
+
+		} // Start
+
+		public void run()
+		{
+			RMIReplicaInterface p = null;
+			long from = -1;						// Stream position to pull from, -1 to sync
+			String failure = null;				// Last failure reported, so it is only reported once
+
+			while ( true )
+			{
+				try
+				{
+					if ( p == null )
+						p = (RMIReplicaInterface) Naming.lookup( Primary );
+
+					// Pulls return within half the timeout, so a primary that is
+					// up is never silent long enough to be replaced
+
+					byte b[] = (from < 0) ? p.Sync() : p.Pull( from, Timeout / 2 );
+
+					synchronized (JournalLock)
+					{
+						if ( Promoted )
+							return;
+
+						if ( b == null )
+						{
+							from = -1;
+
+						} else if ( from < 0 ) {
+
+							Clear();
+							Highest = Math.max( Highest, Replicator.Apply( b, 8, this ) );
+							from = ByteBuffer.wrap( b ).getLong();
+
+							l.DisplayStatistics( "Standby synced with " + Primary + ". " + MessageQueueList.Size() + " participants." );
+
+						} else {
+
+							Highest = Math.max( Highest, Replicator.Apply( b, 0, this ) );
+							from += b.length;
+
+						} // if
+
+					} // synchronized
+
+					LastContact = System.nanoTime();
+					failure = null;
+
+				} catch (Exception e) {
+
+					p = null;
+
+					if ( !e.toString().equals( failure ) )
+					{
+						failure = e.toString();
+						l.DisplayStatistics( "Standby cannot reach " + Primary + ": " + failure );
+
+					} // if
+
+					try
+					{
+						Thread.sleep( RETRY_MILLIS );
+
+					} catch (InterruptedException again) {
+
+						return;
+
+					} // try
+
+				} // try
+
+				synchronized (JournalLock)
+				{
+					if ( Promoted )
+						return;
+
+				} // synchronized
+
+			} // while
+
+		} // run
+
+		private void Clear()
+		{
+			// Listeners push from the old queues, so they go with them
+
+			for ( ListenerDispatcher d : Listeners.Values() )
+				d.Close();
+
+			Listeners = new ParticipantTable<ListenerDispatcher>();
+			MessageQueueList = new ParticipantTable<MessageQueue>();
+			Subscriptions = new SubscriptionIndex();
+			Leases = new ParticipantTable<AtomicLong>();
+			Retained.clear();
+
+		} // Clear
+
+		void Promote()
+		{
+			long sequence;
+
+			synchronized (JournalLock)
+			{
+				if ( Promoted )
+					return;
+
+				Promoted = true;
+				sequence = Highest;
+
+			} // synchronized
+
+			Watchdog.shutdown();
+
+			for ( MessageQueue mq : MessageQueueList.Values() )
+				Renew( mq.GetId() );
+
+			StartReaper();
+
+			if ( Boolean.getBoolean( "messagemanager.replication" ) )
+				Replicas = NewReplicator( true, sequence );
+
+			try
+			{
+				Serve();
+				Naming.rebind( Name, MessageManager.this );
+				Follower = null;
+
+				l.DisplayStatistics( "No answer from " + Primary + " for " + Timeout + " ms. Standby has taken over with "
+					+ MessageQueueList.Size() + " participants." );
+
+			} catch (Exception e) {
+
+				l.DisplayStatistics( "Standby takeover error: " + e );
+
+			} // try
+
+		} // Promote
+
+		// Records from the primary, applied under JournalLock
+
+		public void Registered( long id, long time )
+		{
+			if ( MessageQueueList.Get( id ) == null )
+				AddParticipant( MessageQueue.Restore( id, time ) );
+		}
+
+		public void Unregistered( long id )
+		{
+			RemoveParticipants( id );
+		}
+
+		public void Subscribed( long id, int MsgIds[] )
+		{
+			Subscriptions.Subscribe( id, MsgIds );
+		}
+
+		public void SubscribedRange( long id, int LowMsgId, int HighMsgId )
+		{
+			Subscriptions.SubscribeRange( id, LowMsgId, HighMsgId );
+		}
+
+		public void UnSubscribed( long id )
+		{
+			Subscriptions.UnSubscribe( id );
+		}
+
+		public void Posted( Message m, long Recipients[] )
+		{
+			Retain( m );
+
+			for ( long id : Recipients )
+			{
+				MessageQueue mq = MessageQueueList.Get( id );
+
+				if ( mq != null )
+					mq.Requeue( m );
+
+			} // for
+		}
+
+		public void Acknowledged( long id, long Position )
+		{
+			MessageQueue mq = MessageQueueList.Get( id );
+
+			if ( mq != null )
+				mq.Discard( Position );
+		}
+
+		public void LimitSet( long id, int Capacity, OverflowPolicy Policy, long BlockMillis )
+		{
+			MessageQueue mq = MessageQueueList.Get( id );
+
+			if ( mq != null )
+				mq.SetLimit( Capacity, Policy, BlockMillis );
+		}
+
+		public void Retained( Message m )
+		{
+			Retain( m );
+		}
+
+	} // Standby
+
+	/***************************************************************************
+	* INNER CLASS:: Logger
+	* Purpose: This class logs requests without holding up the threads that
+	*		   serve them. Callers put a line in a bounded buffer and return; a
+	*		   daemon thread prints the lines, each with the general statistics
+	*		   block, and every reporting interval prints a summary of request
+	*		   rate, registered participants and queue depths. If the buffer is
+	*		   full the line is counted and discarded rather than waited for.
+	*
+	*		   Sends and polls are only logged when sampled for tracing (one in
+	*		   messagemanager.log.sample requests, never by default); they are
+	*		   always counted in the summary. It is configured by the system
+	*		   properties:
+	*
+	*			messagemanager.log.buffer - lines buffered (default 4096)
+	*			messagemanager.log.interval - summary interval in ms (default 5000)
+	*			messagemanager.log.sample - trace one in this many requests
+	*
+	* Arguments: None.
+	*
+	* Returns: None
+	*
+	* Exceptions: None
+	*
+	****************************************************************************/
+
+	private class RequestLogger implements Runnable
+	{
+		LongAdder RequestsServiced = new LongAdder();	// This is the number of requests seviced
+		LongAdder LinesDropped = new LongAdder();		// Lines discarded because the buffer was full
+		ArrayBlockingQueue<String> Lines;				// Lines waiting to be printed
+		int SampleRate;									// Trace one in this many requests, 0 for none
+		long Interval;									// Nanoseconds between summaries
+		Thread Printer;									// Prints the lines and summaries
+
+		RequestLogger()
+		{
+			Lines = new ArrayBlockingQueue<String>( Math.max( 16, Integer.getInteger( "messagemanager.log.buffer", 4096 ) ) );
+			SampleRate = Math.max( 0, Integer.getInteger( "messagemanager.log.sample", 0 ) );
+			Interval = Math.max( 100, Long.getLong( "messagemanager.log.interval", 5000 ) ) * 1000000L;
+
+			Printer = new Thread( this, "request-logger" );
+			Printer.setDaemon( true );
+			Printer.start();
+
+		} // constructor
+
+		/***************************************************************************
+		* Stop ends the printing thread once the lines already buffered have
+		* been printed; lines logged after that are discarded.
+		****************************************************************************/
+
+		void Stop()
+		{
+			Printer.interrupt();
+
+		} // Stop
+
+		/***************************************************************************
+		* Request counts a request and returns true if it was sampled for tracing.
+		* Log buffers a line for printing. DisplayStatistics does both, logging
+		* the line whether or not it was sampled.
+		****************************************************************************/
+
+		boolean Request()
+		{
+			RequestsServiced.increment();
+
+			return SampleRate > 0 && ThreadLocalRandom.current().nextInt( SampleRate ) == 0;
+
+		} // Request
+
+		void Log( String message )
+		{
+			if ( !Lines.offer( message ) )
+				LinesDropped.increment();
+
+		} // Log
+
+		void DisplayStatistics( String message )
+		{
+			Request();
+			Log( message );
+
+		} // DisplayStatistics
+
+		public void run()
+		{
+			long last = System.nanoTime();
+			long lastCount = 0;
+
+			while (true)
+			{
+				try
+				{
+					long wait = last + Interval - System.nanoTime();
+					String message = (wait > 0) ? Lines.poll( wait, TimeUnit.NANOSECONDS ) : null;
+
+					if ( message != null )
+					{
+						Print( message );
+
+					} else {
+
+						long now = System.nanoTime();
+						long count = RequestsServiced.sum();
+
+						if ( count != lastCount )
+							PrintSummary( count - lastCount, now - last );
+
+						last = now;
+						lastCount = count;
+
+					} // if
+
+				} catch (InterruptedException e) {
+
+					String message;
+
+					while ( (message = Lines.poll()) != null )
+						Print( message );
+
+					return;
+
+				} // try
+
+			} // while
+
+		} // run
+
+		void Print( String message )
+		{
+			StringBuilder sb = new StringBuilder();
+
+			sb.append( "-------------------------------------------------------------------------------\n" );
+
+			if ( message.length() != 0 )
+				sb.append( "Message:: " ).append( message ).append( '\n' );
+
+			sb.append( "Number of requests: " ).append( RequestsServiced.sum() ).append( '\n' );
+			sb.append( "Number of registered participants: " ).append( MessageQueueList.Size() ).append( '\n' );
+			sb.append( "-------------------------------------------------------------------------------" );
+
+			System.out.println( sb );
+
+		} // Print
+
+		void PrintSummary( long requests, long elapsed )
+		{
+			// The snapshot is taken here, on the logger thread, so the request
+			// threads never pay for it.
+
+			BrokerStats stats = Stats();
+			ParticipantStats deepest = stats.GetDeepest();
+			StringBuilder sb = new StringBuilder();
+
+			sb.append( "-------------------------------------------------------------------------------\n" );
+			sb.append( "Statistics:: last " ).append( elapsed / 1000000L ).append( " ms\n" );
+			sb.append( "Number of requests: " ).append( stats.GetRequests() );
+			sb.append( " (" ).append( requests * 1000000000L / Math.max( 1, elapsed ) ).append( " per second)\n" );
+			sb.append( "Number of registered participants: " ).append( stats.GetParticipants().length ).append( '\n' );
+			sb.append( "Queued messages: " ).append( stats.GetQueuedMessages() );
+
+			if ( deepest != null )
+				sb.append( ", deepest queue " ).append( deepest.GetDepth() ).append( " (ID: " ).append( deepest.GetId() ).append( ")" );
+
+			sb.append( '\n' );
+			sb.append( "Messages dropped by full queues: " ).append( stats.GetDroppedMessages() ).append( '\n' );
+			sb.append( "Send latency: " ).append( stats.GetSendLatency() ).append( '\n' );
+			sb.append( "Drain latency: " ).append( stats.GetDrainLatency() ).append( '\n' );
+			sb.append( "Log lines dropped: " ).append( LinesDropped.sum() ).append( '\n' );
+			sb.append( "-------------------------------------------------------------------------------" );
+
+			System.out.println( sb );
 
-		} // Register
+		} // PrintSummary
 
 	} // logger
 
-} // MessageManger class
\ No newline at end of file
+} // MessageManger class
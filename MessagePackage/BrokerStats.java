@@ -0,0 +1,139 @@
+/******************************************************************************************************************
+* File:BrokerStats.java
+* Course: 17655
+* Project: Assignment A2
+* Copyright: Copyright (c) 2009 Carnegie Mellon University
+* Versions:
+*	1.0 October 2026 - Initial version.
+*
+* Description: This class is a snapshot of the message manager's metrics, returned by GetStats. It holds the number of
+*			   requests served, the counters of every registered participant, and the send and drain latency
+*			   histograms. Send latency is the time to route a message into every interested queue; drain latency
+*			   is the time to take the messages off a participant's queue (not counting any long poll wait).
+*
+* Parameters: None
+*
+* Internal Methods: None
+*
+******************************************************************************************************************/
+package MessagePackage;
+
+import java.io.Serializable;
+
+public class BrokerStats implements Serializable
+{
+	private final long Time;						// When the snapshot was taken, in milliseconds
+	private final long Requests;					// Requests served since start up
+	private final ParticipantStats[] Participants;	// One entry per registered participant
+	private final LatencyHistogram SendLatency;		// Time to route one message
+	private final LatencyHistogram DrainLatency;	// Time to drain one queue
+
+	public BrokerStats( long Requests, ParticipantStats[] Participants, LatencyHistogram SendLatency, LatencyHistogram DrainLatency )
+	{
+		this.Time = System.currentTimeMillis();
+		this.Requests = Requests;
+		this.Participants = Participants;
+		this.SendLatency = SendLatency;
+		this.DrainLatency = DrainLatency;
+
+	} // constructor
+
+	public long GetTime() { return Time; }
+	public long GetRequests() { return Requests; }
+	public ParticipantStats[] GetParticipants() { return Participants; }
+	public LatencyHistogram GetSendLatency() { return SendLatency; }
+	public LatencyHistogram GetDrainLatency() { return DrainLatency; }
+
+	/***************************************************************************
+	* CONCRETE METHOD:: GetQueuedMessages
+	* Purpose: This method returns the number of messages queued for all
+	*		   participants.
+	*
+	* Arguments: None
+	*
+	* Returns: long
+	*
+	* Exceptions: None
+	*
+	****************************************************************************/
+
+	public long GetQueuedMessages()
+	{
+		long n = 0;
+
+		for ( ParticipantStats p : Participants )
+			n += p.Depth;
+
+		return n;
+
+	} // GetQueuedMessages
+
+	/***************************************************************************
+	* CONCRETE METHOD:: GetDroppedMessages
+	* Purpose: This method returns the number of messages dropped by the queues
+	*		   of all registered participants.
+	*
+	* Arguments: None
+	*
+	* Returns: long
+	*
+	* Exceptions: None
+	*
+	****************************************************************************/
+
+	public long GetDroppedMessages()
+	{
+		long n = 0;
+
+		for ( ParticipantStats p : Participants )
+			n += p.Dropped;
+
+		return n;
+
+	} // GetDroppedMessages
+
+	/***************************************************************************
+	* CONCRETE METHOD:: GetDeepest
+	* Purpose: This method returns the participant with the most queued
+	*		   messages.
+	*
+	* Arguments: None
+	*
+	* Returns: ParticipantStats, or null if no participant has messages queued
+	*
+	* Exceptions: None
+	*
+	****************************************************************************/
+
+	public ParticipantStats GetDeepest()
+	{
+		ParticipantStats deepest = null;
+
+		for ( ParticipantStats p : Participants )
+		{
+			if ( p.Depth > 0 && (deepest == null || p.Depth > deepest.Depth) )
+				deepest = p;
+
+		} // for
+
+		return deepest;
+
+	} // GetDeepest
+
+	public String toString()
+	{
+		StringBuilder sb = new StringBuilder();
+
+		sb.append( "Number of requests: " ).append( Requests ).append( '\n' );
+		sb.append( "Number of registered participants: " ).append( Participants.length ).append( '\n' );
+		sb.append( "Send latency: " ).append( SendLatency ).append( '\n' );
+		sb.append( "Drain latency: " ).append( DrainLatency );
+
+		for ( ParticipantStats p : Participants )
+			sb.append( '\n' ).append( "  " ).append( p );
+
+		return sb.toString();
+
+	} // toString
+
+} // BrokerStats
@@ -0,0 +1,38 @@
+/******************************************************************************************************************
+* File:BrokerStatsMBean.java
+* Course: 17655
+* Project: Assignment A2
+* Copyright: Copyright (c) 2009 Carnegie Mellon University
+* Versions:
+*	1.0 October 2026 - Initial version.
+*
+* Description: This is the JMX management interface of the message manager's metrics. The message manager registers it
+*			   with the platform MBean server as "MessageManager:type=Broker", so the metrics can be watched with
+*			   jconsole or any JMX client. Method names follow the JMX getter convention so that they show up as
+*			   attributes. Latencies are in microseconds.
+*
+* Parameters: None
+*
+* Internal Methods: None
+*
+******************************************************************************************************************/
+package MessagePackage;
+
+public interface BrokerStatsMBean
+{
+	long getRequests();
+	int getParticipants();
+	long getQueuedMessages();
+	long getDroppedMessages();
+
+	long getSendCount();
+	double getSendLatencyMean();
+	double getSendLatencyP99();
+
+	long getDrainCount();
+	double getDrainLatencyMean();
+	double getDrainLatencyP99();
+
+	String[] getParticipantStats();
+
+} // BrokerStatsMBean
@@ -0,0 +1,80 @@
+/******************************************************************************************************************
+* File:BrokerStatsView.java
+* Course: 17655
+* Project: Assignment A2
+* Copyright: Copyright (c) 2009 Carnegie Mellon University
+* Versions:
+*	1.0 October 2026 - Initial version.
+*
+* Description: This class implements the JMX interface BrokerStatsMBean on top of a message manager's GetStats. A JMX
+*			   client usually reads every attribute at once, so one snapshot is reused for up to MAX_AGE
+*			   milliseconds instead of being rebuilt for each attribute.
+*
+* Parameters:
+*			   Broker - This is the message manager whose metrics are shown
+*
+* Internal Methods:
+*			   Snapshot - Returns a recent BrokerStats.
+*
+******************************************************************************************************************/
+package MessagePackage;
+
+public class BrokerStatsView implements BrokerStatsMBean
+{
+	static final long MAX_AGE = 1000;				// Longest a snapshot is reused, in milliseconds
+
+	private final RMIMessageManagerInterface Broker;
+	private BrokerStats Last = null;
+
+	public BrokerStatsView( RMIMessageManagerInterface Broker )
+	{
+		this.Broker = Broker;
+
+	} // constructor
+
+	public long getRequests() { return Snapshot().GetRequests(); }
+	public int getParticipants() { return Snapshot().GetParticipants().length; }
+	public long getQueuedMessages() { return Snapshot().GetQueuedMessages(); }
+	public long getDroppedMessages() { return Snapshot().GetDroppedMessages(); }
+
+	public long getSendCount() { return Snapshot().GetSendLatency().GetCount(); }
+	public double getSendLatencyMean() { return Snapshot().GetSendLatency().GetMean(); }
+	public double getSendLatencyP99() { return Snapshot().GetSendLatency().GetPercentile( 0.99 ); }
+
+	public long getDrainCount() { return Snapshot().GetDrainLatency().GetCount(); }
+	public double getDrainLatencyMean() { return Snapshot().GetDrainLatency().GetMean(); }
+	public double getDrainLatencyP99() { return Snapshot().GetDrainLatency().GetPercentile( 0.99 ); }
+
+	public String[] getParticipantStats()
+	{
+		ParticipantStats[] ps = Snapshot().GetParticipants();
+		String[] lines = new String[ps.length];
+
+		for ( int i = 0; i < ps.length; i++ )
+			lines[i] = ps[i].toString();
+
+		return lines;
+
+	} // getParticipantStats
+
+	private synchronized BrokerStats Snapshot()
+	{
+		if ( Last == null || System.currentTimeMillis() - Last.GetTime() > MAX_AGE )
+		{
+			try
+			{
+				Last = Broker.GetStats();
+
+			} catch (Exception e) {
+
+				throw new IllegalStateException( "Error getting message manager statistics" + e );
+
+			} // try
+
+		} // if
+
+		return Last;
+
+	} // Snapshot
+
+} // BrokerStatsView
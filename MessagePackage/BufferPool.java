@@ -0,0 +1,97 @@
+/******************************************************************************************************************
+* File:BufferPool.java
+* Course: 17655
+* Project: Assignment A2
+* Copyright: Copyright (c) 2009 Carnegie Mellon University
+* Versions:
+*	1.0 October 2026 - Initial version.
+*
+* Description: This class keeps a pool of direct byte buffers of one size for the TCP transport. Direct buffers are
+*			   expensive to allocate and are only freed by the garbage collector, so connections take their read and
+*			   write buffers from the pool and give them back instead of allocating new ones. Frames that do not fit
+*			   in a pooled buffer get a heap buffer of their own, which Release ignores.
+*
+* Parameters:
+*			   Size - This is the capacity of each pooled buffer
+*			   MaxPooled - This is the most idle buffers kept; more are left to the garbage collector
+*
+* Internal Methods: None
+*
+******************************************************************************************************************/
+package MessagePackage;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+class BufferPool
+{
+	private final int Size;
+	private final int MaxPooled;
+	private final ConcurrentLinkedQueue<ByteBuffer> Idle = new ConcurrentLinkedQueue<ByteBuffer>();
+	private final AtomicInteger IdleCount = new AtomicInteger();
+
+	BufferPool( int Size, int MaxPooled )
+	{
+		this.Size = Size;
+		this.MaxPooled = MaxPooled;
+
+	} // constructor
+
+	/***************************************************************************
+	* CONCRETE METHOD:: Get
+	* Purpose: Returns a cleared buffer with room for at least Needed bytes:
+	*		   a pooled direct buffer if Needed fits, otherwise a new heap
+	*		   buffer.
+	*
+	* Arguments: int - bytes needed
+	*
+	* Returns: ByteBuffer
+	*
+	* Exceptions: None
+	*
+	****************************************************************************/
+
+	ByteBuffer Get( int Needed )
+	{
+		if ( Needed > Size )
+			return ByteBuffer.allocate( Needed );
+
+		ByteBuffer b = Idle.poll();
+
+		if ( b == null )
+			return ByteBuffer.allocateDirect( Size );
+
+		IdleCount.decrementAndGet();
+		b.clear();
+
+		return b;
+
+	} // Get
+
+	/***************************************************************************
+	* CONCRETE METHOD:: Release
+	* Purpose: Gives a buffer back to the pool. Buffers that did not come from
+	*		   the pool are ignored.
+	*
+	* Arguments: ByteBuffer
+	*
+	* Returns: None
+	*
+	* Exceptions: None
+	*
+	****************************************************************************/
+
+	void Release( ByteBuffer b )
+	{
+		if ( b == null || !b.isDirect() || b.capacity() != Size )
+			return;
+
+		if ( IdleCount.incrementAndGet() <= MaxPooled )
+			Idle.offer( b );
+		else
+			IdleCount.decrementAndGet();
+
+	} // Release
+
+} // BufferPool
@@ -0,0 +1,198 @@
+/******************************************************************************************************************
+* File:Checkpoint.java
+* Course: 17655
+* Project: Assignment A2
+* Copyright: Copyright (c) 2009 Carnegie Mellon University
+* Versions:
+*	1.0 October 2026 - Initial version.
+*
+* Description: This class is a checkpoint of the message manager's journal (see Journal.java). It records, as of
+*			   journal position Position, every registered participant with its subscriptions, its queue limit and
+*			   the journal position of the last message it acknowledged. Start is the position of the oldest message still queued
+*			   for anyone; replay begins there, and journal segments before it are no longer needed. It also holds
+*			   the messages the message manager retains, since the segments they were journaled in may be deleted.
+*
+*			   A checkpoint is written to a temporary file which is forced to disk and then renamed over the previous
+*			   one, so a crash while writing leaves the previous checkpoint in place.
+*
+* Parameters:
+*			   Position - This is the journal position when the checkpoint was taken
+*			   Start - This is where replay starts
+*			   Participants - This is one Entry per registered participant
+*			   Retained - This is the latest message with each message id
+*
+* Internal Methods: None
+*
+******************************************************************************************************************/
+package MessagePackage;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+public class Checkpoint
+{
+	static final String FILE_NAME = "checkpoint";
+	static final int MAGIC = 0x4d4d434c;			// "MMCL"
+	static final int OLD_MAGIC = 0x4d4d4350;		// "MMCP", written before queue limits were kept
+
+	public long Position;
+	public long Start;
+	public ArrayList<Entry> Participants = new ArrayList<Entry>();
+	public ArrayList<Message> Retained = new ArrayList<Message>();
+
+	/***************************************************************************
+	* INNER CLASS:: Entry
+	* Purpose: One participant in a checkpoint. Low[i]..High[i] are its
+	*		   subscribed ranges.
+	*
+	****************************************************************************/
+
+	public static class Entry
+	{
+		public long Id;
+		public long RegistrationTime;
+		public long Acknowledged;
+		public int Capacity;
+		public OverflowPolicy Policy;				// null if the checkpoint did not keep queue limits
+		public long BlockMillis;
+		public int MsgIds[] = new int[0];
+		public int Low[] = new int[0];
+		public int High[] = new int[0];
+
+	} // Entry
+
+	/***************************************************************************
+	* CONCRETE METHOD:: Write
+	* Purpose: This method replaces the checkpoint in a directory.
+	*
+	* Arguments: File - directory
+	*
+	* Returns: None
+	*
+	* Exceptions: IOException
+	*
+	****************************************************************************/
+
+	public void Write( File Directory ) throws IOException
+	{
+		File tmp = new File( Directory, FILE_NAME + ".tmp" );
+
+		try ( FileOutputStream fos = new FileOutputStream( tmp ) )
+		{
+			DataOutputStream out = new DataOutputStream( new BufferedOutputStream( fos ) );
+
+			out.writeInt( MAGIC );
+			out.writeLong( Position );
+			out.writeLong( Start );
+			out.writeInt( Participants.size() );
+
+			for ( Entry e : Participants )
+			{
+				out.writeLong( e.Id );
+				out.writeLong( e.RegistrationTime );
+				out.writeLong( e.Acknowledged );
+				out.writeInt( e.Capacity );
+				out.writeByte( e.Policy.ordinal() );
+				out.writeLong( e.BlockMillis );
+				WriteInts( out, e.MsgIds );
+				WriteInts( out, e.Low );
+				WriteInts( out, e.High );
+
+			} // for
+
+			Snapshot.WriteMessages( out, Retained, new HashMap<String, Integer>() );
+
+			out.flush();
+			fos.getFD().sync();
+
+		} // try
+
+		Files.move( tmp.toPath(), new File( Directory, FILE_NAME ).toPath(),
+			StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE );
+
+	} // Write
+
+	/***************************************************************************
+	* CONCRETE METHOD:: Read
+	* Purpose: This method reads the checkpoint in a directory.
+	*
+	* Arguments: File - directory
+	*
+	* Returns: Checkpoint, or null if there is none
+	*
+	* Exceptions: IOException if the checkpoint cannot be read
+	*
+	****************************************************************************/
+
+	public static Checkpoint Read( File Directory ) throws IOException
+	{
+		File f = new File( Directory, FILE_NAME );
+
+		if ( !f.exists() )
+			return null;
+
+		try ( DataInputStream in = new DataInputStream( new BufferedInputStream( new FileInputStream( f ) ) ) )
+		{
+			int magic = in.readInt();
+
+			if ( magic != MAGIC && magic != OLD_MAGIC )
+				throw new IOException( "Not a checkpoint: " + f );
+
+			Checkpoint c = new Checkpoint();
+			c.Position = in.readLong();
+			c.Start = in.readLong();
+
+			int count = in.readInt();
+
+			for ( int i = 0; i < count; i++ )
+			{
+				Entry e = new Entry();
+				e.Id = in.readLong();
+				e.RegistrationTime = in.readLong();
+				e.Acknowledged = in.readLong();
+
+				if ( magic == MAGIC )
+				{
+					e.Capacity = in.readInt();
+					e.Policy = OverflowPolicy.values()[in.readByte()];
+					e.BlockMillis = in.readLong();
+
+				} // if
+
+				e.MsgIds = ReadInts( in );
+				e.Low = ReadInts( in );
+				e.High = ReadInts( in );
+				c.Participants.add( e );
+
+			} // for
+
+			Snapshot.ReadMessages( in, c.Retained, new ArrayList<String>() );
+
+			return c;
+
+		} // try
+
+	} // Read
+
+	static void WriteInts( DataOutputStream out, int a[] ) throws IOException
+	{
+		out.writeInt( a.length );
+
+		for ( int i : a )
+			out.writeInt( i );
+
+	} // WriteInts
+
+	static int[] ReadInts( DataInputStream in ) throws IOException
+	{
+		int a[] = new int[in.readInt()];
+
+		for ( int i = 0; i < a.length; i++ )
+			a[i] = in.readInt();
+
+		return a;
+
+	} // ReadInts
+
+} // Checkpoint
@@ -0,0 +1,167 @@
+/******************************************************************************************************************
+* File:FrameClient.java
+* Course: 17655
+* Project: Assignment A2
+* Copyright: Copyright (c) 2009 Carnegie Mellon University
+* Versions:
+*	1.0 October 2026 - Initial version.
+*
+* Description: This class is the client side of the TCP transport (see FrameServer.java). Like every FrameStub it
+*			   implements the same interface as the RMI stub, so MessageManagerInterface can use either one. Each
+*			   call is written to the connection as one frame and waits for the response with the same request id;
+*			   calls made by different threads (for example a participant's main loop and its lease heartbeat) share
+*			   the connection and are pipelined rather than queued behind each other. A reader thread matches the
+*			   responses to the waiting calls.
+*
+*			   If the connection is lost every waiting and later call throws java.rmi.ConnectException.
+*
+* Parameters:
+*			   Host - This is the message manager's host
+*			   Port - This is the message manager's TCP port
+*
+* Internal Methods:
+*			   Send - Sends a request frame and waits for its response.
+*			   ReadResponses - The reader thread.
+*
+******************************************************************************************************************/
+package MessagePackage;
+
+import java.io.*;
+import java.net.*;
+import java.nio.ByteBuffer;
+import java.rmi.RemoteException;
+import java.util.*;
+import java.util.concurrent.*;
+
+public class FrameClient extends FrameStub
+{
+	private final Socket Connection;
+	private final OutputStream Out;
+	private final ConcurrentHashMap<Integer, CompletableFuture<ByteBuffer>> Pending = new ConcurrentHashMap<Integer, CompletableFuture<ByteBuffer>>();
+	private volatile String Failure = null;			// Why the connection was lost, null while it is up
+
+	public FrameClient( String Host, int Port ) throws IOException
+	{
+		Connection = new Socket( Host, Port );
+		Connection.setTcpNoDelay( true );
+		Out = Connection.getOutputStream();
+
+		final DataInputStream in = new DataInputStream( new BufferedInputStream( Connection.getInputStream(), FrameServer.BUFFER_SIZE ) );
+
+		Thread t = new Thread( new Runnable()
+		{
+			public void run()
+			{
+				ReadResponses( in );
+			}
+
+		}, "frame-client-" + Host + ":" + Port );
+
+		t.setDaemon( true );
+		t.start();
+
+	} // constructor
+
+	/***************************************************************************
+	* CONCRETE METHOD:: Close
+	* Purpose: Closes the connection. Waiting calls fail.
+	*
+	* Arguments: None
+	*
+	* Returns: None
+	*
+	* Exceptions: None
+	*
+	****************************************************************************/
+
+	public void Close()
+	{
+		try
+		{
+			Connection.close();
+
+		} catch (IOException e) {
+
+			// Already closed
+
+		} // try
+
+	} // Close
+
+	protected ByteBuffer Send( int id, ByteBuffer request ) throws RemoteException
+	{
+		CompletableFuture<ByteBuffer> response = new CompletableFuture<ByteBuffer>();
+
+		Pending.put( id, response );
+
+		try
+		{
+			if ( Failure != null )
+				throw new IOException( Failure );
+
+			synchronized (Out)
+			{
+				Out.write( request.array(), 0, request.position() );
+				Out.flush();
+
+			} // synchronized
+
+			return response.get();
+
+		} catch (IOException e) {
+
+			throw new java.rmi.ConnectException( "Connection to message manager lost::" + e.getMessage() );
+
+		} catch (ExecutionException e) {
+
+			throw new java.rmi.ConnectException( "Connection to message manager lost::" + e.getCause().getMessage() );
+
+		} catch (InterruptedException e) {
+
+			Thread.currentThread().interrupt();
+			throw new RemoteException( "Interrupted waiting for the message manager" );
+
+		} finally {
+
+			Pending.remove( id );
+
+		} // try
+
+	} // Send
+
+	private void ReadResponses( DataInputStream in )
+	{
+		try
+		{
+			while ( true )
+			{
+				int length = in.readInt();
+
+				if ( length < Frames.HEADER - 4 || length > Frames.MAX_FRAME )
+					throw new IOException( "Bad frame length " + length );
+
+				byte frame[] = new byte[length];
+				in.readFully( frame );
+
+				ByteBuffer r = ByteBuffer.wrap( frame );
+				CompletableFuture<ByteBuffer> response = Pending.get( r.getInt() );
+
+				if ( response != null )
+					response.complete( r );
+
+			} // while
+
+		} catch (IOException e) {
+
+			Failure = e.toString();
+
+			for ( CompletableFuture<ByteBuffer> response : Pending.values() )
+				response.completeExceptionally( e );
+
+			Close();
+
+		} // try
+
+	} // ReadResponses
+
+} // FrameClient
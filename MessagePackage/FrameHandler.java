@@ -0,0 +1,189 @@
+/******************************************************************************************************************
+* File:FrameHandler.java
+* Course: 17655
+* Project: Assignment A2
+* Copyright: Copyright (c) 2009 Carnegie Mellon University
+* Versions:
+*	1.0 October 2026 - Initial version.
+*
+* Description: This class carries out request frames (see Frames.java) on the message manager and builds the
+*			   response frames. It is shared by the transports that use frames, so they only differ in how frames
+*			   are moved: FrameServer over TCP and RingServer over shared memory.
+*
+* Parameters:
+*			   Broker - This is the message manager the requests are passed to
+*			   Buffers - This is the pool response buffers are taken from
+*
+* Internal Methods: None
+*
+******************************************************************************************************************/
+package MessagePackage;
+
+import java.nio.ByteBuffer;
+import java.util.*;
+
+class FrameHandler
+{
+	private final RMIMessageManagerInterface Broker;
+	private final BufferPool Buffers;
+
+	FrameHandler( RMIMessageManagerInterface Broker, BufferPool Buffers )
+	{
+		this.Broker = Broker;
+		this.Buffers = Buffers;
+
+	} // constructor
+
+	/***************************************************************************
+	* CONCRETE METHOD:: Execute
+	* Purpose: Carries out one request. A failure is returned to the client as
+	*		   an ERROR response rather than thrown.
+	*
+	* Arguments: int - request id, byte - op, ByteBuffer - the arguments
+	*
+	* Returns: ByteBuffer - the response frame, ready to write; give it back to
+	*		   the pool once written
+	*
+	* Exceptions: None
+	*
+	****************************************************************************/
+
+	ByteBuffer Execute( int id, byte op, ByteBuffer args )
+	{
+		ByteBuffer r;
+
+		try
+		{
+			switch ( op )
+			{
+				case Frames.REGISTER:
+					long registered = Broker.Register();
+					r = Begin( id, 8 );
+					r.putLong( registered );
+					break;
+
+				case Frames.UNREGISTER:
+					Broker.UnRegister( args.getLong() );
+					r = Begin( id, 0 );
+					break;
+
+				case Frames.SEND:
+					Broker.SendMessage( Frames.GetMessage( args ) );
+					r = Begin( id, 0 );
+					break;
+
+				case Frames.SEND_BATCH:
+					Broker.SendMessages( Frames.GetMessages( args ) );
+					r = Begin( id, 0 );
+					break;
+
+				case Frames.GET_QUEUE:
+				case Frames.GET_QUEUE_WAIT:
+					long participant = args.getLong();
+					MessageQueue mq = (op == Frames.GET_QUEUE) ? Broker.GetMessageQueue( participant )
+						: Broker.GetMessageQueue( participant, args.getLong() );
+					List<Message> ms = (mq == null) ? null : Frames.Drain( mq );
+					r = Begin( id, Frames.QueueSize( ms ) );
+					Frames.PutQueue( r, mq, ms );
+					break;
+
+				case Frames.SUBSCRIBE:
+					Broker.Subscribe( args.getLong(), Frames.GetInts( args ) );
+					r = Begin( id, 0 );
+					break;
+
+				case Frames.SUBSCRIBE_RANGE:
+					Broker.SubscribeRange( args.getLong(), args.getInt(), args.getInt() );
+					r = Begin( id, 0 );
+					break;
+
+				case Frames.UNSUBSCRIBE:
+					Broker.UnSubscribe( args.getLong() );
+					r = Begin( id, 0 );
+					break;
+
+				case Frames.SET_QUEUE_LIMIT:
+					Broker.SetQueueLimit( args.getLong(), args.getInt(), OverflowPolicy.values()[args.get()], args.getLong() );
+					r = Begin( id, 0 );
+					break;
+
+				case Frames.GET_DROPPED:
+					long dropped = Broker.GetDroppedCount( args.getLong() );
+					r = Begin( id, 8 );
+					r.putLong( dropped );
+					break;
+
+				case Frames.GET_LAST_VALUE:
+					Message last = Broker.GetLastValue( args.getInt() );
+					r = Begin( id, 1 + ((last == null) ? 0 : Frames.MessageSize( last )) );
+					r.put( (byte) ((last == null) ? 0 : 1) );
+
+					if ( last != null )
+						Frames.PutMessage( r, last );
+
+					break;
+
+				case Frames.GET_RETAINED:
+					List<Message> retained = Broker.GetRetained( Frames.GetInts( args ) );
+					r = Begin( id, Frames.MessagesSize( retained ) );
+					Frames.PutMessages( r, retained );
+					break;
+
+				case Frames.RENEW_LEASE:
+					boolean renewed = Broker.RenewLease( args.getLong() );
+					r = Begin( id, 1 );
+					r.put( (byte) (renewed ? 1 : 0) );
+					break;
+
+				case Frames.REATTACH:
+					boolean restored = Broker.Reattach( args.getLong() );
+					r = Begin( id, 1 );
+					r.put( (byte) (restored ? 1 : 0) );
+					break;
+
+				case Frames.GET_LEASE:
+					long lease = Broker.GetLeaseDuration();
+					r = Begin( id, 8 );
+					r.putLong( lease );
+					break;
+
+				case Frames.IS_ALIVE:
+					boolean alive = Broker.isAlive();
+					r = Begin( id, 1 );
+					r.put( (byte) (alive ? 1 : 0) );
+					break;
+
+				default:
+					throw new IllegalArgumentException( "Unknown request: " + op );
+
+			} // switch
+
+		} catch (Exception e) {
+
+			String text = e.toString();
+			r = Begin( id, Frames.TextSize( text ) );
+			r.put( 8, Frames.ERROR );
+			Frames.PutText( r, text );
+
+		} // try
+
+		r.putInt( 0, r.position() - 4 );
+		r.flip();
+
+		return r;
+
+	} // Execute
+
+	private ByteBuffer Begin( int id, int size )
+	{
+		ByteBuffer r = Buffers.Get( Frames.HEADER + size );
+
+		r.putInt( 0 );
+		r.putInt( id );
+		r.put( Frames.OK );
+
+		return r;
+
+	} // Begin
+
+} // FrameHandler
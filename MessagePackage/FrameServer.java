@@ -0,0 +1,441 @@
+/******************************************************************************************************************
+* File:FrameServer.java
+* Course: 17655
+* Project: Assignment A2
+* Copyright: Copyright (c) 2009 Carnegie Mellon University
+* Versions:
+*	1.0 October 2026 - Initial version.
+*
+* Description: This class serves the message manager over TCP using the binary frames defined in Frames.java, as an
+*			   alternative to RMI for large numbers of participants. One selector thread handles every connection:
+*			   it reads whatever has arrived, carries out each complete request frame and writes all of the
+*			   responses back with one gathering write. Clients may send further requests before the earlier ones
+*			   are answered (pipelining). Read and write buffers are direct buffers taken from a BufferPool.
+*
+*			   Requests are cheap, non-blocking calls on the message manager and run on the selector thread,
+*			   except GetMessageQueue with a timeout, which is handed to a separate pool so that a waiting poll does
+*			   not hold up other connections. When requests can block (in durable mode, or with BLOCK overflow
+*			   policies) a worker pool should be configured so that they all run off the selector thread; their
+*			   responses may then come back out of order, which the request ids allow for.
+*
+*			   Message listeners and broker statistics are only available over RMI.
+*
+* Parameters:
+*			   Broker - This is the message manager the requests are passed to
+*			   Port - This is the TCP port to listen on (0 picks a free port)
+*			   Workers - This is the size of the worker pool, 0 to run requests on the selector thread
+*
+* Internal Methods:
+*			   Read - Reads from a connection and handles each complete frame.
+*			   Flush - Writes a connection's pending responses.
+*
+******************************************************************************************************************/
+package MessagePackage;
+
+import java.io.*;
+import java.net.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+public class FrameServer implements Runnable
+{
+	static final int BUFFER_SIZE = 64 << 10;		// Size of pooled read and write buffers
+	static final int MAX_POOLED = 1024;				// Most idle buffers kept in the pool
+
+	private final FrameHandler Handler;
+	private final ServerSocketChannel Server;
+	private final Selector Selector;
+	private final BufferPool Buffers = new BufferPool( BUFFER_SIZE, MAX_POOLED );
+	private final ExecutorService Workers;			// Runs every request when configured, otherwise null
+	private final ExecutorService Waiters;			// Runs GetMessageQueue calls that wait
+	private final ConcurrentLinkedQueue<Connection> Ready = new ConcurrentLinkedQueue<Connection>();
+	private volatile boolean Closed = false;
+	private Thread Selecting = null;				// The selector thread, once started
+
+	public FrameServer( RMIMessageManagerInterface Broker, int Port, int Workers ) throws IOException
+	{
+		Handler = new FrameHandler( Broker, Buffers );
+		this.Workers = (Workers > 0) ? Executors.newFixedThreadPool( Workers, Threads( "frame-worker" ) ) : null;
+		Waiters = Executors.newCachedThreadPool( Threads( "frame-poll" ) );
+
+		Selector = java.nio.channels.Selector.open();
+		Server = ServerSocketChannel.open();
+		Server.bind( new InetSocketAddress( Port ) );
+		Server.configureBlocking( false );
+		Server.register( Selector, SelectionKey.OP_ACCEPT );
+
+	} // constructor
+
+	private static ThreadFactory Threads( final String name )
+	{
+		return new ThreadFactory()
+		{
+			public Thread newThread( Runnable r )
+			{
+				Thread t = new Thread( r, name );
+				t.setDaemon( true );
+				return t;
+			}
+		};
+
+	} // Threads
+
+	/***************************************************************************
+	* CONCRETE METHOD:: Start
+	* Purpose: Starts the selector thread.
+	*
+	* Arguments: None
+	*
+	* Returns: None
+	*
+	* Exceptions: None
+	*
+	****************************************************************************/
+
+	public void Start()
+	{
+		Thread t = new Thread( this, "frame-server" );
+		t.setDaemon( true );
+		Selecting = t;
+		t.start();
+
+	} // Start
+
+	/***************************************************************************
+	* CONCRETE METHOD:: GetPort
+	* Purpose: Returns the port the server is listening on.
+	*
+	* Arguments: None
+	*
+	* Returns: int
+	*
+	* Exceptions: None
+	*
+	****************************************************************************/
+
+	public int GetPort()
+	{
+		return Server.socket().getLocalPort();
+
+	} // GetPort
+
+	/***************************************************************************
+	* CONCRETE METHOD:: Close
+	* Purpose: Stops accepting requests and closes every connection. Returns
+	*		   once the port is free, so that it can be bound again at once.
+	*
+	* Arguments: None
+	*
+	* Returns: None
+	*
+	* Exceptions: None
+	*
+	****************************************************************************/
+
+	public void Close()
+	{
+		Closed = true;
+		Selector.wakeup();
+
+		Thread t = Selecting;
+
+		try
+		{
+			if ( t != null && t != Thread.currentThread() )
+				t.join();
+
+		} catch (InterruptedException e) {
+
+			Thread.currentThread().interrupt();
+
+		} // try
+
+	} // Close
+
+	public void run()
+	{
+		try
+		{
+			while ( !Closed )
+			{
+				Selector.select();
+
+				// Responses finished by the worker and waiter pools
+
+				Connection ready;
+
+				while ( (ready = Ready.poll()) != null )
+				{
+					ByteBuffer b;
+
+					while ( (b = ready.Completed.poll()) != null )
+						ready.Out.add( b );
+
+					Flush( ready );
+
+				} // while
+
+				Iterator<SelectionKey> keys = Selector.selectedKeys().iterator();
+
+				while ( keys.hasNext() )
+				{
+					SelectionKey key = keys.next();
+					keys.remove();
+
+					if ( !key.isValid() )
+						continue;
+
+					if ( key.isAcceptable() )
+					{
+						Accept();
+						continue;
+
+					} // if
+
+					Connection c = (Connection) key.attachment();
+
+					if ( key.isReadable() )
+						Read( c );
+
+					if ( key.isValid() && key.isWritable() )
+						Flush( c );
+
+				} // while
+
+			} // while
+
+		} catch (IOException e) {
+
+			System.out.println( "Frame server stopped: " + e );
+
+		} // try
+
+		for ( SelectionKey key : Selector.keys() )
+		{
+			if ( key.attachment() instanceof Connection )
+				Close( (Connection) key.attachment() );
+
+		} // for
+
+		try
+		{
+			Server.close();
+			Selector.close();
+
+		} catch (IOException e) {
+
+			// Nothing left to do
+
+		} // try
+
+		Waiters.shutdownNow();
+
+		if ( Workers != null )
+			Workers.shutdownNow();
+
+	} // run
+
+	private void Accept() throws IOException
+	{
+		SocketChannel ch = Server.accept();
+
+		if ( ch == null )
+			return;
+
+		ch.configureBlocking( false );
+		ch.setOption( StandardSocketOptions.TCP_NODELAY, true );
+
+		Connection c = new Connection( ch, Buffers.Get( BUFFER_SIZE ) );
+		c.Key = ch.register( Selector, SelectionKey.OP_READ, c );
+
+	} // Accept
+
+	private void Read( Connection c )
+	{
+		int n;
+
+		try
+		{
+			n = c.Channel.read( c.In );
+
+		} catch (IOException e) {
+
+			n = -1;
+
+		} // try
+
+		if ( n < 0 )
+		{
+			Close( c );
+			return;
+
+		} // if
+
+		ByteBuffer in = c.In;
+		in.flip();
+
+		while ( in.remaining() >= 4 )
+		{
+			int length = in.getInt( in.position() );
+
+			if ( length < Frames.HEADER - 4 || length > Frames.MAX_FRAME )
+			{
+				Close( c );
+				return;
+
+			} // if
+
+			if ( in.remaining() < 4 + length )
+			{
+				// Not all here yet. A frame bigger than the buffer gets a heap
+				// buffer of its own until it has been handled.
+
+				if ( 4 + length > in.capacity() )
+				{
+					ByteBuffer bigger = ByteBuffer.allocate( 4 + length );
+					bigger.put( in );
+					Buffers.Release( in );
+					c.In = bigger;
+					Flush( c );
+					return;
+
+				} // if
+
+				break;
+
+			} // if
+
+			int end = in.position() + 4 + length;
+
+			in.getInt();
+			int id = in.getInt();
+			byte op = in.get();
+
+			ByteBuffer args = in.slice();
+			args.limit( end - in.position() );
+			in.position( end );
+
+			Dispatch( c, id, op, args );
+
+		} // while
+
+		in.compact();
+
+		if ( !in.isDirect() && in.position() == 0 )
+		{
+			c.In = Buffers.Get( BUFFER_SIZE );
+
+		} // if
+
+		// One write for every response to this read
+
+		Flush( c );
+
+	} // Read
+
+	private void Dispatch( final Connection c, final int id, final byte op, ByteBuffer args )
+	{
+		ExecutorService pool = (op == Frames.GET_QUEUE_WAIT) ? Waiters : Workers;
+
+		if ( pool == null )
+		{
+			c.Out.add( Handler.Execute( id, op, args ) );
+			return;
+
+		} // if
+
+		// The arguments are in the read buffer, which is reused once this
+		// returns, so the request gets a copy.
+
+		final ByteBuffer copy = ByteBuffer.allocate( args.remaining() );
+		copy.put( args );
+		copy.flip();
+
+		pool.execute( new Runnable()
+		{
+			public void run()
+			{
+				c.Completed.add( Handler.Execute( id, op, copy ) );
+				Ready.add( c );
+				Selector.wakeup();
+			}
+		});
+
+	} // Dispatch
+
+	private void Flush( Connection c )
+	{
+		if ( !c.Channel.isOpen() )
+			return;
+
+		try
+		{
+			while ( !c.Out.isEmpty() )
+			{
+				c.Channel.write( c.Out.toArray( new ByteBuffer[c.Out.size()] ) );
+
+				while ( !c.Out.isEmpty() && !c.Out.peek().hasRemaining() )
+					Buffers.Release( c.Out.poll() );
+
+				if ( !c.Out.isEmpty() )
+					break;
+
+			} // while
+
+			// Only ask for writability while something is waiting to go out
+
+			c.Key.interestOps( c.Out.isEmpty() ? SelectionKey.OP_READ : SelectionKey.OP_READ | SelectionKey.OP_WRITE );
+
+		} catch (IOException e) {
+
+			Close( c );
+
+		} // try
+
+	} // Flush
+
+	private void Close( Connection c )
+	{
+		try
+		{
+			c.Channel.close();
+
+		} catch (IOException e) {
+
+			// Already closed
+
+		} // try
+
+		Buffers.Release( c.In );
+
+		while ( !c.Out.isEmpty() )
+			Buffers.Release( c.Out.poll() );
+
+	} // Close
+
+	/***************************************************************************
+	* INNER CLASS:: Connection
+	* Purpose: One client connection. In and Out are only used by the selector
+	*		   thread; Completed takes responses from the pools.
+	*
+	****************************************************************************/
+
+	private static final class Connection
+	{
+		final SocketChannel Channel;
+		SelectionKey Key;
+		ByteBuffer In;
+		final ArrayDeque<ByteBuffer> Out = new ArrayDeque<ByteBuffer>();
+		final ConcurrentLinkedQueue<ByteBuffer> Completed = new ConcurrentLinkedQueue<ByteBuffer>();
+
+		Connection( SocketChannel ch, ByteBuffer in )
+		{
+			Channel = ch;
+			In = in;
+		}
+
+	} // Connection
+
+} // FrameServer
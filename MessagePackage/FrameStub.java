@@ -0,0 +1,262 @@
+/******************************************************************************************************************
+* File:FrameStub.java
+* Course: 17655
+* Project: Assignment A2
+* Copyright: Copyright (c) 2009 Carnegie Mellon University
+* Versions:
+*	1.0 October 2026 - Initial version.
+*
+* Description: This class is the client side of the transports that use the frames defined in Frames.java. It
+*			   implements the message manager's remote interface by encoding each call as a request frame and
+*			   decoding the response; subclasses only move the frames (FrameClient over TCP, RingClient over shared
+*			   memory). Failures reported by the message manager are thrown as RemoteException.
+*
+*			   Message listeners and broker statistics are only available over RMI.
+*
+* Parameters: None
+*
+* Internal Methods:
+*			   Begin - Starts a request frame.
+*			   Call - Numbers a request frame, sends it and checks the response.
+*			   Send - Implemented by subclasses to send a frame and wait for its response.
+*
+******************************************************************************************************************/
+package MessagePackage;
+
+import java.nio.ByteBuffer;
+import java.rmi.RemoteException;
+import java.util.*;
+import java.util.concurrent.atomic.*;
+
+public abstract class FrameStub implements RMIMessageManagerInterface
+{
+	private final AtomicInteger NextRequest = new AtomicInteger();
+
+	/***************************************************************************
+	* CONCRETE METHOD:: Send
+	* Purpose: Sends a complete request frame and waits for the response with
+	*		   the same request id.
+	*
+	* Arguments: int - request id, ByteBuffer - the frame, from 0 to position
+	*
+	* Returns: ByteBuffer - the response, positioned after the request id
+	*
+	* Exceptions: RemoteException if the frame cannot be sent or answered
+	*
+	****************************************************************************/
+
+	protected abstract ByteBuffer Send( int id, ByteBuffer request ) throws RemoteException;
+
+	/***************************************************************************
+	* CONCRETE METHOD:: Close
+	* Purpose: Releases the connection to the message manager.
+	*
+	* Arguments: None
+	*
+	* Returns: None
+	*
+	* Exceptions: None
+	*
+	****************************************************************************/
+
+	public abstract void Close();
+
+	protected ByteBuffer Begin( byte op, int size )
+	{
+		ByteBuffer b = ByteBuffer.allocate( Frames.HEADER + size );
+
+		b.putInt( 0 );
+		b.putInt( 0 );
+		b.put( op );
+
+		return b;
+
+	} // Begin
+
+	private ByteBuffer Call( ByteBuffer request ) throws RemoteException
+	{
+		int id = NextRequest.incrementAndGet();
+
+		request.putInt( 0, request.position() - 4 );
+		request.putInt( 4, id );
+
+		ByteBuffer r = Send( id, request );
+
+		if ( r.get() == Frames.ERROR )
+			throw new RemoteException( Frames.GetText( r ) );
+
+		return r;
+
+	} // Call
+
+	public long Register() throws RemoteException
+	{
+		return Call( Begin( Frames.REGISTER, 0 ) ).getLong();
+
+	} // Register
+
+	public void UnRegister( long SenderID ) throws RemoteException
+	{
+		ByteBuffer b = Begin( Frames.UNREGISTER, 8 );
+		b.putLong( SenderID );
+		Call( b );
+
+	} // UnRegister
+
+	public void SendMessage( Message m ) throws RemoteException
+	{
+		ByteBuffer b = Begin( Frames.SEND, Frames.MessageSize( m ) );
+		Frames.PutMessage( b, m );
+		Call( b );
+
+	} // SendMessage
+
+	public void SendMessages( List<Message> ms ) throws RemoteException
+	{
+		ByteBuffer b = Begin( Frames.SEND_BATCH, Frames.MessagesSize( ms ) );
+		Frames.PutMessages( b, ms );
+		Call( b );
+
+	} // SendMessages
+
+	public MessageQueue GetMessageQueue( long SenderID ) throws RemoteException
+	{
+		ByteBuffer b = Begin( Frames.GET_QUEUE, 8 );
+		b.putLong( SenderID );
+
+		return Frames.GetQueue( Call( b ) );
+
+	} // GetMessageQueue
+
+	public MessageQueue GetMessageQueue( long SenderID, long TimeoutMillis ) throws RemoteException
+	{
+		ByteBuffer b = Begin( Frames.GET_QUEUE_WAIT, 16 );
+		b.putLong( SenderID );
+		b.putLong( TimeoutMillis );
+
+		return Frames.GetQueue( Call( b ) );
+
+	} // GetMessageQueue
+
+	public void Subscribe( long SenderID, int MsgIds[] ) throws RemoteException
+	{
+		ByteBuffer b = Begin( Frames.SUBSCRIBE, 8 + 4 + 4 * MsgIds.length );
+		b.putLong( SenderID );
+		Frames.PutInts( b, MsgIds );
+		Call( b );
+
+	} // Subscribe
+
+	public void SubscribeRange( long SenderID, int LowMsgId, int HighMsgId ) throws RemoteException
+	{
+		ByteBuffer b = Begin( Frames.SUBSCRIBE_RANGE, 16 );
+		b.putLong( SenderID );
+		b.putInt( LowMsgId );
+		b.putInt( HighMsgId );
+		Call( b );
+
+	} // SubscribeRange
+
+	public void UnSubscribe( long SenderID ) throws RemoteException
+	{
+		ByteBuffer b = Begin( Frames.UNSUBSCRIBE, 8 );
+		b.putLong( SenderID );
+		Call( b );
+
+	} // UnSubscribe
+
+	public void AddListener( long SenderID, RMIMessageListenerInterface l ) throws RemoteException
+	{
+		throw new RemoteException( "Message listeners are not available over this transport" );
+
+	} // AddListener
+
+	public void RemoveListener( long SenderID ) throws RemoteException
+	{
+		throw new RemoteException( "Message listeners are not available over this transport" );
+
+	} // RemoveListener
+
+	public boolean HasListener( long SenderID ) throws RemoteException
+	{
+		return false;
+
+	} // HasListener
+
+	public void SetQueueLimit( long SenderID, int Capacity, OverflowPolicy Policy, long BlockMillis ) throws RemoteException
+	{
+		ByteBuffer b = Begin( Frames.SET_QUEUE_LIMIT, 8 + 4 + 1 + 8 );
+		b.putLong( SenderID );
+		b.putInt( Capacity );
+		b.put( (byte) Policy.ordinal() );
+		b.putLong( BlockMillis );
+		Call( b );
+
+	} // SetQueueLimit
+
+	public long GetDroppedCount( long SenderID ) throws RemoteException
+	{
+		ByteBuffer b = Begin( Frames.GET_DROPPED, 8 );
+		b.putLong( SenderID );
+
+		return Call( b ).getLong();
+
+	} // GetDroppedCount
+
+	public Message GetLastValue( int MsgId ) throws RemoteException
+	{
+		ByteBuffer b = Begin( Frames.GET_LAST_VALUE, 4 );
+		b.putInt( MsgId );
+
+		ByteBuffer r = Call( b );
+
+		return (r.get() != 0) ? Frames.GetMessage( r ) : null;
+
+	} // GetLastValue
+
+	public List<Message> GetRetained( int MsgIds[] ) throws RemoteException
+	{
+		ByteBuffer b = Begin( Frames.GET_RETAINED, 4 + 4 * MsgIds.length );
+		Frames.PutInts( b, MsgIds );
+
+		return Frames.GetMessages( Call( b ) );
+
+	} // GetRetained
+
+	public boolean RenewLease( long SenderID ) throws RemoteException
+	{
+		ByteBuffer b = Begin( Frames.RENEW_LEASE, 8 );
+		b.putLong( SenderID );
+
+		return Call( b ).get() != 0;
+
+	} // RenewLease
+
+	public boolean Reattach( long SenderID ) throws RemoteException
+	{
+		ByteBuffer b = Begin( Frames.REATTACH, 8 );
+		b.putLong( SenderID );
+
+		return Call( b ).get() != 0;
+
+	} // Reattach
+
+	public long GetLeaseDuration() throws RemoteException
+	{
+		return Call( Begin( Frames.GET_LEASE, 0 ) ).getLong();
+
+	} // GetLeaseDuration
+
+	public BrokerStats GetStats() throws RemoteException
+	{
+		throw new RemoteException( "Broker statistics are not available over this transport" );
+
+	} // GetStats
+
+	public boolean isAlive() throws RemoteException
+	{
+		return Call( Begin( Frames.IS_ALIVE, 0 ) ).get() != 0;
+
+	} // isAlive
+
+} // FrameStub
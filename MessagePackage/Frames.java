@@ -0,0 +1,315 @@
+/******************************************************************************************************************
+* File:Frames.java
+* Course: 17655
+* Project: Assignment A2
+* Copyright: Copyright (c) 2009 Carnegie Mellon University
+* Versions:
+*	1.0 October 2026 - Initial version.
+*
+* Description: This class defines the binary frames of the TCP transport (see FrameServer.java and FrameClient.java)
+*			   and encodes and decodes their contents. Every frame is a length followed by that many bytes:
+*
+*				request - [int length][int request id][byte op][arguments]
+*				response - [int length][int request id][byte status][result, or error text if status is ERROR]
+*
+*			   Request ids let a client have several requests outstanding on one connection; responses can come
+*			   back in any order. Numbers are big endian. A message is [int id][long sender id][payload]. A text
+*			   payload is [int length][UTF-8 bytes] and a length of -1 means null; a length of FLOAT_VALUE is
+*			   followed by a float and COMMAND_CODE by an int command code (see Message.java). A payload whose
+*			   priority is not NORMAL starts with PRIORITY_CLASS and a priority byte. A queue is [long id]
+*			   [long registration time][int count][messages], and a count of -1 means no queue.
+*
+* Parameters: None
+*
+* Internal Methods: None
+*
+******************************************************************************************************************/
+package MessagePackage;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+class Frames
+{
+	static final int DEFAULT_PORT = 1100;			// Port used by clients when none is configured
+	static final int MAX_FRAME = 16 << 20;			// Longest frame accepted, in bytes
+	static final int HEADER = 4 + 4 + 1;			// length, request id, op or status
+
+	// Requests
+
+	static final byte REGISTER = 1;
+	static final byte UNREGISTER = 2;
+	static final byte SEND = 3;
+	static final byte SEND_BATCH = 4;
+	static final byte GET_QUEUE = 5;
+	static final byte GET_QUEUE_WAIT = 6;
+	static final byte SUBSCRIBE = 7;
+	static final byte SUBSCRIBE_RANGE = 8;
+	static final byte UNSUBSCRIBE = 9;
+	static final byte SET_QUEUE_LIMIT = 10;
+	static final byte GET_DROPPED = 11;
+	static final byte RENEW_LEASE = 12;
+	static final byte REATTACH = 13;
+	static final byte GET_LEASE = 14;
+	static final byte IS_ALIVE = 15;
+	static final byte GET_LAST_VALUE = 16;
+	static final byte GET_RETAINED = 17;
+
+	// Response status
+
+	static final byte OK = 0;
+	static final byte ERROR = 1;
+
+	// Payload lengths that stand for a typed payload
+
+	static final int FLOAT_VALUE = -2;
+	static final int COMMAND_CODE = -3;
+	static final int PRIORITY_CLASS = -4;			// Followed by a priority byte and then the payload
+
+	static int TextSize( String s )
+	{
+		return 4 + ((s == null) ? 0 : 3 * s.length());
+
+	} // TextSize
+
+	static int PayloadSize( Message m )
+	{
+		int size = (m.GetKind() == Message.TEXT) ? TextSize( m.GetMessage() ) : 4 + 4;
+
+		return (m.GetPriority() == Message.NORMAL) ? size : 4 + 1 + size;
+
+	} // PayloadSize
+
+	static int MessageSize( Message m )
+	{
+		return 4 + 8 + PayloadSize( m );
+
+	} // MessageSize
+
+	static void PutText( ByteBuffer b, String s )
+	{
+		if ( s == null )
+		{
+			b.putInt( -1 );
+
+		} else {
+
+			byte bytes[] = s.getBytes( StandardCharsets.UTF_8 );
+			b.putInt( bytes.length );
+			b.put( bytes );
+
+		} // if
+
+	} // PutText
+
+	static String GetText( ByteBuffer b )
+	{
+		return GetText( b, b.getInt() );
+
+	} // GetText
+
+	static String GetText( ByteBuffer b, int length )
+	{
+		if ( length < 0 )
+			return null;
+
+		byte bytes[] = new byte[length];
+		b.get( bytes );
+
+		return new String( bytes, StandardCharsets.UTF_8 );
+
+	} // GetText
+
+	static void PutPayload( ByteBuffer b, Message m )
+	{
+		if ( m.GetPriority() != Message.NORMAL )
+			b.putInt( PRIORITY_CLASS ).put( (byte) m.GetPriority() );
+
+		switch ( m.GetKind() )
+		{
+			case Message.FLOAT:
+
+				b.putInt( FLOAT_VALUE ).putFloat( m.GetValue() );
+				break;
+
+			case Message.COMMAND:
+
+				b.putInt( COMMAND_CODE ).putInt( m.GetCommand() );
+				break;
+
+			default:
+
+				PutText( b, m.GetMessage() );
+
+		} // switch
+
+	} // PutPayload
+
+	static Message GetPayload( ByteBuffer b, int MsgId )
+	{
+		int length = b.getInt();
+		int priority = Message.NORMAL;
+
+		if ( length == PRIORITY_CLASS )
+		{
+			priority = b.get();
+			length = b.getInt();
+
+		} // if
+
+		Message m;
+
+		if ( length == FLOAT_VALUE )
+			m = new Message( MsgId, b.getFloat() );
+		else if ( length == COMMAND_CODE )
+			m = Message.Command( MsgId, b.getInt() );
+		else
+			m = new Message( MsgId, GetText( b, length ) );
+
+		return m.SetPriority( priority );
+
+	} // GetPayload
+
+	static void PutMessage( ByteBuffer b, Message m )
+	{
+		b.putInt( m.GetMessageId() );
+		b.putLong( m.GetSenderId() );
+		PutPayload( b, m );
+
+	} // PutMessage
+
+	static Message GetMessage( ByteBuffer b )
+	{
+		int id = b.getInt();
+		long sender = b.getLong();
+		Message m = GetPayload( b, id );
+		m.SetSenderId( sender );
+
+		return m;
+
+	} // GetMessage
+
+	static void PutInts( ByteBuffer b, int a[] )
+	{
+		b.putInt( a.length );
+
+		for ( int i : a )
+			b.putInt( i );
+
+	} // PutInts
+
+	static int[] GetInts( ByteBuffer b )
+	{
+		int a[] = new int[b.getInt()];
+
+		for ( int i = 0; i < a.length; i++ )
+			a[i] = b.getInt();
+
+		return a;
+
+	} // GetInts
+
+	/***************************************************************************
+	* A queue is encoded from its messages, taken out first so that the size of
+	* the frame is known before it is written.
+	****************************************************************************/
+
+	static ArrayList<Message> Drain( MessageQueue mq )
+	{
+		ArrayList<Message> ms = new ArrayList<Message>( mq.GetSize() );
+		Message m;
+
+		while ( (m = mq.GetMessage()) != null )
+			ms.add( m );
+
+		return ms;
+
+	} // Drain
+
+	static int QueueSize( List<Message> ms )
+	{
+		int size = 8 + 8 + 4;
+
+		if ( ms != null )
+		{
+			for ( Message m : ms )
+				size += MessageSize( m );
+
+		} // if
+
+		return size;
+
+	} // QueueSize
+
+	static void PutQueue( ByteBuffer b, MessageQueue mq, List<Message> ms )
+	{
+		if ( mq == null )
+		{
+			b.putLong( 0 );
+			b.putLong( 0 );
+			b.putInt( -1 );
+			return;
+
+		} // if
+
+		b.putLong( mq.GetId() );
+		b.putLong( mq.GetRegistrationTime() );
+		b.putInt( ms.size() );
+
+		for ( Message m : ms )
+			PutMessage( b, m );
+
+	} // PutQueue
+
+	static MessageQueue GetQueue( ByteBuffer b )
+	{
+		long id = b.getLong();
+		long time = b.getLong();
+		int count = b.getInt();
+
+		if ( count < 0 )
+			return null;
+
+		MessageQueue mq = MessageQueue.Restore( id, time );
+
+		for ( int i = 0; i < count; i++ )
+			mq.Requeue( GetMessage( b ) );
+
+		return mq;
+
+	} // GetQueue
+
+	static int MessagesSize( List<Message> ms )
+	{
+		int size = 4;
+
+		for ( Message m : ms )
+			size += MessageSize( m );
+
+		return size;
+
+	} // MessagesSize
+
+	static void PutMessages( ByteBuffer b, List<Message> ms )
+	{
+		b.putInt( ms.size() );
+
+		for ( Message m : ms )
+			PutMessage( b, m );
+
+	} // PutMessages
+
+	static List<Message> GetMessages( ByteBuffer b )
+	{
+		int count = b.getInt();
+		ArrayList<Message> ms = new ArrayList<Message>( count );
+
+		for ( int i = 0; i < count; i++ )
+			ms.add( GetMessage( b ) );
+
+		return ms;
+
+	} // GetMessages
+
+} // Frames
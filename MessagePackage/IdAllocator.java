@@ -0,0 +1,106 @@
+/******************************************************************************************************************
+* File:IdAllocator.java
+* Course: 17655
+* Project: Assignment A2
+* Copyright: Copyright (c) 2009 Carnegie Mellon University
+* Versions:
+*	1.0 October 2026 - Initial version.
+*
+* Description: This class issues participant ids. Ids used to be the registration time in milliseconds, so
+*			   participants that registered in the same millisecond got the same id. An id is now the current time in
+*			   milliseconds shifted left by SEQUENCE_BITS, plus a sequence number within that millisecond:
+*
+*				id = max( last id + 1, now << SEQUENCE_BITS )
+*
+*			   The last id is kept in an atomic long and advanced with compare and set, so concurrent callers never
+*			   lock and never get the same id. Ids only increase. If more than 2^SEQUENCE_BITS ids are asked for in
+*			   one millisecond the allocator borrows from the next millisecond, and the clock catches up afterwards.
+*			   Because ids start from the clock, a restarted message manager issues ids above any it issued before,
+*			   provided the system clock has not been set back.
+*
+* Parameters: None
+*
+* Internal Methods: None
+*
+******************************************************************************************************************/
+package MessagePackage;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+public class IdAllocator
+{
+	static final int SEQUENCE_BITS = 10;				// Ids per millisecond before borrowing ahead
+
+	private static final AtomicLong Last = new AtomicLong( 0 );	// The most recently issued id
+
+	/***************************************************************************
+	* CONCRETE METHOD:: Next
+	* Purpose: This method returns a new id, greater than every id issued
+	*		   before it in this process.
+	*
+	* Arguments: None
+	*
+	* Returns: long
+	*
+	* Exceptions: None
+	*
+	****************************************************************************/
+
+	public static long Next()
+	{
+		while (true)
+		{
+			long last = Last.get();
+			long next = Math.max( last + 1, System.currentTimeMillis() << SEQUENCE_BITS );
+
+			if ( Last.compareAndSet( last, next ) )
+				return next;
+
+		} // while
+
+	} // Next
+
+	/***************************************************************************
+	* CONCRETE METHOD:: Observe
+	* Purpose: This method makes sure that ids issued from now on are greater
+	*		   than an id issued earlier, for example by a message manager whose
+	*		   state is being restored.
+	*
+	* Arguments: long - an id
+	*
+	* Returns: None
+	*
+	* Exceptions: None
+	*
+	****************************************************************************/
+
+	public static void Observe( long id )
+	{
+		long last = Last.get();
+
+		while ( last < id && !Last.compareAndSet( last, id ) )
+			last = Last.get();
+
+	} // Observe
+
+	/***************************************************************************
+	* CONCRETE METHOD:: GetTime
+	* Purpose: This method returns the approximate time an id was issued, in
+	*		   milliseconds. It is later than the real time if the allocator
+	*		   had to borrow ahead.
+	*
+	* Arguments: long - an id issued by Next
+	*
+	* Returns: long
+	*
+	* Exceptions: None
+	*
+	****************************************************************************/
+
+	public static long GetTime( long id )
+	{
+		return id >>> SEQUENCE_BITS;
+
+	} // GetTime
+
+} // IdAllocator
@@ -0,0 +1,658 @@
+/******************************************************************************************************************
+* File:Journal.java
+* Course: 17655
+* Project: Assignment A2
+* Copyright: Copyright (c) 2009 Carnegie Mellon University
+* Versions:
+*	1.0 October 2026 - Initial version.
+*
+* Description: This class is the message manager's write ahead journal. It is an append only sequence of segment files
+*			   in one directory. Each segment is a fixed size file mapped into memory, so appending a record is a copy
+*			   into the mapping; a record is on disk once the mapping has been forced. Every record has a position,
+*			   its byte offset from the start of the first segment ever written, and positions only increase.
+*
+*			   A record is laid out as [int length][int crc32][payload]. The payload and checksum are written first
+*			   and the length last, so a reader stops cleanly at the first zero length (the unused end of a segment)
+*			   or at the first record whose checksum does not match (a write torn by a crash).
+*
+*			   Durability uses group commit. AwaitDurable blocks until a position has been forced to disk. The first
+*			   thread to find no force in progress forces everything appended so far and every thread waiting at that
+*			   time returns together, so concurrent senders share the cost of one force.
+*
+*			   Records:
+*				REGISTER id time - a participant registered
+*				UNREGISTER id - a participant unregistered or was reaped
+*				SUBSCRIBE id ids - a participant subscribed to message ids
+*				SUBSCRIBE_RANGE id low high - a participant subscribed to a range of message ids
+*				UNSUBSCRIBE id - a participant dropped its subscriptions
+*				MESSAGE sender id payload recipients - a message and the ids of the queues it was routed to; the
+*					payload is encoded as in a TCP frame (see Frames.java)
+*				QUEUE_LIMIT id capacity policy wait - a participant changed its queue limit
+*
+* Parameters:
+*			   Directory - This is where the segment files are kept
+*			   SegmentSize - This is the size of each segment file in bytes
+*
+* Internal Methods:
+*			   Append - Writes one record into the current segment, rolling to a new segment if it does not fit.
+*			   Roll - Forces the current segment and maps the next one.
+*			   Scan - Reads the records of one segment.
+*
+******************************************************************************************************************/
+package MessagePackage;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+import java.util.zip.CRC32;
+
+public class Journal
+{
+	static final byte REGISTER = 1;
+	static final byte UNREGISTER = 2;
+	static final byte SUBSCRIBE = 3;
+	static final byte SUBSCRIBE_RANGE = 4;
+	static final byte UNSUBSCRIBE = 5;
+	static final byte MESSAGE = 6;
+	static final byte QUEUE_LIMIT = 7;
+
+	static final int HEADER = 8;					// Length and checksum in front of every payload
+
+	private final File Directory;					// Where the segments are kept
+	private final int SegmentSize;					// Bytes per segment
+	private FileChannel Channel;					// The current segment's file
+	private MappedByteBuffer Current;				// The current segment's mapping
+	private ByteBuffer CurrentView;					// A view of the mapping for bulk writes
+	private long CurrentBase;						// Position of the first byte of the current segment
+	private int Offset;								// Where the next record goes in the current segment
+	private volatile long Written;					// Position just past the last appended record
+	private ByteBuffer Scratch = ByteBuffer.allocate( 256 );	// Payload being built
+	private final CRC32 Crc = new CRC32();
+
+	private final Object SyncLock = new Object();	// Guards Synced and Syncing
+	private long Synced;							// Everything before this position is on disk
+	private boolean Syncing = false;				// A thread is forcing the mapping
+
+	/***************************************************************************
+	* INTERFACE:: Reader
+	* Purpose: Implemented by callers of Replay; one method is called for each
+	*		   record, in order.
+	*
+	****************************************************************************/
+
+	public interface Reader
+	{
+		void Registered( long Position, long id, long time );
+		void Unregistered( long Position, long id );
+		void Subscribed( long Position, long id, int MsgIds[] );
+		void SubscribedRange( long Position, long id, int LowMsgId, int HighMsgId );
+		void UnSubscribed( long Position, long id );
+		void Posted( long Position, Message m, long Recipients[] );
+		void LimitSet( long Position, long id, int Capacity, OverflowPolicy Policy, long BlockMillis );
+
+	} // Reader
+
+	/***************************************************************************
+	* CONSTRUCTOR:: Journal
+	* Purpose: Opens the journal in a directory, creating it if needed. New
+	*		   records are appended after the last valid record found.
+	*
+	* Arguments: File - directory, int - segment size in bytes, used only when
+	*			 the journal is new
+	*
+	* Returns: None
+	*
+	* Exceptions: IOException
+	*
+	****************************************************************************/
+
+	public Journal( File Directory, int SegmentSize ) throws IOException
+	{
+		this.Directory = Directory;
+		Directory.mkdirs();
+
+		long segments[] = Segments();
+
+		if ( segments.length == 0 )
+		{
+			this.SegmentSize = SegmentSize;
+			Open( 0 );
+			Offset = 0;
+
+		} else {
+
+			long last = segments[segments.length - 1];
+
+			this.SegmentSize = (int) SegmentFile( last ).length();
+			Open( last );
+			Offset = Scan( Current, 0, CurrentBase, null );
+
+		} // if
+
+		Written = CurrentBase + Offset;
+		Synced = Written;
+
+	} // constructor
+
+	/***************************************************************************
+	* CONCRETE METHOD:: GetStart
+	* Purpose: This method returns the position of the oldest record still in
+	*		   the journal.
+	*
+	* Arguments: None
+	*
+	* Returns: long
+	*
+	* Exceptions: None
+	*
+	****************************************************************************/
+
+	public long GetStart()
+	{
+		long segments[] = Segments();
+
+		return (segments.length == 0) ? Written : segments[0] * SegmentSize;
+
+	} // GetStart
+
+	/***************************************************************************
+	* CONCRETE METHOD:: GetPosition
+	* Purpose: This method returns the position just past the last record.
+	*
+	* Arguments: None
+	*
+	* Returns: long
+	*
+	* Exceptions: None
+	*
+	****************************************************************************/
+
+	public long GetPosition()
+	{
+		return Written;
+
+	} // GetPosition
+
+	/***************************************************************************
+	* CONCRETE METHODS:: AppendRegister, AppendUnregister, AppendSubscribe,
+	*					 AppendSubscribeRange, AppendUnSubscribe, AppendMessage
+	* Purpose: These methods append one record each and return the position
+	*		   just past it. AppendMessage also stores the message's own
+	*		   position in the message, so queues can report how far they have
+	*		   been drained. Callers that need the record on disk pass the
+	*		   returned position to AwaitDurable.
+	*
+	* Exceptions: IOException
+	*
+	****************************************************************************/
+
+	public synchronized long AppendRegister( long id, long time ) throws IOException
+	{
+		Begin( REGISTER ).putLong( id ).putLong( time );
+
+		return Append();
+
+	} // AppendRegister
+
+	public synchronized long AppendUnregister( long id ) throws IOException
+	{
+		Begin( UNREGISTER ).putLong( id );
+
+		return Append();
+
+	} // AppendUnregister
+
+	public synchronized long AppendSubscribe( long id, int MsgIds[] ) throws IOException
+	{
+		Reserve( SUBSCRIBE, 8 + 4 + 4 * MsgIds.length ).putLong( id ).putInt( MsgIds.length );
+
+		for ( int i : MsgIds )
+			Scratch.putInt( i );
+
+		return Append();
+
+	} // AppendSubscribe
+
+	public synchronized long AppendSubscribeRange( long id, int LowMsgId, int HighMsgId ) throws IOException
+	{
+		Begin( SUBSCRIBE_RANGE ).putLong( id ).putInt( LowMsgId ).putInt( HighMsgId );
+
+		return Append();
+
+	} // AppendSubscribeRange
+
+	public synchronized long AppendUnSubscribe( long id ) throws IOException
+	{
+		Begin( UNSUBSCRIBE ).putLong( id );
+
+		return Append();
+
+	} // AppendUnSubscribe
+
+	public synchronized long AppendQueueLimit( long id, int Capacity, OverflowPolicy Policy, long BlockMillis ) throws IOException
+	{
+		Begin( QUEUE_LIMIT ).putLong( id ).putInt( Capacity ).put( (byte) Policy.ordinal() ).putLong( BlockMillis );
+
+		return Append();
+
+	} // AppendQueueLimit
+
+	public synchronized long AppendMessage( Message m, long Recipients[] ) throws IOException
+	{
+		Reserve( MESSAGE, 8 + 4 + Frames.PayloadSize( m ) + 4 + 8 * Recipients.length );
+		Scratch.putLong( m.GetSenderId() ).putInt( m.GetMessageId() );
+		Frames.PutPayload( Scratch, m );
+		Scratch.putInt( Recipients.length );
+
+		for ( long id : Recipients )
+			Scratch.putLong( id );
+
+		long end = Append();
+
+		m.Position = end - (Scratch.position() + HEADER);
+
+		return end;
+
+	} // AppendMessage
+
+	private ByteBuffer Begin( byte type )
+	{
+		Scratch.clear();
+		Scratch.put( type );
+
+		return Scratch;
+
+	} // Begin
+
+	private ByteBuffer Reserve( byte type, int size )
+	{
+		if ( Scratch.capacity() < size + 1 )
+			Scratch = ByteBuffer.allocate( Math.max( size + 1, Scratch.capacity() * 2 ) );
+
+		return Begin( type );
+
+	} // Reserve
+
+	private long Append() throws IOException
+	{
+		int length = Scratch.position();
+
+		if ( length + HEADER + 4 > SegmentSize )
+			throw new IOException( "Journal record of " + length + " bytes does not fit in a segment" );
+
+		// Leave room for a zero length after the record so readers can find the end
+
+		if ( Offset + HEADER + length + 4 > SegmentSize )
+			Roll();
+
+		Crc.reset();
+		Crc.update( Scratch.array(), 0, length );
+
+		Current.putInt( Offset + 4, (int) Crc.getValue() );
+
+		CurrentView.position( Offset + HEADER );
+		CurrentView.put( Scratch.array(), 0, length );
+
+		// The length is written last: until it is there, the record does not exist
+
+		Current.putInt( Offset, length );
+
+		Offset += HEADER + length;
+		Written = CurrentBase + Offset;
+
+		return Written;
+
+	} // Append
+
+	private void Roll() throws IOException
+	{
+		// Everything in the old segment is forced now so that AwaitDurable only
+		// ever has to force the current segment.
+
+		Current.force();
+		Channel.close();
+
+		Open( CurrentBase / SegmentSize + 1 );
+		Offset = 0;
+
+	} // Roll
+
+	private void Open( long index ) throws IOException
+	{
+		Channel = FileChannel.open( SegmentFile( index ).toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE );
+		Current = Channel.map( FileChannel.MapMode.READ_WRITE, 0, SegmentSize );
+		CurrentView = Current.duplicate();
+		CurrentBase = index * SegmentSize;
+
+	} // Open
+
+	/***************************************************************************
+	* CONCRETE METHOD:: AwaitDurable
+	* Purpose: This method returns once every record before Position is on
+	*		   disk (group commit, see the description above).
+	*
+	* Arguments: long - a position returned by one of the append methods
+	*
+	* Returns: None
+	*
+	* Exceptions: IOException if the journal could not be forced
+	*
+	****************************************************************************/
+
+	public void AwaitDurable( long Position ) throws IOException
+	{
+		while (true)
+		{
+			long from;
+
+			synchronized (SyncLock)
+			{
+				while ( Synced < Position && Syncing )
+				{
+					try
+					{
+						SyncLock.wait();
+
+					} catch (InterruptedException e) {
+
+						Thread.currentThread().interrupt();
+						throw new IOException( "Interrupted waiting for the journal" );
+
+					} // try
+
+				} // while
+
+				if ( Synced >= Position )
+					return;
+
+				Syncing = true;
+				from = Synced;
+
+			} // synchronized
+
+			long target = from;
+
+			try
+			{
+				MappedByteBuffer buffer;
+				long base;
+
+				synchronized (this)
+				{
+					buffer = Current;
+					base = CurrentBase;
+					target = Written;
+
+				} // synchronized
+
+				int start = (int) Math.max( 0, from - base );
+
+				buffer.force( start, (int) (target - base) - start );
+
+			} finally {
+
+				synchronized (SyncLock)
+				{
+					Syncing = false;
+					Synced = Math.max( Synced, target );
+					SyncLock.notifyAll();
+
+				} // synchronized
+
+			} // try
+
+		} // while
+
+	} // AwaitDurable
+
+	/***************************************************************************
+	* CONCRETE METHOD:: Replay
+	* Purpose: This method reads every record from a position to the end of the
+	*		   journal and passes each one to the reader.
+	*
+	* Arguments: long - position to start from, Reader
+	*
+	* Returns: None
+	*
+	* Exceptions: IOException
+	*
+	****************************************************************************/
+
+	public void Replay( long From, Reader r ) throws IOException
+	{
+		long segments[] = Segments();
+
+		for ( long index : segments )
+		{
+			long base = index * SegmentSize;
+
+			if ( base + SegmentSize <= From )
+				continue;
+
+			try ( FileChannel ch = FileChannel.open( SegmentFile( index ).toPath(), StandardOpenOption.READ ) )
+			{
+				MappedByteBuffer buffer = ch.map( FileChannel.MapMode.READ_ONLY, 0, SegmentSize );
+
+				Scan( buffer, (int) Math.max( 0, From - base ), base, r );
+
+			} // try
+
+		} // for
+
+	} // Replay
+
+	private int Scan( ByteBuffer buffer, int offset, long base, Reader r ) throws IOException
+	{
+		// Returns the offset just past the last valid record
+
+		CRC32 crc = new CRC32();
+		ByteBuffer view = buffer.duplicate();
+
+		while ( offset + HEADER + 4 <= SegmentSize )
+		{
+			int length = buffer.getInt( offset );
+
+			if ( length <= 0 || offset + HEADER + length + 4 > SegmentSize )
+				break;
+
+			byte payload[] = new byte[length];
+
+			view.position( offset + HEADER );
+			view.get( payload );
+
+			crc.reset();
+			crc.update( payload, 0, length );
+
+			if ( (int) crc.getValue() != buffer.getInt( offset + 4 ) )
+				break;
+
+			if ( r != null )
+				Dispatch( base + offset, ByteBuffer.wrap( payload ), r );
+
+			offset += HEADER + length;
+
+		} // while
+
+		return offset;
+
+	} // Scan
+
+	private static void Dispatch( long Position, ByteBuffer p, Reader r )
+	{
+		byte type = p.get();
+		long id = p.getLong();
+
+		switch ( type )
+		{
+			case REGISTER:
+
+				r.Registered( Position, id, p.getLong() );
+				break;
+
+			case UNREGISTER:
+
+				r.Unregistered( Position, id );
+				break;
+
+			case SUBSCRIBE:
+
+				int ids[] = new int[p.getInt()];
+
+				for ( int i = 0; i < ids.length; i++ )
+					ids[i] = p.getInt();
+
+				r.Subscribed( Position, id, ids );
+				break;
+
+			case SUBSCRIBE_RANGE:
+
+				r.SubscribedRange( Position, id, p.getInt(), p.getInt() );
+				break;
+
+			case UNSUBSCRIBE:
+
+				r.UnSubscribed( Position, id );
+				break;
+
+			case MESSAGE:
+
+				Message m = Frames.GetPayload( p, p.getInt() );
+				long recipients[] = new long[p.getInt()];
+
+				for ( int i = 0; i < recipients.length; i++ )
+					recipients[i] = p.getLong();
+
+				m.SetSenderId( id );
+				m.Position = Position;
+
+				r.Posted( Position, m, recipients );
+				break;
+
+			case QUEUE_LIMIT:
+
+				r.LimitSet( Position, id, p.getInt(), OverflowPolicy.values()[p.get()], p.getLong() );
+				break;
+
+		} // switch
+
+	} // Dispatch
+
+	/***************************************************************************
+	* CONCRETE METHOD:: Truncate
+	* Purpose: This method deletes the segments that end at or before a
+	*		   position. The current segment is never deleted.
+	*
+	* Arguments: long - position of the oldest record that is still needed
+	*
+	* Returns: int - number of segments deleted
+	*
+	* Exceptions: None
+	*
+	****************************************************************************/
+
+	public int Truncate( long Before )
+	{
+		int deleted = 0;
+		long current;
+
+		synchronized (this)
+		{
+			current = CurrentBase / SegmentSize;
+
+		} // synchronized
+
+		for ( long index : Segments() )
+		{
+			if ( index < current && (index + 1) * SegmentSize <= Before && SegmentFile( index ).delete() )
+				deleted++;
+
+		} // for
+
+		return deleted;
+
+	} // Truncate
+
+	/***************************************************************************
+	* CONCRETE METHOD:: Close
+	* Purpose: This method forces the journal to disk and closes it.
+	*
+	* Arguments: None
+	*
+	* Returns: None
+	*
+	* Exceptions: IOException
+	*
+	****************************************************************************/
+
+	public synchronized void Close() throws IOException
+	{
+		Current.force();
+		Channel.close();
+
+	} // Close
+
+	/***************************************************************************
+	* CONCRETE METHOD:: GetDirectory
+	* Purpose: This method returns the journal's directory.
+	*
+	* Arguments: None
+	*
+	* Returns: File
+	*
+	* Exceptions: None
+	*
+	****************************************************************************/
+
+	public File GetDirectory()
+	{
+		return Directory;
+
+	} // GetDirectory
+
+	private File SegmentFile( long index )
+	{
+		return new File( Directory, String.format( "%012d.seg", index ) );
+
+	} // SegmentFile
+
+	private long[] Segments()
+	{
+		String names[] = Directory.list();
+		ArrayList<Long> found = new ArrayList<Long>();
+
+		if ( names != null )
+		{
+			for ( String name : names )
+			{
+				if ( name.endsWith( ".seg" ) )
+				{
+					try
+					{
+						found.add( Long.parseLong( name.substring( 0, name.length() - 4 ) ) );
+
+					} catch (NumberFormatException e) {
+
+						// Not one of ours
+
+					} // try
+
+				} // if
+
+			} // for
+
+		} // if
+
+		Collections.sort( found );
+
+		long segments[] = new long[found.size()];
+
+		for ( int i = 0; i < segments.length; i++ )
+			segments[i] = found.get(i);
+
+		return segments;
+
+	} // Segments
+
+} // Journal
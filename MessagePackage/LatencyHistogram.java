@@ -0,0 +1,217 @@
+/******************************************************************************************************************
+* File:LatencyHistogram.java
+* Course: 17655
+* Project: Assignment A2
+* Copyright: Copyright (c) 2009 Carnegie Mellon University
+* Versions:
+*	1.0 October 2026 - Initial version.
+*
+* Description: This class records a distribution of latencies. Bucket i counts latencies of at least 2^(i-1) and
+*			   less than 2^i nanoseconds, so 64 buckets cover every possible value and recording is a leading zero
+*			   count and an increment. The counters are LongAdders, so many threads can record at once without
+*			   contending. Percentiles are reported as the upper bound of the bucket they fall in, which is within a
+*			   factor of two of the true value.
+*
+*			   GetCopy returns a snapshot that can be sent over RMI.
+*
+* Parameters: None
+*
+* Internal Methods: None
+*
+******************************************************************************************************************/
+package MessagePackage;
+
+import java.io.Serializable;
+import java.util.concurrent.atomic.LongAdder;
+
+public class LatencyHistogram implements Serializable
+{
+	private static final int BUCKETS = 65;
+
+	private final LongAdder[] Counts = new LongAdder[BUCKETS];	// Latencies per power of two bucket
+	private final LongAdder Total = new LongAdder();			// Sum of all latencies, in nanoseconds
+
+	public LatencyHistogram()
+	{
+		for ( int i = 0; i < BUCKETS; i++ )
+		{
+			Counts[i] = new LongAdder();
+
+		} // for
+
+	} // constructor
+
+	/***************************************************************************
+	* CONCRETE METHOD:: Record
+	* Purpose: This method adds one latency to the histogram.
+	*
+	* Arguments: long - latency in nanoseconds
+	*
+	* Returns: None
+	*
+	* Exceptions: None
+	*
+	****************************************************************************/
+
+	public void Record( long Nanos )
+	{
+		if ( Nanos < 0 )
+			Nanos = 0;
+
+		Counts[64 - Long.numberOfLeadingZeros( Nanos )].increment();
+		Total.add( Nanos );
+
+	} // Record
+
+	/***************************************************************************
+	* CONCRETE METHOD:: GetCount
+	* Purpose: This method returns how many latencies have been recorded.
+	*
+	* Arguments: None
+	*
+	* Returns: long
+	*
+	* Exceptions: None
+	*
+	****************************************************************************/
+
+	public long GetCount()
+	{
+		long n = 0;
+
+		for ( int i = 0; i < BUCKETS; i++ )
+		{
+			n += Counts[i].sum();
+
+		} // for
+
+		return n;
+
+	} // GetCount
+
+	/***************************************************************************
+	* CONCRETE METHOD:: GetMean
+	* Purpose: This method returns the mean latency in microseconds.
+	*
+	* Arguments: None
+	*
+	* Returns: double
+	*
+	* Exceptions: None
+	*
+	****************************************************************************/
+
+	public double GetMean()
+	{
+		long n = GetCount();
+
+		return (n == 0) ? 0 : Total.sum() / 1000.0 / n;
+
+	} // GetMean
+
+	/***************************************************************************
+	* CONCRETE METHOD:: GetPercentile
+	* Purpose: This method returns the latency below which the given fraction
+	*		   of recorded latencies fall, rounded up to a power of two
+	*		   nanoseconds and given in microseconds.
+	*
+	* Arguments: double - fraction between 0 and 1 (0.99 for the 99th percentile)
+	*
+	* Returns: double
+	*
+	* Exceptions: None
+	*
+	****************************************************************************/
+
+	public double GetPercentile( double Fraction )
+	{
+		long counts[] = new long[BUCKETS];
+		long n = 0;
+
+		for ( int i = 0; i < BUCKETS; i++ )
+		{
+			counts[i] = Counts[i].sum();
+			n += counts[i];
+
+		} // for
+
+		if ( n == 0 )
+			return 0;
+
+		long rank = (long) Math.ceil( Fraction * n );
+		long seen = 0;
+
+		for ( int i = 0; i < BUCKETS; i++ )
+		{
+			seen += counts[i];
+
+			if ( seen >= rank && counts[i] > 0 )
+				return Math.scalb( 1.0, i ) / 1000.0;
+
+		} // for
+
+		return Math.scalb( 1.0, BUCKETS - 1 ) / 1000.0;
+
+	} // GetPercentile
+
+	/***************************************************************************
+	* CONCRETE METHOD:: GetCopy
+	* Purpose: This method returns a snapshot of the histogram.
+	*
+	* Arguments: None
+	*
+	* Returns: LatencyHistogram
+	*
+	* Exceptions: None
+	*
+	****************************************************************************/
+
+	public LatencyHistogram GetCopy()
+	{
+		LatencyHistogram h = new LatencyHistogram();
+
+		for ( int i = 0; i < BUCKETS; i++ )
+		{
+			h.Counts[i].add( Counts[i].sum() );
+
+		} // for
+
+		h.Total.add( Total.sum() );
+
+		return h;
+
+	} // GetCopy
+
+	/***************************************************************************
+	* CONCRETE METHOD:: Add
+	* Purpose: This method adds every latency recorded in another histogram to
+	*		   this one, to combine the histograms of several message managers.
+	*
+	* Arguments: LatencyHistogram
+	*
+	* Returns: None
+	*
+	* Exceptions: None
+	*
+	****************************************************************************/
+
+	public void Add( LatencyHistogram h )
+	{
+		for ( int i = 0; i < BUCKETS; i++ )
+		{
+			Counts[i].add( h.Counts[i].sum() );
+
+		} // for
+
+		Total.add( h.Total.sum() );
+
+	} // Add
+
+	public String toString()
+	{
+		return String.format( "count %d, mean %.1f us, p50 %.1f us, p99 %.1f us, p999 %.1f us",
+			GetCount(), GetMean(), GetPercentile(0.5), GetPercentile(0.99), GetPercentile(0.999) );
+
+	} // toString
+
+} // LatencyHistogram
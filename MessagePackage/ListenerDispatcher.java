@@ -0,0 +1,199 @@
+/******************************************************************************************************************
+* File:ListenerDispatcher.java
+* Course: 17655
+* Project: Assignment A2
+* Copyright: Copyright (c) 2009 Carnegie Mellon University
+* Versions:
+*	1.0 October 2026 - Initial version.
+*
+* Description: This class pushes the messages in one participant's queue to that participant's remote listener. Each
+*			   listener gets its own single thread executor with a bounded task queue, so a slow or dead listener only
+*			   delays its own deliveries. At most one delivery task is pending at a time: Signal schedules a task
+*			   only if none is scheduled, and the task drains everything queued so far into one remote call. The
+*			   executor thread exits when the listener has been idle for a while.
+*
+*			   A batch that cannot be delivered is put back at the head of the participant's queue (see
+*			   MessageQueue.PutBack), ahead of anything that arrived meanwhile and without applying the queue's
+*			   capacity, so its messages keep their order and are not dropped. The next delivery retries them after
+*			   RETRY_MILLIS, doubling the wait after each failure in a row, so a listener that is briefly
+*			   unreachable is not dropped at once. After MAX_FAILURES failed deliveries in a row the listener is
+*			   dropped: HasListener on the message manager returns false from then on, and the participant polls for
+*			   its messages instead. A call that fails after the listener received the batch delivers it again, so
+*			   delivery is at least once.
+*
+*			   A delivered batch is acknowledged to the standby message manager, if there is one (see
+*			   Replicator.java), so that it does not deliver the batch again after taking over.
+*
+* Parameters:
+*			   Queue - This is the participant's message queue
+*			   Listener - This is the participant's exported listener
+*			   Replicas - This is the replicator, null if the message manager does not replicate
+*
+* Internal Methods:
+*			   Deliver - Drains the queue and makes one remote call.
+*			   Backoff - Waits before a failed delivery is retried.
+*
+******************************************************************************************************************/
+package MessagePackage;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+public class ListenerDispatcher
+{
+	static final int MAX_FAILURES = 3;				// Failed deliveries in a row before the listener is dropped
+	static final int IDLE_SECONDS = 30;				// Idle time before the dispatch thread exits
+	static final long RETRY_MILLIS = 500;			// Wait before retrying after the first failed delivery
+
+	private final MessageQueue Queue;
+	private final RMIMessageListenerInterface Listener;
+	private final Replicator Replicas;
+	private final ThreadPoolExecutor Executor;
+	private final AtomicBoolean Scheduled = new AtomicBoolean( false );
+	private volatile int Failures = 0;
+	private volatile boolean Closed = false;
+
+	private final Runnable DeliverTask = new Runnable()
+	{
+		public void run()
+		{
+			Deliver();
+		}
+	};
+
+	public ListenerDispatcher( MessageQueue mq, RMIMessageListenerInterface l, Replicator r )
+	{
+		final long id = mq.GetId();
+
+		Queue = mq;
+		Listener = l;
+		Replicas = r;
+		Executor = new ThreadPoolExecutor( 1, 1, IDLE_SECONDS, TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(1),
+			new ThreadFactory()
+			{
+				public Thread newThread( Runnable r )
+				{
+					Thread t = new Thread( r, "listener-" + id );
+					t.setDaemon( true );
+					return t;
+				}
+			},
+			new ThreadPoolExecutor.DiscardPolicy() );
+
+		Executor.allowCoreThreadTimeOut( true );
+
+	} // constructor
+
+	/***************************************************************************
+	* CONCRETE METHOD:: Signal
+	* Purpose: Called after a message is added to the participant's queue.
+	*		   Schedules a delivery unless one is already scheduled.
+	*
+	* Arguments: None
+	*
+	* Returns: None
+	*
+	* Exceptions: None
+	*
+	****************************************************************************/
+
+	public void Signal()
+	{
+		if ( !Closed && Scheduled.compareAndSet( false, true ) )
+			Executor.execute( DeliverTask );
+
+	} // Signal
+
+	/***************************************************************************
+	* CONCRETE METHOD:: IsDead
+	* Purpose: Returns true once the listener has failed MAX_FAILURES times in a
+	*		   row and should be removed.
+	*
+	* Arguments: None
+	*
+	* Returns: boolean
+	*
+	* Exceptions: None
+	*
+	****************************************************************************/
+
+	public boolean IsDead()
+	{
+		return Failures >= MAX_FAILURES;
+
+	} // IsDead
+
+	/***************************************************************************
+	* CONCRETE METHOD:: Close
+	* Purpose: Stops delivering. Pending messages stay in the queue.
+	*
+	* Arguments: None
+	*
+	* Returns: None
+	*
+	* Exceptions: None
+	*
+	****************************************************************************/
+
+	public void Close()
+	{
+		Closed = true;
+		Executor.shutdown();
+
+	} // Close
+
+	private void Deliver()
+	{
+		// Clear the flag before draining: anything added after this point
+		// schedules the next delivery.
+
+		Scheduled.set( false );
+
+		if ( Closed || !Queue.HasMessages() )
+			return;
+
+		MessageQueue batch = Queue.Drain();
+
+		try
+		{
+			Listener.DeliverMessages( batch );
+			Queue.Acknowledge( batch );
+			Failures = 0;
+
+			if ( Replicas != null )
+				Replicas.AppendAcknowledge( Queue.GetId(), Queue.GetAcknowledged() );
+
+		} catch (Exception e) {
+
+			// Put the batch back at the head so the next delivery, or a poll
+			// once the listener is dropped, starts with it
+
+			Failures++;
+			Queue.PutBack( batch );
+
+			if ( !IsDead() && Backoff() )
+				Signal();
+
+		} // try
+
+	} // Deliver
+
+	private boolean Backoff()
+	{
+		// Runs on this listener's own thread, so only its deliveries wait
+
+		try
+		{
+			Thread.sleep( RETRY_MILLIS << (Failures - 1) );
+
+		} catch (InterruptedException e) {
+
+			return false;
+
+		} // try
+
+		return !Closed;
+
+	} // Backoff
+
+} // ListenerDispatcher
@@ -0,0 +1,104 @@
+/******************************************************************************************************************
+* File:LocalBroker.java
+* Course: 17655
+* Project: Assignment A2
+* Copyright: Copyright (c) 2009 Carnegie Mellon University
+* Versions:
+*	1.0 October 2026 - Initial version.
+*
+* Description: This class holds the message manager running in this JVM, if there is one, so that participants in
+*			   the same JVM can call it directly instead of through RMI. This is the "local" transport, selected by
+*			   setting the messagemanager.transport system property to local before a MessageManagerInterface is
+*			   created with no IP address.
+*
+*			   With the local transport nothing is serialized: a sent Message object is put straight into the
+*			   recipients' queues and GetMessageQueue hands back the drained queue itself. A participant must
+*			   therefore not change a Message after sending it.
+*
+*			   Every message manager binds itself here when it is created, under its shard (see ShardedBroker.java).
+*			   If none has been created for a shard when the first local participant connects, one is started
+*			   (embedded) in this JVM. An embedded message manager is still exported over RMI, so participants in
+*			   other processes can reach it if it is bound in a registry.
+*
+* Parameters:
+*			   messagemanager.local.class - the message manager class to embed, with a constructor taking the
+*											shard (default MessageManager)
+*
+* Internal Methods: None
+*
+******************************************************************************************************************/
+package MessagePackage;
+
+import java.util.*;
+
+public class LocalBroker
+{
+	private static final HashMap<Integer, RMIMessageManagerInterface> Brokers = new HashMap<Integer, RMIMessageManagerInterface>();	// The message managers in this JVM, by shard
+
+	/***************************************************************************
+	* CONCRETE METHOD:: Bind
+	* Purpose: Called by the message manager when it is created.
+	*
+	* Arguments: int - shard, RMIMessageManagerInterface - the message manager
+	*
+	* Returns: None
+	*
+	* Exceptions: None
+	*
+	****************************************************************************/
+
+	public static synchronized void Bind( int Shard, RMIMessageManagerInterface b )
+	{
+		Brokers.put( Shard, b );
+
+	} // Bind
+
+	/***************************************************************************
+	* CONCRETE METHOD:: Get
+	* Purpose: Returns the message manager in this JVM, starting one if there is
+	*		   none yet.
+	*
+	* Arguments: None
+	*
+	* Returns: RMIMessageManagerInterface
+	*
+	* Exceptions: Exception if the message manager cannot be started
+	*
+	****************************************************************************/
+
+	public static RMIMessageManagerInterface Get() throws Exception
+	{
+		return Get( 0 );
+
+	} // Get
+
+	/***************************************************************************
+	* CONCRETE METHOD:: Get
+	* Purpose: Returns the message manager serving a shard in this JVM,
+	*		   starting one if there is none yet.
+	*
+	* Arguments: int - shard
+	*
+	* Returns: RMIMessageManagerInterface
+	*
+	* Exceptions: Exception if the message manager cannot be started
+	*
+	****************************************************************************/
+
+	public static synchronized RMIMessageManagerInterface Get( int Shard ) throws Exception
+	{
+		if ( !Brokers.containsKey( Shard ) )
+		{
+			// The message manager is in the default package, so it can only be
+			// reached by name from here. Its constructor calls Bind.
+
+			Class.forName( System.getProperty( "messagemanager.local.class", "MessageManager" ) )
+				.getDeclaredConstructor( int.class ).newInstance( Shard );
+
+		} // if
+
+		return Brokers.get( Shard );
+
+	} // Get
+
+} // LocalBroker
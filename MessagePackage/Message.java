@@ -1,130 +1,466 @@
-/******************************************************************************************************************
-* File:Message.java
-* Course: 17655
-* Project: Assignment A2
-* Copyright: Copyright (c) 2009 Carnegie Mellon University
-* Versions:
-*	1.0 February 2009 - Initial rewrite of original assignment 2 (ajl).
-*
-* Description:	This class defines messages. Messages include the sender's ID, the message ID, and
-*				a message field for sending small messages between entities participating in
-*				the mesage system.
-*
-* Parameters:
-*				MessageId - Integer that indicates an id correlating to an message type. The message framework does not
-*						  enforce an ID semantic on the system.
-*
-*				SenderId - Long integer id that indicates who posted the message to the message manager. The sender
-*						   id is issued when an entity registers with the message manager. No messages can be posted
-*						   by an entity until it is registered with the message manager. The participant's id is
-*						   determined by the message manager at registration time and the id for every message is set
-*						   to the participant's id before the message is posted.
-*
-*				MessageText - This is a string of text that is passed along with the message. Again, there is no
-*							  particular semantic associated with the text.
-*
-* Internal Methods: None
-*
-******************************************************************************************************************/
-package MessagePackage;
-
-import java.io.Serializable;
-
-public class Message implements Serializable
-{
-
-	private String MessageText;	// Any string message.
-	private int MessageId;		// Message Id is defined by the participant.
-	private long SenderId;		// Id assigned at registration time by the message manager. The ID for every message is
-								// set by the MessageManagerInterface before the message is sent to the message manager.
-
-	public Message(int MsgId, String Text )
-	{
-		MessageText = Text;
-		MessageId = MsgId;
-
-	} // constructor
-
-	public Message(int MsgId )
-	{
-		MessageText = null;
-		MessageId = MsgId;
-
-	} // constructor
-
-	/***************************************************************************
-	* CONCRETE METHOD:: GetSenderID
-	* Purpose: This method returns the ID of the participant that posted this
-	*		   Message.
-	*
-	* Arguments: None
-	*
-	* Returns: long integer
-	*
-	* Exceptions: None
-	*
-	****************************************************************************/
-
-	public long GetSenderId()
-	{
-		return SenderId;
-
-	} // GetSenderId
-
-	/***************************************************************************
-	* CONCRETE METHOD:: SetSenderID
-	* Purpose: This method sets the ID of message to the long value.
-	*
-	* Arguments: long integer
-	*
-	* Returns: None
-	*
-	* Exceptions: None
-	*
-	****************************************************************************/
-
-	public void SetSenderId( long id )
-	{
-		SenderId = id;
-
-	} // GetSenderId
-
-	/***************************************************************************
-	* CONCRETE METHOD:: SetMessageID
-	* Purpose: This method returns the message ID of the posted message. There is not
-	*		   semantic imposed on IDs.
-	*
-	* Arguments: None
-	*
-	* Returns: int
-	*
-	* Exceptions: None
-	*
-	****************************************************************************/
-
-	public int GetMessageId()
-	{
-		return MessageId;
-
-	} // GetMessageId
-
-	/***************************************************************************
-	* CONCRETE METHOD:: GetMessage
-	* Purpose: This method returns the message (if there is one) of the posted message. There is not
-	*		   semantic imposed on IDs.
-	*
-	* Arguments: None
-	*
-	* Returns: int
-	*
-	* Exceptions: None
-	*
-	****************************************************************************/
-
-	public String GetMessage()
-	{
-		return MessageText;
-
-	} // GetMessage
-
+/******************************************************************************************************************
+* File:Message.java
+* Course: 17655
+* Project: Assignment A2
+* Copyright: Copyright (c) 2009 Carnegie Mellon University
+* Versions:
+*	1.0 February 2009 - Initial rewrite of original assignment 2 (ajl).
+*
+* Description:	This class defines messages. Messages include the sender's ID, the message ID, and
+*				a message field for sending small messages between entities participating in
+*				the mesage system.
+*
+* Parameters:
+*				MessageId - Integer that indicates an id correlating to an message type. The message framework does not
+*						  enforce an ID semantic on the system.
+*
+*				SenderId - Long integer id that indicates who posted the message to the message manager. The sender
+*						   id is issued when an entity registers with the message manager. No messages can be posted
+*						   by an entity until it is registered with the message manager. The participant's id is
+*						   determined by the message manager at registration time and the id for every message is set
+*						   to the participant's id before the message is posted.
+*
+*				MessageText - This is a string of text that is passed along with the message. Again, there is no
+*							  particular semantic associated with the text.
+*
+*				Instead of text a message may carry a typed payload: a float Value (for example a sensor reading)
+*				or a CommandCode of up to four ASCII characters packed into an int (see Code). These are sent
+*				as they are, with no formatting or parsing. GetMessage still returns them as text, and GetValue
+*				and GetCommand still accept text messages, so typed and text participants can be mixed.
+*
+*				Priority - The class of traffic the message belongs to: CONTROL (commands, halt), NORMAL (the
+*						   default) or TELEMETRY (sensor readings). Each participant queue keeps one lane per class
+*						   and delivers CONTROL before NORMAL before TELEMETRY, so commands are not held up behind a
+*						   backlog of readings. Commands created with Command are CONTROL.
+*
+* Internal Methods:
+*				Pack - Packs a short command into an int.
+*
+******************************************************************************************************************/
+package MessagePackage;
+
+import java.io.*;
+
+public class Message implements Externalizable
+{
+
+	public static final int TEXT = 0;		// Kinds of payload
+	public static final int FLOAT = 1;
+	public static final int COMMAND = 2;
+
+	public static final int CONTROL = 0;	// Priorities, highest first
+	public static final int NORMAL = 1;
+	public static final int TELEMETRY = 2;
+	public static final int PRIORITIES = 3;
+
+	private String MessageText;	// Any string message.
+	private int Kind;			// TEXT, FLOAT or COMMAND.
+	private float Value;		// The payload of a FLOAT message.
+	private int CommandCode;	// The payload of a COMMAND message.
+	private int Priority = NORMAL;	// CONTROL, NORMAL or TELEMETRY.
+	private int MessageId;		// Message Id is defined by the participant.
+	private long SenderId;		// Id assigned at registration time by the message manager. The ID for every message is
+								// set by the MessageManagerInterface before the message is sent to the message manager.
+	transient long Position;	// Where the message manager journaled this message, 0 if it was not journaled.
+
+	public Message(int MsgId, String Text )
+	{
+		MessageText = Text;
+		MessageId = MsgId;
+
+	} // constructor
+
+	public Message(int MsgId )
+	{
+		MessageText = null;
+		MessageId = MsgId;
+
+	} // constructor
+
+	public Message(int MsgId, float Value )
+	{
+		Kind = FLOAT;
+		this.Value = Value;
+		MessageId = MsgId;
+
+	} // constructor
+
+	public Message()
+	{
+		// Used by serialization (see readExternal), which then fills in the fields
+
+	} // constructor
+
+	/***************************************************************************
+	* CONCRETE METHOD:: Command
+	* Purpose: This method creates a message carrying a command code.
+	*
+	* Arguments: int - message id, int - command code (see Code)
+	*
+	* Returns: Message
+	*
+	* Exceptions: None
+	*
+	****************************************************************************/
+
+	public static Message Command( int MsgId, int Code )
+	{
+		Message m = new Message( MsgId );
+
+		m.Kind = COMMAND;
+		m.CommandCode = Code;
+		m.Priority = CONTROL;
+
+		return m;
+
+	} // Command
+
+	/***************************************************************************
+	* CONCRETE METHOD:: Code
+	* Purpose: This method returns the command code of a short command such as
+	*		   "H1". Letters are not case sensitive. Participants define their
+	*		   commands as constants with this method.
+	*
+	* Arguments: String - one to four ASCII characters
+	*
+	* Returns: int
+	*
+	* Exceptions: IllegalArgumentException if the command cannot be packed
+	*
+	****************************************************************************/
+
+	public static int Code( String Command )
+	{
+		int code = Pack( Command );
+
+		if ( code == 0 )
+			throw new IllegalArgumentException( "Not a command: " + Command );
+
+		return code;
+
+	} // Code
+
+	private static int Pack( String Command )
+	{
+		if ( Command == null || Command.length() == 0 || Command.length() > 4 )
+			return 0;
+
+		int code = 0;
+
+		for ( int i = 0; i < Command.length(); i++ )
+		{
+			char c = Command.charAt(i);
+
+			if ( c == 0 || c >= 0x80 )
+				return 0;
+
+			if ( c >= 'a' && c <= 'z' )
+				c -= 'a' - 'A';
+
+			code = (code << 8) | c;
+
+		} // for
+
+		return code;
+
+	} // Pack
+
+	/***************************************************************************
+	* CONCRETE METHOD:: GetSenderID
+	* Purpose: This method returns the ID of the participant that posted this
+	*		   Message.
+	*
+	* Arguments: None
+	*
+	* Returns: long integer
+	*
+	* Exceptions: None
+	*
+	****************************************************************************/
+
+	public long GetSenderId()
+	{
+		return SenderId;
+
+	} // GetSenderId
+
+	/***************************************************************************
+	* CONCRETE METHOD:: SetSenderID
+	* Purpose: This method sets the ID of message to the long value.
+	*
+	* Arguments: long integer
+	*
+	* Returns: None
+	*
+	* Exceptions: None
+	*
+	****************************************************************************/
+
+	public void SetSenderId( long id )
+	{
+		SenderId = id;
+
+	} // GetSenderId
+
+	/***************************************************************************
+	* CONCRETE METHOD:: SetMessageID
+	* Purpose: This method returns the message ID of the posted message. There is not
+	*		   semantic imposed on IDs.
+	*
+	* Arguments: None
+	*
+	* Returns: int
+	*
+	* Exceptions: None
+	*
+	****************************************************************************/
+
+	public int GetMessageId()
+	{
+		return MessageId;
+
+	} // GetMessageId
+
+	/***************************************************************************
+	* CONCRETE METHOD:: GetMessage
+	* Purpose: This method returns the message (if there is one) of the posted message. There is not
+	*		   semantic imposed on IDs.
+	*
+	* Arguments: None
+	*
+	* Returns: int
+	*
+	* Exceptions: None
+	*
+	****************************************************************************/
+
+	public String GetMessage()
+	{
+		switch ( Kind )
+		{
+			case FLOAT:
+
+				return String.valueOf( Value );
+
+			case COMMAND:
+
+				char c[] = new char[4];
+				int n = 0;
+
+				for ( int shift = 24; shift >= 0; shift -= 8 )
+				{
+					if ( ((CommandCode >>> shift) & 0xff) != 0 )
+						c[n++] = (char) ((CommandCode >>> shift) & 0xff);
+
+				} // for
+
+				return new String( c, 0, n );
+
+			default:
+
+				return MessageText;
+
+		} // switch
+
+	} // GetMessage
+
+	/***************************************************************************
+	* CONCRETE METHOD:: GetKind
+	* Purpose: This method returns the kind of payload: TEXT, FLOAT or COMMAND.
+	*
+	* Arguments: None
+	*
+	* Returns: int
+	*
+	* Exceptions: None
+	*
+	****************************************************************************/
+
+	public int GetKind()
+	{
+		return Kind;
+
+	} // GetKind
+
+	/***************************************************************************
+	* CONCRETE METHOD:: GetPriority
+	* Purpose: This method returns the message's priority: CONTROL, NORMAL or
+	*		   TELEMETRY.
+	*
+	* Arguments: None
+	*
+	* Returns: int
+	*
+	* Exceptions: None
+	*
+	****************************************************************************/
+
+	public int GetPriority()
+	{
+		return Priority;
+
+	} // GetPriority
+
+	/***************************************************************************
+	* CONCRETE METHOD:: SetPriority
+	* Purpose: This method sets the message's priority.
+	*
+	* Arguments: int - CONTROL, NORMAL or TELEMETRY
+	*
+	* Returns: Message - this message, so the call can be chained
+	*
+	* Exceptions: IllegalArgumentException if the priority is not one of these
+	*
+	****************************************************************************/
+
+	public Message SetPriority( int Priority )
+	{
+		if ( Priority < CONTROL || Priority >= PRIORITIES )
+			throw new IllegalArgumentException( "Not a priority: " + Priority );
+
+		this.Priority = Priority;
+
+		return this;
+
+	} // SetPriority
+
+	/***************************************************************************
+	* CONCRETE METHOD:: GetValue
+	* Purpose: This method returns the value of a FLOAT message. The text of a
+	*		   TEXT message is parsed.
+	*
+	* Arguments: None
+	*
+	* Returns: float
+	*
+	* Exceptions: NumberFormatException if the message does not hold a number
+	*
+	****************************************************************************/
+
+	public float GetValue()
+	{
+		if ( Kind == FLOAT )
+			return Value;
+
+		String text = GetMessage();
+
+		if ( text == null )
+			throw new NumberFormatException( "Message " + MessageId + " has no value" );
+
+		return Float.parseFloat( text );
+
+	} // GetValue
+
+	/***************************************************************************
+	* CONCRETE METHOD:: GetCommand
+	* Purpose: This method returns the command code of a COMMAND message. The
+	*		   text of a TEXT message is packed in the same way (see Code).
+	*
+	* Arguments: None
+	*
+	* Returns: int - command code, 0 if the message is not a command
+	*
+	* Exceptions: None
+	*
+	****************************************************************************/
+
+	public int GetCommand()
+	{
+		switch ( Kind )
+		{
+			case COMMAND:
+
+				return CommandCode;
+
+			case TEXT:
+
+				return Pack( MessageText );
+
+			default:
+
+				return 0;
+
+		} // switch
+
+	} // GetCommand
+
+	/***************************************************************************
+	* Serialization: see MessageCodec.java for the encoding.
+	****************************************************************************/
+
+	public void writeExternal( ObjectOutput out ) throws IOException
+	{
+		MessageCodec.WriteVarLong( out, MessageCodec.ZigZag( MessageId ) );
+		MessageCodec.WriteVarLong( out, SenderId );
+
+		if ( Priority != NORMAL )
+		{
+			out.write( MessageCodec.PRIORITY );
+			out.write( Priority );
+
+		} // if
+
+		switch ( Kind )
+		{
+			case FLOAT:
+
+				out.write( MessageCodec.FLOAT );
+				out.writeFloat( Value );
+				break;
+
+			case COMMAND:
+
+				out.write( MessageCodec.COMMAND );
+				out.writeInt( CommandCode );
+				break;
+
+			default:
+
+				MessageCodec.WriteText( out, MessageText );
+
+		} // switch
+
+	} // writeExternal
+
+	public void readExternal( ObjectInput in ) throws IOException
+	{
+		MessageId = MessageCodec.UnZigZag( MessageCodec.ReadVarLong( in ) );
+		SenderId = MessageCodec.ReadVarLong( in );
+
+		int tag = in.readUnsignedByte();
+
+		if ( tag == MessageCodec.PRIORITY )
+		{
+			Priority = in.readUnsignedByte();
+
+			if ( Priority >= PRIORITIES )
+				throw new StreamCorruptedException( "Bad message priority " + Priority );
+
+			tag = in.readUnsignedByte();
+
+		} // if
+
+		switch ( tag )
+		{
+			case MessageCodec.FLOAT:
+
+				Kind = FLOAT;
+				Value = in.readFloat();
+				break;
+
+			case MessageCodec.COMMAND:
+
+				Kind = COMMAND;
+				CommandCode = in.readInt();
+				break;
+
+			default:
+
+				Kind = TEXT;
+				MessageText = MessageCodec.ReadText( in, tag );
+
+		} // switch
+
+	} // readExternal
+
 } // Message class
\ No newline at end of file
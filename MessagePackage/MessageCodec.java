@@ -0,0 +1,166 @@
+/******************************************************************************************************************
+* File:MessageCodec.java
+* Course: 17655
+* Project: Assignment A2
+* Copyright: Copyright (c) 2009 Carnegie Mellon University
+* Versions:
+*	1.0 October 2026 - Initial version.
+*
+* Description: This class holds the compact encoding used when messages and message queues are serialized (that is,
+*			   whenever they are passed over RMI). Default serialization writes every field with its name and type
+*			   and a boxed String for the text; this encoding writes only the values:
+*
+*				message - varint message id (zigzag, as ids may be negative), varint sender id, payload
+*				payload - one tag byte, then for TEXT a varint byte count and the UTF-8 bytes, for FLOAT the
+*						  four byte float and for COMMAND the four byte command code (see Message.java). A
+*						  message whose priority is not NORMAL has a PRIORITY tag and the priority byte first.
+*				queue - varint message count, then the messages one after another
+*
+*			   Varints are seven bits per byte, low bits first, with the high bit set on every byte but the last, so
+*			   small ids take one byte.
+*
+* Parameters: None
+*
+* Internal Methods: None
+*
+******************************************************************************************************************/
+package MessagePackage;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+
+class MessageCodec
+{
+	static final int NULL = 0;						// Payload tag: no text
+	static final int TEXT = 1;						// Payload tag: UTF-8 text
+	static final int FLOAT = 2;						// Payload tag: float value
+	static final int COMMAND = 3;					// Payload tag: command code
+	static final int PRIORITY = 4;					// Payload prefix: priority byte follows
+
+	static long ZigZag( int v )
+	{
+		return ((v << 1) ^ (v >> 31)) & 0xffffffffL;
+
+	} // ZigZag
+
+	static int UnZigZag( long v )
+	{
+		int i = (int) v;
+
+		return (i >>> 1) ^ -(i & 1);
+
+	} // UnZigZag
+
+	/***************************************************************************
+	* CONCRETE METHOD:: WriteText
+	* Purpose: Writes a text payload, tag included.
+	*
+	* Arguments: DataOutput, String - text, may be null
+	*
+	* Returns: None
+	*
+	* Exceptions: IOException
+	*
+	****************************************************************************/
+
+	static void WriteText( DataOutput out, String text ) throws IOException
+	{
+		if ( text == null )
+		{
+			out.write( NULL );
+			return;
+
+		} // if
+
+		out.write( TEXT );
+
+		// Readings and commands are plain ASCII, which is already UTF-8 one
+		// byte per char, so it can be written without an intermediate array.
+
+		int n = text.length();
+		int i = 0;
+
+		while ( i < n && text.charAt(i) < 0x80 )
+			i++;
+
+		if ( i == n )
+		{
+			WriteVarLong( out, n );
+			out.writeBytes( text );
+
+		} else {
+
+			byte b[] = text.getBytes( StandardCharsets.UTF_8 );
+
+			WriteVarLong( out, b.length );
+			out.write( b );
+
+		} // if
+
+	} // WriteText
+
+	/***************************************************************************
+	* CONCRETE METHOD:: ReadText
+	* Purpose: Reads a text payload whose tag has already been read.
+	*
+	* Arguments: DataInput, int - tag
+	*
+	* Returns: String, may be null
+	*
+	* Exceptions: IOException if the tag is not NULL or TEXT
+	*
+	****************************************************************************/
+
+	static String ReadText( DataInput in, int tag ) throws IOException
+	{
+		if ( tag == NULL )
+			return null;
+
+		if ( tag != TEXT )
+			throw new StreamCorruptedException( "Unknown message payload " + tag );
+
+		long n = ReadVarLong( in );
+
+		if ( n < 0 || n > Integer.MAX_VALUE )
+			throw new StreamCorruptedException( "Bad text length " + n );
+
+		byte b[] = new byte[(int) n];
+		in.readFully( b );
+
+		return new String( b, StandardCharsets.UTF_8 );
+
+	} // ReadText
+
+	static void WriteVarLong( DataOutput out, long v ) throws IOException
+	{
+		while ( (v & ~0x7fL) != 0 )
+		{
+			out.write( (int) ((v & 0x7f) | 0x80) );
+			v >>>= 7;
+
+		} // while
+
+		out.write( (int) v );
+
+	} // WriteVarLong
+
+	static long ReadVarLong( DataInput in ) throws IOException
+	{
+		long v = 0;
+
+		for ( int shift = 0; shift < 64; shift += 7 )
+		{
+			int b = in.readUnsignedByte();
+
+			v |= (long) (b & 0x7f) << shift;
+
+			if ( (b & 0x80) == 0 )
+				return v;
+
+		} // for
+
+		throw new StreamCorruptedException( "Varint too long" );
+
+	} // ReadVarLong
+
+} // MessageCodec
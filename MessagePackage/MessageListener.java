@@ -0,0 +1,38 @@
+/******************************************************************************************************************
+* File:MessageListener.java
+* Course: 17655
+* Project: Assignment A2
+* Copyright: Copyright (c) 2009 Carnegie Mellon University
+* Versions:
+*	1.0 October 2026 - Initial version.
+*
+* Description: This is the interface a participant implements to have messages pushed to it. The participant passes
+* 			   the listener to MessageManagerInterface.SetMessageListener, which exports it to the message manager.
+*
+* Parameters: None
+*
+* Internal Methods: None
+*
+******************************************************************************************************************/
+package MessagePackage;
+
+public interface MessageListener
+{
+
+	/***************************************************************************
+	* INTERFACE:: MessageReceived
+	* Purpose: This interface is called once for each message pushed to the
+	*		   participant, in the order the messages were routed. It is called
+	*		   on an RMI thread, not on the participant's main thread.
+	*
+	* Arguments: Message object (see the class: Message.java)
+	*
+	* Returns: None
+	*
+	* Exceptions: None
+	*
+	****************************************************************************/
+
+	public void MessageReceived(Message m);
+
+} // class
@@ -0,0 +1,429 @@
+/******************************************************************************************************************
+* File:MessageLog.java
+* Course: 17655
+* Project: Assignment A2
+* Copyright: Copyright (c) 2009 Carnegie Mellon University
+* Versions:
+*	1.0 October 2026 - Initial version.
+*
+* Description: This class is the shared in-memory log used when the message manager runs in log mode. Every posted
+*			   message is appended to the log once, however many participants will receive it, and each participant
+*			   only keeps a Cursor: the position of the next entry it has not read and a Filter (its subscription).
+*			   A poll reads the entries from the cursor to the end of the log that pass the filter and moves the
+*			   cursor past them. Posting a message therefore costs the same for one participant as for a thousand,
+*			   and a participant's memory does not grow with the messages waiting for it.
+*
+*			   The log is a list of fixed size segments. Appends take a short lock (one array store); readers take
+*			   no lock: they read the published end position, which is volatile, and then the slots before it. The
+*			   segment list is an immutable array replaced when a segment is added or dropped, and cursors hold only
+*			   positions, so a dropped segment is garbage as soon as the readers still in it have finished.
+*
+*			   Whenever a segment fills up, segments that every cursor has passed are dropped. The log also keeps
+*			   at most Retain entries: if a cursor falls further behind than that (for example a participant that
+*			   stopped polling and has not yet been reaped) the oldest segments are dropped anyway, and that cursor
+*			   skips to the start of the log on its next read; the entries it skipped are counted as dropped.
+*
+* Parameters:
+*			   SegmentSize - This is the number of entries in a segment, a power of two
+*			   Retain - This is the most entries kept, rounded up to whole segments
+*
+* Internal Methods:
+*			   Trim - Drops segments no cursor needs, or that exceed Retain.
+*
+******************************************************************************************************************/
+package MessagePackage;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+public class MessageLog
+{
+	private final int Shift;						// log2 of the segment size
+	private final int Mask;							// Segment size - 1
+	private final long Retain;						// Most entries kept
+	private volatile Segment Segments[];			// The live segments, oldest first
+	private volatile long End = 0;					// Position of the next entry to be appended
+	private final Set<Cursor> Cursors = ConcurrentHashMap.newKeySet();
+	private final AtomicInteger Waiting = new AtomicInteger();	// Consumers parked waiting for entries
+
+	public MessageLog( int SegmentSize, long Retain )
+	{
+		if ( Integer.bitCount( SegmentSize ) != 1 )
+			throw new IllegalArgumentException( "Segment size must be a power of two: " + SegmentSize );
+
+		Shift = Integer.numberOfTrailingZeros( SegmentSize );
+		Mask = SegmentSize - 1;
+		this.Retain = Math.max( SegmentSize, Retain );
+		Segments = new Segment[] { new Segment( 0, SegmentSize ) };
+
+	} // constructor
+
+	/***************************************************************************
+	* INTERFACE:: Filter
+	* Purpose: Decides which entries a cursor reads.
+	*
+	****************************************************************************/
+
+	public interface Filter
+	{
+		boolean Accept( int MsgId );
+
+	} // Filter
+
+	/***************************************************************************
+	* CONCRETE METHOD:: Append
+	* Purpose: This method appends a message to the log.
+	*
+	* Arguments: Message
+	*
+	* Returns: long - the message's position in the log
+	*
+	* Exceptions: None
+	*
+	****************************************************************************/
+
+	public synchronized long Append( Message m )
+	{
+		long at = End;
+		Segment segs[] = Segments;
+		Segment last = segs[segs.length - 1];
+
+		if ( at == last.Base + last.Slots.length )
+		{
+			segs = Trim( Arrays.copyOf( segs, segs.length + 1 ), at );
+			last = new Segment( at, Mask + 1 );
+			segs[segs.length - 1] = last;
+			Segments = segs;
+
+		} // if
+
+		last.Slots[(int) (at & Mask)] = m;
+
+		// Publishing the end makes the slot (and any new segment) visible to
+		// readers that read the end first
+
+		End = at + 1;
+
+		return at;
+
+	} // Append
+
+	private Segment[] Trim( Segment segs[], long at )
+	{
+		long keep = at;
+
+		for ( Cursor c : Cursors )
+			keep = Math.min( keep, c.Position );
+
+		keep = Math.max( keep, at - Retain );
+
+		int drop = 0;
+
+		while ( drop < segs.length - 1 && segs[drop].Base + segs[drop].Slots.length <= keep )
+			drop++;
+
+		return (drop == 0) ? segs : Arrays.copyOfRange( segs, drop, segs.length );
+
+	} // Trim
+
+	/***************************************************************************
+	* CONCRETE METHOD:: GetEnd
+	* Purpose: This method returns the position the next message will have.
+	*
+	* Arguments: None
+	*
+	* Returns: long
+	*
+	* Exceptions: None
+	*
+	****************************************************************************/
+
+	public long GetEnd()
+	{
+		return End;
+
+	} // GetEnd
+
+	/***************************************************************************
+	* CONCRETE METHOD:: GetWaiting
+	* Purpose: This method returns how many consumers are parked waiting for
+	*		   entries (see MessageQueue.AwaitMessages), so that a sender only
+	*		   looks for consumers to wake when there are some.
+	*
+	* Arguments: None
+	*
+	* Returns: int
+	*
+	* Exceptions: None
+	*
+	****************************************************************************/
+
+	public int GetWaiting()
+	{
+		return Waiting.get();
+
+	} // GetWaiting
+
+	/***************************************************************************
+	* CONCRETE METHOD:: Open
+	* Purpose: This method opens a cursor at the end of the log, so it reads
+	*		   the messages appended from now on.
+	*
+	* Arguments: Filter - which entries the cursor reads
+	*
+	* Returns: Cursor
+	*
+	* Exceptions: None
+	*
+	****************************************************************************/
+
+	public Cursor Open( Filter f )
+	{
+		Cursor c = new Cursor( f );
+
+		synchronized (this)
+		{
+			c.Position = End;
+			Cursors.add( c );
+
+		} // synchronized
+
+		return c;
+
+	} // Open
+
+	private Message Get( long at, Segment segs[] )
+	{
+		return segs[(int) ((at >>> Shift) - (segs[0].Base >>> Shift))].Slots[(int) (at & Mask)];
+
+	} // Get
+
+	/***************************************************************************
+	* INNER CLASS:: Segment
+	* Purpose: A fixed run of log entries starting at position Base.
+	*
+	****************************************************************************/
+
+	private static final class Segment
+	{
+		final long Base;
+		final Message Slots[];
+
+		Segment( long Base, int Size )
+		{
+			this.Base = Base;
+			Slots = new Message[Size];
+		}
+
+	} // Segment
+
+	/***************************************************************************
+	* INNER CLASS:: Cursor
+	* Purpose: One reader's position in the log. A cursor has one consumer at a
+	*		   time; the caller serializes Next, Peek, HasNext and Skip.
+	*
+	****************************************************************************/
+
+	public final class Cursor
+	{
+		private final Filter Filter;
+		volatile long Position;						// Next entry to read
+		private long Skipped = 0;					// Entries dropped before this cursor read them
+
+		private Cursor( Filter f )
+		{
+			Filter = f;
+
+		} // constructor
+
+		/***************************************************************************
+		* CONCRETE METHOD:: HasNext
+		* Purpose: Moves past entries the filter rejects and reports whether an
+		*		   accepted entry is waiting.
+		*
+		* Arguments: None
+		*
+		* Returns: boolean
+		*
+		* Exceptions: None
+		*
+		****************************************************************************/
+
+		public boolean HasNext()
+		{
+			long end = End;
+			Segment segs[] = Segments;
+			long at = Start( segs );
+
+			while ( at < end && !Filter.Accept( Get( at, segs ).GetMessageId() ) )
+				at++;
+
+			Position = at;
+
+			return at < end;
+
+		} // HasNext
+
+		/***************************************************************************
+		* CONCRETE METHOD:: Next
+		* Purpose: Reads the next accepted entry and moves past it.
+		*
+		* Arguments: None
+		*
+		* Returns: Message, or null if there is none
+		*
+		* Exceptions: None
+		*
+		****************************************************************************/
+
+		public Message Next()
+		{
+			long end = End;
+			Segment segs[] = Segments;
+			long at = Start( segs );
+
+			while ( at < end )
+			{
+				Message m = Get( at++, segs );
+
+				if ( Filter.Accept( m.GetMessageId() ) )
+				{
+					Position = at;
+					return m;
+
+				} // if
+
+			} // while
+
+			Position = at;
+
+			return null;
+
+		} // Next
+
+		/***************************************************************************
+		* CONCRETE METHOD:: Peek
+		* Purpose: Returns every accepted entry waiting, without moving past them.
+		*
+		* Arguments: None
+		*
+		* Returns: List of Message, oldest first
+		*
+		* Exceptions: None
+		*
+		****************************************************************************/
+
+		public List<Message> Peek()
+		{
+			ArrayList<Message> ms = new ArrayList<Message>();
+			long end = End;
+			Segment segs[] = Segments;
+
+			for ( long at = Math.max( Position, segs[0].Base ); at < end; at++ )
+			{
+				Message m = Get( at, segs );
+
+				if ( Filter.Accept( m.GetMessageId() ) )
+					ms.add( m );
+
+			} // for
+
+			return ms;
+
+		} // Peek
+
+		/***************************************************************************
+		* CONCRETE METHOD:: Skip
+		* Purpose: Moves the cursor to the end of the log, discarding what is
+		*		   waiting.
+		*
+		* Arguments: None
+		*
+		* Returns: None
+		*
+		* Exceptions: None
+		*
+		****************************************************************************/
+
+		public void Skip()
+		{
+			Position = End;
+
+		} // Skip
+
+		/***************************************************************************
+		* Consumers count themselves while they are parked waiting for the
+		* cursor (see GetWaiting).
+		****************************************************************************/
+
+		void BeginWait()
+		{
+			Waiting.incrementAndGet();
+
+		} // BeginWait
+
+		void EndWait()
+		{
+			Waiting.decrementAndGet();
+
+		} // EndWait
+
+		/***************************************************************************
+		* CONCRETE METHOD:: TakeSkipped
+		* Purpose: Returns the entries dropped from the log before this cursor
+		*		   read them since the last call, and resets the count.
+		*
+		* Arguments: None
+		*
+		* Returns: long
+		*
+		* Exceptions: None
+		*
+		****************************************************************************/
+
+		public long TakeSkipped()
+		{
+			long n = Skipped;
+			Skipped = 0;
+
+			return n;
+
+		} // TakeSkipped
+
+		/***************************************************************************
+		* CONCRETE METHOD:: Close
+		* Purpose: Stops the cursor holding back the log.
+		*
+		* Arguments: None
+		*
+		* Returns: None
+		*
+		* Exceptions: None
+		*
+		****************************************************************************/
+
+		public void Close()
+		{
+			Cursors.remove( this );
+
+		} // Close
+
+		private long Start( Segment segs[] )
+		{
+			long at = Position;
+
+			if ( at < segs[0].Base )
+			{
+				Skipped += segs[0].Base - at;
+				at = segs[0].Base;
+
+			} // if
+
+			return at;
+
+		} // Start
+
+	} // Cursor
+
+} // MessageLog
@@ -11,27 +11,91 @@
 *			   that instantiates an MessageManagerInterface object - this automatically attempts to register that
 *			   entity with the message manager
 *
+*			   Registration is a lease on the message manager. Once registered, the interface renews the lease from
+*			   a background heartbeat, so a participant only loses its registration if its process stops running.
+*			   If the message manager reaps it anyway (a beat was held up for longer than the lease), the next beat
+*			   reattaches under the same participant id and restores the subscriptions and the listener, as a
+*			   reconnect does; messages posted in between are not delivered. If that fails too, IsAlive returns
+*			   false and GetMessageQueue throws, so the participant knows to connect again.
+*
+*			   If the message manager is restarted, the next call that finds it gone looks it up in the registry
+*			   again, reattaches under the same participant id, restores the listener (and the subscriptions, if the
+*			   message manager did not restore them from a snapshot) and retries the call once. Only failures that
+*			   mean the call never reached the message manager (the connection was refused or the remote object no
+*			   longer exists) are retried, so no call is carried out twice.
+*
+*			   When a standby message manager is running (see MessageManager.java), the interface fails over to it
+*			   the same way. It keeps looking the message manager up for messagemanager.failover.millis milliseconds
+*			   while the standby takes over, in the registry it was created with and, if messagemanager.standby
+*			   names the standby's host, in the registry there as well. The standby has copied this participant's
+*			   registration, subscriptions and queued messages, so it reattaches without registering again. The
+*			   failover time defaults to 10000 if messagemanager.standby is set and to 0 (one attempt) otherwise.
+*
+*			   When messagemanager.shards is more than 1, the message ids are split between that many message
+*			   managers (see ShardedBroker.java). The interface connects to every shard over the same transport, each
+*			   at its own registry name, TCP port or shared directory, sends each message to the shard that owns its
+*			   id and merges the shards' queues when it polls. Each shard is reconnected and failed over on its own.
+*
+*			   Setting the messagemanager.transport system property to local makes the interface (when created
+*			   without an IP address) call the message manager in this JVM directly, with no RMI and no
+*			   serialization; see LocalBroker. Setting it to tcp uses the binary TCP transport instead of RMI (see
+*			   FrameClient), on the port given by messagemanager.tcp.port (default 1100); message listeners are not
+*			   available over it and the interface does not reconnect. Setting it to shm uses shared memory rings
+*			   (see RingClient) in the directory given by messagemanager.shm.dir, with rings of
+*			   messagemanager.shm.ring bytes (default 1048576); if no message manager on this host serves that
+*			   directory, or the message manager is remote, RMI is used instead. The default is rmi.
+*
 * Parameters: None
 *
 * Internal Methods: SendMessage - Sends an message to the message manager
-*					GetMessageQueue - Gets a participants message queue from the message manager.
+*					SendMessages - Sends several messages to the message manager in one call
+*					SetSendBatching, Flush - Buffers sends and posts them in batches
+*					GetMessageQueue - Gets a participants message queue from the message manager, optionally
+*									  waiting for a message to arrive.
 *					GetMyId - Gets a participants registration ID
 *				    GetRegistrationTime - Gets the point in time when a participant registered with the
 *										  message manager
+*					Subscribe, SubscribeRange - Limits the messages delivered to this participant by message id
+*					UnSubscribe - Goes back to receiving every message
+*					SetMessageListener - Has messages pushed to a listener instead of polled
+*					IsListening - Checks that messages are still pushed to the listener
+*					SetQueueLimit - Bounds this participant's queue on the message manager
+*					GetDroppedCount - Gets how many messages this participant's queue has dropped
+*					GetLastValue, GetRetained - Gets the latest messages posted with given ids
+*					IsAlive - Checks that the message manager is up
 *
 ******************************************************************************************************************/
 package MessagePackage;
 
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
 import java.rmi.*;
+import java.rmi.server.*;
 import java.net.*;
 import java.util.*;
+import java.util.concurrent.*;
 import java.text.SimpleDateFormat;
 
 public class MessageManagerInterface
 {
 	private long ParticipantId = -1;				// This processes ID
+	private long RegistrationTime = 0;				// When the message manager registered this participant, in milliseconds
 	private RMIMessageManagerInterface em = null;	// Message manager interface object
+	private long FailoverMillis = 0;				// How long a reconnect keeps looking for the message manager
+	private final ArrayList<int[]> SubscribedIds = new ArrayList<int[]>();		// Subscribe calls, replayed on reattach
+	private final ArrayList<int[]> SubscribedRanges = new ArrayList<int[]>();	// SubscribeRange calls, replayed on reattach
 	private String DEFAULTPORT = "1099";			// Default message manager port
+	private volatile ListenerAdapter Listener = null;	// Exported listener when messages are pushed to this participant
+	private int MaxBatch = 1;						// Buffered sends are flushed once this many are waiting
+	private long MaxBatchDelay = 0;					// Buffered sends are flushed after this many milliseconds
+	private final ArrayList<Message> SendBuffer = new ArrayList<Message>();	// Sends waiting to be flushed
+	private final Object FlushLock = new Object();	// Keeps batches in order when two threads flush at once
+	private volatile Exception FlushError = null;	// Failure of a timed flush, reported on the next send
+	private volatile ScheduledFuture<?> Heartbeat = null;	// Renews this participant's lease
+	private volatile Exception LeaseError = null;	// Failure to reattach after the lease was lost
+	private static ScheduledExecutorService Scheduler = null;	// Runs timed flushes and heartbeats for all interfaces in this process
 
 	/***************************************************************************
 	* Exceptions::
@@ -108,6 +172,36 @@ public class MessageManagerInterface
 
 	} // Exception
 
+	class SubscriptionException extends Exception
+	{
+		SubscriptionException()
+		{ super(); }
+
+		SubscriptionException(String s)
+		{ super(s); }
+
+	} // Exception
+
+	class MessageListenerException extends Exception
+	{
+		MessageListenerException()
+		{ super(); }
+
+		MessageListenerException(String s)
+		{ super(s); }
+
+	} // Exception
+
+	class QueueLimitException extends Exception
+	{
+		QueueLimitException()
+		{ super(); }
+
+		QueueLimitException(String s)
+		{ super(s); }
+
+	} // Exception
+
 	/***************************************************************************
 	* CONSTRUCTOR:: MessageManagerInterface()
 	* Purpose: This method registers participants with the message manager. This
@@ -130,21 +224,17 @@ public class MessageManagerInterface
 
 		if (ParticipantId == -1)
 		{
-			try
-			{
-				em = (RMIMessageManagerInterface) Naming.lookup( "MessageManager" );
+			RMIMessageManagerInterface shards[] = new RMIMessageManagerInterface[GetShardCount()];
 
-			} // try
-
-	    	catch (Exception e)
-	    	{
-				throw new LocatingMessageManagerException( "Message manager not found on local machine at default port (1099)" );
+			for ( int i = 0; i < shards.length; i++ )
+				shards[i] = Open( i );
 
-	    	} // catch
+			em = (shards.length == 1) ? shards[0] : new ShardedBroker( shards );
 
 		   	try
 		   	{
 				ParticipantId = em.Register();
+				RegistrationTime = IdAllocator.GetTime( ParticipantId );
 
 			} // try
 
@@ -154,6 +244,8 @@ public class MessageManagerInterface
 
 			} // catch
 
+			StartHeartbeat();
+
 		} else {
 
 			throw new ParticipantAlreadyRegisteredException( "Participant already registered " + ParticipantId );
@@ -162,6 +254,98 @@ public class MessageManagerInterface
 
 	} // MessageManagerInterface
 
+	/***************************************************************************
+	* CONCRETE METHOD:: Open
+	* Purpose: Connects to one shard of the message manager on the local
+	*		   machine over the transport messagemanager.transport selects.
+	*
+	* Arguments: int - shard (see ShardedBroker)
+	*
+	* Returns: RMIMessageManagerInterface
+	*
+	* Exceptions: LocatingMessageManagerException
+	*
+	****************************************************************************/
+
+	private RMIMessageManagerInterface Open( int Shard ) throws LocatingMessageManagerException
+	{
+		RMIMessageManagerInterface b = null;
+
+		if ( System.getProperty( "messagemanager.transport", "rmi" ).equalsIgnoreCase( "local" ) )
+		{
+			try
+			{
+				b = LocalBroker.Get( Shard );
+
+			} // try
+
+			catch (Exception e)
+			{
+				throw new LocatingMessageManagerException( "Message manager could not be started in this JVM::" + e );
+
+			} // catch
+
+		} else if ( System.getProperty( "messagemanager.transport", "rmi" ).equalsIgnoreCase( "tcp" ) ) {
+
+			try
+			{
+				b = new FrameClient( "localhost", ShardedBroker.Port( Integer.getInteger( "messagemanager.tcp.port", Frames.DEFAULT_PORT ), Shard ) );
+
+			} // try
+
+			catch (Exception e)
+			{
+				throw new LocatingMessageManagerException( "Message manager not found on local machine at TCP port::" + e );
+
+			} // catch
+
+		} else {
+
+			if ( System.getProperty( "messagemanager.transport", "rmi" ).equalsIgnoreCase( "shm" )
+				&& System.getProperty( "messagemanager.shm.dir" ) != null )
+			{
+				try
+				{
+					b = new RingClient( new java.io.File( ShardedBroker.Directory( System.getProperty( "messagemanager.shm.dir" ), Shard ) ),
+						Integer.getInteger( "messagemanager.shm.ring", 1 << 20 ) );
+
+				} // try
+
+				catch (Exception e)
+				{
+					// Fall back to RMI below
+
+					b = null;
+
+				} // catch
+
+			} // if
+
+			try
+			{
+				if (b == null)
+					b = Connect( ShardedBroker.Name( Shard ), Shard );
+
+			} // try
+
+			catch (Exception e)
+			{
+				throw new LocatingMessageManagerException( "Message manager not found on local machine at default port (1099)" );
+
+			} // catch
+
+		} // if
+
+		return b;
+
+	} // Open
+
+	private static int GetShardCount()
+	{
+		return Math.max( 1, Integer.getInteger( "messagemanager.shards", 1 ) );
+
+	} // GetShardCount
+
 	/***************************************************************************
 	* CONSTRUCTOR:: MessageManagerInterface( String IPAddress )
 	* Purpose: This method registers participants with the message manager at a
@@ -183,13 +367,24 @@ public class MessageManagerInterface
 		// Assumes that the message manager is on another machine. The user must provide the IP
 		// address of the message manager and the port number
 
-		String EMServer = "//" + ServerIpAddress + ":" + DEFAULTPORT + "/MessageManager";
-
 		if (ParticipantId == -1)
 		{
 			try
 			{
-				em = (RMIMessageManagerInterface) Naming.lookup( EMServer );
+				RMIMessageManagerInterface shards[] = new RMIMessageManagerInterface[GetShardCount()];
+
+				for ( int i = 0; i < shards.length; i++ )
+				{
+					String EMServer = "//" + ServerIpAddress + ":" + DEFAULTPORT + "/" + ShardedBroker.Name( i );
+
+					if ( System.getProperty( "messagemanager.transport", "rmi" ).equalsIgnoreCase( "tcp" ) )
+						shards[i] = new FrameClient( ServerIpAddress, ShardedBroker.Port( Integer.getInteger( "messagemanager.tcp.port", Frames.DEFAULT_PORT ), i ) );
+					else
+						shards[i] = Connect( EMServer, i );
+
+				} // for
+
+				em = (shards.length == 1) ? shards[0] : new ShardedBroker( shards );
 
 			} // try
 
@@ -202,6 +397,7 @@ public class MessageManagerInterface
 		   	try
 		   	{
 				ParticipantId = em.Register();
+				RegistrationTime = IdAllocator.GetTime( ParticipantId );
 
 			} // try
 
@@ -211,6 +407,8 @@ public class MessageManagerInterface
 
 			} // catch
 
+			StartHeartbeat();
+
 		} else {
 
 			throw new ParticipantAlreadyRegisteredException( "Participant already registered " + ParticipantId );
@@ -248,6 +446,10 @@ public class MessageManagerInterface
 	/***************************************************************************
 	* CONCRETE METHOD:: GetRegistrationTime
 	* Purpose: This method allows participants to obtain the time of registration.
+	*		   The time is taken from the participant's id, which the message
+	*		   manager stamps with its own clock (see IdAllocator.java), so it
+	*		   matches the time the message manager stored and does not depend
+	*		   on this host's clock.
 	*
 	* Arguments: None.
 	*
@@ -271,7 +473,7 @@ public class MessageManagerInterface
 
 		if (ParticipantId != -1)
 		{
-			TimeStamp.setTimeInMillis(ParticipantId);
+			TimeStamp.setTimeInMillis(RegistrationTime);
 			return ( TimeStampFormat.format(TimeStamp.getTime()) );
 
 	    } else {
@@ -284,7 +486,9 @@ public class MessageManagerInterface
 
 	/***************************************************************************
 	* CONCRETE METHOD:: SendMessage
-	* Purpose: This method sends an message to the message manager.
+	* Purpose: This method sends an message to the message manager. If send
+	*		   batching is on (see SetSendBatching) the message is buffered and
+	*		   posted with the next batch instead.
 	*
 	* Arguments: Message object.
 	*
@@ -298,18 +502,27 @@ public class MessageManagerInterface
 	{
 		if (ParticipantId != -1)
 		{
-		   	try
-	    	{
-				evt.SetSenderId( ParticipantId );
-				em.SendMessage( evt );
-
-	    	} // try
+			evt.SetSenderId( ParticipantId );
 
-			catch (Exception e)
+			if (MaxBatch > 1)
 			{
-				 throw new SendMessageException( "Error sending message" + e );
+				BufferMessage( evt );
 
-			} // catch
+			} else {
+
+			   	try
+		    	{
+					em.SendMessage( evt );
+
+		    	} // try
+
+				catch (Exception e)
+				{
+					 throw new SendMessageException( "Error sending message" + e );
+
+				} // catch
+
+			} // if
 
 		} else {
 
@@ -320,83 +533,1071 @@ public class MessageManagerInterface
 	} // SendMessage
 
 	/***************************************************************************
-	* CONCRETE METHOD:: GetMessage
-	* Purpose: This method sends an message to the message manager.
+	* CONCRETE METHOD:: SendMessages
+	* Purpose: This method sends several messages to the message manager in one
+	*		   call. Any buffered messages are flushed first so order is kept.
 	*
-	* Arguments: None.
+	* Arguments: List of Message objects.
 	*
-	* Returns: Message object.
+	* Returns: None.
 	*
-	* Exceptions: ParticipantNotRegisteredException, GetMessageException
+	* Exceptions: ParticipantNotRegisteredException, SendMessageException
 	*
 	****************************************************************************/
 
-	public MessageQueue GetMessageQueue() throws ParticipantNotRegisteredException, GetMessageException
+	public void SendMessages( List<Message> evts ) throws ParticipantNotRegisteredException, SendMessageException
 	{
-		MessageQueue eq = null;
-
 		if (ParticipantId != -1)
 		{
-	    	try
-	    	{
-				eq = em.GetMessageQueue(ParticipantId);
+			for ( Message evt : evts )
+				evt.SetSenderId( ParticipantId );
 
-	    	} // try
+			synchronized (FlushLock)
+			{
+				Flush();
 
-	    	catch (Exception e)
-	    	{
-				 throw new GetMessageException( "Error getting message" + e );
+			   	try
+		    	{
+					em.SendMessages( new ArrayList<Message>( evts ) );
 
-	    	} // catch
+		    	} // try
 
-	    } else {
+				catch (Exception e)
+				{
+					 throw new SendMessageException( "Error sending messages" + e );
+
+				} // catch
+
+			} // synchronized
+
+		} else {
 
 			throw new ParticipantNotRegisteredException( "Participant not registered" );
 
 		} // if
 
-		return eq;
+	} // SendMessages
 
-	} // GetMessageQueue
+	/***************************************************************************
+	* CONCRETE METHOD:: SetSendBatching
+	* Purpose: This method turns send batching on or off. While it is on,
+	*		   SendMessage buffers messages and they are posted as one batch as
+	*		   soon as MaxBatch messages are waiting or MaxDelayMillis after the
+	*		   first one was buffered, whichever comes first. Flush posts them
+	*		   right away. A MaxBatch of 1 or less turns batching off.
+	*
+	* Arguments: int - messages per batch, long - longest buffering time in
+	*			 milliseconds
+	*
+	* Returns: None.
+	*
+	* Exceptions: SendMessageException if buffered messages could not be flushed
+	*
+	****************************************************************************/
+
+	public void SetSendBatching( int MaxBatch, long MaxDelayMillis ) throws SendMessageException
+	{
+		Flush();
+
+		synchronized (SendBuffer)
+		{
+			this.MaxBatch = MaxBatch;
+			this.MaxBatchDelay = Math.max( 1, MaxDelayMillis );
+
+		} // synchronized
+
+	} // SetSendBatching
 
 	/***************************************************************************
-	* CONCRETE METHOD:: UnRegister
-	* Purpose: This method is called when the object is no longer used. Essentially
-	* this method unregisters participants from the message manager. It is important
-	* that participants actively unregister with the message manager. Failure to do
-	* so will cause unconnected queues to fill up with messages over time. This
-	* will result in a memory leak and eventual failure of the message manager.
+	* CONCRETE METHOD:: Flush
+	* Purpose: This method posts any buffered messages as one batch. If an
+	*		   earlier timed flush failed, that failure is reported here.
 	*
 	* Arguments: None.
 	*
 	* Returns: None.
 	*
-	* Exceptions: None
+	* Exceptions: SendMessageException
 	*
 	****************************************************************************/
 
-	public void UnRegister() throws ParticipantNotRegisteredException, RegistrationException
+	public void Flush() throws SendMessageException
 	{
-		if (ParticipantId != -1)
+		synchronized (FlushLock)
 		{
+			ArrayList<Message> batch;
+			Exception error = FlushError;
+
+			FlushError = null;
+
+			if (error != null)
+				throw new SendMessageException( "Error sending buffered messages" + error );
+
+			synchronized (SendBuffer)
+			{
+				if (SendBuffer.isEmpty())
+					return;
+
+				batch = new ArrayList<Message>( SendBuffer );
+				SendBuffer.clear();
+
+			} // synchronized
+
 		   	try
-		   	{
-				em.UnRegister(ParticipantId);
+	    	{
+				if (batch.size() == 1)
+					em.SendMessage( batch.get(0) );
+				else
+					em.SendMessages( batch );
 
-		   	} // try
+	    	} // try
 
-		   	catch (Exception e)
-		   	{
-				throw new RegistrationException( "Error unregistering" + e );
+			catch (Exception e)
+			{
+				 throw new SendMessageException( "Error sending buffered messages" + e );
 
-		    } // catch
+			} // catch
 
-	    } else {
+		} // synchronized
 
-			throw new ParticipantNotRegisteredException( "Participant not registered" );
+	} // Flush
 
-		} // if
+	private void BufferMessage( Message evt ) throws SendMessageException
+	{
+		boolean full;
 
-	} // UnRegister
+		synchronized (SendBuffer)
+		{
+			SendBuffer.add( evt );
+			full = (SendBuffer.size() >= MaxBatch);
+
+			// The first buffered message starts the clock for a timed flush
+
+			if (!full && SendBuffer.size() == 1)
+			{
+				GetScheduler().schedule( new Runnable()
+				{
+					public void run()
+					{
+						try
+						{
+							Flush();
+
+						} catch (Exception e) {
+
+							FlushError = e;
+
+						} // try
+					}
+
+				}, MaxBatchDelay, TimeUnit.MILLISECONDS );
+
+			} // if
+
+		} // synchronized
+
+		if (full)
+			Flush();
+
+	} // BufferMessage
+
+	private RMIMessageManagerInterface Connect( String Name, int Shard ) throws Exception
+	{
+		String standby = System.getProperty( "messagemanager.standby" );
+		String StandbyLocation = (standby == null) ? null : "//" + standby + ":" + DEFAULTPORT + "/" + ShardedBroker.Name( Shard );
+
+		FailoverMillis = Math.max( 0, Long.getLong( "messagemanager.failover.millis", (standby == null) ? 0 : 10000 ) );
+
+		RMIMessageManagerInterface t;
+
+		try
+		{
+			t = (RMIMessageManagerInterface) Naming.lookup( Name );
+
+		} catch (Exception e) {
+
+			// The standby may already have taken over
+
+			if ( StandbyLocation == null )
+				throw e;
+
+			t = (RMIMessageManagerInterface) Naming.lookup( StandbyLocation );
+
+		} // try
+
+		Reconnector r = new Reconnector( t, Name, StandbyLocation );
+
+		return (RMIMessageManagerInterface) Proxy.newProxyInstance( RMIMessageManagerInterface.class.getClassLoader(),
+			new Class<?>[] { RMIMessageManagerInterface.class }, r );
+
+	} // Connect
+
+	/***************************************************************************
+	* INNER CLASS:: Reconnector
+	* Purpose: Forwards calls to the current message manager stub. When a call
+	*		   fails because the message manager is gone, looks it up again (for
+	*		   up to FailoverMillis, in the registry and at StandbyLocation),
+	*		   reattaches this participant and retries the call once.
+	*
+	****************************************************************************/
+
+	private class Reconnector implements InvocationHandler
+	{
+		static final long RETRY_MILLIS = 100;		// Wait between lookups while failing over
+
+		private volatile RMIMessageManagerInterface Target;
+		private final String Location;				// Registry name of the message manager
+		private final String StandbyLocation;		// Registry name of the standby message manager, null if none
+
+		Reconnector( RMIMessageManagerInterface t, String Location, String StandbyLocation )
+		{
+			Target = t;
+			this.Location = Location;
+			this.StandbyLocation = StandbyLocation;
+		}
+
+		public Object invoke( Object proxy, Method method, Object args[] ) throws Throwable
+		{
+			RMIMessageManagerInterface t = Target;
+
+			try
+			{
+				return method.invoke( t, args );
+
+			} catch (InvocationTargetException e) {
+
+				Throwable cause = e.getCause();
+
+				if ( !(cause instanceof NoSuchObjectException || cause instanceof java.rmi.ConnectException
+					|| cause instanceof ConnectIOException) )
+					throw cause;
+
+				try
+				{
+					Reconnect( t );
+
+				} catch (Exception again) {
+
+					// Still gone: report the original failure
+
+					throw cause;
+
+				} // try
+
+			} // try
+
+			try
+			{
+				return method.invoke( Target, args );
+
+			} catch (InvocationTargetException e) {
+
+				throw e.getCause();
+
+			} // try
+		}
+
+		private synchronized void Reconnect( RMIMessageManagerInterface failed ) throws Exception
+		{
+			// Another thread may have reconnected while this one waited
+
+			if ( Target != failed )
+				return;
+
+			long deadline = System.currentTimeMillis() + FailoverMillis;
+			String names[] = (StandbyLocation == null) ? new String[] { Location } : new String[] { Location, StandbyLocation };
+
+			while ( true )
+			{
+				Exception failure = null;
+
+				// Until the standby takes over, the registry still holds the
+				// old stub and reattaching through it fails
+
+				for ( String name : names )
+				{
+					try
+					{
+						Attach( (RMIMessageManagerInterface) Naming.lookup( name ) );
+						return;
+
+					} catch (Exception e) {
+
+						failure = e;
+
+					} // try
+
+				} // for
+
+				if ( System.currentTimeMillis() >= deadline )
+					throw failure;
+
+				Thread.sleep( RETRY_MILLIS );
+
+			} // while
+
+		} // Reconnect
+
+		private void Attach( RMIMessageManagerInterface t ) throws Exception
+		{
+			if ( ParticipantId != -1 )
+				Reattach( t );
+
+			Target = t;
+
+		} // Attach
+
+	} // Reconnector
+
+	private void Reattach( RMIMessageManagerInterface t ) throws Exception
+	{
+		// A message manager that kept the registration (from a snapshot, or a
+		// standby's copy) also kept the subscriptions
+
+		if ( !t.Reattach( ParticipantId ) )
+		{
+			synchronized (SubscribedIds)
+			{
+				for ( int ids[] : SubscribedIds )
+					t.Subscribe( ParticipantId, ids );
+
+				for ( int range[] : SubscribedRanges )
+					t.SubscribeRange( ParticipantId, range[0], range[1] );
+
+			} // synchronized
+
+		} // if
+
+		ListenerAdapter l = Listener;
+
+		if ( l != null )
+			t.AddListener( ParticipantId, l );
+
+	} // Reattach
+
+	private static synchronized ScheduledExecutorService GetScheduler()
+	{
+		if (Scheduler == null)
+		{
+			Scheduler = Executors.newSingleThreadScheduledExecutor( new ThreadFactory()
+			{
+				public Thread newThread( Runnable r )
+				{
+					Thread t = new Thread( r, "message-manager-timer" );
+					t.setDaemon( true );
+					return t;
+				}
+			});
+
+		} // if
+
+		return Scheduler;
+
+	} // GetScheduler
+
+	private void StartHeartbeat()
+	{
+		// Leases are optional on the message manager's side; if the duration
+		// cannot be read the participant simply never renews.
+
+		long period;
+
+		try
+		{
+			period = em.GetLeaseDuration() / 3;
+
+		} catch (Exception e) {
+
+			return;
+
+		} // try
+
+		if (period <= 0)
+			return;
+
+		Heartbeat = GetScheduler().scheduleAtFixedRate( new Runnable()
+		{
+			public void run()
+			{
+				boolean renewed;
+
+				try
+				{
+					renewed = em.RenewLease( ParticipantId );
+
+				} catch (Exception e) {
+
+					// A missed beat is retried on the next one
+
+					return;
+
+				} // try
+
+				if ( renewed )
+					return;
+
+				// The message manager has reaped the registration: register again
+				// under the same id and restore the subscriptions and listener.
+
+				try
+				{
+					Reattach( em );
+
+				} catch (Exception e) {
+
+					LeaseError = e;
+					StopHeartbeat();
+
+				} // try
+			}
+
+		}, period, period, TimeUnit.MILLISECONDS );
+
+	} // StartHeartbeat
+
+	private void StopHeartbeat()
+	{
+		ScheduledFuture<?> h = Heartbeat;
+
+		if (h != null)
+			h.cancel( false );
+
+		Heartbeat = null;
+
+	} // StopHeartbeat
+
+	/***************************************************************************
+	* CONCRETE METHOD:: GetMessage
+	* Purpose: This method sends an message to the message manager.
+	*
+	* Arguments: None.
+	*
+	* Returns: Message object.
+	*
+	* Exceptions: ParticipantNotRegisteredException, GetMessageException
+	*
+	****************************************************************************/
+
+	public MessageQueue GetMessageQueue() throws ParticipantNotRegisteredException, GetMessageException
+	{
+		MessageQueue eq = null;
+
+		if (ParticipantId != -1)
+		{
+	    	try
+	    	{
+				CheckLease();
+				eq = em.GetMessageQueue(ParticipantId);
+
+	    	} // try
+
+	    	catch (Exception e)
+	    	{
+				 throw new GetMessageException( "Error getting message" + e );
+
+	    	} // catch
+
+	    } else {
+
+			throw new ParticipantNotRegisteredException( "Participant not registered" );
+
+		} // if
+
+		return eq;
+
+	} // GetMessageQueue
+
+	/***************************************************************************
+	* CONCRETE METHOD:: GetMessageQueue
+	* Purpose: This method gets this participant's messages from the message
+	*		   manager. If there are none, the message manager holds the call
+	*		   until a message arrives or the timeout expires, so callers can
+	*		   react to messages as they arrive instead of sleeping between polls.
+	*
+	* Arguments: long - timeout in milliseconds
+	*
+	* Returns: MessageQueue object.
+	*
+	* Exceptions: ParticipantNotRegisteredException, GetMessageException
+	*
+	****************************************************************************/
+
+	public MessageQueue GetMessageQueue( long TimeoutMillis ) throws ParticipantNotRegisteredException, GetMessageException
+	{
+		MessageQueue eq = null;
+
+		if (ParticipantId != -1)
+		{
+	    	try
+	    	{
+				CheckLease();
+				eq = em.GetMessageQueue( ParticipantId, TimeoutMillis );
+
+	    	} // try
+
+	    	catch (Exception e)
+	    	{
+				 throw new GetMessageException( "Error getting message" + e );
+
+	    	} // catch
+
+	    } else {
+
+			throw new ParticipantNotRegisteredException( "Participant not registered" );
+
+		} // if
+
+		return eq;
+
+	} // GetMessageQueue
+
+	/***************************************************************************
+	* CONCRETE METHOD:: Subscribe
+	* Purpose: This method asks the message manager to deliver only messages
+	*		   with the given ids to this participant. Subscriptions add up;
+	*		   until the first one is made every message is delivered.
+	*
+	* Arguments: int[] - message ids
+	*
+	* Returns: None.
+	*
+	* Exceptions: ParticipantNotRegisteredException, SubscriptionException
+	*
+	****************************************************************************/
+
+	public void Subscribe( int... MsgIds ) throws ParticipantNotRegisteredException, SubscriptionException
+	{
+		if (ParticipantId != -1)
+		{
+		   	try
+	    	{
+				em.Subscribe( ParticipantId, MsgIds );
+
+				synchronized (SubscribedIds)
+				{
+					SubscribedIds.add( MsgIds.clone() );
+
+				} // synchronized
+
+	    	} // try
+
+			catch (Exception e)
+			{
+				 throw new SubscriptionException( "Error subscribing" + e );
+
+			} // catch
+
+		} else {
+
+			throw new ParticipantNotRegisteredException( "Participant not registered" );
+
+		} // if
+
+	} // Subscribe
+
+	/***************************************************************************
+	* CONCRETE METHOD:: SubscribeRange
+	* Purpose: This method asks the message manager to deliver messages with ids
+	*		   in the inclusive range LowMsgId..HighMsgId to this participant.
+	*
+	* Arguments: int - low message id, int - high message id
+	*
+	* Returns: None.
+	*
+	* Exceptions: ParticipantNotRegisteredException, SubscriptionException
+	*
+	****************************************************************************/
+
+	public void SubscribeRange( int LowMsgId, int HighMsgId ) throws ParticipantNotRegisteredException, SubscriptionException
+	{
+		if (ParticipantId != -1)
+		{
+		   	try
+	    	{
+				em.SubscribeRange( ParticipantId, LowMsgId, HighMsgId );
+
+				synchronized (SubscribedIds)
+				{
+					SubscribedRanges.add( new int[] { LowMsgId, HighMsgId } );
+
+				} // synchronized
+
+	    	} // try
+
+			catch (Exception e)
+			{
+				 throw new SubscriptionException( "Error subscribing" + e );
+
+			} // catch
+
+		} else {
+
+			throw new ParticipantNotRegisteredException( "Participant not registered" );
+
+		} // if
+
+	} // SubscribeRange
+
+	/***************************************************************************
+	* CONCRETE METHOD:: UnSubscribe
+	* Purpose: This method drops all of this participant's subscriptions so that
+	*		   every message is delivered to it again.
+	*
+	* Arguments: None.
+	*
+	* Returns: None.
+	*
+	* Exceptions: ParticipantNotRegisteredException, SubscriptionException
+	*
+	****************************************************************************/
+
+	public void UnSubscribe() throws ParticipantNotRegisteredException, SubscriptionException
+	{
+		if (ParticipantId != -1)
+		{
+		   	try
+	    	{
+				em.UnSubscribe( ParticipantId );
+
+				synchronized (SubscribedIds)
+				{
+					SubscribedIds.clear();
+					SubscribedRanges.clear();
+
+				} // synchronized
+
+	    	} // try
+
+			catch (Exception e)
+			{
+				 throw new SubscriptionException( "Error unsubscribing" + e );
+
+			} // catch
+
+		} else {
+
+			throw new ParticipantNotRegisteredException( "Participant not registered" );
+
+		} // if
+
+	} // UnSubscribe
+
+	/***************************************************************************
+	* CONCRETE METHOD:: SetMessageListener
+	* Purpose: This method has the message manager push this participant's
+	*		   messages to the listener as they arrive. The listener is called
+	*		   on an RMI thread, once per message, in order. Any messages already
+	*		   queued are pushed straight away. Calling this again replaces the
+	*		   listener.
+	*
+	* Arguments: MessageListener
+	*
+	* Returns: None.
+	*
+	* Exceptions: ParticipantNotRegisteredException, MessageListenerException
+	*
+	****************************************************************************/
+
+	public void SetMessageListener( MessageListener l ) throws ParticipantNotRegisteredException, MessageListenerException
+	{
+		if (ParticipantId != -1)
+		{
+		   	try
+	    	{
+				ListenerAdapter adapter = new ListenerAdapter( l );
+				em.AddListener( ParticipantId, adapter );
+				UnexportListener();
+				Listener = adapter;
+
+	    	} // try
+
+			catch (Exception e)
+			{
+				 throw new MessageListenerException( "Error setting message listener" + e );
+
+			} // catch
+
+		} else {
+
+			throw new ParticipantNotRegisteredException( "Participant not registered" );
+
+		} // if
+
+	} // SetMessageListener
+
+	/***************************************************************************
+	* CONCRETE METHOD:: RemoveMessageListener
+	* Purpose: This method stops push delivery. Messages are then left in the
+	*		   participant's queue until it polls for them.
+	*
+	* Arguments: None.
+	*
+	* Returns: None.
+	*
+	* Exceptions: ParticipantNotRegisteredException, MessageListenerException
+	*
+	****************************************************************************/
+
+	public void RemoveMessageListener() throws ParticipantNotRegisteredException, MessageListenerException
+	{
+		if (ParticipantId != -1)
+		{
+		   	try
+	    	{
+				em.RemoveListener( ParticipantId );
+				UnexportListener();
+
+	    	} // try
+
+			catch (Exception e)
+			{
+				 throw new MessageListenerException( "Error removing message listener" + e );
+
+			} // catch
+
+		} else {
+
+			throw new ParticipantNotRegisteredException( "Participant not registered" );
+
+		} // if
+
+	} // RemoveMessageListener
+
+	/***************************************************************************
+	* CONCRETE METHOD:: IsListening
+	* Purpose: This method checks that the message manager still pushes this
+	*		   participant's messages to its listener. The message manager drops
+	*		   a listener that fails several deliveries in a row; the messages
+	*		   are then left in the queue and the participant has to poll for
+	*		   them (or set a listener again).
+	*
+	* Arguments: None.
+	*
+	* Returns: boolean - false if no listener is set, it has been dropped, or
+	*		   the message manager cannot be reached
+	*
+	* Exceptions: None
+	*
+	****************************************************************************/
+
+	public boolean IsListening()
+	{
+		if (Listener == null)
+			return false;
+
+		try
+		{
+			if (em.HasListener( ParticipantId ))
+				return true;
+
+			UnexportListener();
+
+		} // try
+
+		catch (Exception e)
+		{
+			// Not reachable; IsAlive tells the participant
+
+		} // catch
+
+		return false;
+
+	} // IsListening
+
+	/***************************************************************************
+	* CONCRETE METHOD:: SetQueueLimit
+	* Purpose: This method bounds this participant's queue on the message
+	*		   manager. When a message arrives at a full queue the policy
+	*		   decides what is discarded (see OverflowPolicy.java).
+	*
+	* Arguments: int capacity (0 for no limit), OverflowPolicy, long time a
+	*			 sender waits for room under the BLOCK policy, in milliseconds
+	*
+	* Returns: None.
+	*
+	* Exceptions: ParticipantNotRegisteredException, QueueLimitException
+	*
+	****************************************************************************/
+
+	public void SetQueueLimit( int Capacity, OverflowPolicy Policy, long BlockMillis ) throws ParticipantNotRegisteredException, QueueLimitException
+	{
+		if (ParticipantId != -1)
+		{
+		   	try
+	    	{
+				em.SetQueueLimit( ParticipantId, Capacity, Policy, BlockMillis );
+
+	    	} // try
+
+			catch (Exception e)
+			{
+				 throw new QueueLimitException( "Error setting queue limit" + e );
+
+			} // catch
+
+		} else {
+
+			throw new ParticipantNotRegisteredException( "Participant not registered" );
+
+		} // if
+
+	} // SetQueueLimit
+
+	/***************************************************************************
+	* CONCRETE METHOD:: GetDroppedCount
+	* Purpose: This method returns how many messages this participant's queue
+	*		   has discarded or conflated because it was full.
+	*
+	* Arguments: None.
+	*
+	* Returns: long
+	*
+	* Exceptions: ParticipantNotRegisteredException, QueueLimitException
+	*
+	****************************************************************************/
+
+	public long GetDroppedCount() throws ParticipantNotRegisteredException, QueueLimitException
+	{
+		if (ParticipantId != -1)
+		{
+		   	try
+	    	{
+				return em.GetDroppedCount( ParticipantId );
+
+	    	} // try
+
+			catch (Exception e)
+			{
+				 throw new QueueLimitException( "Error getting dropped count" + e );
+
+			} // catch
+
+		} else {
+
+			throw new ParticipantNotRegisteredException( "Participant not registered" );
+
+		} // if
+
+	} // GetDroppedCount
+
+	/***************************************************************************
+	* CONCRETE METHOD:: GetLastValue
+	* Purpose: This method gets the latest message posted with a message id,
+	*		   which the message manager retains whether or not this
+	*		   participant received it. Participants call it on start up to
+	*		   know the current state before the next message arrives.
+	*
+	* Arguments: int - message id
+	*
+	* Returns: Message, or null if no message with that id has been posted
+	*
+	* Exceptions: GetMessageException
+	*
+	****************************************************************************/
+
+	public Message GetLastValue( int MsgId ) throws GetMessageException
+	{
+		try
+		{
+			return em.GetLastValue( MsgId );
+
+		} // try
+
+		catch (Exception e)
+		{
+			 throw new GetMessageException( "Error getting last value" + e );
+
+		} // catch
+
+	} // GetLastValue
+
+	/***************************************************************************
+	* CONCRETE METHOD:: GetRetained
+	* Purpose: This method gets the latest message posted with each of several
+	*		   message ids in one call.
+	*
+	* Arguments: Set of Integer - message ids
+	*
+	* Returns: Map of message id to Message; ids with no message are left out
+	*
+	* Exceptions: GetMessageException
+	*
+	****************************************************************************/
+
+	public Map<Integer, Message> GetRetained( Set<Integer> MsgIds ) throws GetMessageException
+	{
+		int ids[] = new int[MsgIds.size()];
+		int i = 0;
+
+		for ( Integer id : MsgIds )
+			ids[i++] = id;
+
+		HashMap<Integer, Message> retained = new HashMap<Integer, Message>();
+
+		try
+		{
+			for ( Message m : em.GetRetained( ids ) )
+				retained.put( m.GetMessageId(), m );
+
+		} // try
+
+		catch (Exception e)
+		{
+			 throw new GetMessageException( "Error getting retained messages" + e );
+
+		} // catch
+
+		return retained;
+
+	} // GetRetained
+
+	/***************************************************************************
+	* CONCRETE METHOD:: IsAlive
+	* Purpose: This method checks that the message manager can be reached and
+	*		   still knows this participant (see StartHeartbeat).
+	*
+	* Arguments: None.
+	*
+	* Returns: boolean - true if the message manager answered
+	*
+	* Exceptions: None
+	*
+	****************************************************************************/
+
+	public boolean IsAlive()
+	{
+		try
+		{
+			CheckLease();
+
+			return em.isAlive();
+
+		} // try
+
+		catch (Exception e)
+		{
+			return false;
+
+		} // catch
+
+	} // IsAlive
+
+	private void CheckLease() throws Exception
+	{
+		Exception e = LeaseError;
+
+		if (e != null)
+			throw new Exception( "Registration lost and could not be restored: " + e );
+
+	} // CheckLease
+
+	private void UnexportListener()
+	{
+		if (Listener != null)
+		{
+			try
+			{
+				UnicastRemoteObject.unexportObject( Listener, true );
+
+			} catch (Exception e) {
+
+				// Already unexported
+
+			} // try
+
+			Listener = null;
+
+		} // if
+
+	} // UnexportListener
+
+	/***************************************************************************
+	* CONCRETE METHOD:: UnRegister
+	* Purpose: This method is called when the object is no longer used. Essentially
+	* this method unregisters participants from the message manager. It is important
+	* that participants actively unregister with the message manager. Failure to do
+	* so will cause unconnected queues to fill up with messages over time. This
+	* will result in a memory leak and eventual failure of the message manager.
+	*
+	* Arguments: None.
+	*
+	* Returns: None.
+	*
+	* Exceptions: None
+	*
+	****************************************************************************/
+
+	public void UnRegister() throws ParticipantNotRegisteredException, RegistrationException
+	{
+		if (ParticipantId != -1)
+		{
+		   	try
+		   	{
+				Flush();
+				StopHeartbeat();
+				em.UnRegister(ParticipantId);
+				UnexportListener();
+
+				if ( em instanceof FrameStub )
+					((FrameStub) em).Close();
+				else if ( em instanceof ShardedBroker )
+					((ShardedBroker) em).Close();
+
+		   	} // try
+
+		   	catch (Exception e)
+		   	{
+				throw new RegistrationException( "Error unregistering" + e );
+
+		    } // catch
+
+	    } else {
+
+			throw new ParticipantNotRegisteredException( "Participant not registered" );
+
+		} // if
+
+	} // UnRegister
+
+	/***************************************************************************
+	* INNER CLASS:: ListenerAdapter
+	* Purpose: The remote object exported to the message manager. It hands each
+	*		   pushed message to the participant's MessageListener.
+	*
+	****************************************************************************/
+
+	private static class ListenerAdapter extends UnicastRemoteObject implements RMIMessageListenerInterface
+	{
+		private final MessageListener Target;
+
+		ListenerAdapter( MessageListener l ) throws RemoteException
+		{
+			super();
+			Target = l;
+		}
+
+		public void DeliverMessages( MessageQueue mq ) throws RemoteException
+		{
+			Message m;
+
+			while ( (m = mq.GetMessage()) != null )
+			{
+				// A failing handler must not look like a failed delivery, or the
+				// message manager would redeliver and eventually drop the listener
+
+				try
+				{
+					Target.MessageReceived( m );
+
+				} catch (RuntimeException e) {
+
+					System.out.println( "Error handling pushed message:: " + e );
+
+				} // try
+
+			} // while
+		}
+
+	} // ListenerAdapter
 
 } // MessageManagerInterface
\ No newline at end of file
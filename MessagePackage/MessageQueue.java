@@ -1,170 +1,1664 @@
-/******************************************************************************************************************
-* File:MessageQueue.java
-* Course: 17655
-* Project: Assignment A2
-* Copyright: Copyright (c) 2009 Carnegie Mellon University
-* Versions:
-*	1.0 February 2009 - Initial rewrite of original assignment 2 (ajl).
-*
-* Description: This class defines message queues which are stored by the MessageManger. Each registered participant
-*			   has an message queue assigned to them. As events are sent by registered participants to the MessageManger
-*			   they are posted in each queue. Queues are removed when participants unregister.
-*
-* Parameters:
-*			   MessageList - This is the list of message objects
-*			   id - this is the participant's registration id
-*			   ListSize - this variable indicates how many events are in the message queue.
-*
-* Internal Methods: None
-*
-******************************************************************************************************************/
-package MessagePackage;
-
-import java.io.Serializable;
-import java.util.*;
-
-public class MessageQueue implements Serializable
-{
-	private Vector<Message> MessageList;// This is the list of events associated with a participant
-	private long QueueId;				// This is the participants id
-	private	int ListSize;				// This is the size of the list
-
-	public MessageQueue()
-	{
-		MessageList = new Vector<Message> (15, 1);
-		Calendar TimeStamp = Calendar.getInstance();
-		QueueId = TimeStamp.getTimeInMillis();
-		ListSize = 0;
-
-	} // constructor
-
-	/***************************************************************************
-	* CONCRETE METHOD:: GetId
-	* Purpose: This method returns the message queue id (which is the participants id).
-	*
-	* Arguments: None
-	*
-	* Returns: long integet
-	*
-	* Exceptions: None
-	*
-	****************************************************************************/
-
-	public long GetId()
-	{
-		return QueueId;
-
-	} // AddMessage
-
-	/***************************************************************************
-	* CONCRETE METHOD:: GetSize
-	* Purpose: This method returns the size of the queue.
-	*
-	* Arguments: None
-	*
-	* Returns: int
-	*
-	* Exceptions: None
-	*
-	****************************************************************************/
-
-	public int GetSize()
-	{
-		return MessageList.size();
-
-	} // AddMessage
-
-	/***************************************************************************
-	* CONCRETE METHOD:: AddMessage
-	* Purpose: This method adds an message to the list arriving messages are
-	*		   appended to the end of the list.
-	*
-	* Arguments: Message from a participant
-	*
-	* Returns: None
-	*
-	* Exceptions: None
-	*
-	****************************************************************************/
-
-	public void AddMessage( Message m )
-	{
-		MessageList.add( m );
-
-	} // AddMessage
-
-	/***************************************************************************
-	* CONCRETE METHOD:: GetMessage
-	* Purpose: This method gets the message off of the front of the list. This is
-	*		   the oldest message in the list (arriving messages are appended to the
-	*		   list, hence the newest message is at the end of the list). This
-	*		   method removes messages from the list.
-	*
-	* Arguments: None
-	*
-	* Returns: Message
-	*
-	* Exceptions: None
-	*
-	****************************************************************************/
-
-	public Message GetMessage()
-	{
-		Message m = null;
-
-		if (MessageList.size() > 0)
-		{
-			m = MessageList.get(0);
-			MessageList.removeElementAt(0);
-
-		} // if
-
-		return m;
-
-	} // GetMessage
-
-	/***************************************************************************
-	* CONCRETE METHOD:: ClearMessageQueue
-	* Purpose: This method will clears all the messages the message queue.
-	*
-	* Arguments: None
-	*
-	* Returns: None
-	*
-	* Exceptions: None
-	*
-	****************************************************************************/
-
-	public void ClearMessageQueue()
-	{
-		MessageList.removeAllElements();
-
-	} // ClearMessageQueue
-
-	/***************************************************************************
-	* CONCRETE METHOD:: GetCopy
-	* Purpose: This method is used to obtain a copy of the message queue. This
-	*		   method returns a second copy (separate memory) of the queue, not
-	*		   a pointer to the queue.
-	*
-	* Arguments: None
-	*
-	* Returns: MessageQueue. This method returns a second copy (separate memory)
-	*		   of the queue, not a pointer to the queue.
-	*
-	* Exceptions: None
-	*
-	****************************************************************************/
-   	@SuppressWarnings("unchecked")
-
-	public MessageQueue GetCopy()
-	{
-		MessageQueue mq = new MessageQueue();
-		mq.QueueId = QueueId;
-		mq.MessageList = (Vector<Message>) MessageList.clone();
-
-		return mq ;
-
-	} // GetCopy
-
-} // MessageQueue class
\ No newline at end of file
+/******************************************************************************************************************
+* File:MessageQueue.java
+* Course: 17655
+* Project: Assignment A2
+* Copyright: Copyright (c) 2009 Carnegie Mellon University
+* Versions:
+*	1.0 February 2009 - Initial rewrite of original assignment 2 (ajl).
+*
+* Description: This class defines message queues which are stored by the MessageManger. Each registered participant
+*			   has an message queue assigned to them. As events are sent by registered participants to the MessageManger
+*			   they are posted in each queue. Queues are removed when participants unregister.
+*
+*			   The queue is a linked multi-producer/single-consumer queue. Any number of threads may call AddMessage
+*			   at the same time without locking: a producer swaps itself in as the new tail and then links the old
+*			   tail to it. Only one thread at a time consumes (GetMessage, Drain, ClearMessageQueue); the consumer
+*			   methods are synchronized among themselves so that a retried poll cannot corrupt the head, but they
+*			   never block producers.
+*
+*			   A queue may be given a capacity (SetLimit). When a message arrives at a full queue the queue's
+*			   OverflowPolicy decides what is discarded, and every discarded or conflated message is counted
+*			   (GetDroppedCount). The limit is checked without a lock, so concurrent senders can overshoot it by at
+*			   most one message each. Only the overflow path takes the consumer lock.
+*
+*			   Message ids can be marked as conflated (SetConflated), for readings where only the latest value
+*			   matters. A conflated message replaces the undelivered message with the same id from the same sender
+*			   in place, so the queue holds at most one message per id and sender however far behind the consumer
+*			   is. The latest node for each id and sender is kept in a map; a producer swaps its message into that
+*			   node with a compare and set, and the consumer takes a node's message with an atomic swap, so a
+*			   message is never written into a node that has already been consumed (the producer appends a new
+*			   node instead). A producer that finds no node claims the key for its own node with putIfAbsent
+*			   before linking it, so two producers with the same id and sender never both append; the loser swaps
+*			   its message into the winner's node, even if that node is not linked yet. A claimed node that is
+*			   dropped for lack of room gives up its key and its message, including any message swapped into it
+*			   meanwhile. Replaced messages are counted with the dropped ones. A message put back with Requeue
+*			   may be older than the one queued for its id and sender; if their journal positions show that, the
+*			   older message is dropped instead, so a requeue never puts a stale reading in place of a newer one.
+*
+*			   Messages are kept in one lane per priority (see Message.java): CONTROL, NORMAL and TELEMETRY. Each
+*			   lane is a linked queue as described above, and the consumer always takes from the highest priority
+*			   lane that has a message, so a command overtakes any backlog of readings. Messages of the same
+*			   priority keep their order. The capacity counts the messages in every lane; when DROP_OLDEST has to
+*			   make room it discards the oldest message of the lowest priority lane that is not above the new
+*			   message's priority, and drops the new message if every queued message outranks it. Each lane keeps
+*			   its own depth and largest depth for GetStats.
+*
+*			   When the message manager runs in log mode the queue follows a shared MessageLog (Follow) instead of
+*			   having messages added to it: the consumer methods read the entries its cursor accepts after any
+*			   messages held in the queue itself (those requeued or restored from a snapshot). GetSize only counts
+*			   the messages held in the queue itself; HasMessages also looks at the log. Queue limits and
+*			   conflation apply to the messages held in the queue itself; the log bounds how far a cursor can fall
+*			   behind, and entries dropped from the log before the cursor read them are counted as dropped. Log
+*			   entries are read in the order they were posted; Drain sorts them into the lanes of the batch it
+*			   returns.
+*
+* Parameters:
+*			   Lanes - This is one Lane per priority, highest first
+*			   id - this is the participant's registration id (see IdAllocator.java)
+*			   RegistrationTime - this is when the participant registered
+*			   ListSize - this variable indicates how many events are in the message queue, in every lane.
+*			   Waiters - these are the threads parked in AwaitMessages
+*			   Capacity - this is the most messages the queue holds, 0 means no limit
+*			   Policy - this is what happens to a message that arrives when the queue is full
+*			   BlockMillis - this is how long a BLOCK sender waits for room
+*			   Dropped - this is the number of messages discarded or conflated
+*			   ConflatedIds - this is the sorted message ids that are conflated
+*			   Latest - this is the undelivered node of each conflated message id and sender
+*			   Cursor - this is the queue's place in the shared log in log mode, otherwise null
+*
+* Internal Methods:
+*			   Offer - Applies conflation, the capacity and overflow policy and appends a message.
+*			   Claim - Makes a node the undelivered node for its id and sender, or conflates it with that node.
+*			   Release - Gives up the key of a claimed node that is dropped instead of linked.
+*			   DropOldest - Makes room for a message under DROP_OLDEST, or CONFLATE with nothing to conflate.
+*			   Pop - Takes the oldest message of the highest priority without waking blocked senders.
+*			   Evict - Takes the oldest message of the lowest priority lane not above a given priority.
+*			   Splice - Detaches the whole chain of nodes of each lane for Drain.
+*			   Move - Drains a message at a time, for queues with conflated ids.
+*			   WakeSenders - Wakes senders blocked waiting for room.
+*			   WakeWaiters - Wakes the threads parked in AwaitMessages.
+*
+******************************************************************************************************************/
+package MessagePackage;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.*;
+import java.util.concurrent.locks.LockSupport;
+
+public class MessageQueue implements Serializable
+{
+	private transient Lane Lanes[];					// One per priority, highest first
+	private transient AtomicInteger ListSize;		// This is the size of the list, all lanes together
+	private transient CopyOnWriteArrayList<Thread> Waiters;	// Threads parked waiting for a message
+	private long QueueId;							// This is the participants id
+	private long RegistrationTime;					// When the queue was created, in milliseconds
+
+	private transient volatile int Capacity;		// Most messages held, 0 for no limit
+	private transient volatile OverflowPolicy Policy;	// What to do when the queue is full
+	private transient volatile long BlockMillis;	// Longest a BLOCK sender waits for room
+	private transient AtomicLong Dropped;			// Messages discarded or conflated so far
+	private transient AtomicInteger BlockedSenders;	// Senders waiting on Space for room
+	private transient Object Space;					// Monitor that blocked senders wait on
+	private transient volatile int ConflatedIds[];	// Sorted message ids that are conflated
+	private transient ConcurrentHashMap<Key, Node> Latest;	// Undelivered node per conflated id and sender
+	private transient volatile MessageLog.Cursor Cursor;	// Place in the shared log, null unless in log mode
+
+	private transient LongAdder Enqueued;			// Messages appended so far
+	private transient volatile long Drained;		// Messages taken by the consumer so far
+	private transient volatile int MaxDepth;		// Largest size the queue has reached
+	private transient volatile long LastDrain;		// System.nanoTime of the last drain, 0 if none
+	private transient volatile long DrainInterval;	// Nanoseconds between the last two drains, -1 if unknown
+
+	private transient volatile long Acknowledged;	// Journal position of the last message known delivered
+	private transient long HighPosition;			// Highest journal position in a drained batch
+	private transient long Held;					// Highest journal position of the batch last returned to a poll
+	private transient long HeldLow;					// Lowest journal position of that batch, -1 if none
+
+	public MessageQueue()
+	{
+		this( IdAllocator.Next() );
+
+	} // constructor
+
+	private MessageQueue( long id )
+	{
+		// Use the time the id carries, which participants read back from
+		// their id (see MessageManagerInterface.GetRegistrationTime)
+
+		this( id, IdAllocator.GetTime( id ) );
+
+	} // constructor
+
+	private MessageQueue( long id, long time )
+	{
+		QueueId = id;
+		RegistrationTime = time;
+		Init();
+
+	} // constructor
+
+	/***************************************************************************
+	* CONCRETE METHOD:: Restore
+	* Purpose: This method recreates the queue of a participant that registered
+	*		   before the message manager restarted, keeping its id.
+	*
+	* Arguments: long - participant id, long - registration time
+	*
+	* Returns: MessageQueue
+	*
+	* Exceptions: None
+	*
+	****************************************************************************/
+
+	public static MessageQueue Restore( long id, long time )
+	{
+		IdAllocator.Observe( id );
+
+		return new MessageQueue( id, time );
+
+	} // Restore
+
+	private void Init()
+	{
+		Lanes = new Lane[Message.PRIORITIES];
+
+		for ( int i = 0; i < Lanes.length; i++ )
+			Lanes[i] = new Lane();
+
+		ListSize = new AtomicInteger( 0 );
+		Policy = OverflowPolicy.DROP_OLDEST;
+		Dropped = new AtomicLong( 0 );
+		BlockedSenders = new AtomicInteger( 0 );
+		Space = new Object();
+		Enqueued = new LongAdder();
+		DrainInterval = -1;
+		ConflatedIds = new int[0];
+		Latest = new ConcurrentHashMap<Key, Node>();
+		HeldLow = -1;
+		Waiters = new CopyOnWriteArrayList<Thread>();
+
+	} // Init
+
+	/***************************************************************************
+	* CONCRETE METHOD:: SetLimit
+	* Purpose: This method sets the queue's capacity and overflow policy.
+	*		   Messages already queued are kept even if there are more of them
+	*		   than the new capacity.
+	*
+	* Arguments: int - capacity (0 for no limit), OverflowPolicy, long - how
+	*			 long a BLOCK sender waits for room, in milliseconds
+	*
+	* Returns: None
+	*
+	* Exceptions: None
+	*
+	****************************************************************************/
+
+	public void SetLimit( int Capacity, OverflowPolicy Policy, long BlockMillis )
+	{
+		this.Policy = (Policy == null) ? OverflowPolicy.DROP_OLDEST : Policy;
+		this.BlockMillis = Math.max( 0, BlockMillis );
+		this.Capacity = Math.max( 0, Capacity );
+
+		// Senders blocked under the old limit re-check against the new one
+
+		WakeSenders();
+
+	} // SetLimit
+
+	/***************************************************************************
+	* CONCRETE METHOD:: SetConflated
+	* Purpose: This method sets the message ids that are conflated: a new
+	*		   message with one of these ids replaces the undelivered message
+	*		   with the same id and sender. Messages already queued are not
+	*		   affected.
+	*
+	* Arguments: int[] - message ids, may be empty
+	*
+	* Returns: None
+	*
+	* Exceptions: None
+	*
+	****************************************************************************/
+
+	public void SetConflated( int MsgIds[] )
+	{
+		int ids[] = MsgIds.clone();
+
+		Arrays.sort( ids );
+		ConflatedIds = ids;
+
+	} // SetConflated
+
+	/***************************************************************************
+	* CONCRETE METHOD:: GetConflated
+	* Purpose: This method returns the message ids that are conflated.
+	*
+	* Arguments: None
+	*
+	* Returns: int[]
+	*
+	* Exceptions: None
+	*
+	****************************************************************************/
+
+	public int[] GetConflated()
+	{
+		return ConflatedIds.clone();
+
+	} // GetConflated
+
+	/***************************************************************************
+	* CONCRETE METHOD:: Follow
+	* Purpose: This method makes the queue read the messages appended to a
+	*		   shared log from now on that pass a filter (see MessageLog.java).
+	*
+	* Arguments: MessageLog, MessageLog.Filter
+	*
+	* Returns: None
+	*
+	* Exceptions: None
+	*
+	****************************************************************************/
+
+	public void Follow( MessageLog Log, MessageLog.Filter Filter )
+	{
+		Cursor = Log.Open( Filter );
+
+	} // Follow
+
+	/***************************************************************************
+	* CONCRETE METHOD:: Unfollow
+	* Purpose: This method closes the queue's cursor so that it no longer holds
+	*		   back the shared log. Called when the participant is removed.
+	*
+	* Arguments: None
+	*
+	* Returns: None
+	*
+	* Exceptions: None
+	*
+	****************************************************************************/
+
+	public void Unfollow()
+	{
+		MessageLog.Cursor c = Cursor;
+
+		if ( c != null )
+		{
+			c.Close();
+			Cursor = null;
+
+		} // if
+
+	} // Unfollow
+
+	/***************************************************************************
+	* CONCRETE METHOD:: Signal
+	* Purpose: In log mode, this method wakes the consumer if it is parked in
+	*		   AwaitMessages, after a message it may want was appended to the
+	*		   log.
+	*
+	* Arguments: None
+	*
+	* Returns: None
+	*
+	* Exceptions: None
+	*
+	****************************************************************************/
+
+	public void Signal()
+	{
+		WakeWaiters();
+
+	} // Signal
+
+	/***************************************************************************
+	* CONCRETE METHOD:: GetCapacity
+	* Purpose: This method returns the queue's capacity, 0 if it has no limit.
+	*
+	* Arguments: None
+	*
+	* Returns: int
+	*
+	* Exceptions: None
+	*
+	****************************************************************************/
+
+	public int GetCapacity()
+	{
+		return Capacity;
+
+	} // GetCapacity
+
+	/***************************************************************************
+	* CONCRETE METHOD:: GetPolicy
+	* Purpose: This method returns the queue's overflow policy.
+	*
+	* Arguments: None
+	*
+	* Returns: OverflowPolicy
+	*
+	* Exceptions: None
+	*
+	****************************************************************************/
+
+	public OverflowPolicy GetPolicy()
+	{
+		return Policy;
+
+	} // GetPolicy
+
+	/***************************************************************************
+	* CONCRETE METHOD:: GetBlockMillis
+	* Purpose: This method returns how long a BLOCK sender waits for room.
+	*
+	* Arguments: None
+	*
+	* Returns: long - milliseconds
+	*
+	* Exceptions: None
+	*
+	****************************************************************************/
+
+	public long GetBlockMillis()
+	{
+		return BlockMillis;
+
+	} // GetBlockMillis
+
+	/***************************************************************************
+	* CONCRETE METHOD:: GetDroppedCount
+	* Purpose: This method returns how many messages this queue has discarded
+	*		   or conflated because it was full.
+	*
+	* Arguments: None
+	*
+	* Returns: long
+	*
+	* Exceptions: None
+	*
+	****************************************************************************/
+
+	public long GetDroppedCount()
+	{
+		return Dropped.get();
+
+	} // GetDroppedCount
+
+	/***************************************************************************
+	* CONCRETE METHOD:: GetId
+	* Purpose: This method returns the message queue id (which is the participants id).
+	*
+	* Arguments: None
+	*
+	* Returns: long integet
+	*
+	* Exceptions: None
+	*
+	****************************************************************************/
+
+	public long GetId()
+	{
+		return QueueId;
+
+	} // GetId
+
+	/***************************************************************************
+	* CONCRETE METHOD:: GetRegistrationTime
+	* Purpose: This method returns the time the queue (and so the participant's
+	*		   registration) was created.
+	*
+	* Arguments: None
+	*
+	* Returns: long - milliseconds since the epoch
+	*
+	* Exceptions: None
+	*
+	****************************************************************************/
+
+	public long GetRegistrationTime()
+	{
+		return RegistrationTime;
+
+	} // GetRegistrationTime
+
+	/***************************************************************************
+	* CONCRETE METHOD:: GetSize
+	* Purpose: This method returns the size of the queue.
+	*
+	* Arguments: None
+	*
+	* Returns: int
+	*
+	* Exceptions: None
+	*
+	****************************************************************************/
+
+	public int GetSize()
+	{
+		// A consumer may briefly run ahead of a producer's increment
+
+		return Math.max( 0, ListSize.get() );
+
+	} // AddMessage
+
+	/***************************************************************************
+	* CONCRETE METHOD:: AddMessage
+	* Purpose: This method adds an message to the list arriving messages are
+	*		   appended to the end of the list. This method is lock free and may
+	*		   be called by many threads at once. If the queue is full the
+	*		   overflow policy is applied, which may discard a message or (for
+	*		   BLOCK) wait for room.
+	*
+	* Arguments: Message from a participant
+	*
+	* Returns: None
+	*
+	* Exceptions: None
+	*
+	****************************************************************************/
+
+	public void AddMessage( Message m )
+	{
+		Offer( m, true );
+
+	} // AddMessage
+
+	/***************************************************************************
+	* CONCRETE METHOD:: Requeue
+	* Purpose: This method puts back a message that was taken off the queue but
+	*		   could not be delivered, or restores one from the journal. It never
+	*		   waits: a BLOCK queue that is full drops the message instead.
+	*
+	* Arguments: Message
+	*
+	* Returns: None
+	*
+	* Exceptions: None
+	*
+	****************************************************************************/
+
+	public void Requeue( Message m )
+	{
+		Offer( m, false );
+
+	} // Requeue
+
+	/***************************************************************************
+	* CONCRETE METHOD:: PutBack
+	* Purpose: This method puts a batch returned by Drain back at the head of
+	*		   the queue, when it could not be delivered. In each lane the
+	*		   batch's messages go ahead of anything that arrived since the
+	*		   drain, in their original order. The capacity is not applied, so
+	*		   none of them are dropped for lack of room. A message with a
+	*		   conflated id is still conflated: if a message from the same sender
+	*		   has been queued since the drain, the older of the two is dropped,
+	*		   and otherwise its node becomes the latest for its id and sender
+	*		   again.
+	*
+	* Arguments: MessageQueue - a batch returned by Drain
+	*
+	* Returns: None
+	*
+	* Exceptions: None
+	*
+	****************************************************************************/
+
+	public synchronized void PutBack( MessageQueue Batch )
+	{
+		int ids[] = ConflatedIds;
+		int n = 0;
+		int back = 0;
+
+		for ( int i = 0; i < Lanes.length; i++ )
+		{
+			Lane from = Batch.Lanes[i];
+			Lane to = Lanes[i];
+			int count = from.Size.get();
+
+			if ( count <= 0 )
+				continue;
+
+			Message ms[] = new Message[count];
+			Node b = from.Head.Next;
+			int k = 0;
+
+			while ( k < count && b != null )
+			{
+				ms[k++] = b.Msg;
+				b = b.Next;
+
+			} // while
+
+			back += k;
+
+			// Build the chain newest first, so that a message whose key is
+			// already held is always older than the holder: the holder either
+			// arrived after the drain or comes later in the batch.
+
+			Node chain = null;
+			Node last = null;
+			int linked = 0;
+
+			while ( k-- > 0 )
+			{
+				Message m = ms[k];
+				Key key = null;
+
+				if ( ids.length > 0 && Arrays.binarySearch( ids, m.GetMessageId() ) >= 0 )
+					key = new Key( m.GetMessageId(), m.GetSenderId() );
+
+				Node node = new Node( m, key );
+
+				if ( key != null && !Claim( node, true ) )
+					continue;
+
+				node.Next = chain;
+				chain = node;
+				linked++;
+
+				if ( last == null )
+					last = node;
+
+			} // while
+
+			if ( linked == 0 )
+				continue;
+
+			Node stub = new Node( null );
+			stub.Next = chain;
+
+			// If the lane is empty the batch's last node becomes the tail. If a
+			// producer has swapped the tail but not linked its node yet, wait for
+			// the link as Splice does.
+
+			Node first = to.Head.Next;
+
+			if ( first == null && !to.Tail.compareAndSet( to.Head, last ) )
+			{
+				while ( (first = to.Head.Next) == null )
+					Thread.yield();
+
+			} // if
+
+			if ( first != null )
+				last.Next = first;
+
+			to.Head = stub;
+			to.Size.addAndGet( linked );
+			n += linked;
+
+		} // for
+
+		ListSize.addAndGet( n );
+		Drained -= back;
+
+	} // PutBack
+
+	private void Offer( Message m, boolean MayBlock )
+	{
+		Key key = null;
+		int ids[] = ConflatedIds;
+
+		if ( ids.length > 0 && Arrays.binarySearch( ids, m.GetMessageId() ) >= 0 )
+			key = new Key( m.GetMessageId(), m.GetSenderId() );
+
+		Node node = new Node( m, key );
+
+		// Claim the key before linking, so that a producer racing with this
+		// one conflates into this node instead of appending its own
+
+		if ( key != null && !Claim( node, false ) )
+			return;
+
+		int cap = Capacity;
+
+		if ( cap == 0 || ListSize.get() < cap )
+		{
+			Append( node );
+			return;
+
+		} // if
+
+		switch ( Policy )
+		{
+			case DROP_NEWEST:
+
+				Release( node );
+				Dropped.incrementAndGet();
+				return;
+
+			case BLOCK:
+
+				if ( MayBlock && AwaitSpace() )
+				{
+					Append( node );
+
+				} else {
+
+					Release( node );
+					Dropped.incrementAndGet();
+
+				} // if
+
+				return;
+
+			case CONFLATE:
+
+				synchronized (this)
+				{
+					// Overwrite the oldest queued message with the same id. It keeps
+					// its place in the queue but carries the newest value.
+
+					int id = m.GetMessageId();
+					Node n = LaneOf( m ).Head.Next;
+
+					while ( n != null )
+					{
+						Message cur = n.Msg;
+
+						// A node kept for per sender conflation only takes the same sender's message
+
+						if ( cur != null && cur.GetMessageId() == id && Objects.equals( n.Key, node.Key )
+							&& (IsOlder( m, cur ) || MSG.compareAndSet( n, cur, m )) )
+						{
+							Release( node );
+							Dropped.incrementAndGet();
+							return;
+
+						} // if
+
+						n = n.Next;
+
+					} // while
+
+				} // synchronized
+
+				// Nothing to conflate with, so drop the oldest
+
+				DropOldest( node );
+				return;
+
+			default:
+
+				DropOldest( node );
+
+		} // switch
+
+	} // Offer
+
+	private void DropOldest( Node node )
+	{
+		synchronized (this)
+		{
+			// The oldest node may not be linked yet if its producer was
+			// preempted after swapping the tail. Appending anyway would let
+			// the queue grow past its capacity for as long as that lasts, so
+			// the new message is dropped instead, as it is when every queued
+			// message has a higher priority than the new one.
+
+			Dropped.incrementAndGet();
+
+			if ( Evict( node.Msg.GetPriority() ) == null )
+			{
+				Release( node );
+				return;
+
+			} // if
+
+		} // synchronized
+
+		Append( node );
+
+	} // DropOldest
+
+	private boolean Claim( Node node, boolean Older )
+	{
+		// Makes an unlinked node the latest for its key, unless a queued node
+		// already holds the key: then the older of the two messages is
+		// dropped, leaving the newer one in the queued node, and the caller
+		// must not link its node. The node's message is taken to be the older
+		// one if Older is set, and the newer one otherwise, unless journal
+		// positions show the opposite.
+
+		Message m = node.Msg;
+
+		while ( true )
+		{
+			Node held = Latest.putIfAbsent( node.Key, node );
+
+			if ( held == null )
+				return true;
+
+			Message cur;
+
+			while ( (cur = held.Msg) != null )
+			{
+				boolean keep = Older ? !IsOlder( cur, m ) : IsOlder( m, cur );
+
+				if ( keep || MSG.compareAndSet( held, cur, m ) )
+				{
+					Dropped.incrementAndGet();
+					return false;
+
+				} // if
+
+			} // while
+
+			// The consumer has taken it
+
+			Latest.remove( node.Key, held );
+
+		} // while
+
+	} // Claim
+
+	private void Release( Node node )
+	{
+		// Taking the message makes a producer that found this node in Latest
+		// claim the key again. A message it swapped in is dropped with the node.
+
+		if ( node.Key != null )
+		{
+			Latest.remove( node.Key, node );
+			MSG.getAndSet( node, null );
+
+		} // if
+
+	} // Release
+
+	private static boolean IsOlder( Message m, Message than )
+	{
+		// Only journaled or replicated messages have a position
+
+		return m.Position > 0 && than.Position > m.Position;
+
+	} // IsOlder
+
+	private boolean AwaitSpace()
+	{
+		long deadline = System.nanoTime() + BlockMillis * 1000000L;
+
+		BlockedSenders.incrementAndGet();
+
+		try
+		{
+			synchronized (Space)
+			{
+				// The consumer takes a message before it checks for blocked
+				// senders, and we count ourselves before we check for room, so a
+				// wakeup cannot be missed.
+
+				while ( Capacity != 0 && ListSize.get() >= Capacity )
+				{
+					long remaining = (deadline - System.nanoTime()) / 1000000L;
+
+					if ( remaining <= 0 )
+						return false;
+
+					Space.wait( remaining );
+
+				} // while
+
+			} // synchronized
+
+			return true;
+
+		} catch (InterruptedException e) {
+
+			Thread.currentThread().interrupt();
+			return false;
+
+		} finally {
+
+			BlockedSenders.decrementAndGet();
+
+		} // try
+
+	} // AwaitSpace
+
+	private void WakeSenders()
+	{
+		if ( BlockedSenders.get() > 0 )
+		{
+			synchronized (Space)
+			{
+				Space.notifyAll();
+
+			} // synchronized
+
+		} // if
+
+	} // WakeSenders
+
+	private Lane LaneOf( Message m )
+	{
+		return Lanes[m.GetPriority()];
+
+	} // LaneOf
+
+	private void Append( Node n )
+	{
+		Lane l = LaneOf( n.Msg );
+		Node prev = l.Tail.getAndSet( n );
+
+		// The size is only counted once the node is linked to the previous one.
+		// That node may not be linked yet itself, if its producer has swapped the
+		// tail but not yet set Next, so a consumer can briefly see fewer
+		// messages than GetSize() and stops at the gap; the rest are taken on
+		// the next poll.
+
+		prev.Next = n;
+
+		int depth = ListSize.incrementAndGet();
+		int lane = l.Size.incrementAndGet();
+		Enqueued.increment();
+
+		// A racing producer may overwrite a slightly larger maximum; the
+		// figure is for monitoring and that error is acceptable.
+
+		if (depth > MaxDepth)
+			MaxDepth = depth;
+
+		if (lane > l.MaxDepth)
+			l.MaxDepth = lane;
+
+		// Wake any thread parked waiting for this queue
+
+		WakeWaiters();
+
+	} // Append
+
+	private void WakeWaiters()
+	{
+		// The list is only copied when a poll starts or ends waiting, so this
+		// is one volatile read when nobody waits
+
+		if ( Waiters.isEmpty() )
+			return;
+
+		for ( Thread w : Waiters )
+			LockSupport.unpark( w );
+
+	} // WakeWaiters
+
+	/***************************************************************************
+	* CONCRETE METHOD:: GetMessage
+	* Purpose: This method gets the message off of the front of the list. This is
+	*		   the oldest message in the list (arriving messages are appended to the
+	*		   list, hence the newest message is at the end of the list). This
+	*		   method removes messages from the list.
+	*
+	* Arguments: None
+	*
+	* Returns: Message
+	*
+	* Exceptions: None
+	*
+	****************************************************************************/
+
+	public synchronized Message GetMessage()
+	{
+		Message m = Pop();
+
+		if (m != null)
+		{
+			Drained++;
+			WakeSenders();
+
+		} else if (Cursor != null) {
+
+			m = ReadLog();
+
+		} // if
+
+		return m;
+
+	} // GetMessage
+
+	private synchronized Message Pop()
+	{
+		for ( Lane l : Lanes )
+		{
+			Message m = Pop( l );
+
+			if (m != null)
+				return m;
+
+		} // for
+
+		return null;
+
+	} // Pop
+
+	private synchronized Message Evict( int Priority )
+	{
+		for ( int i = Lanes.length - 1; i >= Priority; i-- )
+		{
+			Message m = Pop( Lanes[i] );
+
+			if (m != null)
+				return m;
+
+		} // for
+
+		return null;
+
+	} // Evict
+
+	private synchronized Message Pop( Lane l )
+	{
+		Node next = l.Head.Next;
+
+		if (next == null)
+			return null;
+
+		Message m = MSG.getAndSet( next, null );
+		l.Head = next;
+		l.Size.decrementAndGet();
+		ListSize.decrementAndGet();
+
+		if ( next.Key != null )
+			Latest.remove( next.Key, next );
+
+		return m;
+
+	} // Pop
+
+	private synchronized Message ReadLog()
+	{
+		MessageLog.Cursor c = Cursor;
+
+		if (c == null)
+			return null;
+
+		Message m = c.Next();
+
+		Dropped.addAndGet( c.TakeSkipped() );
+
+		if (m != null)
+		{
+			Enqueued.increment();
+			Drained++;
+
+		} // if
+
+		return m;
+
+	} // ReadLog
+
+	/***************************************************************************
+	* CONCRETE METHOD:: HasMessages
+	* Purpose: This method checks whether the consumer has anything to read:
+	*		   messages in the queue or, in log mode, log entries its cursor
+	*		   accepts.
+	*
+	* Arguments: None
+	*
+	* Returns: boolean
+	*
+	* Exceptions: None
+	*
+	****************************************************************************/
+
+	public synchronized boolean HasMessages()
+	{
+		if ( GetSize() > 0 )
+			return true;
+
+		MessageLog.Cursor c = Cursor;
+
+		return c != null && c.HasNext();
+
+	} // HasMessages
+
+	/***************************************************************************
+	* CONCRETE METHOD:: AwaitMessages
+	* Purpose: This method parks the calling thread until the queue holds at
+	*		   least one message or the timeout expires. Producers wake the
+	*		   parked thread directly, so an idle queue costs nothing while
+	*		   waiting. Several threads may wait at once (for instance an RMI
+	*		   retry of a poll that is still waiting) and all of them are woken.
+	*		   In log mode the sender wakes them through Signal.
+	*
+	* Arguments: long - timeout in milliseconds
+	*
+	* Returns: boolean - true if there are messages in the queue
+	*
+	* Exceptions: None
+	*
+	****************************************************************************/
+
+	public boolean AwaitMessages( long TimeoutMillis )
+	{
+		long deadline = System.nanoTime() + TimeoutMillis * 1000000L;
+		Thread me = Thread.currentThread();
+
+		MessageLog.Cursor c = Cursor;
+
+		Waiters.add( me );
+
+		if (c != null)
+			c.BeginWait();
+
+		try
+		{
+			// The waiter is published before the size is checked and producers
+			// count before they look for a waiter, so a wakeup cannot be missed.
+			// In log mode the log's end is published before senders look for
+			// waiters.
+
+			while ( !HasMessages() )
+			{
+				long remaining = deadline - System.nanoTime();
+
+				if ( remaining <= 0 || me.isInterrupted() )
+					break;
+
+				LockSupport.parkNanos( this, remaining );
+
+			} // while
+
+		} finally {
+
+			Waiters.remove( me );
+
+			if (c != null)
+				c.EndWait();
+
+		} // try
+
+		return HasMessages();
+
+	} // AwaitMessages
+
+	/***************************************************************************
+	* CONCRETE METHOD:: ClearMessageQueue
+	* Purpose: This method will clears all the messages the message queue.
+	*
+	* Arguments: None
+	*
+	* Returns: None
+	*
+	* Exceptions: None
+	*
+	****************************************************************************/
+
+	public synchronized void ClearMessageQueue()
+	{
+		while (Pop() != null);
+
+		if (Cursor != null)
+			Cursor.Skip();
+
+		WakeSenders();
+
+	} // ClearMessageQueue
+
+	/***************************************************************************
+	* CONCRETE METHOD:: Drain
+	* Purpose: This method moves every message currently in the queue into a new
+	*		   queue with the same id and returns it. Messages added while the
+	*		   drain is in progress either go into the returned queue or stay in
+	*		   this one; none are lost.
+	*
+	*		   The messages are not copied: in each lane the tail is swapped for a
+	*		   fresh stub node in one atomic step and the chain of nodes before it
+	*		   becomes the same lane of the returned queue. The chain is then walked once, without writing
+	*		   to it, to count it and to wait for any producer that swapped the
+	*		   tail but has not yet linked its node. A queue with conflated ids
+	*		   is drained a message at a time instead, because a producer may
+	*		   still replace a message in a node it found in Latest.
+	*
+	* Arguments: None
+	*
+	* Returns: MessageQueue holding the drained messages
+	*
+	* Exceptions: None
+	*
+	****************************************************************************/
+
+	public synchronized MessageQueue Drain()
+	{
+		MessageQueue mq = new MessageQueue( QueueId, RegistrationTime );
+
+		int n = ( ConflatedIds.length == 0 && Latest.isEmpty() ) ? Splice( mq ) : Move( mq );
+
+		if (n > 0)
+			WakeSenders();
+
+		// Lanes are drained in priority order, so an older message may still
+		// be waiting in a lane a producer was adding to during the drain. The
+		// batch only acknowledges positions below the oldest one left behind.
+
+		if (mq.HighPosition > 0)
+		{
+			long low = GetHeadPosition();
+
+			if (low > 0 && low <= mq.HighPosition)
+				mq.HighPosition = low - 1;
+
+		} // if
+
+		MessageLog.Cursor c = Cursor;
+
+		if (c != null)
+		{
+			int read = 0;
+			Message m;
+
+			while ( (m = c.Next()) != null )
+			{
+				mq.Append( new Node( m ) );
+				read++;
+
+			} // while
+
+			Dropped.addAndGet( c.TakeSkipped() );
+			Enqueued.add( read );
+			n += read;
+
+		} // if
+
+		long now = System.nanoTime();
+
+		if (LastDrain != 0)
+			DrainInterval = now - LastDrain;
+
+		LastDrain = now;
+		Drained += n;
+
+		return mq;
+
+	} // Drain
+
+	private int Splice( MessageQueue mq )
+	{
+		int n = 0;
+
+		for ( int i = 0; i < Lanes.length; i++ )
+			n += Splice( Lanes[i], mq, mq.Lanes[i] );
+
+		ListSize.addAndGet( -n );
+		mq.ListSize.set( n );
+
+		return n;
+
+	} // Splice
+
+	private int Splice( Lane from, MessageQueue mq, Lane to )
+	{
+		if ( from.Head.Next == null && from.Tail.get() == from.Head )
+			return 0;
+
+		Node first = from.Head;
+		Node stub = new Node( null );
+		Node last = from.Tail.getAndSet( stub );
+
+		from.Head = stub;
+
+		int n = 0;
+		long high = 0;
+		Node node = first;
+
+		while ( node != last )
+		{
+			Node next;
+
+			while ( (next = node.Next) == null )
+				Thread.yield();
+
+			node = next;
+			n++;
+
+			if ( node.Msg != null && node.Msg.Position > high )
+				high = node.Msg.Position;
+
+		} // while
+
+		// Producers still count the messages they linked into the old chain
+		// against this queue, so the size can dip below zero for a moment; see
+		// GetSize.
+
+		from.Size.addAndGet( -n );
+
+		to.Head = first;
+		to.Tail.set( last );
+		to.Size.set( n );
+		to.MaxDepth = n;
+		mq.HighPosition = Math.max( mq.HighPosition, high );
+
+		return n;
+
+	} // Splice
+
+	private int Move( MessageQueue mq )
+	{
+		int n = 0;
+		int size = GetSize();
+		Message m;
+
+		while ( n < size && (m = Pop()) != null )
+		{
+			mq.HighPosition = Math.max( mq.HighPosition, m.Position );
+			mq.Append( new Node( m ) );
+			n++;
+
+		} // while
+
+		return n;
+
+	} // Move
+
+	/***************************************************************************
+	* CONCRETE METHOD:: Acknowledge
+	* Purpose: When the message manager journals messages, this method records
+	*		   that every message of a drained batch has been handed to the
+	*		   participant, so a restart will not deliver them again.
+	*
+	* Arguments: MessageQueue - a batch returned by Drain
+	*
+	* Returns: None
+	*
+	* Exceptions: None
+	*
+	****************************************************************************/
+
+	public synchronized void Acknowledge( MessageQueue Batch )
+	{
+		if ( Batch.HighPosition > Acknowledged )
+			Acknowledged = Batch.HighPosition;
+
+	} // Acknowledge
+
+	/***************************************************************************
+	* CONCRETE METHOD:: Hold
+	* Purpose: This method records a drained batch that is being returned to a
+	*		   poll. The batch is not acknowledged yet, as the reply may never
+	*		   reach the participant; AcknowledgeHeld acknowledges it when the
+	*		   participant polls again. Until then a restart delivers it again.
+	*
+	* Arguments: MessageQueue - a batch returned by Drain
+	*
+	* Returns: None
+	*
+	* Exceptions: None
+	*
+	****************************************************************************/
+
+	public synchronized void Hold( MessageQueue Batch )
+	{
+		Held = Batch.HighPosition;
+		HeldLow = Batch.GetHeadPosition();
+
+	} // Hold
+
+	/***************************************************************************
+	* CONCRETE METHOD:: AcknowledgeHeld
+	* Purpose: This method acknowledges the batch recorded by Hold, once the
+	*		   participant's next poll shows it received the batch.
+	*
+	* Arguments: None
+	*
+	* Returns: None
+	*
+	* Exceptions: None
+	*
+	****************************************************************************/
+
+	public synchronized void AcknowledgeHeld()
+	{
+		if ( Held > Acknowledged )
+			Acknowledged = Held;
+
+		Held = 0;
+		HeldLow = -1;
+
+	} // AcknowledgeHeld
+
+	/***************************************************************************
+	* CONCRETE METHOD:: Discard
+	* Purpose: This method is used by a standby message manager (see
+	*		   Replicator.java) to drop the messages its primary has delivered:
+	*		   the messages at the front of each lane up to a position,
+	*		   including messages restored without a position.
+	*
+	* Arguments: long - the position acknowledged by the primary
+	*
+	* Returns: int - the number of messages dropped
+	*
+	* Exceptions: None
+	*
+	****************************************************************************/
+
+	public synchronized int Discard( long Position )
+	{
+		int n = 0;
+
+		for ( Lane l : Lanes )
+		{
+			Node next;
+
+			while ( (next = l.Head.Next) != null && next.Msg != null && next.Msg.Position <= Position )
+			{
+				Pop( l );
+				n++;
+
+			} // while
+
+		} // for
+
+		if (n > 0)
+		{
+			Drained += n;
+			WakeSenders();
+
+		} // if
+
+		if ( Position > Acknowledged )
+			Acknowledged = Position;
+
+		return n;
+
+	} // Discard
+
+	/***************************************************************************
+	* CONCRETE METHOD:: GetAcknowledged
+	* Purpose: This method returns the journal position of the last message
+	*		   acknowledged (see Acknowledge), 0 if none.
+	*
+	* Arguments: None
+	*
+	* Returns: long
+	*
+	* Exceptions: None
+	*
+	****************************************************************************/
+
+	public long GetAcknowledged()
+	{
+		return Acknowledged;
+
+	} // GetAcknowledged
+
+	/***************************************************************************
+	* CONCRETE METHOD:: SetAcknowledged
+	* Purpose: This method sets the acknowledged journal position of a queue
+	*		   being restored.
+	*
+	* Arguments: long
+	*
+	* Returns: None
+	*
+	* Exceptions: None
+	*
+	****************************************************************************/
+
+	public void SetAcknowledged( long Position )
+	{
+		Acknowledged = Position;
+
+	} // SetAcknowledged
+
+	/***************************************************************************
+	* CONCRETE METHOD:: GetHeadPosition
+	* Purpose: This method returns the journal position of the oldest queued
+	*		   message, or of the oldest message returned to a poll and not yet
+	*		   acknowledged (see Hold) if that is older. Requeued messages go to
+	*		   the back of the queue, so the whole queue is searched for the
+	*		   lowest position.
+	*
+	* Arguments: None
+	*
+	* Returns: long - the lowest position, or -1 if no journaled message is queued
+	*
+	* Exceptions: None
+	*
+	****************************************************************************/
+
+	public synchronized long GetHeadPosition()
+	{
+		long low = HeldLow;
+
+		for ( Lane l : Lanes )
+		{
+			Node n = l.Head.Next;
+			int count = l.Size.get();
+
+			for ( int i = 0; i < count && n != null; i++ )
+			{
+				if ( n.Msg != null && n.Msg.Position > 0 && (low < 0 || n.Msg.Position < low) )
+					low = n.Msg.Position;
+
+				n = n.Next;
+
+			} // for
+
+		} // for
+
+		return low;
+
+	} // GetHeadPosition
+
+	/***************************************************************************
+	* CONCRETE METHOD:: GetStats
+	* Purpose: This method returns a snapshot of the queue's counters. The poll
+	*		   interval is measured between calls to Drain. The depths of the
+	*		   lanes are read one after another, so under load they may not add
+	*		   up to the total depth exactly.
+	*
+	* Arguments: None
+	*
+	* Returns: ParticipantStats
+	*
+	* Exceptions: None
+	*
+	****************************************************************************/
+
+	public ParticipantStats GetStats()
+	{
+		long last = LastDrain;
+		long interval = DrainInterval;
+		int depth[] = new int[Lanes.length];
+		int max[] = new int[Lanes.length];
+
+		for ( int i = 0; i < Lanes.length; i++ )
+		{
+			depth[i] = Math.max( 0, Lanes[i].Size.get() );
+			max[i] = Lanes[i].MaxDepth;
+
+		} // for
+
+		return new ParticipantStats( QueueId, Enqueued.sum(), Drained, GetSize(), MaxDepth, Dropped.get(),
+			(interval < 0) ? -1 : interval / 1000000L,
+			(last == 0) ? -1 : (System.nanoTime() - last) / 1000000L, depth, max );
+
+	} // GetStats
+
+	/***************************************************************************
+	* CONCRETE METHOD:: GetCopy
+	* Purpose: This method is used to obtain a copy of the message queue. This
+	*		   method returns a second copy (separate memory) of the queue, not
+	*		   a pointer to the queue.
+	*
+	* Arguments: None
+	*
+	* Returns: MessageQueue. This method returns a second copy (separate memory)
+	*		   of the queue, not a pointer to the queue.
+	*
+	* Exceptions: None
+	*
+	****************************************************************************/
+
+	public synchronized MessageQueue GetCopy()
+	{
+		MessageQueue mq = new MessageQueue( QueueId, RegistrationTime );
+
+		for ( Lane l : Lanes )
+		{
+			Node n = l.Head.Next;
+			int count = l.Size.get();
+
+			for ( int i = 0; i < count && n != null; i++ )
+			{
+				mq.Append( new Node( n.Msg ) );
+				n = n.Next;
+
+			} // for
+
+		} // for
+
+		if (Cursor != null)
+		{
+			for ( Message m : Cursor.Peek() )
+				mq.Append( new Node( m ) );
+
+		} // if
+
+		return mq ;
+
+	} // GetCopy
+
+	/***************************************************************************
+	* Serialization: the linked nodes are transient. The queue is written as
+	* its id, a count, and the messages in delivery order as one flat block in
+	* the encoding of MessageCodec.java, with no per message object overhead.
+	* Each message carries its priority, so reading puts it back in its lane.
+	****************************************************************************/
+
+	private synchronized void writeObject( ObjectOutputStream out ) throws IOException
+	{
+		out.defaultWriteObject();
+
+		int counts[] = new int[Lanes.length];
+		int count = 0;
+
+		for ( int i = 0; i < Lanes.length; i++ )
+		{
+			int size = Lanes[i].Size.get();
+
+			for ( Node n = Lanes[i].Head.Next; n != null && counts[i] < size; n = n.Next )
+				counts[i]++;
+
+			count += counts[i];
+
+		} // for
+
+		MessageCodec.WriteVarLong( out, count );
+
+		for ( int i = 0; i < Lanes.length; i++ )
+		{
+			Node n = Lanes[i].Head.Next;
+
+			for ( int j = 0; j < counts[i]; j++ )
+			{
+				n.Msg.writeExternal( out );
+				n = n.Next;
+
+			} // for
+
+		} // for
+
+	} // writeObject
+
+	private void readObject( ObjectInputStream in ) throws IOException, ClassNotFoundException
+	{
+		in.defaultReadObject();
+		Init();
+
+		long count = MessageCodec.ReadVarLong( in );
+
+		for ( long i = 0; i < count; i++ )
+		{
+			Message m = new Message();
+
+			m.readExternal( in );
+			Append( new Node( m ) );
+
+		} // for
+
+	} // readObject
+
+	/***************************************************************************
+	* INNER CLASS:: Node
+	* Purpose: One link in the queue.
+	*
+	****************************************************************************/
+
+	private static final class Node
+	{
+		volatile Node Next;
+		volatile Message Msg;						// Null once the consumer has taken it
+		final Key Key;								// Set if the message is conflated
+
+		Node( Message m )
+		{
+			this( m, null );
+		}
+
+		Node( Message m, Key k )
+		{
+			Msg = m;
+			Key = k;
+		}
+
+	} // Node
+
+	/***************************************************************************
+	* INNER CLASS:: Lane
+	* Purpose: The linked queue of one priority's messages.
+	*
+	****************************************************************************/
+
+	private static final class Lane
+	{
+		Node Head;									// Consumer owned stub node, messages start at Head.Next
+		final AtomicReference<Node> Tail;			// The most recently appended node
+		final AtomicInteger Size = new AtomicInteger();	// Messages in this lane
+		volatile int MaxDepth;						// Largest size this lane has reached
+
+		Lane()
+		{
+			Head = new Node( null );
+			Tail = new AtomicReference<Node>( Head );
+		}
+
+	} // Lane
+
+	private static final AtomicReferenceFieldUpdater<Node, Message> MSG =
+		AtomicReferenceFieldUpdater.newUpdater( Node.class, Message.class, "Msg" );
+
+	/***************************************************************************
+	* INNER CLASS:: Key
+	* Purpose: A conflated message's id and sender.
+	*
+	****************************************************************************/
+
+	private static final class Key
+	{
+		final int MsgId;
+		final long Sender;
+
+		Key( int MsgId, long Sender )
+		{
+			this.MsgId = MsgId;
+			this.Sender = Sender;
+		}
+
+		public boolean equals( Object o )
+		{
+			return (o instanceof Key) && ((Key) o).MsgId == MsgId && ((Key) o).Sender == Sender;
+		}
+
+		public int hashCode()
+		{
+			return MsgId * 31 + Long.hashCode( Sender );
+		}
+
+	} // Key
+
+} // MessageQueue class
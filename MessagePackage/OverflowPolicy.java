@@ -0,0 +1,34 @@
+/******************************************************************************************************************
+* File:OverflowPolicy.java
+* Course: 17655
+* Project: Assignment A2
+* Copyright: Copyright (c) 2009 Carnegie Mellon University
+* Versions:
+*	1.0 October 2026 - Initial version.
+*
+* Description: This enumeration lists what a bounded message queue does with a new message when it is full.
+*
+*				DROP_OLDEST - The oldest queued message is discarded to make room.
+*				DROP_NEWEST - The new message is discarded.
+*				BLOCK - The sender waits for the consumer to make room, up to a timeout, then the new message is
+*						discarded.
+*				CONFLATE - The new message replaces the oldest queued message with the same message id. If there is
+*						   none, the oldest queued message is discarded.
+*
+*			   Every discarded or replaced message is counted against the queue (see MessageQueue.GetDroppedCount).
+*
+* Parameters: None
+*
+* Internal Methods: None
+*
+******************************************************************************************************************/
+package MessagePackage;
+
+public enum OverflowPolicy
+{
+	DROP_OLDEST,
+	DROP_NEWEST,
+	BLOCK,
+	CONFLATE
+
+} // OverflowPolicy
@@ -0,0 +1,79 @@
+/******************************************************************************************************************
+* File:ParticipantStats.java
+* Course: 17655
+* Project: Assignment A2
+* Copyright: Copyright (c) 2009 Carnegie Mellon University
+* Versions:
+*	1.0 October 2026 - Initial version.
+*
+* Description: This class is a snapshot of one participant's message queue counters, taken by
+*			   MessageQueue.GetStats. It is sent to participants as part of BrokerStats.
+*
+* Parameters:
+*			   Id - the participant's id
+*			   Enqueued - messages added to the queue
+*			   Drained - messages taken off the queue for the participant
+*			   Depth, MaxDepth - current and largest number of queued messages
+*			   LaneDepth, LaneMaxDepth - the same for each priority lane, indexed by priority (see Message.java)
+*			   Dropped - messages discarded or conflated because the queue was full
+*			   PollInterval - milliseconds between the participant's last two drains, -1 if fewer than two
+*			   SinceLastPoll - milliseconds since the participant last drained its queue, -1 if never
+*
+* Internal Methods: None
+*
+******************************************************************************************************************/
+package MessagePackage;
+
+import java.io.Serializable;
+
+public class ParticipantStats implements Serializable
+{
+	final long Id;
+	final long Enqueued;
+	final long Drained;
+	final int Depth;
+	final int MaxDepth;
+	final long Dropped;
+	final long PollInterval;
+	final long SinceLastPoll;
+	final int LaneDepth[];
+	final int LaneMaxDepth[];
+
+	ParticipantStats( long Id, long Enqueued, long Drained, int Depth, int MaxDepth, long Dropped, long PollInterval, long SinceLastPoll,
+		int LaneDepth[], int LaneMaxDepth[] )
+	{
+		this.Id = Id;
+		this.Enqueued = Enqueued;
+		this.Drained = Drained;
+		this.Depth = Depth;
+		this.MaxDepth = MaxDepth;
+		this.Dropped = Dropped;
+		this.PollInterval = PollInterval;
+		this.SinceLastPoll = SinceLastPoll;
+		this.LaneDepth = LaneDepth;
+		this.LaneMaxDepth = LaneMaxDepth;
+
+	} // constructor
+
+	public long GetId() { return Id; }
+	public long GetEnqueued() { return Enqueued; }
+	public long GetDrained() { return Drained; }
+	public int GetDepth() { return Depth; }
+	public int GetMaxDepth() { return MaxDepth; }
+	public long GetDropped() { return Dropped; }
+	public long GetPollInterval() { return PollInterval; }
+	public long GetSinceLastPoll() { return SinceLastPoll; }
+	public int GetLaneDepth( int Priority ) { return LaneDepth[Priority]; }
+	public int GetLaneMaxDepth( int Priority ) { return LaneMaxDepth[Priority]; }
+
+	public String toString()
+	{
+		return "ID: " + Id + " enqueued " + Enqueued + " drained " + Drained + " depth " + Depth + " (max " + MaxDepth
+			+ ") control " + LaneDepth[Message.CONTROL] + " (max " + LaneMaxDepth[Message.CONTROL]
+			+ ") normal " + LaneDepth[Message.NORMAL] + " (max " + LaneMaxDepth[Message.NORMAL]
+			+ ") telemetry " + LaneDepth[Message.TELEMETRY] + " (max " + LaneMaxDepth[Message.TELEMETRY]
+			+ ") dropped " + Dropped + " poll interval " + PollInterval + " ms, last poll " + SinceLastPoll + " ms ago";
+
+	} // toString
+
+} // ParticipantStats
@@ -0,0 +1,485 @@
+/******************************************************************************************************************
+* File:ParticipantTable.java
+* Course: 17655
+* Project: Assignment A2
+* Copyright: Copyright (c) 2009 Carnegie Mellon University
+* Versions:
+*	1.0 October 2026 - Initial version.
+*
+* Description: This class is a concurrent table that maps long keys (participant ids) to objects. Keys are stored in
+*			   primitive long arrays so lookups never box the key. The table is split into segments, each an open
+*			   addressing hash table guarded by its own lock. Readers use an optimistic read and only fall back to
+*			   the segment lock if a writer raced with them, so lookups by id are O(1) and do not contend with each
+*			   other or with writers working on other segments.
+*
+* Parameters:
+*			   Segments - This is the array of independently locked segments.
+*
+* Internal Methods:
+*			   Mix - Spreads the bits of a key so that time based and sequential ids hash evenly.
+*
+******************************************************************************************************************/
+package MessagePackage;
+
+import java.util.*;
+import java.util.concurrent.locks.StampedLock;
+
+public class ParticipantTable<V>
+{
+	private static final int SEGMENT_COUNT = 16;		// Must be a power of two
+	private static final int INITIAL_CAPACITY = 16;		// Initial slots per segment, must be a power of two
+
+	private final Segment<V>[] Segments;				// The independently locked segments of the table
+
+	/***************************************************************************
+	* INTERFACE:: Visitor
+	* Purpose: This interface is implemented by callers of ForEach. Visit is
+	*		   called once for each entry in the table.
+	*
+	****************************************************************************/
+
+	public interface Visitor<V>
+	{
+		void Visit( long key, V value );
+
+	} // Visitor
+
+	@SuppressWarnings("unchecked")
+
+	public ParticipantTable()
+	{
+		Segments = (Segment<V>[]) new Segment<?>[SEGMENT_COUNT];
+
+		for ( int i = 0; i < SEGMENT_COUNT; i++ )
+		{
+			Segments[i] = new Segment<V>();
+
+		} // for
+
+	} // constructor
+
+	/***************************************************************************
+	* CONCRETE METHOD:: Get
+	* Purpose: This method returns the value stored for key.
+	*
+	* Arguments: long - the key
+	*
+	* Returns: the value, or null if the key is not in the table
+	*
+	* Exceptions: None
+	*
+	****************************************************************************/
+
+	public V Get( long key )
+	{
+		long h = Mix(key);
+
+		return Segments[(int) (h >>> 60)].Get( key, (int) h );
+
+	} // Get
+
+	/***************************************************************************
+	* CONCRETE METHOD:: Put
+	* Purpose: This method stores value under key, replacing any previous value.
+	*
+	* Arguments: long - the key, value - the value (must not be null)
+	*
+	* Returns: the previous value, or null if there was none
+	*
+	* Exceptions: NullPointerException if value is null
+	*
+	****************************************************************************/
+
+	public V Put( long key, V value )
+	{
+		if ( value == null )
+			throw new NullPointerException();
+
+		long h = Mix(key);
+
+		return Segments[(int) (h >>> 60)].Put( key, (int) h, value, false );
+
+	} // Put
+
+	/***************************************************************************
+	* CONCRETE METHOD:: PutIfAbsent
+	* Purpose: This method stores value under key only if the key is not
+	*		   already in the table.
+	*
+	* Arguments: long - the key, value - the value (must not be null)
+	*
+	* Returns: the existing value, or null if value was stored
+	*
+	* Exceptions: NullPointerException if value is null
+	*
+	****************************************************************************/
+
+	public V PutIfAbsent( long key, V value )
+	{
+		if ( value == null )
+			throw new NullPointerException();
+
+		long h = Mix(key);
+
+		return Segments[(int) (h >>> 60)].Put( key, (int) h, value, true );
+
+	} // PutIfAbsent
+
+	/***************************************************************************
+	* CONCRETE METHOD:: Remove
+	* Purpose: This method removes key from the table.
+	*
+	* Arguments: long - the key
+	*
+	* Returns: the value that was removed, or null if the key was not found
+	*
+	* Exceptions: None
+	*
+	****************************************************************************/
+
+	public V Remove( long key )
+	{
+		long h = Mix(key);
+
+		return Segments[(int) (h >>> 60)].Remove( key, (int) h );
+
+	} // Remove
+
+	/***************************************************************************
+	* CONCRETE METHOD:: Size
+	* Purpose: This method returns the number of entries in the table. The
+	*		   count is summed across segments and is not a consistent snapshot
+	*		   while other threads are writing.
+	*
+	* Arguments: None
+	*
+	* Returns: int
+	*
+	* Exceptions: None
+	*
+	****************************************************************************/
+
+	public int Size()
+	{
+		int n = 0;
+
+		for ( int i = 0; i < Segments.length; i++ )
+		{
+			n += Segments[i].Count;
+
+		} // for
+
+		return n;
+
+	} // Size
+
+	/***************************************************************************
+	* CONCRETE METHOD:: ForEach
+	* Purpose: This method calls the visitor for every entry in the table. Each
+	*		   segment is copied under its read lock and visited outside of it,
+	*		   so the visitor may safely modify the table.
+	*
+	* Arguments: Visitor
+	*
+	* Returns: None
+	*
+	* Exceptions: None
+	*
+	****************************************************************************/
+
+	public void ForEach( Visitor<V> v )
+	{
+		for ( int i = 0; i < Segments.length; i++ )
+		{
+			Segments[i].ForEach( v );
+
+		} // for
+
+	} // ForEach
+
+	/***************************************************************************
+	* CONCRETE METHOD:: Values
+	* Purpose: This method returns a snapshot list of the values in the table.
+	*
+	* Arguments: None
+	*
+	* Returns: ArrayList of values
+	*
+	* Exceptions: None
+	*
+	****************************************************************************/
+
+	public ArrayList<V> Values()
+	{
+		final ArrayList<V> list = new ArrayList<V>( Size() );
+
+		ForEach( new Visitor<V>()
+		{
+			public void Visit( long key, V value )
+			{
+				list.add( value );
+			}
+		});
+
+		return list;
+
+	} // Values
+
+	static long Mix( long key )
+	{
+		// This is the finalizer from MurmurHash3. The top four bits select the
+		// segment and the low bits select the slot within the segment.
+
+		key ^= key >>> 33;
+		key *= 0xff51afd7ed558ccdL;
+		key ^= key >>> 33;
+		key *= 0xc4ceb9fe1a85ec53L;
+		key ^= key >>> 33;
+
+		return key;
+
+	} // Mix
+
+	/***************************************************************************
+	* INNER CLASS:: Segment
+	* Purpose: One open addressing (linear probing) table. Writers hold the
+	*		   write lock. Empty slots are marked by a null value; removals shift
+	*		   later entries back so that no tombstones are needed.
+	*
+	****************************************************************************/
+
+	private static final class Segment<V>
+	{
+		final StampedLock Lock = new StampedLock();
+		long[] Keys = new long[INITIAL_CAPACITY];
+		Object[] Values = new Object[INITIAL_CAPACITY];
+		volatile int Count = 0;
+
+		@SuppressWarnings("unchecked")
+
+		V Get( long key, int hash )
+		{
+			long stamp = Lock.tryOptimisticRead();
+
+			if ( stamp != 0 )
+			{
+				long[] keys = Keys;
+				Object[] values = Values;
+
+				if ( keys.length == values.length )
+				{
+					Object v = Find( keys, values, key, hash );
+
+					if ( Lock.validate(stamp) )
+						return (V) v;
+
+				} // if
+
+			} // if
+
+			stamp = Lock.readLock();
+
+			try
+			{
+				return (V) Find( Keys, Values, key, hash );
+
+			} finally {
+
+				Lock.unlockRead(stamp);
+
+			} // try
+
+		} // Get
+
+		static Object Find( long[] keys, Object[] values, long key, int hash )
+		{
+			// The arrays are passed in so that an optimistic reader always works
+			// on a matching pair even if a resize swaps them underneath it.
+
+			int mask = values.length - 1;
+			int i = hash & mask;
+
+			for ( int probes = 0; probes <= mask; probes++ )
+			{
+				Object v = values[i];
+
+				if ( v == null )
+					return null;
+
+				if ( keys[i] == key )
+					return v;
+
+				i = (i + 1) & mask;
+
+			} // for
+
+			return null;
+
+		} // Find
+
+		@SuppressWarnings("unchecked")
+
+		V Put( long key, int hash, V value, boolean onlyIfAbsent )
+		{
+			long stamp = Lock.writeLock();
+
+			try
+			{
+				if ( (Count + 1) * 4 > Values.length * 3 )
+					Resize();
+
+				int mask = Values.length - 1;
+				int i = hash & mask;
+
+				while ( Values[i] != null )
+				{
+					if ( Keys[i] == key )
+					{
+						V old = (V) Values[i];
+
+						if ( !onlyIfAbsent )
+							Values[i] = value;
+
+						return old;
+
+					} // if
+
+					i = (i + 1) & mask;
+
+				} // while
+
+				Keys[i] = key;
+				Values[i] = value;
+				Count++;
+
+				return null;
+
+			} finally {
+
+				Lock.unlockWrite(stamp);
+
+			} // try
+
+		} // Put
+
+		@SuppressWarnings("unchecked")
+
+		V Remove( long key, int hash )
+		{
+			long stamp = Lock.writeLock();
+
+			try
+			{
+				int mask = Values.length - 1;
+				int i = hash & mask;
+
+				while ( Values[i] != null )
+				{
+					if ( Keys[i] == key )
+					{
+						V old = (V) Values[i];
+
+						// Backward shift deletion: move later entries of the probe
+						// run into the hole if their home slot allows it.
+
+						int hole = i;
+						int j = (i + 1) & mask;
+
+						while ( Values[j] != null )
+						{
+							int home = (int) Mix( Keys[j] ) & mask;
+
+							if ( ((j - home) & mask) >= ((j - hole) & mask) )
+							{
+								Keys[hole] = Keys[j];
+								Values[hole] = Values[j];
+								hole = j;
+
+							} // if
+
+							j = (j + 1) & mask;
+
+						} // while
+
+						Values[hole] = null;
+						Keys[hole] = 0;
+						Count--;
+
+						return old;
+
+					} // if
+
+					i = (i + 1) & mask;
+
+				} // while
+
+				return null;
+
+			} finally {
+
+				Lock.unlockWrite(stamp);
+
+			} // try
+
+		} // Remove
+
+		void Resize()
+		{
+			long[] oldKeys = Keys;
+			Object[] oldValues = Values;
+			long[] newKeys = new long[oldValues.length * 2];
+			Object[] newValues = new Object[oldValues.length * 2];
+			int mask = newValues.length - 1;
+
+			for ( int i = 0; i < oldValues.length; i++ )
+			{
+				if ( oldValues[i] != null )
+				{
+					int j = (int) Mix( oldKeys[i] ) & mask;
+
+					while ( newValues[j] != null )
+						j = (j + 1) & mask;
+
+					newKeys[j] = oldKeys[i];
+					newValues[j] = oldValues[i];
+
+				} // if
+
+			} // for
+
+			Keys = newKeys;
+			Values = newValues;
+
+		} // Resize
+
+		@SuppressWarnings("unchecked")
+
+		void ForEach( Visitor<V> v )
+		{
+			long[] keys;
+			Object[] values;
+			long stamp = Lock.readLock();
+
+			try
+			{
+				keys = Keys.clone();
+				values = Values.clone();
+
+			} finally {
+
+				Lock.unlockRead(stamp);
+
+			} // try
+
+			for ( int i = 0; i < values.length; i++ )
+			{
+				if ( values[i] != null )
+					v.Visit( keys[i], (V) values[i] );
+
+			} // for
+
+		} // ForEach
+
+	} // Segment
+
+} // ParticipantTable
@@ -0,0 +1,40 @@
+/******************************************************************************************************************
+* File:RMIMessageListenerInterface.java
+* Course: 17655
+* Project: Assignment A2
+* Copyright: Copyright (c) 2009 Carnegie Mellon University
+* Versions:
+*	1.0 October 2026 - Initial version.
+*
+* Description: This is the remote interface a participant exports so that the message manager can push messages to
+* 			   it as they are routed, instead of the participant polling for them.
+*
+* Parameters: None
+*
+* Internal Methods: None
+*
+******************************************************************************************************************/
+package MessagePackage;
+
+import java.rmi.*;
+
+public interface RMIMessageListenerInterface extends Remote
+{
+
+	/***************************************************************************
+	* INTERFACE:: DeliverMessages
+	* Purpose: This interface is called by the MessageManager with the messages
+	*		   that have been routed to the participant since the last delivery,
+	*		   oldest first. Calls for one participant are never concurrent.
+	*
+	* Arguments: MessageQueue object (see the class: MessageQueue.java)
+	*
+	* Returns: None
+	*
+	* Exceptions: RemoteException
+	*
+	****************************************************************************/
+
+	public void DeliverMessages(MessageQueue mq) throws java.rmi.RemoteException;
+
+} // class
@@ -17,6 +17,7 @@
 package MessagePackage;
 
 import java.rmi.*;
+import java.util.List;
 
 public interface RMIMessageManagerInterface extends Remote
 {
@@ -66,6 +67,21 @@ public interface RMIMessageManagerInterface extends Remote
 
 	public void SendMessage(Message m ) throws java.rmi.RemoteException;
 
+	/***************************************************************************
+	* INTERFACE:: SendMessages
+	* Purpose: This interface is used by participant to send several messages
+	* 		   to the MessageManager in one call. Messages are posted in order.
+	*
+	* Arguments: List of Message objects (see the class: Message.java)
+	*
+	* Returns: None
+	*
+	* Exceptions: RemoteException
+	*
+	****************************************************************************/
+
+	public void SendMessages(List<Message> ms ) throws java.rmi.RemoteException;
+
 	/***************************************************************************
 	* INTERFACE:: GetMessage
 	* Purpose: This interface is used to allow the participant access the message
@@ -81,4 +97,253 @@ public interface RMIMessageManagerInterface extends Remote
 
 	public MessageQueue GetMessageQueue(long SenderID) throws java.rmi.RemoteException;
 
+	/***************************************************************************
+	* INTERFACE:: GetMessageQueue
+	* Purpose: This interface is used to allow the participant access the message
+	*		   queue on the MessageManager, waiting up to TimeoutMillis for a
+	*		   message if the queue is empty (a long poll).
+	*
+	* Arguments: long integer registration number, long timeout in milliseconds
+	*
+	* Returns: MessageQueue object (see the class: MessageQueue.java)
+	*
+	* Exceptions: RemoteException
+	*
+	****************************************************************************/
+
+	public MessageQueue GetMessageQueue(long SenderID, long TimeoutMillis) throws java.rmi.RemoteException;
+
+	/***************************************************************************
+	* INTERFACE:: Subscribe
+	* Purpose: This interface is used by a participant to receive only messages
+	*		   with the given message ids. Until a participant subscribes it
+	*		   receives every message.
+	*
+	* Arguments: long integer registration number, int[] message ids
+	*
+	* Returns: None
+	*
+	* Exceptions: RemoteException
+	*
+	****************************************************************************/
+
+	public void Subscribe(long SenderID, int MsgIds[]) throws java.rmi.RemoteException;
+
+	/***************************************************************************
+	* INTERFACE:: SubscribeRange
+	* Purpose: This interface is used by a participant to receive only messages
+	*		   with message ids in the inclusive range LowMsgId..HighMsgId.
+	*
+	* Arguments: long integer registration number, int low id, int high id
+	*
+	* Returns: None
+	*
+	* Exceptions: RemoteException
+	*
+	****************************************************************************/
+
+	public void SubscribeRange(long SenderID, int LowMsgId, int HighMsgId) throws java.rmi.RemoteException;
+
+	/***************************************************************************
+	* INTERFACE:: UnSubscribe
+	* Purpose: This interface is used by a participant to drop its subscriptions
+	*		   and receive every message again.
+	*
+	* Arguments: long integer registration number
+	*
+	* Returns: None
+	*
+	* Exceptions: RemoteException
+	*
+	****************************************************************************/
+
+	public void UnSubscribe(long SenderID) throws java.rmi.RemoteException;
+
+	/***************************************************************************
+	* INTERFACE:: AddListener
+	* Purpose: This interface is used by a participant to have its messages
+	*		   pushed to an exported listener instead of polling for them.
+	*
+	* Arguments: long integer registration number, the participant's listener
+	*
+	* Returns: None
+	*
+	* Exceptions: RemoteException
+	*
+	****************************************************************************/
+
+	public void AddListener(long SenderID, RMIMessageListenerInterface Listener) throws java.rmi.RemoteException;
+
+	/***************************************************************************
+	* INTERFACE:: RemoveListener
+	* Purpose: This interface is used by a participant to stop push delivery.
+	*
+	* Arguments: long integer registration number
+	*
+	* Returns: None
+	*
+	* Exceptions: RemoteException
+	*
+	****************************************************************************/
+
+	public void RemoveListener(long SenderID) throws java.rmi.RemoteException;
+
+	/***************************************************************************
+	* INTERFACE:: HasListener
+	* Purpose: This interface is used by a participant to check that its
+	*		   messages are still pushed. A listener that fails too many
+	*		   deliveries in a row is dropped and its messages are left for the
+	*		   participant to poll.
+	*
+	* Arguments: long integer registration number
+	*
+	* Returns: boolean - true if a working listener is set
+	*
+	* Exceptions: RemoteException
+	*
+	****************************************************************************/
+
+	public boolean HasListener(long SenderID) throws java.rmi.RemoteException;
+
+	/***************************************************************************
+	* INTERFACE:: SetQueueLimit
+	* Purpose: This interface is used by a participant to bound its message
+	*		   queue and choose what happens to messages when it is full.
+	*
+	* Arguments: long integer registration number, int capacity (0 for no
+	*			 limit), OverflowPolicy, long time a blocked sender waits for
+	*			 room in milliseconds
+	*
+	* Returns: None
+	*
+	* Exceptions: RemoteException
+	*
+	****************************************************************************/
+
+	public void SetQueueLimit(long SenderID, int Capacity, OverflowPolicy Policy, long BlockMillis) throws java.rmi.RemoteException;
+
+	/***************************************************************************
+	* INTERFACE:: GetDroppedCount
+	* Purpose: This interface returns how many messages a participant's queue
+	*		   has discarded or conflated because it was full.
+	*
+	* Arguments: long integer registration number
+	*
+	* Returns: long count, or -1 if the participant is not registered
+	*
+	* Exceptions: RemoteException
+	*
+	****************************************************************************/
+
+	public long GetDroppedCount(long SenderID) throws java.rmi.RemoteException;
+
+	/***************************************************************************
+	* INTERFACE:: GetLastValue
+	* Purpose: This interface returns the latest message posted with a message
+	*		   id, so that a participant that has just started knows the current
+	*		   state without waiting for the next message.
+	*
+	* Arguments: integer message id
+	*
+	* Returns: Message, or null if no message with that id has been posted
+	*
+	* Exceptions: RemoteException
+	*
+	****************************************************************************/
+
+	public Message GetLastValue(int MsgId) throws java.rmi.RemoteException;
+
+	/***************************************************************************
+	* INTERFACE:: GetRetained
+	* Purpose: This interface returns the latest message posted with each of
+	*		   several message ids.
+	*
+	* Arguments: integer array of message ids
+	*
+	* Returns: List of Message in the order of the ids, leaving out ids with
+	*		   no message
+	*
+	* Exceptions: RemoteException
+	*
+	****************************************************************************/
+
+	public List<Message> GetRetained(int MsgIds[]) throws java.rmi.RemoteException;
+
+	/***************************************************************************
+	* INTERFACE:: RenewLease
+	* Purpose: This interface is used by a participant to keep its registration
+	*		   alive. A registration that is not renewed within the lease
+	*		   duration is removed by the MessageManager.
+	*
+	* Arguments: long integer registration number
+	*
+	* Returns: boolean - false if the registration no longer exists
+	*
+	* Exceptions: RemoteException
+	*
+	****************************************************************************/
+
+	public boolean RenewLease(long SenderID) throws java.rmi.RemoteException;
+
+	/***************************************************************************
+	* INTERFACE:: Reattach
+	* Purpose: This interface is used by a participant after the MessageManager
+	*		   has restarted, to keep its registration number. If the
+	*		   registration was not restored from a snapshot it is made again.
+	*
+	* Arguments: long integer registration number
+	*
+	* Returns: boolean - true if the registration was restored
+	*
+	* Exceptions: RemoteException
+	*
+	****************************************************************************/
+
+	public boolean Reattach(long SenderID) throws java.rmi.RemoteException;
+
+	/***************************************************************************
+	* INTERFACE:: GetLeaseDuration
+	* Purpose: This interface returns how long a registration lives without
+	*		   being renewed.
+	*
+	* Arguments: None
+	*
+	* Returns: long milliseconds, 0 if registrations never expire
+	*
+	* Exceptions: RemoteException
+	*
+	****************************************************************************/
+
+	public long GetLeaseDuration() throws java.rmi.RemoteException;
+
+	/***************************************************************************
+	* INTERFACE:: GetStats
+	* Purpose: This interface returns a snapshot of the MessageManager's
+	*		   metrics: request count, per participant queue counters and send
+	*		   and drain latency histograms.
+	*
+	* Arguments: None
+	*
+	* Returns: BrokerStats object (see the class: BrokerStats.java)
+	*
+	* Exceptions: RemoteException
+	*
+	****************************************************************************/
+
+	public BrokerStats GetStats() throws java.rmi.RemoteException;
+
+	/***************************************************************************
+	* INTERFACE:: isAlive
+	* Purpose: This interface is used to check that the MessageManager is up.
+	*
+	* Arguments: None
+	*
+	* Returns: true
+	*
+	* Exceptions: RemoteException
+	*
+	****************************************************************************/
+
+	public boolean isAlive() throws java.rmi.RemoteException;
+
 } // class
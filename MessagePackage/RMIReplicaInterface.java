@@ -0,0 +1,58 @@
+/******************************************************************************************************************
+* File:RMIReplicaInterface.java
+* Course: 17655
+* Project: Assignment A2
+* Copyright: Copyright (c) 2009 Carnegie Mellon University
+* Versions:
+*	1.0 October 2026 - Initial version.
+*
+* Description: This is the remote interface a primary message manager offers to its standby, which copies the
+* 			   primary's state through it (see Replicator.java).
+*
+* Parameters: None
+*
+* Internal Methods: None
+*
+******************************************************************************************************************/
+package MessagePackage;
+
+import java.rmi.*;
+
+public interface RMIReplicaInterface extends Remote
+{
+
+	/***************************************************************************
+	* INTERFACE:: Sync
+	* Purpose: This interface attaches the standby and returns the primary's
+	*		   whole state: registered participants, their subscriptions,
+	*		   queue limits and queued messages, and the retained messages.
+	*
+	* Arguments: None
+	*
+	* Returns: byte[] - the stream position to pull from, then the state as
+	*		   replication records (see Replicator.Batch.ToArray)
+	*
+	* Exceptions: RemoteException, also if replication is not enabled
+	*
+	****************************************************************************/
+
+	public byte[] Sync() throws java.rmi.RemoteException;
+
+	/***************************************************************************
+	* INTERFACE:: Pull
+	* Purpose: This interface returns the replication records after a stream
+	*		   position, waiting up to a timeout for some to arrive.
+	*
+	* Arguments: long - stream position, long - the longest wait in
+	*			 milliseconds
+	*
+	* Returns: byte[] - the records, empty if none arrived in time, or null if
+	*		   the standby must call Sync again
+	*
+	* Exceptions: RemoteException
+	*
+	****************************************************************************/
+
+	public byte[] Pull(long From, long TimeoutMillis) throws java.rmi.RemoteException;
+
+} // class
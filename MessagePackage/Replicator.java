@@ -0,0 +1,696 @@
+/******************************************************************************************************************
+* File:Replicator.java
+* Course: 17655
+* Project: Assignment A2
+* Copyright: Copyright (c) 2009 Carnegie Mellon University
+* Versions:
+*	1.0 October 2026 - Initial version.
+*
+* Description: This class is the primary message manager's side of replication to a standby message manager. Every
+*			   change to the message manager's state is appended to an in-memory stream of records, and the standby
+*			   pulls the stream with Pull and applies it with Apply. A position in the stream is a byte offset, and
+*			   the position a standby pulls from tells the primary that everything before it has been applied, so
+*			   the bytes before it are dropped.
+*
+*			   A standby first calls the message manager's Sync, which attaches it (Attach) and returns the whole
+*			   state of the message manager as records in the same format. Until a standby is attached nothing is
+*			   buffered. A standby that falls more than MaxBuffer bytes behind, or does not confirm a record within
+*			   Timeout when a sender is waiting for it (Await), is detached; its next Pull returns null and it syncs
+*			   again. The replicator does no logging itself, since it is called under the message manager's locks;
+*			   the message manager reports a detach from TakeDetachReason.
+*
+*			   Queued messages are identified by position, as with the journal (see Journal.java): a primary without
+*			   a journal numbers its messages itself (OwnPositions). A participant's acknowledgement tells the
+*			   standby to drop the messages the primary has delivered (see MessageQueue.Discard).
+*
+*			   A record is laid out as [int length][byte type][fields]. Records:
+*				REGISTER id time - a participant registered
+*				UNREGISTER id - a participant unregistered or was reaped
+*				SUBSCRIBE id ids - a participant subscribed to message ids
+*				SUBSCRIBE_RANGE id low high - a participant subscribed to a range of message ids
+*				UNSUBSCRIBE id - a participant dropped its subscriptions
+*				MESSAGE position sender id payload recipients - a message and the ids of the queues it was
+*					routed to; the payload is encoded as in a TCP frame (see Frames.java)
+*				ACKNOWLEDGE id position - a participant has been handed its messages up to a position
+*				QUEUE_LIMIT id capacity policy wait - a participant changed its queue limit
+*				RETAIN position sender id payload - the latest message with an id (sync only)
+*
+* Parameters:
+*			   OwnPositions - This is true if messages are numbered by the replicator rather than by a journal
+*			   Sequence - This is the last message position already used
+*			   TimeoutMillis - This is how long Await waits for the standby
+*			   MaxBuffer - This is the most bytes kept for a standby
+*
+* Internal Methods:
+*			   Appended - Wakes the standby and detaches it if it has fallen too far behind.
+*			   Detach - Drops the standby and its buffered records.
+*			   Dispatch - Passes one record to a Reader.
+*
+******************************************************************************************************************/
+package MessagePackage;
+
+import java.nio.*;
+import java.util.concurrent.TimeUnit;
+
+public class Replicator
+{
+	static final byte REGISTER = 1;
+	static final byte UNREGISTER = 2;
+	static final byte SUBSCRIBE = 3;
+	static final byte SUBSCRIBE_RANGE = 4;
+	static final byte UNSUBSCRIBE = 5;
+	static final byte MESSAGE = 6;
+	static final byte ACKNOWLEDGE = 7;
+	static final byte QUEUE_LIMIT = 8;
+	static final byte RETAIN = 9;
+
+	static final int MAX_PULL = 1 << 20;			// Most bytes returned by one Pull, unless one record is larger
+
+	private final boolean OwnPositions;				// Messages are numbered here, not by a journal
+	private final long Timeout;						// How long Await waits, in nanoseconds
+	private final int MaxBuffer;					// Most bytes kept for the standby
+	private long Sequence;							// Last message position given out
+	private final Batch Pending = new Batch();		// Records the standby has not confirmed
+	private long Base = 0;							// Stream position of the first byte of Pending
+	private long Confirmed = 0;						// The standby has applied everything before this
+	private boolean Attached = false;				// A standby is pulling
+	private String DetachReason = null;				// Why the standby was detached, until TakeDetachReason
+
+	public Replicator( boolean OwnPositions, long Sequence, long TimeoutMillis, int MaxBuffer )
+	{
+		this.OwnPositions = OwnPositions;
+		this.Sequence = Sequence;
+		Timeout = TimeoutMillis * 1000000L;
+		this.MaxBuffer = MaxBuffer;
+
+	} // constructor
+
+	/***************************************************************************
+	* INTERFACE:: Reader
+	* Purpose: Implemented by the standby; one method is called for each
+	*		   record passed to Apply, in order.
+	*
+	****************************************************************************/
+
+	public interface Reader
+	{
+		void Registered( long id, long time );
+		void Unregistered( long id );
+		void Subscribed( long id, int MsgIds[] );
+		void SubscribedRange( long id, int LowMsgId, int HighMsgId );
+		void UnSubscribed( long id );
+		void Posted( Message m, long Recipients[] );
+		void Acknowledged( long id, long Position );
+		void LimitSet( long id, int Capacity, OverflowPolicy Policy, long BlockMillis );
+		void Retained( Message m );
+
+	} // Reader
+
+	/***************************************************************************
+	* CONCRETE METHOD:: Attach
+	* Purpose: This method attaches a standby. Records appended from now on are
+	*		   kept until the standby confirms them. The caller holds whatever
+	*		   lock stops state changes while it reads the state for the
+	*		   standby, so that the state and the stream meet exactly.
+	*
+	* Arguments: None
+	*
+	* Returns: long - the stream position the standby pulls from first
+	*
+	* Exceptions: None
+	*
+	****************************************************************************/
+
+	public synchronized long Attach()
+	{
+		Base += Pending.Size();
+		Pending.Clear();
+		Confirmed = Base;
+		Attached = true;
+		notifyAll();
+
+		return Base;
+
+	} // Attach
+
+	/***************************************************************************
+	* CONCRETE METHOD:: IsAttached
+	* Purpose: This method reports whether a standby is attached.
+	*
+	* Arguments: None
+	*
+	* Returns: boolean
+	*
+	* Exceptions: None
+	*
+	****************************************************************************/
+
+	public synchronized boolean IsAttached()
+	{
+		return Attached;
+
+	} // IsAttached
+
+	/***************************************************************************
+	* CONCRETE METHODS:: AppendRegister, AppendUnregister, AppendSubscribe,
+	*					 AppendSubscribeRange, AppendUnSubscribe, AppendMessage,
+	*					 AppendAcknowledge, AppendQueueLimit
+	* Purpose: These methods append one record each for the standby, if one is
+	*		   attached. AppendMessage first numbers the message if messages are
+	*		   numbered here, whether or not a standby is attached.
+	*
+	* Exceptions: None
+	*
+	****************************************************************************/
+
+	public synchronized void AppendRegister( long id, long time )
+	{
+		if ( Attached )
+			Appended( Pending.AppendRegister( id, time ) );
+
+	} // AppendRegister
+
+	public synchronized void AppendUnregister( long id )
+	{
+		if ( Attached )
+			Appended( Pending.AppendUnregister( id ) );
+
+	} // AppendUnregister
+
+	public synchronized void AppendSubscribe( long id, int MsgIds[] )
+	{
+		if ( Attached )
+			Appended( Pending.AppendSubscribe( id, MsgIds ) );
+
+	} // AppendSubscribe
+
+	public synchronized void AppendSubscribeRange( long id, int LowMsgId, int HighMsgId )
+	{
+		if ( Attached )
+			Appended( Pending.AppendSubscribeRange( id, LowMsgId, HighMsgId ) );
+
+	} // AppendSubscribeRange
+
+	public synchronized void AppendUnSubscribe( long id )
+	{
+		if ( Attached )
+			Appended( Pending.AppendUnSubscribe( id ) );
+
+	} // AppendUnSubscribe
+
+	public synchronized void AppendMessage( Message m, long Recipients[] )
+	{
+		if ( OwnPositions )
+			m.Position = ++Sequence;
+
+		if ( Attached )
+			Appended( Pending.AppendMessage( m, Recipients ) );
+
+	} // AppendMessage
+
+	public synchronized void AppendAcknowledge( long id, long Position )
+	{
+		if ( Attached )
+			Appended( Pending.AppendAcknowledge( id, Position ) );
+
+	} // AppendAcknowledge
+
+	public synchronized void AppendQueueLimit( long id, int Capacity, OverflowPolicy Policy, long BlockMillis )
+	{
+		if ( Attached )
+			Appended( Pending.AppendQueueLimit( id, Capacity, Policy, BlockMillis ) );
+
+	} // AppendQueueLimit
+
+	private void Appended( int Size )
+	{
+		if ( Size > MaxBuffer )
+			Detach( "it is more than " + MaxBuffer + " bytes behind" );
+		else
+			notifyAll();
+
+	} // Appended
+
+	private void Detach( String Reason )
+	{
+		Attached = false;
+		Base += Pending.Size();
+		Pending.Clear();
+		notifyAll();
+
+		DetachReason = Reason;
+
+	} // Detach
+
+	/***************************************************************************
+	* CONCRETE METHOD:: TakeDetachReason
+	* Purpose: This method returns why the standby was last detached and
+	*		   forgets it, so each detach is reported once.
+	*
+	* Arguments: None
+	*
+	* Returns: String - the reason, or null if the standby has not been
+	*		   detached since the last call
+	*
+	* Exceptions: None
+	*
+	****************************************************************************/
+
+	public synchronized String TakeDetachReason()
+	{
+		String reason = DetachReason;
+
+		DetachReason = null;
+
+		return reason;
+
+	} // TakeDetachReason
+
+	/***************************************************************************
+	* CONCRETE METHOD:: Pull
+	* Purpose: This method is called by the standby. It confirms everything
+	*		   before From, waits up to a timeout for records after it and
+	*		   returns them, whole records only.
+	*
+	* Arguments: long - the stream position the standby has applied up to,
+	*			 long - the longest wait in milliseconds
+	*
+	* Returns: byte[] - the records after From, empty if none arrived in time,
+	*		   or null if the standby is not attached (it must sync again)
+	*
+	* Exceptions: None
+	*
+	****************************************************************************/
+
+	public synchronized byte[] Pull( long From, long TimeoutMillis )
+	{
+		if ( !Attached || From < Base || From > Base + Pending.Size() )
+			return null;
+
+		Pending.Trim( (int) (From - Base) );
+		Base = From;
+		Confirmed = From;
+		notifyAll();
+
+		long deadline = System.nanoTime() + TimeoutMillis * 1000000L;
+
+		while ( Attached && Pending.Size() == 0 )
+		{
+			long remaining = deadline - System.nanoTime();
+
+			if ( remaining <= 0 )
+				break;
+
+			try
+			{
+				TimeUnit.NANOSECONDS.timedWait( this, remaining );
+
+			} catch (InterruptedException e) {
+
+				Thread.currentThread().interrupt();
+				break;
+
+			} // try
+
+		} // while
+
+		return Attached ? Pending.Head( MAX_PULL ) : null;
+
+	} // Pull
+
+	/***************************************************************************
+	* CONCRETE METHOD:: Await
+	* Purpose: This method returns once the standby has applied every record
+	*		   appended so far. If it does not within Timeout it is detached,
+	*		   so a standby that has failed holds up one sender at most once.
+	*		   It returns at once if no standby is attached.
+	*
+	* Arguments: None
+	*
+	* Returns: None
+	*
+	* Exceptions: None
+	*
+	****************************************************************************/
+
+	public synchronized void Await()
+	{
+		long target = Base + Pending.Size();
+		long deadline = System.nanoTime() + Timeout;
+
+		while ( Attached && Confirmed < target )
+		{
+			long remaining = deadline - System.nanoTime();
+
+			if ( remaining <= 0 )
+			{
+				Detach( "it did not confirm within " + Timeout / 1000000L + " ms" );
+				return;
+
+			} // if
+
+			try
+			{
+				TimeUnit.NANOSECONDS.timedWait( this, remaining );
+
+			} catch (InterruptedException e) {
+
+				Thread.currentThread().interrupt();
+				return;
+
+			} // try
+
+		} // while
+
+	} // Await
+
+	/***************************************************************************
+	* CONCRETE METHOD:: Apply
+	* Purpose: This method passes every record in a pulled or synced array to a
+	*		   reader, in order.
+	*
+	* Arguments: byte[] - records, int - offset of the first record, Reader
+	*
+	* Returns: long - the highest message position in the records, 0 if none
+	*
+	* Exceptions: None
+	*
+	****************************************************************************/
+
+	public static long Apply( byte Records[], int Offset, Reader r )
+	{
+		ByteBuffer b = ByteBuffer.wrap( Records );
+		b.position( Offset );
+		long high = 0;
+
+		while ( b.hasRemaining() )
+		{
+			int length = b.getInt();
+			ByteBuffer p = b.slice();
+			p.limit( length );
+			b.position( b.position() + length );
+
+			high = Math.max( high, Dispatch( p, r ) );
+
+		} // while
+
+		return high;
+
+	} // Apply
+
+	private static long Dispatch( ByteBuffer p, Reader r )
+	{
+		// Returns the position of the message in the record, if any
+
+		byte type = p.get();
+
+		switch ( type )
+		{
+			case REGISTER:
+
+				r.Registered( p.getLong(), p.getLong() );
+				break;
+
+			case UNREGISTER:
+
+				r.Unregistered( p.getLong() );
+				break;
+
+			case SUBSCRIBE:
+
+				long id = p.getLong();
+				int ids[] = new int[p.getInt()];
+
+				for ( int i = 0; i < ids.length; i++ )
+					ids[i] = p.getInt();
+
+				r.Subscribed( id, ids );
+				break;
+
+			case SUBSCRIBE_RANGE:
+
+				r.SubscribedRange( p.getLong(), p.getInt(), p.getInt() );
+				break;
+
+			case UNSUBSCRIBE:
+
+				r.UnSubscribed( p.getLong() );
+				break;
+
+			case MESSAGE:
+
+				Message m = GetMessage( p );
+				long recipients[] = new long[p.getInt()];
+
+				for ( int i = 0; i < recipients.length; i++ )
+					recipients[i] = p.getLong();
+
+				r.Posted( m, recipients );
+				return m.Position;
+
+			case ACKNOWLEDGE:
+
+				r.Acknowledged( p.getLong(), p.getLong() );
+				break;
+
+			case QUEUE_LIMIT:
+
+				r.LimitSet( p.getLong(), p.getInt(), OverflowPolicy.values()[p.get()], p.getLong() );
+				break;
+
+			case RETAIN:
+
+				Message latest = GetMessage( p );
+
+				r.Retained( latest );
+				return latest.Position;
+
+			default:
+
+				throw new IllegalStateException( "Unknown replication record " + type );
+
+		} // switch
+
+		return 0;
+
+	} // Dispatch
+
+	private static void PutMessage( ByteBuffer b, Message m )
+	{
+		b.putLong( m.Position ).putLong( m.GetSenderId() ).putInt( m.GetMessageId() );
+		Frames.PutPayload( b, m );
+
+	} // PutMessage
+
+	private static Message GetMessage( ByteBuffer b )
+	{
+		long position = b.getLong();
+		long sender = b.getLong();
+		Message m = Frames.GetPayload( b, b.getInt() );
+
+		m.SetSenderId( sender );
+		m.Position = position;
+
+		return m;
+
+	} // GetMessage
+
+	/***************************************************************************
+	* INNER CLASS:: Batch
+	* Purpose: A growable run of records. The replicator keeps its pending
+	*		   records in one, and the message manager writes its state into one
+	*		   when a standby syncs. Each append method returns the size of the
+	*		   batch.
+	*
+	****************************************************************************/
+
+	public static final class Batch
+	{
+		private ByteBuffer Bytes = ByteBuffer.allocate( 4096 );
+		private int Start;							// Where the record being appended starts
+
+		public int AppendRegister( long id, long time )
+		{
+			Begin( REGISTER, 16 ).putLong( id ).putLong( time );
+
+			return End();
+
+		} // AppendRegister
+
+		public int AppendUnregister( long id )
+		{
+			Begin( UNREGISTER, 8 ).putLong( id );
+
+			return End();
+
+		} // AppendUnregister
+
+		public int AppendSubscribe( long id, int MsgIds[] )
+		{
+			Begin( SUBSCRIBE, 8 + 4 + 4 * MsgIds.length ).putLong( id ).putInt( MsgIds.length );
+
+			for ( int i : MsgIds )
+				Bytes.putInt( i );
+
+			return End();
+
+		} // AppendSubscribe
+
+		public int AppendSubscribeRange( long id, int LowMsgId, int HighMsgId )
+		{
+			Begin( SUBSCRIBE_RANGE, 16 ).putLong( id ).putInt( LowMsgId ).putInt( HighMsgId );
+
+			return End();
+
+		} // AppendSubscribeRange
+
+		public int AppendUnSubscribe( long id )
+		{
+			Begin( UNSUBSCRIBE, 8 ).putLong( id );
+
+			return End();
+
+		} // AppendUnSubscribe
+
+		public int AppendMessage( Message m, long Recipients[] )
+		{
+			Begin( MESSAGE, 20 + Frames.PayloadSize( m ) + 4 + 8 * Recipients.length );
+			PutMessage( Bytes, m );
+			Bytes.putInt( Recipients.length );
+
+			for ( long id : Recipients )
+				Bytes.putLong( id );
+
+			return End();
+
+		} // AppendMessage
+
+		public int AppendAcknowledge( long id, long Position )
+		{
+			Begin( ACKNOWLEDGE, 16 ).putLong( id ).putLong( Position );
+
+			return End();
+
+		} // AppendAcknowledge
+
+		public int AppendQueueLimit( long id, int Capacity, OverflowPolicy Policy, long BlockMillis )
+		{
+			Begin( QUEUE_LIMIT, 21 ).putLong( id ).putInt( Capacity ).put( (byte) Policy.ordinal() ).putLong( BlockMillis );
+
+			return End();
+
+		} // AppendQueueLimit
+
+		public int AppendRetain( Message m )
+		{
+			Begin( RETAIN, 20 + Frames.PayloadSize( m ) );
+			PutMessage( Bytes, m );
+
+			return End();
+
+		} // AppendRetain
+
+		/***************************************************************************
+		* CONCRETE METHOD:: ToArray
+		* Purpose: Returns the stream position followed by the records, which is
+		*		   what a standby receives when it syncs.
+		*
+		* Arguments: long - the stream position returned by Attach
+		*
+		* Returns: byte[]
+		*
+		* Exceptions: None
+		*
+		****************************************************************************/
+
+		public byte[] ToArray( long Position )
+		{
+			byte b[] = new byte[8 + Bytes.position()];
+
+			ByteBuffer.wrap( b ).putLong( Position ).put( Bytes.array(), 0, Bytes.position() );
+
+			return b;
+
+		} // ToArray
+
+		int Size()
+		{
+			return Bytes.position();
+
+		} // Size
+
+		void Clear()
+		{
+			Bytes.clear();
+
+			if ( Bytes.capacity() > MAX_PULL )
+				Bytes = ByteBuffer.allocate( 4096 );
+
+		} // Clear
+
+		void Trim( int n )
+		{
+			// Drops the first n bytes, which end on a record boundary
+
+			if ( n == 0 )
+				return;
+
+			Bytes.flip();
+			Bytes.position( n );
+			Bytes.compact();
+
+		} // Trim
+
+		byte[] Head( int Max )
+		{
+			// Copies whole records from the start, at least one if there are any
+
+			int end = 0;
+
+			while ( end < Bytes.position() )
+			{
+				int next = end + 4 + Bytes.getInt( end );
+
+				if ( end > 0 && next > Max )
+					break;
+
+				end = next;
+
+			} // while
+
+			byte b[] = new byte[end];
+			System.arraycopy( Bytes.array(), 0, b, 0, end );
+
+			return b;
+
+		} // Head
+
+		private ByteBuffer Begin( byte type, int size )
+		{
+			if ( Bytes.remaining() < 5 + size )
+			{
+				ByteBuffer bigger = ByteBuffer.allocate( Math.max( Bytes.capacity() * 2, Bytes.position() + 5 + size ) );
+				Bytes.flip();
+				bigger.put( Bytes );
+				Bytes = bigger;
+
+			} // if
+
+			Start = Bytes.position();
+			Bytes.putInt( 0 ).put( type );
+
+			return Bytes;
+
+		} // Begin
+
+		private int End()
+		{
+			Bytes.putInt( Start, Bytes.position() - Start - 4 );
+
+			return Bytes.position();
+
+		} // End
+
+	} // Batch
+
+} // Replicator
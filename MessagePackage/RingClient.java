@@ -0,0 +1,219 @@
+/******************************************************************************************************************
+* File:RingClient.java
+* Course: 17655
+* Project: Assignment A2
+* Copyright: Copyright (c) 2009 Carnegie Mellon University
+* Versions:
+*	1.0 October 2026 - Initial version.
+*
+* Description: This class is the participant side of the shared memory transport (see RingServer.java). It creates
+*			   this participant's file in the shared directory, waits for the message manager to attach it, and
+*			   then sends each call as a frame on the request ring and waits on the response ring.
+*
+*			   Waiting is done by the calling thread itself, spinning briefly and then backing off as the server
+*			   does, so a call on an active connection makes no system call. When several threads call at once,
+*			   whichever one is reading the response ring hands the other threads their responses.
+*
+*			   The constructor fails if no message manager is serving the directory, so that the caller can fall
+*			   back to RMI. If the message manager exits, waiting and later calls throw java.rmi.ConnectException.
+*
+* Parameters:
+*			   Directory - This is the shared directory
+*			   Capacity - This is the size of each ring in bytes, a power of two
+*
+* Internal Methods:
+*			   Send - Sends a request frame and waits for its response.
+*
+******************************************************************************************************************/
+package MessagePackage;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.rmi.RemoteException;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.concurrent.locks.*;
+
+public class RingClient extends FrameStub
+{
+	static final long ATTACH_MILLIS = 2000;			// Longest wait for the message manager to attach the file
+	static final long CHECK_MILLIS = 100;			// How often a waiting call checks that the message manager is running
+
+	private static final AtomicInteger FileCount = new AtomicInteger();	// Numbers this process's files
+
+	private final File File;
+	private final MappedByteBuffer Map;
+	private final long Broker;						// The message manager's process id
+	private final SharedRing Requests;
+	private final SharedRing Responses;
+	private final ConcurrentHashMap<Integer, ByteBuffer> Arrived = new ConcurrentHashMap<Integer, ByteBuffer>();
+	private final ReentrantLock ReadLock = new ReentrantLock();
+
+	public RingClient( File Directory, int Capacity ) throws IOException
+	{
+		Broker = ReadBroker( Directory );
+
+		if ( Broker < 0 || !RingServer.IsRunning( Broker ) )
+			throw new IOException( "No message manager is serving " + Directory );
+
+		if ( Integer.bitCount( Capacity ) != 1 )
+			throw new IOException( "Ring capacity must be a power of two: " + Capacity );
+
+		long pid = ProcessHandle.current().pid();
+		String name = pid + "-" + FileCount.incrementAndGet();
+		File tmp = new File( Directory, name + ".tmp" );
+		File = new File( Directory, name + RingServer.SUFFIX );
+
+		try ( RandomAccessFile raf = new RandomAccessFile( tmp, "rw" ) )
+		{
+			raf.setLength( RingServer.DATA_OFFSET + 2L * Capacity );
+			Map = raf.getChannel().map( FileChannel.MapMode.READ_WRITE, 0, raf.length() );
+
+		} // try
+
+		Map.putInt( 0, RingServer.MAGIC );
+		Map.putInt( RingServer.CAPACITY_OFFSET, Capacity );
+		Map.putLong( RingServer.OWNER_OFFSET, pid );
+
+		Requests = new SharedRing( Map, RingServer.REQUEST_HEAD, RingServer.REQUEST_TAIL, RingServer.DATA_OFFSET, Capacity );
+		Responses = new SharedRing( Map, RingServer.RESPONSE_HEAD, RingServer.RESPONSE_TAIL, RingServer.DATA_OFFSET + Capacity, Capacity );
+
+		// The file only gets its final name once it is filled in
+
+		Files.move( tmp.toPath(), File.toPath(), StandardCopyOption.ATOMIC_MOVE );
+
+		long deadline = System.currentTimeMillis() + ATTACH_MILLIS;
+
+		while ( (long) SharedRing.COUNTER.getAcquire( Map, RingServer.ATTACHED_OFFSET ) == 0 )
+		{
+			if ( System.currentTimeMillis() > deadline )
+			{
+				File.delete();
+				throw new IOException( "Message manager did not attach " + File );
+
+			} // if
+
+			LockSupport.parkNanos( 1000000 );
+
+		} // while
+
+	} // constructor
+
+	private static long ReadBroker( File Directory )
+	{
+		try
+		{
+			byte b[] = Files.readAllBytes( new File( Directory, RingServer.BROKER_FILE ).toPath() );
+
+			return Long.parseLong( new String( b, StandardCharsets.UTF_8 ).trim() );
+
+		} catch (Exception e) {
+
+			return -1;
+
+		} // try
+
+	} // ReadBroker
+
+	/***************************************************************************
+	* CONCRETE METHOD:: Close
+	* Purpose: Tells the message manager this participant is done with its
+	*		   file; the message manager deletes it.
+	*
+	* Arguments: None
+	*
+	* Returns: None
+	*
+	* Exceptions: None
+	*
+	****************************************************************************/
+
+	public void Close()
+	{
+		SharedRing.COUNTER.setRelease( Map, RingServer.CLOSED_OFFSET, 1L );
+
+	} // Close
+
+	protected ByteBuffer Send( int id, ByteBuffer request ) throws RemoteException
+	{
+		ByteBuffer frame = request.duplicate();
+		frame.flip();
+
+		long check = System.nanoTime() + CHECK_MILLIS * 1000000L;
+		int idle = 0;
+
+		synchronized (Requests)
+		{
+			while ( !Requests.Offer( frame ) )
+			{
+				RingServer.Backoff( ++idle );
+				check = Check( check );
+
+			} // while
+
+		} // synchronized
+
+		idle = 0;
+
+		while ( true )
+		{
+			ByteBuffer r = Arrived.remove( id );
+
+			if ( r != null )
+				return r;
+
+			if ( ReadLock.tryLock() )
+			{
+				try
+				{
+					ByteBuffer f;
+
+					while ( (f = Responses.Poll()) != null )
+					{
+						f.getInt();
+						int to = f.getInt();
+
+						if ( to == id )
+							r = f;
+						else
+							Arrived.put( to, f );
+
+					} // while
+
+				} finally {
+
+					ReadLock.unlock();
+
+				} // try
+
+				if ( r != null )
+					return r;
+
+			} // if
+
+			RingServer.Backoff( ++idle );
+			check = Check( check );
+
+		} // while
+
+	} // Send
+
+	private long Check( long next ) throws RemoteException
+	{
+		long now = System.nanoTime();
+
+		if ( now - next < 0 )
+			return next;
+
+		if ( !RingServer.IsRunning( Broker ) )
+			throw new java.rmi.ConnectException( "Message manager process " + Broker + " has exited" );
+
+		return now + CHECK_MILLIS * 1000000L;
+
+	} // Check
+
+} // RingClient
@@ -0,0 +1,374 @@
+/******************************************************************************************************************
+* File:RingServer.java
+* Course: 17655
+* Project: Assignment A2
+* Copyright: Copyright (c) 2009 Carnegie Mellon University
+* Versions:
+*	1.0 October 2026 - Initial version.
+*
+* Description: This class serves the message manager to participants on the same host through shared memory. Each
+*			   participant (see RingClient.java) creates a file in the shared directory holding two rings (see
+*			   SharedRing.java): requests from the participant to the message manager and responses back. The rings
+*			   carry the same frames as the TCP transport and requests are carried out by a FrameHandler.
+*
+*			   One thread serves every participant. It polls the rings continuously while there is work, so a
+*			   request is picked up within microseconds and neither side makes a system call; when there has been
+*			   nothing to do for a while it backs off to yielding and then to short sleeps. It looks for new files
+*			   and for participants whose process has exited every SCAN_MILLIS. GetMessageQueue with a timeout is
+*			   handed to a separate pool, as in FrameServer.
+*
+*			   Layout of a participant's file:
+*
+*				0 - int MAGIC, int ring capacity, long participant process id
+*				64 - long set to 1 by the message manager once it is serving the file
+*				128 - long set to 1 by the participant when it closes
+*				256, 320 - request ring head and tail
+*				384, 448 - response ring head and tail
+*				4096 - request ring, then response ring
+*
+*			   The message manager writes its process id to BROKER_FILE in the directory so participants can tell
+*			   whether it is running.
+*
+* Parameters:
+*			   Broker - This is the message manager the requests are passed to
+*			   Directory - This is the shared directory
+*
+* Internal Methods:
+*			   Scan - Attaches new files and drops those of exited participants.
+*			   Serve - Moves one participant's requests and responses.
+*
+******************************************************************************************************************/
+package MessagePackage;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.LockSupport;
+
+public class RingServer implements Runnable
+{
+	static final int MAGIC = 0x4d4d5247;			// "MMRG"
+	static final String BROKER_FILE = "broker.pid";
+	static final String SUFFIX = ".ring";
+	static final int CAPACITY_OFFSET = 4;
+	static final int OWNER_OFFSET = 8;
+	static final int ATTACHED_OFFSET = 64;
+	static final int CLOSED_OFFSET = 128;
+	static final int REQUEST_HEAD = 256;
+	static final int REQUEST_TAIL = 320;
+	static final int RESPONSE_HEAD = 384;
+	static final int RESPONSE_TAIL = 448;
+	static final int DATA_OFFSET = 4096;
+	static final long SCAN_MILLIS = 100;
+
+	private final File Directory;
+	private final FrameHandler Handler;
+	private final BufferPool Buffers = new BufferPool( FrameServer.BUFFER_SIZE, 256 );
+	private final ExecutorService Waiters;
+	private final ArrayList<Connection> Connections = new ArrayList<Connection>();	// Only used by the server thread
+	private volatile boolean Closed = false;
+
+	public RingServer( RMIMessageManagerInterface Broker, File Directory ) throws IOException
+	{
+		this.Directory = Directory;
+		Handler = new FrameHandler( Broker, Buffers );
+
+		Waiters = Executors.newCachedThreadPool( new ThreadFactory()
+		{
+			public Thread newThread( Runnable r )
+			{
+				Thread t = new Thread( r, "ring-poll" );
+				t.setDaemon( true );
+				return t;
+			}
+		});
+
+		Directory.mkdirs();
+		Files.write( new File( Directory, BROKER_FILE ).toPath(),
+			String.valueOf( ProcessHandle.current().pid() ).getBytes( StandardCharsets.UTF_8 ) );
+
+	} // constructor
+
+	/***************************************************************************
+	* CONCRETE METHOD:: Start
+	* Purpose: Starts the server thread.
+	*
+	* Arguments: None
+	*
+	* Returns: None
+	*
+	* Exceptions: None
+	*
+	****************************************************************************/
+
+	public void Start()
+	{
+		Thread t = new Thread( this, "ring-server" );
+		t.setDaemon( true );
+		t.start();
+
+	} // Start
+
+	/***************************************************************************
+	* CONCRETE METHOD:: Close
+	* Purpose: Stops serving and removes BROKER_FILE, so that participants
+	*		   started from now on use RMI.
+	*
+	* Arguments: None
+	*
+	* Returns: None
+	*
+	* Exceptions: None
+	*
+	****************************************************************************/
+
+	public void Close()
+	{
+		Closed = true;
+		new File( Directory, BROKER_FILE ).delete();
+
+	} // Close
+
+	public void run()
+	{
+		long nextScan = 0;
+		int idle = 0;
+
+		while ( !Closed )
+		{
+			long now = System.nanoTime();
+
+			if ( now - nextScan >= 0 )
+			{
+				Scan();
+				nextScan = now + SCAN_MILLIS * 1000000L;
+
+			} // if
+
+			boolean busy = false;
+
+			for ( int i = 0; i < Connections.size(); i++ )
+				busy |= Serve( Connections.get(i) );
+
+			if ( busy )
+			{
+				idle = 0;
+
+			} else {
+
+				Backoff( ++idle );
+
+			} // if
+
+		} // while
+
+		for ( Connection c : Connections )
+			c.File.delete();
+
+		Waiters.shutdownNow();
+
+	} // run
+
+	/***************************************************************************
+	* Spin first, then yield, then sleep briefly: a busy participant is served
+	* without delay and an idle server does not take a whole core. With one
+	* processor spinning only delays the other side, so it starts by yielding.
+	****************************************************************************/
+
+	static final int SPINS = (Runtime.getRuntime().availableProcessors() > 1) ? 1000 : 0;
+
+	static void Backoff( int idle )
+	{
+		if ( idle < SPINS )
+			Thread.onSpinWait();
+		else if ( idle < 2000 )
+			Thread.yield();
+		else
+			LockSupport.parkNanos( 50000 );
+
+	} // Backoff
+
+	private void Scan()
+	{
+		// Drop the participants that closed or whose process has gone
+
+		Iterator<Connection> it = Connections.iterator();
+
+		while ( it.hasNext() )
+		{
+			Connection c = it.next();
+
+			if ( c.IsClosed() || !IsRunning( c.Owner ) )
+			{
+				c.File.delete();
+				it.remove();
+
+			} // if
+
+		} // while
+
+		File files[] = Directory.listFiles();
+
+		if ( files == null )
+			return;
+
+		for ( File f : files )
+		{
+			if ( !f.getName().endsWith( SUFFIX ) || IsAttached( f ) )
+				continue;
+
+			try
+			{
+				Connections.add( new Connection( f ) );
+
+			} catch (IOException e) {
+
+				System.out.println( "Shared memory transport: cannot attach " + f + "::" + e );
+				f.delete();
+
+			} // try
+
+		} // for
+
+	} // Scan
+
+	private boolean IsAttached( File f )
+	{
+		for ( Connection c : Connections )
+		{
+			if ( c.File.equals( f ) )
+				return true;
+
+		} // for
+
+		return false;
+
+	} // IsAttached
+
+	static boolean IsRunning( long pid )
+	{
+		Optional<ProcessHandle> p = ProcessHandle.of( pid );
+
+		return p.isPresent() && p.get().isAlive();
+
+	} // IsRunning
+
+	private boolean Serve( final Connection c )
+	{
+		boolean busy = false;
+		ByteBuffer b;
+
+		while ( (b = c.Completed.poll()) != null )
+			c.Out.add( b );
+
+		busy |= Flush( c );
+
+		ByteBuffer frame;
+
+		while ( (frame = c.Requests.Poll()) != null )
+		{
+			busy = true;
+
+			frame.getInt();
+			final int id = frame.getInt();
+			final byte op = frame.get();
+			final ByteBuffer args = frame.slice();
+
+			if ( op == Frames.GET_QUEUE_WAIT )
+			{
+				Waiters.execute( new Runnable()
+				{
+					public void run()
+					{
+						c.Completed.add( Handler.Execute( id, op, args ) );
+					}
+				});
+
+			} else {
+
+				c.Out.add( Handler.Execute( id, op, args ) );
+
+			} // if
+
+		} // while
+
+		Flush( c );
+
+		return busy;
+
+	} // Serve
+
+	private boolean Flush( Connection c )
+	{
+		boolean wrote = false;
+
+		while ( !c.Out.isEmpty() )
+		{
+			int before = c.Out.peek().remaining();
+			boolean done = c.Responses.Offer( c.Out.peek() );
+
+			wrote |= ( c.Out.peek().remaining() != before );
+
+			if ( !done )
+				break;
+
+			Buffers.Release( c.Out.poll() );
+
+		} // while
+
+		return wrote;
+
+	} // Flush
+
+	/***************************************************************************
+	* INNER CLASS:: Connection
+	* Purpose: One participant's file and rings.
+	*
+	****************************************************************************/
+
+	private static final class Connection
+	{
+		final File File;
+		final MappedByteBuffer Map;
+		final long Owner;
+		final SharedRing Requests;
+		final SharedRing Responses;
+		final ArrayDeque<ByteBuffer> Out = new ArrayDeque<ByteBuffer>();
+		final ConcurrentLinkedQueue<ByteBuffer> Completed = new ConcurrentLinkedQueue<ByteBuffer>();
+
+		Connection( File f ) throws IOException
+		{
+			File = f;
+
+			try ( RandomAccessFile raf = new RandomAccessFile( f, "rw" ) )
+			{
+				Map = raf.getChannel().map( FileChannel.MapMode.READ_WRITE, 0, raf.length() );
+
+			} // try
+
+			int capacity = Map.getInt( CAPACITY_OFFSET );
+
+			if ( Map.getInt( 0 ) != MAGIC || Map.capacity() < DATA_OFFSET + 2L * capacity )
+				throw new IOException( "Not a ring file" );
+
+			Owner = Map.getLong( OWNER_OFFSET );
+			Requests = new SharedRing( Map, REQUEST_HEAD, REQUEST_TAIL, DATA_OFFSET, capacity );
+			Responses = new SharedRing( Map, RESPONSE_HEAD, RESPONSE_TAIL, DATA_OFFSET + capacity, capacity );
+
+			SharedRing.COUNTER.setRelease( Map, ATTACHED_OFFSET, 1L );
+
+		} // constructor
+
+		boolean IsClosed()
+		{
+			return (long) SharedRing.COUNTER.getAcquire( Map, CLOSED_OFFSET ) != 0;
+		}
+
+	} // Connection
+
+} // RingServer
@@ -0,0 +1,738 @@
+/******************************************************************************************************************
+* File:ShardedBroker.java
+* Course: 17655
+* Project: Assignment A2
+* Copyright: Copyright (c) 2009 Carnegie Mellon University
+* Versions:
+*	1.0 October 2026 - Initial version.
+*
+* Description: This class spreads the message manager's work over several message managers (shards), in one JVM or
+*			   in separate processes. It implements the message manager's remote interface on top of one stub per
+*			   shard, so MessageManagerInterface uses it like a single message manager. Each message id belongs to
+*			   one shard:
+*
+*				shard = message id mod number of shards
+*
+*			   A message is sent to the shard that owns its id, and GetLastValue asks that shard. Every shard knows
+*			   every participant: Register registers with shard 0 and then reattaches the new id on the others (if
+*			   one of them fails, the id is unregistered from those that have it before the error is passed on), and
+*			   subscriptions, listeners, queue limits and lease renewals go to every shard. A shard only receives
+*			   the ids it owns, so subscribing on all of them subscribes to each id exactly once. A queue limit
+*			   applies to the participant's queue on each shard.
+*
+*			   A poll drains every shard and returns one queue. Messages with the same id come from the same shard
+*			   and keep their order; messages with ids on different shards are merged by priority, but otherwise
+*			   in no particular order. A long poll that finds nothing waits on every shard at once. The waits still
+*			   running when one of them returns are not abandoned: they are left to finish and whatever they bring
+*			   back is returned by the next poll, and a shard is not polled again while a wait on it is running,
+*			   so its messages cannot overtake each other. A participant's long poll state is dropped once no poll
+*			   is using it, no wait is running and nothing is left to return; results still waiting to be returned
+*			   are kept for the next poll even if the participant's lease was lost, as they have already been taken
+*			   off the shards.
+*
+*			   Shard 0 is the message manager as it runs unsharded. The helpers below give every shard its own
+*			   registry name, TCP port and directories, so that shards run side by side on one host.
+*
+* Parameters:
+*			   Shards - These are the message managers, in shard order
+*
+* Internal Methods:
+*			   Merge - Adds the messages of one drained queue to another.
+*			   Wait - Runs a long poll on every shard that has no wait running.
+*			   Acquire, Release - Mark a participant's long poll state in use while a poll reads it.
+*			   Forget - Drops a participant's long poll state once it is idle.
+*
+******************************************************************************************************************/
+package MessagePackage;
+
+import java.io.File;
+import java.rmi.RemoteException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class ShardedBroker implements RMIMessageManagerInterface
+{
+	private final RMIMessageManagerInterface Shards[];	// The message managers, indexed by shard
+	private final HashMap<Long, Waiter> Waiters = new HashMap<Long, Waiter>();	// Long polls per participant, locked on itself
+	private static ExecutorService Pollers = null;		// Runs the long polls of every sharded broker in this process
+
+	public ShardedBroker( RMIMessageManagerInterface Shards[] )
+	{
+		if ( Shards.length == 0 )
+			throw new IllegalArgumentException( "No shards" );
+
+		this.Shards = Shards.clone();
+
+	} // constructor
+
+	/***************************************************************************
+	* CONCRETE METHOD:: Name
+	* Purpose: Returns the registry name of a shard: "MessageManager" for shard
+	*		   0 and "MessageManager-i" for shard i.
+	*
+	* Arguments: int - shard
+	*
+	* Returns: String
+	*
+	* Exceptions: None
+	*
+	****************************************************************************/
+
+	public static String Name( int Shard )
+	{
+		return (Shard == 0) ? "MessageManager" : "MessageManager-" + Shard;
+
+	} // Name
+
+	/***************************************************************************
+	* CONCRETE METHOD:: Port
+	* Purpose: Returns the TCP port of a shard: the base port plus the shard.
+	*		   Port 0 (any free port) stays 0.
+	*
+	* Arguments: int - base port, int - shard
+	*
+	* Returns: int
+	*
+	* Exceptions: None
+	*
+	****************************************************************************/
+
+	public static int Port( int Port, int Shard )
+	{
+		return (Port == 0) ? 0 : Port + Shard;
+
+	} // Port
+
+	/***************************************************************************
+	* CONCRETE METHOD:: Directory
+	* Purpose: Returns the directory a shard keeps its files in: the directory
+	*		   itself for shard 0 and its "shard-i" subdirectory for shard i.
+	*
+	* Arguments: String - directory, may be null
+	*
+	* Returns: String, null if the directory is null
+	*
+	* Exceptions: None
+	*
+	****************************************************************************/
+
+	public static String Directory( String Dir, int Shard )
+	{
+		if ( Dir == null || Shard == 0 )
+			return Dir;
+
+		return new File( Dir, "shard-" + Shard ).getPath();
+
+	} // Directory
+
+	/***************************************************************************
+	* CONCRETE METHOD:: GetShard
+	* Purpose: Returns the shard that owns a message id.
+	*
+	* Arguments: int - message id
+	*
+	* Returns: int
+	*
+	* Exceptions: None
+	*
+	****************************************************************************/
+
+	public int GetShard( int MsgId )
+	{
+		return Math.floorMod( MsgId, Shards.length );
+
+	} // GetShard
+
+	/***************************************************************************
+	* CONCRETE METHOD:: Close
+	* Purpose: Closes the shards reached over the TCP and shared memory
+	*		   transports.
+	*
+	* Arguments: None
+	*
+	* Returns: None
+	*
+	* Exceptions: None
+	*
+	****************************************************************************/
+
+	public void Close()
+	{
+		for ( RMIMessageManagerInterface s : Shards )
+		{
+			if ( s instanceof FrameStub )
+				((FrameStub) s).Close();
+
+		} // for
+
+	} // Close
+
+	public long Register() throws RemoteException
+	{
+		long id = Shards[0].Register();
+		int done = 1;
+
+		try
+		{
+			for ( ; done < Shards.length; done++ )
+				Shards[done].Reattach( id );
+
+		} catch (RemoteException e) {
+
+			// The caller never gets the id, so take it off the shards that
+			// already have it rather than leave them a queue nobody polls
+
+			while ( done-- > 0 )
+			{
+				try
+				{
+					Shards[done].UnRegister( id );
+
+				} catch (Exception again) {
+
+					// Its lease expires instead
+
+				} // try
+
+			} // while
+
+			throw e;
+
+		} // try
+
+		return id;
+
+	} // Register
+
+	public boolean Reattach( long id ) throws RemoteException
+	{
+		boolean restored = true;
+
+		for ( RMIMessageManagerInterface s : Shards )
+			restored &= s.Reattach( id );
+
+		if ( !restored )
+			Forget( id );
+
+		return restored;
+
+	} // Reattach
+
+	public void UnRegister( long id ) throws RemoteException
+	{
+		synchronized (Waiters)
+		{
+			Waiters.remove( id );
+
+		} // synchronized
+
+		for ( RMIMessageManagerInterface s : Shards )
+			s.UnRegister( id );
+
+	} // UnRegister
+
+	public void SendMessage( Message m ) throws RemoteException
+	{
+		Shards[GetShard( m.GetMessageId() )].SendMessage( m );
+
+	} // SendMessage
+
+	public void SendMessages( List<Message> ms ) throws RemoteException
+	{
+		if ( ms.isEmpty() )
+			return;
+
+		// A batch usually holds one sensor's readings, all for one shard
+
+		int first = GetShard( ms.get(0).GetMessageId() );
+		boolean mixed = false;
+
+		for ( Message m : ms )
+			mixed |= ( GetShard( m.GetMessageId() ) != first );
+
+		if ( !mixed )
+		{
+			Shards[first].SendMessages( ms );
+			return;
+
+		} // if
+
+		ArrayList<ArrayList<Message>> by = new ArrayList<ArrayList<Message>>();
+
+		for ( int i = 0; i < Shards.length; i++ )
+			by.add( new ArrayList<Message>() );
+
+		for ( Message m : ms )
+			by.get( GetShard( m.GetMessageId() ) ).add( m );
+
+		for ( int i = 0; i < Shards.length; i++ )
+		{
+			if ( !by.get(i).isEmpty() )
+				Shards[i].SendMessages( by.get(i) );
+
+		} // for
+
+	} // SendMessages
+
+	public MessageQueue GetMessageQueue( long id ) throws RemoteException
+	{
+		Waiter w = Acquire( id, false );
+
+		try
+		{
+			MessageQueue fresh[] = new MessageQueue[Shards.length];
+			boolean skipped = false;
+
+			// Shards with a long poll running are left to it. The others are read
+			// before the results the long polls left, so that a result left after
+			// a shard was read here is still returned ahead of it.
+
+			for ( int i = 0; i < Shards.length; i++ )
+			{
+				if ( w != null && w.Parked[i].get() )
+					skipped = true;
+				else
+					fresh[i] = Shards[i].GetMessageQueue( id );
+
+			} // for
+
+			MessageQueue q = null;
+
+			if ( w != null )
+			{
+				MessageQueue a;
+
+				while ( (a = w.Arrived.poll()) != null )
+					q = Merge( q, a );
+
+			} // if
+
+			for ( MessageQueue f : fresh )
+				q = Merge( q, f );
+
+			if ( q == null && skipped )
+				q = MessageQueue.Restore( id, IdAllocator.GetTime( id ) );
+
+			return q;
+
+		} finally {
+
+			Release( id, w );
+
+		} // try
+
+	} // GetMessageQueue
+
+	public MessageQueue GetMessageQueue( final long id, final long TimeoutMillis ) throws RemoteException
+	{
+		if ( Shards.length == 1 )
+			return Shards[0].GetMessageQueue( id, TimeoutMillis );
+
+		MessageQueue q = GetMessageQueue( id );
+
+		if ( q == null || q.GetSize() > 0 || TimeoutMillis <= 0 )
+			return q;
+
+		final Waiter waiter = Acquire( id, true );
+
+		try
+		{
+			return Wait( id, TimeoutMillis, waiter, q );
+
+		} finally {
+
+			Release( id, waiter );
+
+		} // try
+
+	} // GetMessageQueue
+
+	private MessageQueue Wait( final long id, final long TimeoutMillis, final Waiter waiter, MessageQueue q )
+		throws RemoteException
+	{
+		for ( int i = 0; i < Shards.length; i++ )
+		{
+			if ( !waiter.Parked[i].compareAndSet( false, true ) )
+				continue;
+
+			final int shard = i;
+
+			GetPollers().execute( new Runnable()
+			{
+				public void run()
+				{
+					try
+					{
+						MessageQueue r = Shards[shard].GetMessageQueue( id, TimeoutMillis );
+
+						if ( r != null && r.GetSize() > 0 )
+							waiter.Arrived.add( r );
+
+					} catch (Exception e) {
+
+						// The next poll of the shard reports the failure
+
+					} finally {
+
+						waiter.Parked[shard].set( false );
+
+						synchronized (waiter)
+						{
+							waiter.notifyAll();
+
+						} // synchronized
+
+						// Nobody may be left to take an empty result
+
+						Forget( id );
+
+					} // try
+				}
+			});
+
+		} // for
+
+		long deadline = System.nanoTime() + TimeoutMillis * 1000000L;
+
+		synchronized (waiter)
+		{
+			try
+			{
+				while ( !HasArrived( waiter ) )
+				{
+					long wait = (deadline - System.nanoTime()) / 1000000L;
+
+					if ( wait <= 0 )
+						break;
+
+					waiter.wait( wait );
+
+				} // while
+
+			} catch (InterruptedException e) {
+
+				Thread.currentThread().interrupt();
+
+			} // try
+
+		} // synchronized
+
+		return Merge( q, GetMessageQueue( id ) );
+
+	} // Wait
+
+	private Waiter Acquire( long id, boolean Create )
+	{
+		synchronized (Waiters)
+		{
+			Waiter w = Waiters.get( id );
+
+			if ( w == null && Create )
+			{
+				w = new Waiter( Shards.length );
+				Waiters.put( id, w );
+
+			} // if
+
+			if ( w != null )
+				w.Users++;
+
+			return w;
+
+		} // synchronized
+
+	} // Acquire
+
+	private void Release( long id, Waiter w )
+	{
+		if ( w == null )
+			return;
+
+		synchronized (Waiters)
+		{
+			w.Users--;
+
+		} // synchronized
+
+		Forget( id );
+
+	} // Release
+
+	private void Forget( long id )
+	{
+		synchronized (Waiters)
+		{
+			// A wait adds its result before it clears Parked, so a waiter seen
+			// with no wait running has every result it will get in Arrived
+
+			Waiter w = Waiters.get( id );
+
+			if ( w != null && w.IsIdle() )
+				Waiters.remove( id );
+
+		} // synchronized
+
+	} // Forget
+
+	private boolean HasArrived( Waiter w )
+	{
+		for ( MessageQueue a : w.Arrived )
+		{
+			if ( a.GetSize() > 0 )
+				return true;
+
+		} // for
+
+		return false;
+
+	} // HasArrived
+
+	private MessageQueue Merge( MessageQueue q, MessageQueue a )
+	{
+		if ( a == null || (q != null && a.GetSize() == 0) )
+			return q;
+
+		if ( q == null || q.GetSize() == 0 )
+			return a;
+
+		Message m;
+
+		while ( (m = a.GetMessage()) != null )
+			q.Requeue( m );
+
+		return q;
+
+	} // Merge
+
+	public void Subscribe( long id, int MsgIds[] ) throws RemoteException
+	{
+		for ( RMIMessageManagerInterface s : Shards )
+			s.Subscribe( id, MsgIds );
+
+	} // Subscribe
+
+	public void SubscribeRange( long id, int LowMsgId, int HighMsgId ) throws RemoteException
+	{
+		for ( RMIMessageManagerInterface s : Shards )
+			s.SubscribeRange( id, LowMsgId, HighMsgId );
+
+	} // SubscribeRange
+
+	public void UnSubscribe( long id ) throws RemoteException
+	{
+		for ( RMIMessageManagerInterface s : Shards )
+			s.UnSubscribe( id );
+
+	} // UnSubscribe
+
+	public void AddListener( long id, RMIMessageListenerInterface Listener ) throws RemoteException
+	{
+		for ( RMIMessageManagerInterface s : Shards )
+			s.AddListener( id, Listener );
+
+	} // AddListener
+
+	public void RemoveListener( long id ) throws RemoteException
+	{
+		for ( RMIMessageManagerInterface s : Shards )
+			s.RemoveListener( id );
+
+	} // RemoveListener
+
+	public boolean HasListener( long id ) throws RemoteException
+	{
+		// A listener dropped by any shard no longer gets that shard's messages
+
+		for ( RMIMessageManagerInterface s : Shards )
+			if ( !s.HasListener( id ) )
+				return false;
+
+		return true;
+
+	} // HasListener
+
+	public void SetQueueLimit( long id, int Capacity, OverflowPolicy Policy, long BlockMillis ) throws RemoteException
+	{
+		for ( RMIMessageManagerInterface s : Shards )
+			s.SetQueueLimit( id, Capacity, Policy, BlockMillis );
+
+	} // SetQueueLimit
+
+	public long GetDroppedCount( long id ) throws RemoteException
+	{
+		long n = 0;
+
+		for ( RMIMessageManagerInterface s : Shards )
+			n += s.GetDroppedCount( id );
+
+		return n;
+
+	} // GetDroppedCount
+
+	public Message GetLastValue( int MsgId ) throws RemoteException
+	{
+		return Shards[GetShard( MsgId )].GetLastValue( MsgId );
+
+	} // GetLastValue
+
+	public List<Message> GetRetained( int MsgIds[] ) throws RemoteException
+	{
+		HashMap<Integer, Message> found = new HashMap<Integer, Message>();
+
+		for ( int i = 0; i < Shards.length; i++ )
+		{
+			int n = 0;
+			int ids[] = new int[MsgIds.length];
+
+			for ( int MsgId : MsgIds )
+			{
+				if ( GetShard( MsgId ) == i )
+					ids[n++] = MsgId;
+
+			} // for
+
+			if ( n > 0 )
+			{
+				for ( Message m : Shards[i].GetRetained( Arrays.copyOf( ids, n ) ) )
+					found.put( m.GetMessageId(), m );
+
+			} // if
+
+		} // for
+
+		// In the order asked for, as from a single message manager
+
+		ArrayList<Message> ms = new ArrayList<Message>();
+
+		for ( int MsgId : MsgIds )
+		{
+			Message m = found.remove( MsgId );
+
+			if ( m != null )
+				ms.add( m );
+
+		} // for
+
+		return ms;
+
+	} // GetRetained
+
+	public boolean RenewLease( long id ) throws RemoteException
+	{
+		boolean renewed = true;
+
+		for ( RMIMessageManagerInterface s : Shards )
+			renewed &= s.RenewLease( id );
+
+		if ( !renewed )
+			Forget( id );
+
+		return renewed;
+
+	} // RenewLease
+
+	public long GetLeaseDuration() throws RemoteException
+	{
+		return Shards[0].GetLeaseDuration();
+
+	} // GetLeaseDuration
+
+	public BrokerStats GetStats() throws RemoteException
+	{
+		long requests = 0;
+		ArrayList<ParticipantStats> ps = new ArrayList<ParticipantStats>();
+		LatencyHistogram send = new LatencyHistogram();
+		LatencyHistogram drain = new LatencyHistogram();
+
+		// A participant is listed once per shard, with its queue there
+
+		for ( RMIMessageManagerInterface s : Shards )
+		{
+			BrokerStats b = s.GetStats();
+
+			requests += b.GetRequests();
+			ps.addAll( Arrays.asList( b.GetParticipants() ) );
+			send.Add( b.GetSendLatency() );
+			drain.Add( b.GetDrainLatency() );
+
+		} // for
+
+		return new BrokerStats( requests, ps.toArray( new ParticipantStats[0] ), send, drain );
+
+	} // GetStats
+
+	public boolean isAlive() throws RemoteException
+	{
+		boolean alive = true;
+
+		for ( RMIMessageManagerInterface s : Shards )
+			alive &= s.isAlive();
+
+		return alive;
+
+	} // isAlive
+
+	private static synchronized ExecutorService GetPollers()
+	{
+		if ( Pollers == null )
+		{
+			Pollers = Executors.newCachedThreadPool( new ThreadFactory()
+			{
+				public Thread newThread( Runnable r )
+				{
+					Thread t = new Thread( r, "shard-poll" );
+					t.setDaemon( true );
+					return t;
+				}
+			});
+
+		} // if
+
+		return Pollers;
+
+	} // GetPollers
+
+	/***************************************************************************
+	* INNER CLASS:: Waiter
+	* Purpose: One participant's long polls: which shards a poll is running
+	*		   on, the queues the polls have returned but nobody has taken and
+	*		   how many polls are reading it. Threads waiting for a poll to
+	*		   return wait on the Waiter.
+	*
+	****************************************************************************/
+
+	private static final class Waiter
+	{
+		final AtomicBoolean Parked[];
+		final ConcurrentLinkedQueue<MessageQueue> Arrived = new ConcurrentLinkedQueue<MessageQueue>();
+		int Users = 0;								// Polls holding this waiter, guarded by Waiters
+
+		Waiter( int Shards )
+		{
+			Parked = new AtomicBoolean[Shards];
+
+			for ( int i = 0; i < Shards; i++ )
+				Parked[i] = new AtomicBoolean();
+		}
+
+		boolean IsIdle()
+		{
+			if ( Users > 0 )
+				return false;
+
+			// Parked is read first; see Forget
+
+			for ( AtomicBoolean p : Parked )
+			{
+				if ( p.get() )
+					return false;
+
+			} // for
+
+			return Arrived.isEmpty();
+		}
+
+	} // Waiter
+
+} // ShardedBroker
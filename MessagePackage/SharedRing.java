@@ -0,0 +1,214 @@
+/******************************************************************************************************************
+* File:SharedRing.java
+* Course: 17655
+* Project: Assignment A2
+* Copyright: Copyright (c) 2009 Carnegie Mellon University
+* Versions:
+*	1.0 October 2026 - Initial version.
+*
+* Description: This class is a single producer, single consumer ring buffer in a memory mapped file, used to pass
+*			   frames (see Frames.java) between two processes on the same host. The producer and the consumer each
+*			   own one counter: Tail (bytes written) and Head (bytes read). Each is published with a release store
+*			   and read with an acquire load, so the bytes behind a counter are visible once the counter is; no
+*			   lock and no system call is involved.
+*
+*			   A frame is written as one or more records of [int header][bytes], each padded to 8 bytes. The high
+*			   bit of the header means more records of the same frame follow, so a frame may be larger than the
+*			   ring. A record never wraps; a PAD header sends the reader back to the start of the ring.
+*
+*			   The counters are 64 bytes apart in the mapped file so the two sides do not share a cache line.
+*
+* Parameters:
+*			   Map - This is the mapped file
+*			   HeadOffset, TailOffset - These are where the counters are in the file
+*			   DataOffset, Capacity - This is the ring itself; Capacity is a power of two
+*
+* Internal Methods: None
+*
+******************************************************************************************************************/
+package MessagePackage;
+
+import java.lang.invoke.*;
+import java.nio.*;
+
+class SharedRing
+{
+	static final int MORE = 0x80000000;				// Header bit: the frame continues in the next record
+	static final int PAD = 0x7fffffff;				// Header: skip to the start of the ring
+
+	static final VarHandle COUNTER = MethodHandles.byteBufferViewVarHandle( long[].class, ByteOrder.nativeOrder() );
+
+	private final ByteBuffer Map;
+	private final int HeadOffset;
+	private final int TailOffset;
+	private final int DataOffset;
+	private final int Capacity;
+	private final int MaxRecord;
+
+	// Producer state
+
+	private long Tail;
+	private long CachedHead;
+	private final ByteBuffer ProducerView;
+
+	// Consumer state
+
+	private long Head;
+	private final ByteBuffer ConsumerView;
+	private ByteBuffer Assembly = ByteBuffer.allocate( 4096 );	// Frame being put back together from records
+
+	SharedRing( ByteBuffer Map, int HeadOffset, int TailOffset, int DataOffset, int Capacity )
+	{
+		this.Map = Map;
+		this.HeadOffset = HeadOffset;
+		this.TailOffset = TailOffset;
+		this.DataOffset = DataOffset;
+		this.Capacity = Capacity;
+		MaxRecord = Capacity / 4;
+		ProducerView = Map.duplicate();
+		ConsumerView = Map.duplicate();
+
+		Tail = (long) COUNTER.getAcquire( Map, TailOffset );
+		Head = (long) COUNTER.getAcquire( Map, HeadOffset );
+		CachedHead = Head;
+
+	} // constructor
+
+	/***************************************************************************
+	* CONCRETE METHOD:: Offer
+	* Purpose: Producer side. Writes as much of a frame as there is room for.
+	*		   The frame's position moves past what was written, so a frame that
+	*		   did not fit can be offered again later to write the rest.
+	*
+	* Arguments: ByteBuffer - the frame, from position to limit
+	*
+	* Returns: boolean - true once the whole frame has been written
+	*
+	* Exceptions: None
+	*
+	****************************************************************************/
+
+	boolean Offer( ByteBuffer Frame )
+	{
+		boolean wrote = false;
+
+		while ( Frame.hasRemaining() )
+		{
+			int length = Math.min( Frame.remaining(), MaxRecord );
+			int size = Align( 4 + length );
+			int at = (int) (Tail & (Capacity - 1));
+			int skip = (at + size > Capacity) ? Capacity - at : 0;
+
+			if ( Capacity - (Tail - CachedHead) < skip + size )
+			{
+				CachedHead = (long) COUNTER.getAcquire( Map, HeadOffset );
+
+				if ( Capacity - (Tail - CachedHead) < skip + size )
+					break;
+
+			} // if
+
+			if ( skip > 0 )
+			{
+				Map.putInt( DataOffset + at, PAD );
+				Tail += skip;
+				at = 0;
+
+			} // if
+
+			int header = length | ((Frame.remaining() > length) ? MORE : 0);
+
+			ByteBuffer record = Frame.slice();
+			record.limit( length );
+			ProducerView.position( DataOffset + at + 4 );
+			ProducerView.put( record );
+			Frame.position( Frame.position() + length );
+
+			Map.putInt( DataOffset + at, header );
+			Tail += size;
+			wrote = true;
+
+		} // while
+
+		if ( wrote )
+			COUNTER.setRelease( Map, TailOffset, Tail );
+
+		return !Frame.hasRemaining();
+
+	} // Offer
+
+	/***************************************************************************
+	* CONCRETE METHOD:: Poll
+	* Purpose: Consumer side. Reads records until a whole frame is available.
+	*
+	* Arguments: None
+	*
+	* Returns: ByteBuffer - the next frame, or null if no whole frame has
+	*		   arrived yet
+	*
+	* Exceptions: None
+	*
+	****************************************************************************/
+
+	ByteBuffer Poll()
+	{
+		long tail = (long) COUNTER.getAcquire( Map, TailOffset );
+		long head = Head;
+		ByteBuffer frame = null;
+
+		while ( Head < tail && frame == null )
+		{
+			int at = (int) (Head & (Capacity - 1));
+			int header = Map.getInt( DataOffset + at );
+
+			if ( header == PAD )
+			{
+				Head += Capacity - at;
+				continue;
+
+			} // if
+
+			int length = header & ~MORE;
+
+			if ( Assembly.remaining() < length )
+			{
+				ByteBuffer bigger = ByteBuffer.allocate( Math.max( Assembly.capacity() * 2, Assembly.position() + length ) );
+				Assembly.flip();
+				bigger.put( Assembly );
+				Assembly = bigger;
+
+			} // if
+
+			ConsumerView.limit( DataOffset + at + 4 + length );
+			ConsumerView.position( DataOffset + at + 4 );
+			Assembly.put( ConsumerView );
+			ConsumerView.limit( ConsumerView.capacity() );
+
+			Head += Align( 4 + length );
+
+			if ( (header & MORE) == 0 )
+			{
+				Assembly.flip();
+				frame = ByteBuffer.allocate( Assembly.remaining() );
+				frame.put( Assembly );
+				frame.flip();
+				Assembly.clear();
+
+			} // if
+
+		} // while
+
+		if ( Head != head )
+			COUNTER.setRelease( Map, HeadOffset, Head );
+
+		return frame;
+
+	} // Poll
+
+	private static int Align( int n )
+	{
+		return (n + 7) & ~7;
+
+	} // Align
+
+} // SharedRing
@@ -0,0 +1,326 @@
+/******************************************************************************************************************
+* File:Snapshot.java
+* Course: 17655
+* Project: Assignment A2
+* Copyright: Copyright (c) 2009 Carnegie Mellon University
+* Versions:
+*	1.0 October 2026 - Initial version.
+*
+* Description: This class is a snapshot of the message manager's state: every registered participant with its
+*			   subscriptions, its queue limit and the messages waiting in its queue. The message manager writes one
+*			   periodically and loads the latest one when it starts, so that participants keep their ids across a
+*			   restart. Unlike the journal (see Journal.java) a snapshot does not hold messages sent after it was
+*			   taken. The messages the message manager retains (the latest one with each message id) follow the
+*			   participants; snapshots written before they were retained simply end after the participants.
+*
+*			   The file is a plain binary encoding (no Java serialization) so that loading it is quick. Message texts
+*			   that occur more than once are written once and referred to by number, since queues tend to hold many
+*			   copies of the same reading. As with Checkpoint, the file is written under a temporary name, forced to
+*			   disk and renamed over the previous snapshot.
+*
+* Parameters:
+*			   Participants - This is one Entry per registered participant
+*			   Retained - This is the latest message with each message id
+*
+* Internal Methods: None
+*
+******************************************************************************************************************/
+package MessagePackage;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+public class Snapshot
+{
+	static final String FILE_NAME = "snapshot";
+	static final int MAGIC = 0x4d4d534e;			// "MMSN"
+
+	public ArrayList<Entry> Participants = new ArrayList<Entry>();
+	public ArrayList<Message> Retained = new ArrayList<Message>();
+
+	/***************************************************************************
+	* INNER CLASS:: Entry
+	* Purpose: One participant in a snapshot. Low[i]..High[i] are its
+	*		   subscribed ranges; Messages are its queued messages, oldest first.
+	*
+	****************************************************************************/
+
+	public static class Entry
+	{
+		public long Id;
+		public long RegistrationTime;
+		public int MsgIds[] = new int[0];
+		public int Low[] = new int[0];
+		public int High[] = new int[0];
+		public int Capacity;
+		public OverflowPolicy Policy = OverflowPolicy.DROP_OLDEST;
+		public long BlockMillis;
+		public ArrayList<Message> Messages = new ArrayList<Message>();
+
+	} // Entry
+
+	/***************************************************************************
+	* CONCRETE METHOD:: Write
+	* Purpose: This method replaces the snapshot in a directory.
+	*
+	* Arguments: File - directory
+	*
+	* Returns: None
+	*
+	* Exceptions: IOException
+	*
+	****************************************************************************/
+
+	public void Write( File Directory ) throws IOException
+	{
+		File tmp = new File( Directory, FILE_NAME + ".tmp" );
+		HashMap<String, Integer> texts = new HashMap<String, Integer>();
+
+		try ( FileOutputStream fos = new FileOutputStream( tmp ) )
+		{
+			DataOutputStream out = new DataOutputStream( new BufferedOutputStream( fos, 1 << 16 ) );
+
+			out.writeInt( MAGIC );
+			out.writeInt( Participants.size() );
+
+			for ( Entry e : Participants )
+			{
+				out.writeLong( e.Id );
+				out.writeLong( e.RegistrationTime );
+				Checkpoint.WriteInts( out, e.MsgIds );
+				Checkpoint.WriteInts( out, e.Low );
+				Checkpoint.WriteInts( out, e.High );
+				out.writeInt( e.Capacity );
+				out.writeByte( e.Policy.ordinal() );
+				out.writeLong( e.BlockMillis );
+				out.writeInt( e.Messages.size() );
+
+				for ( Message m : e.Messages )
+					WriteMessage( out, m, texts );
+
+			} // for
+
+			WriteMessages( out, Retained, texts );
+
+			out.flush();
+			fos.getFD().sync();
+
+		} // try
+
+		Files.move( tmp.toPath(), new File( Directory, FILE_NAME ).toPath(),
+			StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE );
+
+	} // Write
+
+	/***************************************************************************
+	* CONCRETE METHOD:: Read
+	* Purpose: This method reads the snapshot in a directory.
+	*
+	* Arguments: File - directory
+	*
+	* Returns: Snapshot, or null if there is none
+	*
+	* Exceptions: IOException if the snapshot cannot be read
+	*
+	****************************************************************************/
+
+	public static Snapshot Read( File Directory ) throws IOException
+	{
+		File f = new File( Directory, FILE_NAME );
+
+		if ( !f.exists() )
+			return null;
+
+		try ( DataInputStream in = new DataInputStream( new BufferedInputStream( new FileInputStream( f ), 1 << 16 ) ) )
+		{
+			if ( in.readInt() != MAGIC )
+				throw new IOException( "Not a snapshot: " + f );
+
+			Snapshot s = new Snapshot();
+			ArrayList<String> texts = new ArrayList<String>();
+			int count = in.readInt();
+
+			for ( int i = 0; i < count; i++ )
+			{
+				Entry e = new Entry();
+				e.Id = in.readLong();
+				e.RegistrationTime = in.readLong();
+				e.MsgIds = Checkpoint.ReadInts( in );
+				e.Low = Checkpoint.ReadInts( in );
+				e.High = Checkpoint.ReadInts( in );
+				e.Capacity = in.readInt();
+				e.Policy = OverflowPolicy.values()[in.readByte()];
+				e.BlockMillis = in.readLong();
+
+				int queued = in.readInt();
+				e.Messages.ensureCapacity( queued );
+
+				for ( int j = 0; j < queued; j++ )
+					e.Messages.add( ReadMessage( in, texts ) );
+
+				s.Participants.add( e );
+
+			} // for
+
+			ReadMessages( in, s.Retained, texts );
+
+			return s;
+
+		} // try
+
+	} // Read
+
+	static void WriteMessage( DataOutputStream out, Message m, HashMap<String, Integer> seen ) throws IOException
+	{
+		out.writeInt( m.GetMessageId() );
+		out.writeLong( m.GetSenderId() );
+		WritePayload( out, m, seen );
+
+	} // WriteMessage
+
+	static Message ReadMessage( DataInputStream in, ArrayList<String> seen ) throws IOException
+	{
+		int id = in.readInt();
+		long sender = in.readLong();
+		Message m = ReadPayload( in, id, seen );
+		m.SetSenderId( sender );
+
+		return m;
+
+	} // ReadMessage
+
+	/***************************************************************************
+	* A list of messages at the end of a file is written as a count and the
+	* messages. A file that ends before the count was written by an earlier
+	* version and has none.
+	****************************************************************************/
+
+	static void WriteMessages( DataOutputStream out, List<Message> ms, HashMap<String, Integer> seen ) throws IOException
+	{
+		out.writeInt( ms.size() );
+
+		for ( Message m : ms )
+			WriteMessage( out, m, seen );
+
+	} // WriteMessages
+
+	static void ReadMessages( DataInputStream in, List<Message> ms, ArrayList<String> seen ) throws IOException
+	{
+		int count;
+
+		try
+		{
+			count = in.readInt();
+
+		} catch (EOFException e) {
+
+			return;
+
+		} // try
+
+		for ( int i = 0; i < count; i++ )
+			ms.add( ReadMessage( in, seen ) );
+
+	} // ReadMessages
+
+	/***************************************************************************
+	* Texts are written as -1 for null, -2 followed by the length and UTF-8
+	* bytes for a text not seen before, or the number of an earlier text.
+	* Typed payloads are written as -3 and a float or -4 and a command code.
+	****************************************************************************/
+
+	private static void WritePayload( DataOutputStream out, Message m, HashMap<String, Integer> seen ) throws IOException
+	{
+		if ( m.GetPriority() != Message.NORMAL )
+		{
+			out.writeInt( -5 );
+			out.write( m.GetPriority() );
+
+		} // if
+
+		if ( m.GetKind() == Message.FLOAT )
+		{
+			out.writeInt( -3 );
+			out.writeFloat( m.GetValue() );
+			return;
+
+		} // if
+
+		if ( m.GetKind() == Message.COMMAND )
+		{
+			out.writeInt( -4 );
+			out.writeInt( m.GetCommand() );
+			return;
+
+		} // if
+
+		String text = m.GetMessage();
+
+		if ( text == null )
+		{
+			out.writeInt( -1 );
+			return;
+
+		} // if
+
+		Integer n = seen.get( text );
+
+		if ( n != null )
+		{
+			out.writeInt( n );
+			return;
+
+		} // if
+
+		byte b[] = text.getBytes( StandardCharsets.UTF_8 );
+
+		out.writeInt( -2 );
+		out.writeInt( b.length );
+		out.write( b );
+		seen.put( text, seen.size() );
+
+	} // WritePayload
+
+	private static Message ReadPayload( DataInputStream in, int MsgId, ArrayList<String> seen ) throws IOException
+	{
+		int n = in.readInt();
+		int priority = Message.NORMAL;
+
+		if ( n == -5 )
+		{
+			priority = in.readUnsignedByte();
+			n = in.readInt();
+
+		} // if
+
+		return ReadBody( in, MsgId, n, seen ).SetPriority( priority );
+
+	} // ReadPayload
+
+	private static Message ReadBody( DataInputStream in, int MsgId, int n, ArrayList<String> seen ) throws IOException
+	{
+		if ( n == -1 )
+			return new Message( MsgId, (String) null );
+
+		if ( n == -3 )
+			return new Message( MsgId, in.readFloat() );
+
+		if ( n == -4 )
+			return Message.Command( MsgId, in.readInt() );
+
+		if ( n >= 0 )
+			return new Message( MsgId, seen.get( n ) );
+
+		byte b[] = new byte[in.readInt()];
+		in.readFully( b );
+
+		String text = new String( b, StandardCharsets.UTF_8 );
+		seen.add( text );
+
+		return new Message( MsgId, text );
+
+	} // ReadBody
+
+} // Snapshot
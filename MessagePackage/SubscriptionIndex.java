@@ -0,0 +1,607 @@
+/******************************************************************************************************************
+* File:SubscriptionIndex.java
+* Course: 17655
+* Project: Assignment A2
+* Copyright: Copyright (c) 2009 Carnegie Mellon University
+* Versions:
+*	1.0 October 2026 - Initial version.
+*
+* Description: This class records which participants want which message ids and routes each message only to the
+*			   interested queues. A participant that has not subscribed to anything receives every message, which is
+*			   how the message manager has always behaved. Once a participant subscribes to a set of ids or to a
+*			   range of ids it only receives messages that match.
+*
+*			   Routing never takes a lock. The whole index is one immutable Index object that is replaced when a
+*			   subscription changes (subscriptions change rarely, messages are routed constantly), and Route reads it
+*			   once, so a message routed while a subscription changes sees either the old subscription or the new
+*			   one, never a mixture: it reaches each interested queue exactly once. The index holds:
+*
+*				ById - message id -> array of queues subscribed to exactly that id, in an open addressing table
+*					   keyed by primitive ints so that routing never boxes the id
+*				Ranged - the subscriptions with at least one range
+*				Everyone - array of queues with no subscription at all
+*
+* Parameters: None
+*
+* Internal Methods:
+*			   Rebuild - Publishes a new index with one participant's subscription changed.
+*			   Put - Sets or removes one id's subscribers in the working copy of ById.
+*
+******************************************************************************************************************/
+package MessagePackage;
+
+import java.util.*;
+
+public class SubscriptionIndex
+{
+	private static final MessageQueue[] NONE = new MessageQueue[0];
+
+	private static final Interest[] NO_RANGES = new Interest[0];
+
+	private final ParticipantTable<Subscription> ByParticipant = new ParticipantTable<Subscription>();
+	private volatile Index Current = new Index( NONE, new IdTable( new HashMap<Integer, MessageQueue[]>() ), NO_RANGES );
+
+	/***************************************************************************
+	* INTERFACE:: Router
+	* Purpose: Implemented by callers of Route; Deliver is called once for each
+	*		   queue that should receive the message.
+	*
+	****************************************************************************/
+
+	public interface Router
+	{
+		void Deliver( MessageQueue mq );
+
+	} // Router
+
+	/***************************************************************************
+	* CONCRETE METHOD:: Add
+	* Purpose: Adds a newly registered participant's queue. The participant
+	*		   starts out receiving every message.
+	*
+	* Arguments: MessageQueue
+	*
+	* Returns: None
+	*
+	* Exceptions: None
+	*
+	****************************************************************************/
+
+	public synchronized void Add( MessageQueue mq )
+	{
+		Subscription s = new Subscription( mq );
+
+		if ( ByParticipant.PutIfAbsent( mq.GetId(), s ) == null )
+		{
+			Index x = Current;
+			Current = new Index( Append( x.Everyone, mq ), x.ById, x.Ranged );
+
+		} // if
+
+	} // Add
+
+	/***************************************************************************
+	* CONCRETE METHOD:: Remove
+	* Purpose: Removes participants and all of their subscriptions. The shared
+	*		   lists are rebuilt once for the whole batch.
+	*
+	* Arguments: long[] - participant ids
+	*
+	* Returns: None
+	*
+	* Exceptions: None
+	*
+	****************************************************************************/
+
+	public synchronized void Remove( long... ids )
+	{
+		Set<MessageQueue> gone = Collections.newSetFromMap( new IdentityHashMap<MessageQueue, Boolean>() );
+		Index x = Current;
+		HashMap<Integer, MessageQueue[]> byId = null;
+
+		for ( long id : ids )
+		{
+			Subscription s = ByParticipant.Remove( id );
+
+			if ( s == null )
+				continue;
+
+			if ( s.Current.Ids.length > 0 && byId == null )
+				byId = x.ById.ToMap();
+
+			for ( int i : s.Current.Ids )
+				Put( byId, i, Without( byId.get(i), s.Queue ) );
+
+			gone.add( s.Queue );
+
+		} // for
+
+		if ( !gone.isEmpty() )
+		{
+			ArrayList<Interest> ranged = new ArrayList<Interest>();
+
+			for ( Interest r : x.Ranged )
+			{
+				if ( !gone.contains( r.Queue ) )
+					ranged.add( r );
+
+			} // for
+
+			Current = new Index( Without( x.Everyone, gone ), (byId == null) ? x.ById : new IdTable( byId ),
+				(ranged.size() == x.Ranged.length) ? x.Ranged : ranged.toArray( NO_RANGES ) );
+
+		} // if
+
+	} // Remove
+
+	/***************************************************************************
+	* CONCRETE METHOD:: Subscribe
+	* Purpose: Adds message ids to a participant's subscription.
+	*
+	* Arguments: long - participant id, int[] - message ids
+	*
+	* Returns: boolean - false if the participant is not known
+	*
+	* Exceptions: None
+	*
+	****************************************************************************/
+
+	public synchronized boolean Subscribe( long id, int MsgIds[] )
+	{
+		Subscription s = ByParticipant.Get( id );
+
+		if ( s == null )
+			return false;
+
+		Interest now = s.Current;
+		TreeSet<Integer> ids = new TreeSet<Integer>();
+
+		for ( int i : now.Ids )
+			ids.add( i );
+
+		for ( int i : MsgIds )
+			ids.add( i );
+
+		int[] merged = new int[ids.size()];
+		int n = 0;
+
+		for ( int i : ids )
+			merged[n++] = i;
+
+		Rebuild( s, new Interest( s.Queue, merged, now.Low, now.High ) );
+
+		return true;
+
+	} // Subscribe
+
+	/***************************************************************************
+	* CONCRETE METHOD:: SubscribeRange
+	* Purpose: Adds an inclusive range of message ids to a participant's
+	*		   subscription.
+	*
+	* Arguments: long - participant id, int - low id, int - high id
+	*
+	* Returns: boolean - false if the participant is not known
+	*
+	* Exceptions: None
+	*
+	****************************************************************************/
+
+	public synchronized boolean SubscribeRange( long id, int LowMsgId, int HighMsgId )
+	{
+		Subscription s = ByParticipant.Get( id );
+
+		if ( s == null )
+			return false;
+
+		Interest now = s.Current;
+		int[] low = Arrays.copyOf( now.Low, now.Low.length + 1 );
+		int[] high = Arrays.copyOf( now.High, now.High.length + 1 );
+		low[low.length - 1] = Math.min( LowMsgId, HighMsgId );
+		high[high.length - 1] = Math.max( LowMsgId, HighMsgId );
+
+		Rebuild( s, new Interest( s.Queue, now.Ids, low, high ) );
+
+		return true;
+
+	} // SubscribeRange
+
+	/***************************************************************************
+	* CONCRETE METHOD:: UnSubscribe
+	* Purpose: Clears a participant's subscription so that it receives every
+	*		   message again.
+	*
+	* Arguments: long - participant id
+	*
+	* Returns: boolean - false if the participant is not known
+	*
+	* Exceptions: None
+	*
+	****************************************************************************/
+
+	public synchronized boolean UnSubscribe( long id )
+	{
+		Subscription s = ByParticipant.Get( id );
+
+		if ( s == null )
+			return false;
+
+		Rebuild( s, new Interest( s.Queue, new int[0], new int[0], new int[0] ) );
+
+		return true;
+
+	} // UnSubscribe
+
+	/***************************************************************************
+	* CONCRETE METHOD:: GetSubscription
+	* Purpose: Returns a participant's subscription as three arrays: the
+	*		   subscribed ids, and the low and high ends of the subscribed
+	*		   ranges. All three are empty if the participant receives every
+	*		   message.
+	*
+	* Arguments: long - participant id
+	*
+	* Returns: int[3][], or null if the participant is not known
+	*
+	* Exceptions: None
+	*
+	****************************************************************************/
+
+	public synchronized int[][] GetSubscription( long id )
+	{
+		Subscription s = ByParticipant.Get( id );
+
+		if ( s == null )
+			return null;
+
+		Interest now = s.Current;
+
+		return new int[][] { now.Ids, now.Low, now.High };
+
+	} // GetSubscription
+
+	/***************************************************************************
+	* CONCRETE METHOD:: GetFilter
+	* Purpose: Returns a filter that accepts the message ids a participant
+	*		   currently wants, for reading a shared log (see MessageLog.java).
+	*		   The filter follows later changes to the subscription.
+	*
+	* Arguments: long - participant id
+	*
+	* Returns: MessageLog.Filter, or null if id is not registered
+	*
+	* Exceptions: None
+	*
+	****************************************************************************/
+
+	public MessageLog.Filter GetFilter( long id )
+	{
+		return ByParticipant.Get( id );
+
+	} // GetFilter
+
+	/***************************************************************************
+	* CONCRETE METHOD:: Route
+	* Purpose: Calls the router once for every queue interested in the message.
+	*
+	* Arguments: int - message id, Router
+	*
+	* Returns: None
+	*
+	* Exceptions: None
+	*
+	****************************************************************************/
+
+	public void Route( int MsgId, Router r )
+	{
+		// One read of the index: the lists below all describe the same moment
+
+		Index x = Current;
+		MessageQueue[] queues = x.Everyone;
+
+		for ( int i = 0; i < queues.length; i++ )
+			r.Deliver( queues[i] );
+
+		queues = x.ById.Get( MsgId );
+
+		if ( queues != null )
+		{
+			for ( int i = 0; i < queues.length; i++ )
+				r.Deliver( queues[i] );
+
+		} // if
+
+		Interest ranged[] = x.Ranged;
+
+		for ( int i = 0; i < ranged.length; i++ )
+		{
+			// A queue that also subscribed to this exact id has already had it
+
+			if ( ranged[i].InRange( MsgId ) && !ranged[i].HasId( MsgId ) )
+				r.Deliver( ranged[i].Queue );
+
+		} // for
+
+	} // Route
+
+	private void Rebuild( Subscription s, Interest next )
+	{
+		Index x = Current;
+		MessageQueue mq = s.Queue;
+		Interest was = s.Current;
+		IdTable byId = x.ById;
+
+		// Work on copies, then publish them in one write, so that routing
+		// never sees the participant half moved from one list to another.
+		// Subscriptions change rarely, so the copy is a plain map.
+
+		if ( was.Ids.length > 0 || next.Ids.length > 0 )
+		{
+			HashMap<Integer, MessageQueue[]> copy = x.ById.ToMap();
+
+			for ( int i : was.Ids )
+				Put( copy, i, Without( copy.get(i), mq ) );
+
+			for ( int i : next.Ids )
+				Put( copy, i, Append( copy.get(i), mq ) );
+
+			byId = new IdTable( copy );
+
+		} // if
+
+		ArrayList<Interest> ranged = new ArrayList<Interest>();
+
+		for ( Interest r : x.Ranged )
+		{
+			if ( r.Queue != mq )
+				ranged.add( r );
+
+		} // for
+
+		if ( next.Low.length > 0 )
+			ranged.add( next );
+
+		MessageQueue everyone[] = next.IsEverything() ? Append( x.Everyone, mq ) : Without( x.Everyone, mq );
+
+		s.Current = next;
+		Current = new Index( everyone, byId, ranged.toArray( NO_RANGES ) );
+
+	} // Rebuild
+
+	private static void Put( HashMap<Integer, MessageQueue[]> byId, int MsgId, MessageQueue[] subscribers )
+	{
+		if ( subscribers.length == 0 )
+			byId.remove( MsgId );
+		else
+			byId.put( MsgId, subscribers );
+
+	} // Put
+
+	private static MessageQueue[] Append( MessageQueue[] a, MessageQueue mq )
+	{
+		if ( a == null )
+			a = NONE;
+
+		for ( int i = 0; i < a.length; i++ )
+		{
+			if ( a[i] == mq )
+				return a;
+
+		} // for
+
+		MessageQueue[] b = Arrays.copyOf( a, a.length + 1 );
+		b[a.length] = mq;
+
+		return b;
+
+	} // Append
+
+	private static MessageQueue[] Without( MessageQueue[] a, MessageQueue mq )
+	{
+		if ( a == null )
+			return NONE;
+
+		for ( int i = 0; i < a.length; i++ )
+		{
+			if ( a[i] == mq )
+			{
+				MessageQueue[] b = new MessageQueue[a.length - 1];
+				System.arraycopy( a, 0, b, 0, i );
+				System.arraycopy( a, i + 1, b, i, a.length - i - 1 );
+
+				return b;
+
+			} // if
+
+		} // for
+
+		return a;
+
+	} // Without
+
+	private static MessageQueue[] Without( MessageQueue[] a, Set<MessageQueue> gone )
+	{
+		ArrayList<MessageQueue> kept = new ArrayList<MessageQueue>( a.length );
+
+		for ( int i = 0; i < a.length; i++ )
+		{
+			if ( !gone.contains( a[i] ) )
+				kept.add( a[i] );
+
+		} // for
+
+		return (kept.size() == a.length) ? a : kept.toArray( NONE );
+
+	} // Without
+
+	/***************************************************************************
+	* INNER CLASS:: Index
+	* Purpose: The routing lists at one moment. Never modified once published.
+	*
+	****************************************************************************/
+
+	private static final class Index
+	{
+		final MessageQueue[] Everyone;
+		final IdTable ById;
+		final Interest[] Ranged;
+
+		Index( MessageQueue[] Everyone, IdTable ById, Interest[] Ranged )
+		{
+			this.Everyone = Everyone;
+			this.ById = ById;
+			this.Ranged = Ranged;
+		}
+
+	} // Index
+
+	/***************************************************************************
+	* INNER CLASS:: IdTable
+	* Purpose: An immutable open addressing table from message id to the
+	*		   queues subscribed to it. Keys are primitive ints, probed
+	*		   linearly; a slot with no queues is empty. The table is at most
+	*		   half full.
+	*
+	****************************************************************************/
+
+	private static final class IdTable
+	{
+		final int[] Keys;
+		final MessageQueue[][] Values;
+		final int Mask;
+
+		IdTable( Map<Integer, MessageQueue[]> byId )
+		{
+			int capacity = 2;
+
+			while ( capacity < byId.size() * 2 )
+				capacity <<= 1;
+
+			Keys = new int[capacity];
+			Values = new MessageQueue[capacity][];
+			Mask = capacity - 1;
+
+			for ( Map.Entry<Integer, MessageQueue[]> e : byId.entrySet() )
+			{
+				int i = Slot( e.getKey() );
+
+				while ( Values[i] != null )
+					i = (i + 1) & Mask;
+
+				Keys[i] = e.getKey();
+				Values[i] = e.getValue();
+
+			} // for
+		}
+
+		int Slot( int MsgId )
+		{
+			return (int) ParticipantTable.Mix( MsgId ) & Mask;
+		}
+
+		MessageQueue[] Get( int MsgId )
+		{
+			MessageQueue[] v;
+
+			for ( int i = Slot( MsgId ); (v = Values[i]) != null; i = (i + 1) & Mask )
+			{
+				if ( Keys[i] == MsgId )
+					return v;
+
+			} // for
+
+			return null;
+		}
+
+		HashMap<Integer, MessageQueue[]> ToMap()
+		{
+			HashMap<Integer, MessageQueue[]> m = new HashMap<Integer, MessageQueue[]>();
+
+			for ( int i = 0; i < Keys.length; i++ )
+			{
+				if ( Values[i] != null )
+					m.put( Keys[i], Values[i] );
+
+			} // for
+
+			return m;
+		}
+
+	} // IdTable
+
+	/***************************************************************************
+	* INNER CLASS:: Interest
+	* Purpose: One participant's subscription at one moment. Ids is sorted.
+	*		   Low[i]..High[i] are inclusive ranges. Never modified; a change
+	*		   makes a new Interest.
+	*
+	****************************************************************************/
+
+	private static final class Interest
+	{
+		final MessageQueue Queue;
+		final int[] Ids;
+		final int[] Low;
+		final int[] High;
+
+		Interest( MessageQueue Queue, int[] Ids, int[] Low, int[] High )
+		{
+			this.Queue = Queue;
+			this.Ids = Ids;
+			this.Low = Low;
+			this.High = High;
+		}
+
+		boolean IsEverything()
+		{
+			return Ids.length == 0 && Low.length == 0;
+		}
+
+		boolean HasId( int MsgId )
+		{
+			return Arrays.binarySearch( Ids, MsgId ) >= 0;
+		}
+
+		boolean InRange( int MsgId )
+		{
+			for ( int i = 0; i < Low.length; i++ )
+			{
+				if ( MsgId >= Low[i] && MsgId <= High[i] )
+					return true;
+
+			} // for
+
+			return false;
+		}
+
+	} // Interest
+
+	/***************************************************************************
+	* INNER CLASS:: Subscription
+	* Purpose: A participant's entry: its queue and its current interest.
+	*
+	****************************************************************************/
+
+	private static final class Subscription implements MessageLog.Filter
+	{
+		final MessageQueue Queue;
+		volatile Interest Current;
+
+		Subscription( MessageQueue mq )
+		{
+			Queue = mq;
+			Current = new Interest( mq, new int[0], new int[0], new int[0] );
+		}
+
+		public boolean Accept( int MsgId )
+		{
+			// Read once: a change replaces the interest as a whole
+
+			Interest now = Current;
+
+			return now.IsEverything() || now.HasId( MsgId ) || now.InRange( MsgId );
+		}
+
+	} // Subscription
+
+} // SubscriptionIndex